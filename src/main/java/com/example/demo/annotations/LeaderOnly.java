@@ -0,0 +1,27 @@
+package com.example.demo.annotations;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Annotazione per eseguire un task schedulato su una sola istanza dell'applicazione alla volta.</p>
+ *
+ * <p>Applicarla a un metodo {@link org.springframework.scheduling.annotation.Scheduled} che lavora sul
+ * database condiviso: le istanze che non detengono il lease del task saltano l'esecuzione e il metodo
+ * restituisce {@code null}. Non va usata sui task che aggiornano lo stato in memoria di ogni istanza.</p>
+ *
+ * <p>Funziona insieme a {@link com.example.demo.interceptors.LeaderOnlyPostProcessor} e
+ * {@link com.example.demo.service.scheduling.SchedulerLeaseManager}.</p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LeaderOnly {
+
+    /**
+     * Nome del task, uguale su tutte le istanze: identifica il lease sul database.
+     */
+    String value();
+}
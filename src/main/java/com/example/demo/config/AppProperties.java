@@ -16,5 +16,190 @@ import org.springframework.context.annotation.Configuration;
 @Setter
 public class AppProperties {
     private String codiceAdmin;
+    private CalendarProperties calendar = new CalendarProperties();
+    private HoldProperties hold = new HoldProperties();
+    private SearchProperties search = new SearchProperties();
+    private ExpiryProperties expiry = new ExpiryProperties();
+    private LeaseProperties lease = new LeaseProperties();
+    private EventsProperties events = new EventsProperties();
+    private OccupancyProperties occupancy = new OccupancyProperties();
+    private RollupProperties rollup = new RollupProperties();
+    private ReportCacheProperties reportCache = new ReportCacheProperties();
+    private CancellationProperties cancellation = new CancellationProperties();
+    private BatchProperties batch = new BatchProperties();
+    private WaitlistProperties waitlist = new WaitlistProperties();
 
+    /**
+     * Proprietà del calendario di occupazione dei posti veicolo ({@code app.calendar}).
+     * <ul>
+     *     <li>{@code bucketMinutes} – durata in minuti di ogni intervallo del calendario</li>
+     *     <li>{@code horizonDays} – giorni coperti dal calendario a partire da adesso</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class CalendarProperties {
+        private int bucketMinutes = 15;
+        private int horizonDays = 90;
+    }
+
+    /**
+     * Proprietà delle prenotazioni in attesa di conferma ({@code app.hold}).
+     * <ul>
+     *     <li>{@code ttlSeconds} – secondi dopo i quali un posto trattenuto e non confermato torna libero</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class HoldProperties {
+        private long ttlSeconds = 600;
+    }
+
+    /**
+     * Proprietà della ricerca delle prime finestre libere ({@code app.search}).
+     * <ul>
+     *     <li>{@code budgetMillis} – tempo massimo di una ricerca, oltre il quale il risultato e parziale</li>
+     *     <li>{@code maxResults} – numero massimo di finestre restituite</li>
+     *     <li>{@code parallelism} – thread per le ricerche su piu parcheggi</li>
+     *     <li>{@code queueCapacity} – ricerche in coda oltre le quali lavora il thread chiamante</li>
+     *     <li>{@code crossLotTimeoutMillis} – tempo massimo di una ricerca su piu parcheggi</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class SearchProperties {
+        private long budgetMillis = 50;
+        private int maxResults = 20;
+        private int parallelism = 8;
+        private int queueCapacity = 64;
+        private long crossLotTimeoutMillis = 2000;
+    }
+
+    /**
+     * Proprietà della scadenza delle prenotazioni ({@code app.expiry}).
+     * <ul>
+     *     <li>{@code reconcileMillis} – intervallo della riconciliazione periodica, che recupera le scadenze
+     *     non consegnate dalla coda (riavvii, errori del database)</li>
+     *     <li>{@code reconcileBatchSize} – prenotazioni lette e scadute per volta dalla riconciliazione</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class ExpiryProperties {
+        private long reconcileMillis = 300000;
+        private int reconcileBatchSize = 500;
+    }
+
+    /**
+     * Proprietà dei lease dei task schedulati tra le istanze ({@code app.lease}).
+     * <ul>
+     *     <li>{@code ttlMillis} – durata di un lease non rinnovato, oltre la quale un'altra istanza lo prende</li>
+     *     <li>{@code heartbeatMillis} – intervallo di rinnovo dei lease, molto minore di {@code ttlMillis}</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class LeaseProperties {
+        private long ttlMillis = 15000;
+        private long heartbeatMillis = 5000;
+    }
+
+    /**
+     * Proprietà del bus degli eventi di dominio ({@code app.events}).
+     * <ul>
+     *     <li>{@code bufferCapacity} – eventi in attesa per iscritto, oltre i quali i nuovi vengono scartati</li>
+     *     <li>{@code maxBatch} – eventi consegnati al massimo in una chiamata dell'iscritto</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class EventsProperties {
+        private int bufferCapacity = 8192;
+        private int maxBatch = 256;
+    }
+
+    /**
+     * Proprietà della vista di occupazione dei parcheggi ({@code app.occupancy}).
+     * <ul>
+     *     <li>{@code rebuildMillis} – intervallo della ricostruzione dalle aggregazioni, che corregge le derive
+     *     (eventi scartati o modifiche fatte da altre istanze)</li>
+     *     <li>{@code persistMillis} – intervallo del salvataggio dei riepiloghi modificati</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class OccupancyProperties {
+        private long rebuildMillis = 600000;
+        private long persistMillis = 30000;
+    }
+
+    /**
+     * Proprietà dei contatori pre-aggregati delle prenotazioni ({@code app.rollup}).
+     * <ul>
+     *     <li>{@code hourlyRetentionDays} – giorni per cui si conservano le righe orarie, poi compattate in giorni</li>
+     *     <li>{@code dailyRetentionDays} – giorni per cui si conservano le righe giornaliere, poi compattate in mesi</li>
+     *     <li>{@code compactMillis} – intervallo della compattazione</li>
+     *     <li>{@code reconcileMillis} – intervallo del ricalcolo delle righe orarie dalle prenotazioni, che corregge
+     *     le derive (scadenze della riconciliazione, eventi scartati, modifiche fatte da altre istanze)</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class RollupProperties {
+        private int hourlyRetentionDays = 7;
+        private int dailyRetentionDays = 180;
+        private long compactMillis = 3600000;
+        private long reconcileMillis = 900000;
+    }
+
+    /**
+     * Proprietà della cache dei risultati dei report ({@code app.report-cache}).
+     * <ul>
+     *     <li>{@code maxEntries} – voci oltre le quali viene tolta quella usata meno di recente</li>
+     *     <li>{@code ttlSeconds} – secondi dopo i quali una voce va ricalcolata</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class ReportCacheProperties {
+        private int maxEntries = 1000;
+        private long ttlSeconds = 30;
+    }
+
+    /**
+     * Proprietà dei contatori delle cancellazioni ({@code app.cancellation}).
+     * <ul>
+     *     <li>{@code reconcileMillis} – intervallo del ricalcolo dei contatori dal database</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class CancellationProperties {
+        private long reconcileMillis = 900000;
+    }
+
+    /**
+     * Proprietà delle prenotazioni inserite con una sola richiesta ({@code app.batch}).
+     * <ul>
+     *     <li>{@code maxSize} – elementi ammessi al massimo in una richiesta</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class BatchProperties {
+        private int maxSize = 200;
+    }
+
+    /**
+     * Proprietà delle liste d'attesa ({@code app.waitlist}).
+     * <ul>
+     *     <li>{@code reloadMillis} – intervallo del ricaricamento delle richieste in attesa dal database, che
+     *     allinea le istanze</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class WaitlistProperties {
+        private long reloadMillis = 60000;
+    }
 }
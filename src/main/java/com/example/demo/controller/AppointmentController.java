@@ -2,16 +2,27 @@ package com.example.demo.controller;
 
 import com.example.demo.annotations.ValidateAppointmentDate;
 import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentBatchResponseDto;
 import com.example.demo.model.dto.appointment.AppointmentDatesDto;
 import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.dto.appointment.AppointmentSeriesPostDto;
+import com.example.demo.model.dto.appointment.AppointmentSeriesResponseDto;
 import com.example.demo.model.dto.appointment.AppointmentUpdateDto;
+import com.example.demo.model.dto.appointment.AvailableWindowsResponseDto;
+import com.example.demo.model.dto.appointment.CrossLotSearchDto;
+import com.example.demo.model.dto.appointment.CrossLotSearchResponseDto;
 import com.example.demo.service.AppointmentService;
+import com.example.demo.service.WaitlistService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 
 @RestController
 @RequestMapping("/api/appointment")
@@ -19,6 +30,8 @@ public class AppointmentController {
 
     @Autowired
     private AppointmentService appointmentService;
+    @Autowired
+    private WaitlistService waitlistService;
 
     /**
      * <p>Crea una nuova prenotazione per un posto veicolo.</p>
@@ -38,6 +51,162 @@ public class AppointmentController {
                 .orElseThrow(() -> new RuntimeException("Unable to post appointment"));
     }
 
+    /**
+     * <p>Crea piu prenotazioni con una sola richiesta.</p>
+     * <p>Le date di ogni elemento vengono validate dal servizio; l'esito e riportato per ogni elemento.
+     * Una lista vuota o con piu di {@code app.batch.max-size} elementi viene respinta per intero.</p>
+     *
+     * @param dtos lista delle prenotazioni ({@link AppointmentPostDto})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente {@link AppointmentBatchResponseDto}
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> postAppointmentBatch(
+            @RequestBody List<AppointmentPostDto> dtos,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.postAppointmentBatch(dtos, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Crea una serie di prenotazioni ricorrenti con una sola richiesta.</p>
+     * <p>La serie resta, quando possibile, sullo stesso posto veicolo; l'esito è riportato per ogni occorrenza.</p>
+     *
+     * @param dto regola di ricorrenza ({@link AppointmentSeriesPostDto})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente {@link AppointmentSeriesResponseDto}
+     */
+    @PostMapping("/series")
+    @ValidateAppointmentDate
+    public ResponseEntity<?> postAppointmentSeries(
+            @RequestBody AppointmentSeriesPostDto dto,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.postAppointmentSeries(dto, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Annulla tutte le prenotazioni ancora valide di una serie ricorrente.</p>
+     *
+     * @param seriesId ID della serie
+     * @return {@link ResponseEntity} con il numero di prenotazioni annullate
+     */
+    @PutMapping("/series/{seriesId}/cancel")
+    public ResponseEntity<?> cancelAppointmentSeries(@PathVariable String seriesId) {
+        return ResponseEntity.ok(appointmentService.cancelSeries(seriesId) + " appointments canceled");
+    }
+
+    /**
+     * <p>Trattiene un posto veicolo in attesa del pagamento.</p>
+     * <p>Il posto torna libero se l'hold non viene confermato entro il tempo configurato.</p>
+     *
+     * @param dto dati della prenotazione ({@link AppointmentPostDto})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente la prenotazione trattenuta e la scadenza
+     */
+    @PostMapping("/hold")
+    @ValidateAppointmentDate
+    public ResponseEntity<?> holdAppointment(
+            @RequestBody AppointmentPostDto dto,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.holdAppointment(dto, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Conferma un posto trattenuto e salva la prenotazione.</p>
+     *
+     * @param id ID della prenotazione trattenuta
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente la prenotazione salvata
+     */
+    @PutMapping("/hold/{id}/confirm")
+    public ResponseEntity<?> confirmHold(
+            @PathVariable String id,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return appointmentService.confirmHold(id, zoneIdFromClient)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new RuntimeException("Unable to confirm hold"));
+    }
+
+    /**
+     * <p>Rilascia un posto trattenuto.</p>
+     *
+     * @param id ID della prenotazione trattenuta
+     * @return {@link ResponseEntity} con messaggio di conferma
+     */
+    @DeleteMapping("/hold/{id}")
+    public ResponseEntity<?> releaseHold(@PathVariable String id) {
+        appointmentService.releaseHold(id);
+        return ResponseEntity.ok("Hold released successfully");
+    }
+
+    /**
+     * <p>Iscrive una richiesta alla lista d'attesa quando non ci sono posti disponibili.</p>
+     * <p>Se un posto è già libero la prenotazione viene salvata subito.</p>
+     *
+     * @param dto dati della prenotazione ({@link AppointmentPostDto})
+     * @param priority priorità della richiesta (default 0), più alta viene servita prima
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente lo stato della richiesta
+     */
+    @PostMapping("/waitlist")
+    @ValidateAppointmentDate
+    public ResponseEntity<?> joinWaitlist(
+            @RequestBody AppointmentPostDto dto,
+            @RequestParam(defaultValue = "0") int priority,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.joinWaitlist(dto, priority, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Restituisce lo stato di una richiesta in lista d'attesa.</p>
+     *
+     * @param id ID della richiesta
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente lo stato e l'eventuale prenotazione assegnata
+     */
+    @GetMapping("/waitlist/{id}")
+    public ResponseEntity<?> getWaitlistEntry(
+            @PathVariable String id,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return waitlistService.getWaitlistEntry(id, zoneIdFromClient)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new RuntimeException("Waitlist entry not found with given id: " + id));
+    }
+
+    /**
+     * <p>Toglie una richiesta dalla lista d'attesa.</p>
+     *
+     * @param id ID della richiesta
+     * @return {@link ResponseEntity} con messaggio di conferma
+     */
+    @DeleteMapping("/waitlist/{id}")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable String id) {
+        waitlistService.leaveWaitlist(id);
+        return ResponseEntity.ok("Waitlist entry removed successfully");
+    }
+
+    /**
+     * <p>Cerca le prime finestre in cui si può parcheggiare per la durata indicata.</p>
+     * <p>Il risultato è parziale ({@code complete = false}) se la ricerca supera il tempo massimo configurato.</p>
+     *
+     * @param parkingLotName nome del parcheggio
+     * @param category categoria del posto veicolo
+     * @param durationMinutes durata richiesta in minuti
+     * @param from prima data di inizio (formato: {@code dd/MM/yyyy HH:mm}, default: adesso)
+     * @param limit numero di finestre richieste (default 5)
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente {@link AvailableWindowsResponseDto}
+     */
+    @GetMapping("/earliestWindows")
+    public ResponseEntity<?> findEarliestWindows(
+            @RequestParam String parkingLotName,
+            @RequestParam VehicleSpotCategory category,
+            @RequestParam long durationMinutes,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.findEarliestWindows(parkingLotName, category, durationMinutes, from, limit, zoneIdFromClient));
+    }
+
     /**
      * <p>Restituisce tutti i posti veicolo disponibili per una determinata categoria e intervallo di date.</p>
      *
@@ -58,6 +227,22 @@ public class AppointmentController {
         );
     }
 
+    /**
+     * <p>Cerca un posto libero su piu parcheggi e categorie, in ordine di preferenza.</p>
+     * <p>Ad esempio il parcheggio più vicino con un posto elettrico libero, altrimenti uno standard.</p>
+     *
+     * @param dto parcheggi, categorie e intervallo di date ({@link CrossLotSearchDto})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} contenente {@link CrossLotSearchResponseDto}
+     */
+    @PostMapping("/availableSpots/crossLot")
+    @ValidateAppointmentDate
+    public ResponseEntity<?> searchAcrossParkingLots(
+            @RequestBody CrossLotSearchDto dto,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(appointmentService.searchAcrossParkingLots(dto, zoneIdFromClient));
+    }
+
     /**
      * <p>Restituisce tutte le prenotazioni registrate.</p>
      *
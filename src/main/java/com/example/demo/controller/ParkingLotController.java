@@ -77,6 +77,20 @@ public class ParkingLotController {
                 .orElseThrow(() -> new RuntimeException("Failed to update parking lot capacity"));
     }
 
+    /**
+     * <p>Cambia il criterio di assegnazione dei posti di un parcheggio</p>
+     * @param parkingLotName parametro richiesto per la ricerca del parcheggio
+     * @param mode criterio di assegnazione ({@code first-fit}, {@code best-fit}, {@code packed}, {@code spread})
+     * @return {@link ResponseEntity} contenente il parcheggio aggiornato
+     */
+    @PreAuthorize("hasRole('AMMINISTRATORE')")
+    @PutMapping("/allocationMode/{parkingLotName}")
+    public ResponseEntity<?> updateAllocationModeByParkingLotName(@PathVariable String parkingLotName, @RequestParam String mode) {
+        return parkingLotService.updateAllocationModeByParkingLotName(parkingLotName, mode)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new RuntimeException("Failed to update parking lot allocation mode"));
+    }
+
     /**
      * <p>Cancella un parcheggio tramite il nome</p>
      * @param parkingLotName parametro richiesto per la ricerca
@@ -1,17 +1,36 @@
 package com.example.demo.controller;
 
+import com.example.demo.enumerators.CancellationWindow;
+import com.example.demo.enumerators.ExportFormat;
+import com.example.demo.enumerators.VehicleSpotCategory;
 import com.example.demo.model.dto.capacityChange.CapacityChangeResponseDto;
+import com.example.demo.model.dto.report.CancellationRateResponseDto;
+import com.example.demo.model.dto.report.CapacityHeatmapResponseDto;
+import com.example.demo.model.dto.report.EventBusResponseDto;
+import com.example.demo.model.dto.report.OccupancyCalendarMemoryResponseDto;
 import com.example.demo.model.dto.report.ParkingOccupancyResponseDto;
+import com.example.demo.model.dto.report.ReportCacheResponseDto;
 import com.example.demo.model.dto.report.ReservationReportResponseDto;
+import com.example.demo.model.dto.report.RollupReportResponseDto;
+import com.example.demo.model.dto.report.ScheduledJobResponseDto;
 import com.example.demo.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @PreAuthorize("hasRole('AMMINISTRATORE')")
@@ -24,17 +43,13 @@ public class ReportController {
 
     /**
      * <p>Restituisce le statistiche di occupazione per tutti i parcheggi</p>
+     * <p>Con {@code fresh=true} il parcheggio viene calcolato dal database invece che letto dalla vista in memoria</p>
      * @return {@link ResponseEntity} con la lista {@link ParkingOccupancyResponseDto} dei posti occupati
      */
     @GetMapping("/occupancy/by-name/{parkingLotName}")
-    public ResponseEntity<?> getOccupancyByName(@PathVariable String parkingLotName) {
-        List<ParkingOccupancyResponseDto> all = reportService.getParkingOccupancy();
-        return ResponseEntity.ok(
-                all.stream()
-                        .filter(dto -> dto.getParkingLotName().equalsIgnoreCase(parkingLotName))
-                        .findFirst()
-                        .orElse(null)
-        );
+    public ResponseEntity<?> getOccupancyByName(@PathVariable String parkingLotName,
+                                                @RequestParam(defaultValue = "false") boolean fresh) {
+        return ResponseEntity.ok(reportService.getParkingOccupancyByName(parkingLotName, fresh).orElse(null));
     }
 
 
@@ -47,34 +62,81 @@ public class ReportController {
         return ResponseEntity.ok(reportService.getCancellationRate());
     }
 
+    /**
+     * <p>Restituisce il tasso di cancellazione in una finestra scorrevole</p>
+     * @param window finestra ({@code LAST_HOUR}, {@code LAST_DAY}, {@code LAST_30_DAYS}; default {@code LAST_DAY})
+     * @param parkingLotName parcheggio (opzionale, default: tutti)
+     * @param category categoria dei posti (opzionale, default: tutte)
+     * @return {@link ResponseEntity} con {@link CancellationRateResponseDto}
+     */
+    @GetMapping("/cancellation-rate/window")
+    public ResponseEntity<CancellationRateResponseDto> getWindowedCancellationRate(
+            @RequestParam(defaultValue = "LAST_DAY") CancellationWindow window,
+            @RequestParam(required = false) String parkingLotName,
+            @RequestParam(required = false) VehicleSpotCategory category) {
+        return ResponseEntity.ok(reportService.getCancellationRate(window, parkingLotName, category));
+    }
+
+    /**
+     * <p>Restituisce il tasso di cancellazione in una finestra scorrevole per ogni parcheggio e categoria</p>
+     * @param window finestra ({@code LAST_HOUR}, {@code LAST_DAY}, {@code LAST_30_DAYS}; default {@code LAST_DAY})
+     * @return {@link ResponseEntity} con la lista di {@link CancellationRateResponseDto}
+     */
+    @GetMapping("/cancellation-rate/window/by-lot")
+    public ResponseEntity<List<CancellationRateResponseDto>> getWindowedCancellationRateByParkingLot(
+            @RequestParam(defaultValue = "LAST_DAY") CancellationWindow window) {
+        return ResponseEntity.ok(reportService.getCancellationRateByParkingLot(window));
+    }
+
     /**
      * <p>Restituisce le statistiche di occupazione giornaliere per il parcheggio indicato</p>
      * @param parkingLotName nome del parcheggio
+     * @param from inizio dell'intervallo, incluso (formato: {@code dd/MM/yyyy HH:mm}, default: inizio dell'anno corrente)
+     * @param to fine dell'intervallo, esclusa (formato: {@code dd/MM/yyyy HH:mm}, default: un anno dopo {@code from})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
      * @return {@link ResponseEntity} con la lista {@link ReservationReportResponseDto} con il numero totale di prenotazioni per giorno
      */
     @GetMapping("/daily/by-name/{parkingLotName}")
-    public ResponseEntity<?> getDailyReportByName(@PathVariable String parkingLotName) {
-        return ResponseEntity.ok(reportService.getDailyReportByName(parkingLotName));
+    public ResponseEntity<?> getDailyReportByName(
+            @PathVariable String parkingLotName,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(reportService.getDailyReportByName(parkingLotName, from, to, zoneIdFromClient));
     }
 
     /**
      * <p>Restituisce le statistiche di occupazione settimanali per il parcheggio indicato</p>
      * @param parkingLotName nome del parcheggio
+     * @param from inizio dell'intervallo, incluso (formato: {@code dd/MM/yyyy HH:mm}, default: inizio dell'anno corrente)
+     * @param to fine dell'intervallo, esclusa (formato: {@code dd/MM/yyyy HH:mm}, default: un anno dopo {@code from})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
      * @return {@link ResponseEntity} con la lista {@link ReservationReportResponseDto} con il numero totale di prenotazioni settimanali
      */
     @GetMapping("/week/by-name/{parkingLotName}")
-    public ResponseEntity<?> getWeekReportByName(@PathVariable String parkingLotName) {
-        return ResponseEntity.ok(reportService.getWeekReportByName(parkingLotName));
+    public ResponseEntity<?> getWeekReportByName(
+            @PathVariable String parkingLotName,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(reportService.getWeekReportByName(parkingLotName, from, to, zoneIdFromClient));
     }
 
     /**
      * <p>Restituisce le statistiche di occupazione mensili per il parcheggio indicato</p>
      * @param parkingLotName nome del parcheggio
+     * @param from inizio dell'intervallo, incluso (formato: {@code dd/MM/yyyy HH:mm}, default: inizio dell'anno corrente)
+     * @param to fine dell'intervallo, esclusa (formato: {@code dd/MM/yyyy HH:mm}, default: un anno dopo {@code from})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
      * @return {@link ResponseEntity} con la lista {@link ReservationReportResponseDto} con il numero totale di prenotazioni mensili
      */
     @GetMapping("/monthly/by-name/{parkingLotName}")
-    public ResponseEntity<?> getMonthReportByName(@PathVariable String parkingLotName) {
-        return ResponseEntity.ok(reportService.getMonthReportByName(parkingLotName));
+    public ResponseEntity<?> getMonthReportByName(
+            @PathVariable String parkingLotName,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(reportService.getMonthReportByName(parkingLotName, from, to, zoneIdFromClient));
     }
 
     /**
@@ -87,6 +149,31 @@ public class ReportController {
         return reportService.getReportHistoryByParkingLotName(parkingLotName);
     }
 
+    /**
+     * <p>Esporta le prenotazioni di un parcheggio in NDJSON o CSV, scrivendole man mano che vengono lette</p>
+     * @param parkingLotName nome del parcheggio
+     * @param from inizio dell'intervallo (opzionale, formato: {@code dd/MM/yyyy HH:mm})
+     * @param to fine dell'intervallo (opzionale, formato: {@code dd/MM/yyyy HH:mm})
+     * @param format formato del file (default: {@code NDJSON})
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} con il contenuto del file
+     */
+    @GetMapping("/history/export/by-name/{parkingLotName}")
+    public ResponseEntity<StreamingResponseBody> exportReservationHistory(
+            @PathVariable String parkingLotName,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        StreamingResponseBody body = reportService.exportReservationHistory(parkingLotName, from, to, format, zoneIdFromClient);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(parkingLotName + "-reservations." + format.getExtension(), StandardCharsets.UTF_8)
+                        .build().toString())
+                .body(body);
+    }
+
     /**
      * <p>Restituisce lo storico delle modifiche alla capacità di un parcheggio</p>
      * @param parkingLotName parametro richiesto per la ricerca
@@ -96,4 +183,78 @@ public class ReportController {
     public ResponseEntity<List<CapacityChangeResponseDto>> getCapacityChangeHistoryByName(@PathVariable String parkingLotName) {
         return ResponseEntity.ok(reportService.getCapacityChangeHistoryByName(parkingLotName));
     }
+
+    /**
+     * <p>Restituisce i posti liberi per categoria in intervalli regolari di una finestra temporale</p>
+     * @param parkingLotName nome del parcheggio
+     * @param from inizio della finestra (formato: {@code dd/MM/yyyy HH:mm})
+     * @param to fine della finestra (formato: {@code dd/MM/yyyy HH:mm})
+     * @param bucketMinutes durata in minuti di ogni intervallo (default 60)
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} con {@link CapacityHeatmapResponseDto}
+     */
+    @GetMapping("/heatmap/by-name/{parkingLotName}")
+    public ResponseEntity<CapacityHeatmapResponseDto> getCapacityHeatmap(
+            @PathVariable String parkingLotName,
+            @RequestParam @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestParam(defaultValue = "60") long bucketMinutes,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(reportService.getCapacityHeatmap(parkingLotName, from, to, bucketMinutes, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Restituisce i contatori pre-aggregati delle prenotazioni di un parcheggio per periodo</p>
+     * @param parkingLotName nome del parcheggio
+     * @param from inizio dell'intervallo (formato: {@code dd/MM/yyyy HH:mm})
+     * @param to fine dell'intervallo (formato: {@code dd/MM/yyyy HH:mm})
+     * @param category categoria dei posti (opzionale, default: tutte)
+     * @param zoneIdFromClient zona oraria del client (default: Europe/Rome)
+     * @return {@link ResponseEntity} con la lista di {@link RollupReportResponseDto}
+     */
+    @GetMapping("/rollup/by-name/{parkingLotName}")
+    public ResponseEntity<List<RollupReportResponseDto>> getRollupReport(
+            @PathVariable String parkingLotName,
+            @RequestParam @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime from,
+            @RequestParam @DateTimeFormat(pattern = "dd/MM/yyyy HH:mm") LocalDateTime to,
+            @RequestParam(required = false) VehicleSpotCategory category,
+            @RequestHeader(value = "zoneIdFromClient", defaultValue = "Europe/Rome") String zoneIdFromClient) {
+        return ResponseEntity.ok(reportService.getRollupReport(parkingLotName, category, from, to, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Restituisce la memoria occupata dal calendario di occupazione dei posti veicolo</p>
+     * @return {@link ResponseEntity} con {@link OccupancyCalendarMemoryResponseDto}
+     */
+    @GetMapping("/occupancy-calendar/memory")
+    public ResponseEntity<OccupancyCalendarMemoryResponseDto> getOccupancyCalendarMemory() {
+        return ResponseEntity.ok(reportService.getOccupancyCalendarMemory());
+    }
+
+    /**
+     * <p>Restituisce lo stato dei lease e le durate dei task schedulati su questa istanza</p>
+     * @return {@link ResponseEntity} con la lista {@link ScheduledJobResponseDto}
+     */
+    @GetMapping("/scheduled-jobs")
+    public ResponseEntity<List<ScheduledJobResponseDto>> getScheduledJobs() {
+        return ResponseEntity.ok(reportService.getScheduledJobs());
+    }
+
+    /**
+     * <p>Restituisce lo stato del bus degli eventi di dominio su questa istanza</p>
+     * @return {@link ResponseEntity} con {@link EventBusResponseDto}
+     */
+    @GetMapping("/event-bus")
+    public ResponseEntity<EventBusResponseDto> getEventBus() {
+        return ResponseEntity.ok(reportService.getEventBus());
+    }
+
+    /**
+     * <p>Restituisce lo stato della cache dei report su questa istanza</p>
+     * @return {@link ResponseEntity} con {@link ReportCacheResponseDto}
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<ReportCacheResponseDto> getReportCache() {
+        return ResponseEntity.ok(reportService.getReportCache());
+    }
 }
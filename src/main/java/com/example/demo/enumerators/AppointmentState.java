@@ -5,4 +5,8 @@ public enum AppointmentState {
     VALID,
     EXPIRED,
     CANCELED,
+    /**
+     * Posto trattenuto durante il pagamento: vive solo in memoria fino alla conferma o alla scadenza.
+     */
+    HOLD,
 }
@@ -0,0 +1,24 @@
+package com.example.demo.enumerators;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Finestra scorrevole del tasso di cancellazione, che termina adesso.
+ * <ul>
+ *     <li>{@code LAST_HOUR} – ultimi 60 minuti, al minuto</li>
+ *     <li>{@code LAST_DAY} – ultime 24 ore, all'ora</li>
+ *     <li>{@code LAST_30_DAYS} – ultimi 30 giorni, all'ora</li>
+ * </ul>
+ */
+@Getter
+@AllArgsConstructor
+public enum CancellationWindow {
+    LAST_HOUR(Duration.ofHours(1)),
+    LAST_DAY(Duration.ofDays(1)),
+    LAST_30_DAYS(Duration.ofDays(30));
+
+    private final Duration duration;
+}
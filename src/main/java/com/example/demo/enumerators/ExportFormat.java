@@ -0,0 +1,21 @@
+package com.example.demo.enumerators;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Formato dell'esportazione dello storico delle prenotazioni.
+ * <ul>
+ *     <li>{@code NDJSON} – un oggetto JSON per riga</li>
+ *     <li>{@code CSV} – intestazione e una riga per prenotazione, separatore {@code ,}</li>
+ * </ul>
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+}
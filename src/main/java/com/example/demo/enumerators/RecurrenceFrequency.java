@@ -0,0 +1,10 @@
+package com.example.demo.enumerators;
+
+public enum RecurrenceFrequency {
+
+    DAILY,
+    /**
+     * Ogni settimana nei giorni indicati da {@code daysOfWeek}.
+     */
+    WEEKLY,
+}
@@ -0,0 +1,41 @@
+package com.example.demo.enumerators;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Livello di dettaglio delle righe di {@link com.example.demo.model.entities.AppointmentRollup}.
+ * <ul>
+ *     <li>{@code HOUR} – un'ora, per i dati recenti</li>
+ *     <li>{@code DAY} – un giorno (UTC), ottenuto compattando le ore</li>
+ *     <li>{@code MONTH} – un mese (UTC), ottenuto compattando i giorni</li>
+ * </ul>
+ */
+@Getter
+@AllArgsConstructor
+public enum RollupTier {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    /**
+     * @return inizio del periodo di questo livello che contiene {@code date}
+     */
+    public LocalDateTime truncate(LocalDateTime date) {
+        return this == MONTH
+                ? date.toLocalDate().withDayOfMonth(1).atStartOfDay()
+                : date.truncatedTo(unit);
+    }
+
+    /**
+     * @return inizio del periodo successivo a quello che inizia in {@code start}
+     */
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.enumerators;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Criterio con cui un parcheggio sceglie il posto veicolo da assegnare a una prenotazione.
+ * <ul>
+ *     <li>{@code FIRST_FIT} – il primo posto libero nell'ordine dei posti</li>
+ *     <li>{@code BEST_FIT} – il posto con il buco libero piu piccolo che contiene la prenotazione</li>
+ *     <li>{@code PACKED} – il posto in cui la prenotazione si accosta di piu a quelle esistenti,
+ *     lasciando liberi i posti vuoti per le prenotazioni lunghe</li>
+ *     <li>{@code SPREAD} – posti provati a partire da un punto casuale, per non far contendere
+ *     i primi posti alle richieste concorrenti (eventi con picchi di prenotazioni)</li>
+ * </ul>
+ */
+@Getter
+@AllArgsConstructor
+public enum SpotAllocationMode {
+    FIRST_FIT("first-fit"),
+    BEST_FIT("best-fit"),
+    PACKED("packed"),
+    SPREAD("spread");
+
+    private final String modeName;
+}
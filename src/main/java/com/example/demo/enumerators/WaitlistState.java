@@ -0,0 +1,9 @@
+package com.example.demo.enumerators;
+
+public enum WaitlistState {
+
+    WAITING,
+    ASSIGNED,
+    CANCELED,
+    EXPIRED,
+}
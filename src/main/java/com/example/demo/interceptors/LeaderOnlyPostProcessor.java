@@ -0,0 +1,53 @@
+package com.example.demo.interceptors;
+
+import com.example.demo.annotations.LeaderOnly;
+import com.example.demo.service.scheduling.SchedulerLeaseManager;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Avvolge i bean con metodi {@link LeaderOnly} in un proxy che esegue il metodo solo sull'istanza che
+ * detiene il lease del task, misurandone la durata</p>
+ * <p>Il proxy viene creato prima della registrazione dei task di {@code @Scheduled}, cosi lo scheduler
+ * invoca il metodo attraverso il proxy. Il gestore dei lease viene risolto alla prima invocazione.</p>
+ */
+@Component
+public class LeaderOnlyPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public LeaderOnlyPostProcessor() {
+        setBeforeExistingAdvisors(true);
+        // prima di ScheduledAnnotationBeanPostProcessor (LOWEST_PRECEDENCE)
+        setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        super.setBeanFactory(beanFactory);
+        ObjectProvider<SchedulerLeaseManager> leases = beanFactory.getBeanProvider(SchedulerLeaseManager.class);
+        MethodInterceptor interceptor = invocation -> {
+            LeaderOnly leaderOnly = AnnotatedElementUtils.findMergedAnnotation(invocation.getMethod(), LeaderOnly.class);
+            if (leaderOnly == null) {
+                return invocation.proceed();
+            }
+            SchedulerLeaseManager manager = leases.getObject();
+            if (!manager.isLeader(leaderOnly.value())) {
+                manager.recordSkipped(leaderOnly.value());
+                return null;
+            }
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                manager.recordRun(leaderOnly.value(), System.nanoTime() - start);
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, LeaderOnly.class, true), interceptor);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.model.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta per un singolo elemento di una prenotazione multipla
+ * <ul>
+ *   <li>{@code index} – posizione dell'elemento nella richiesta</li>
+ *   <li>{@code booked} – {@code true} se la prenotazione e stata salvata</li>
+ *   <li>{@code appointment} – la prenotazione salvata {@link AppointmentResponseDto}, se presente</li>
+ *   <li>{@code error} – motivo del fallimento, se presente</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentBatchItemResponseDto {
+
+    private int index;
+    private boolean booked;
+    private AppointmentResponseDto appointment;
+    private String error;
+}
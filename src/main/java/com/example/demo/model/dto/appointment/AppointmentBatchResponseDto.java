@@ -0,0 +1,30 @@
+package com.example.demo.model.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO di risposta per una prenotazione multipla
+ * <ul>
+ *   <li>{@code requested} – numero di prenotazioni richieste</li>
+ *   <li>{@code booked} – numero di prenotazioni salvate</li>
+ *   <li>{@code failed} – numero di prenotazioni non riuscite</li>
+ *   <li>{@code items} – esito di ogni elemento, nell'ordine della richiesta {@link AppointmentBatchItemResponseDto}</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentBatchResponseDto {
+
+    private int requested;
+    private int booked;
+    private int failed;
+    private List<AppointmentBatchItemResponseDto> items;
+}
@@ -36,6 +36,7 @@ public interface AppointmentDtoMapper {
                 .parkingLotName(entity.getParkingLotName())
                 .appointmentState(entity.getAppointmentState())
                 .vehicleSpotCategory(entity.getVehicleSpotCategory())
+                .seriesId(entity.getSeriesId())
                 .build();
     }
 }
@@ -0,0 +1,28 @@
+package com.example.demo.model.dto.appointment;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO di risposta per un posto trattenuto in attesa di conferma
+ * <ul>
+ *   <li>{@code appointment} – la prenotazione trattenuta, con stato {@code HOLD} {@link AppointmentResponseDto}</li>
+ *   <li>{@code expiresAt} – data e ora oltre la quale il posto torna libero (formato: {@code dd/MM/yyyy HH:mm:ss})</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentHoldResponseDto {
+
+    private AppointmentResponseDto appointment;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm:ss")
+    private LocalDateTime expiresAt;
+}
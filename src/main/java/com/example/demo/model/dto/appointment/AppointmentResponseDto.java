@@ -21,6 +21,7 @@ import java.time.LocalDateTime;
  *   <li>{@code initialDate} – data e ora di inizio della prenotazione (formato: {@code dd/MM/yyyy HH:mm})</li>
  *   <li>{@code endingDate} – data e ora di fine della prenotazione (formato: {@code dd/MM/yyyy HH:mm})</li>
  *   <li>{@code appointmentState} – stato attuale della prenotazione {@link AppointmentState}</li>
+ *   <li>{@code seriesId} – serie ricorrente della prenotazione, se presente</li>
  * </ul>
  */
 
@@ -41,4 +42,6 @@ public class AppointmentResponseDto {
     private LocalDateTime endingDate;
 
     private AppointmentState appointmentState = AppointmentState.VALID;
+
+    private String seriesId;
 }
@@ -0,0 +1,66 @@
+package com.example.demo.model.dto.appointment;
+
+import com.example.demo.enumerators.RecurrenceFrequency;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * DTO lato client per la creazione di una serie di prenotazioni ricorrenti
+ * <p>La regola ricalca un sottoinsieme di RRULE: frequenza, intervallo, giorni della settimana e
+ * fine per data o per numero di occorrenze</p>
+ * <ul>
+ *   <li>{@code parkingLotName} – nome del parcheggio</li>
+ *   <li>{@code vehicleSpotCategory} – categoria del posto veicolo</li>
+ *   <li>{@code initialDate} – inizio della prima occorrenza (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code endingDate} – fine della prima occorrenza (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code frequency} – frequenza {@link RecurrenceFrequency}</li>
+ *   <li>{@code interval} – ogni quanti giorni o settimane si ripete (default 1)</li>
+ *   <li>{@code daysOfWeek} – giorni della settimana per la frequenza {@code WEEKLY} (default: il giorno della prima occorrenza)</li>
+ *   <li>{@code until} – ultimo giorno incluso della serie (formato: {@code dd/MM/yyyy})</li>
+ *   <li>{@code count} – numero massimo di occorrenze</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentSeriesPostDto {
+
+    @NotBlank
+    private String parkingLotName;
+
+    @NotNull
+    private VehicleSpotCategory vehicleSpotCategory;
+
+    @NotNull
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+
+    @NotNull
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+
+    @NotNull
+    private RecurrenceFrequency frequency;
+
+    private Integer interval;
+
+    private Set<DayOfWeek> daysOfWeek;
+
+    @JsonFormat(pattern = "dd/MM/yyyy")
+    private LocalDate until;
+
+    private Integer count;
+}
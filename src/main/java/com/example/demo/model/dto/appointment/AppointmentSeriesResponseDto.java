@@ -0,0 +1,34 @@
+package com.example.demo.model.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO di risposta per una serie di prenotazioni ricorrenti
+ * <ul>
+ *   <li>{@code seriesId} – id della serie, da usare per annullarla</li>
+ *   <li>{@code requested} – numero di occorrenze generate dalla regola</li>
+ *   <li>{@code booked} – numero di occorrenze prenotate</li>
+ *   <li>{@code failed} – numero di occorrenze senza posto</li>
+ *   <li>{@code vehicleSpotIds} – posti utilizzati dalla serie, il primo e quello preferito</li>
+ *   <li>{@code items} – esito di ogni occorrenza, in ordine di data {@link AppointmentBatchItemResponseDto}</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppointmentSeriesResponseDto {
+
+    private String seriesId;
+    private int requested;
+    private int booked;
+    private int failed;
+    private List<String> vehicleSpotIds;
+    private List<AppointmentBatchItemResponseDto> items;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.model.dto.appointment;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO di risposta per una finestra libera prenotabile
+ * <ul>
+ *   <li>{@code vehicleSpotId} – posto veicolo libero nella finestra</li>
+ *   <li>{@code initialDate} – inizio della finestra (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code endingDate} – fine della finestra (formato: {@code dd/MM/yyyy HH:mm})</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailableWindowResponseDto {
+
+    private String vehicleSpotId;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+}
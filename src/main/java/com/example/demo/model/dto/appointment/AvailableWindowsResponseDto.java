@@ -0,0 +1,33 @@
+package com.example.demo.model.dto.appointment;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO di risposta per la ricerca delle prime finestre libere
+ * <ul>
+ *   <li>{@code parkingLotName} – nome del parcheggio</li>
+ *   <li>{@code vehicleSpotCategory} – categoria dei posti cercati</li>
+ *   <li>{@code durationMinutes} – durata richiesta in minuti</li>
+ *   <li>{@code complete} – {@code false} se la ricerca e stata interrotta dal limite di tempo</li>
+ *   <li>{@code windows} – finestre trovate, in ordine di inizio {@link AvailableWindowResponseDto}</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailableWindowsResponseDto {
+
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    private long durationMinutes;
+    private boolean complete;
+    private List<AvailableWindowResponseDto> windows;
+}
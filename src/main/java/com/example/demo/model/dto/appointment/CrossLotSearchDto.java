@@ -0,0 +1,44 @@
+package com.example.demo.model.dto.appointment;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO lato client per la ricerca di un posto libero su piu parcheggi
+ * <ul>
+ *   <li>{@code parkingLotNames} – parcheggi accettabili, in ordine di preferenza (ad esempio per distanza)</li>
+ *   <li>{@code categories} – categorie accettabili, in ordine di preferenza</li>
+ *   <li>{@code initialDate} – data e ora di inizio (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code endingDate} – data e ora di fine (formato: {@code dd/MM/yyyy HH:mm})</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CrossLotSearchDto {
+
+    @NotEmpty
+    private List<String> parkingLotNames;
+
+    @NotEmpty
+    private List<VehicleSpotCategory> categories;
+
+    @NotNull
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+
+    @NotNull
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+}
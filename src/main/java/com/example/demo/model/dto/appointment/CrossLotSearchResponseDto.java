@@ -0,0 +1,35 @@
+package com.example.demo.model.dto.appointment;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.VehicleSpot;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO di risposta per la ricerca di un posto libero su piu parcheggi
+ * <ul>
+ *   <li>{@code parkingLotName} – parcheggio scelto</li>
+ *   <li>{@code vehicleSpotCategory} – categoria scelta</li>
+ *   <li>{@code vehicleSpots} – posti liberi del parcheggio e della categoria scelti</li>
+ *   <li>{@code complete} – {@code false} se il tempo massimo e scaduto: il risultato e il migliore trovato
+ *   fino a quel momento</li>
+ *   <li>{@code canceledSearches} – ricerche annullate perche non piu necessarie</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CrossLotSearchResponseDto {
+
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    private List<VehicleSpot> vehicleSpots;
+    private boolean complete;
+    private int canceledSearches;
+}
@@ -0,0 +1,43 @@
+package com.example.demo.model.dto.appointment;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.enumerators.WaitlistState;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO di risposta per una richiesta in lista d'attesa
+ * <ul>
+ *   <li>{@code id} – identificativo della richiesta</li>
+ *   <li>{@code parkingLotName} – parcheggio richiesto</li>
+ *   <li>{@code vehicleSpotCategory} – categoria richiesta</li>
+ *   <li>{@code initialDate} – data e ora di inizio (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code endingDate} – data e ora di fine (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code priority} – priorità, le richieste con valore più alto vengono servite prima</li>
+ *   <li>{@code waitlistState} – stato della richiesta {@link WaitlistState}</li>
+ *   <li>{@code appointmentId} – id della prenotazione assegnata, se presente</li>
+ * </ul>
+ */
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WaitlistEntryResponseDto {
+
+    private String id;
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+    private int priority;
+    private WaitlistState waitlistState;
+    private String appointmentId;
+}
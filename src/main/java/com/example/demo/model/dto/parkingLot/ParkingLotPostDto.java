@@ -1,5 +1,6 @@
 package com.example.demo.model.dto.parkingLot;
 
+import com.example.demo.enumerators.SpotAllocationMode;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -14,6 +15,7 @@ import lombok.NoArgsConstructor;
  * <ul>
  *   <li>{@code parkingLotName}- nome del parcheggio</li>
  *   <li>{@code vehicleSpotNumber} - numero di posti veicolo disponibili</li>
+ *   <li>{@code allocationMode} - criterio di assegnazione dei posti, facoltativo (default {@code FIRST_FIT})</li>
  * </ul>
  */
 @Data
@@ -27,4 +29,5 @@ public class ParkingLotPostDto {
     private String parkingLotName;
     @Min(value = 1, message = "Vehicle spot number must be greater than 0")
     private Long vehicleSpotNumber;
+    private SpotAllocationMode allocationMode;
 }
@@ -1,5 +1,6 @@
 package com.example.demo.model.dto.parkingLot;
 
+import com.example.demo.enumerators.SpotAllocationMode;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,6 +14,7 @@ import lombok.NoArgsConstructor;
  *   <li>{@code id} - identificatore univoco del parcheggio</li>
  *   <li>{@code parkingLotName} - nome del parcheggio</li>
  *   <li>{@code vehicleSpotNumber} - numero di posti veicolo disponibili</li>
+ *   <li>{@code allocationMode} - criterio di assegnazione dei posti {@link SpotAllocationMode}</li>
  * </ul>
  */
 @Data
@@ -25,4 +27,5 @@ public class ParkingLotResponseDto {
     @JsonProperty("name")
     private String parkingLotName;
     private Long vehicleSpotNumber;
+    private SpotAllocationMode allocationMode;
 }
@@ -0,0 +1,33 @@
+package com.example.demo.model.dto.report;
+
+import com.example.demo.enumerators.CancellationWindow;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta con il tasso di cancellazione in una finestra scorrevole.
+ * <ul>
+ *   <li>{@code window} – finestra considerata ({@link CancellationWindow})</li>
+ *   <li>{@code parkingLotName} – parcheggio, {@code null} per tutti i parcheggi</li>
+ *   <li>{@code vehicleSpotCategory} – categoria, {@code null} per tutte le categorie</li>
+ *   <li>{@code created} – prenotazioni create nella finestra</li>
+ *   <li>{@code canceled} – prenotazioni cancellate nella finestra</li>
+ *   <li>{@code cancellationRate} – {@code canceled} su {@code created} in percentuale, {@code 0} senza prenotazioni
+ *   create; puo superare 100 se nella finestra si cancellano prenotazioni create prima</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CancellationRateResponseDto {
+    private CancellationWindow window;
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    private long created;
+    private long canceled;
+    private double cancellationRate;
+}
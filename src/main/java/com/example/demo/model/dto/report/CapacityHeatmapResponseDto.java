@@ -0,0 +1,41 @@
+package com.example.demo.model.dto.report;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO di risposta con i posti liberi per categoria in ogni intervallo di una finestra temporale.
+ * <p>La matrice e compatta: una riga per categoria e una colonna per intervallo; l'intervallo {@code i}
+ * inizia a {@code from + i * bucketMinutes}.</p>
+ * <ul>
+ *   <li>{@code parkingLotName} – nome del parcheggio</li>
+ *   <li>{@code from} – inizio della finestra nella zona del client (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code to} – fine della finestra nella zona del client (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code bucketMinutes} – durata in minuti di ogni intervallo</li>
+ *   <li>{@code categories} – categorie {@link VehicleSpotCategory}, nell'ordine delle righe</li>
+ *   <li>{@code totals} – posti totali per categoria</li>
+ *   <li>{@code free} – posti liberi, {@code free[categoria][intervallo]}</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CapacityHeatmapResponseDto {
+    private String parkingLotName;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime from;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime to;
+    private long bucketMinutes;
+    private List<VehicleSpotCategory> categories;
+    private int[] totals;
+    private int[][] free;
+}
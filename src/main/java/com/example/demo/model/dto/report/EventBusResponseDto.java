@@ -0,0 +1,24 @@
+package com.example.demo.model.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO di risposta con lo stato del bus degli eventi di dominio di questa istanza.
+ * <ul>
+ *   <li>{@code published} – eventi pubblicati dall'avvio</li>
+ *   <li>{@code subscribers} – statistiche per iscritto {@link EventSubscriberResponseDto}</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventBusResponseDto {
+    private long published;
+    private List<EventSubscriberResponseDto> subscribers;
+}
@@ -0,0 +1,33 @@
+package com.example.demo.model.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta con le statistiche di un iscritto al bus degli eventi.
+ * <ul>
+ *   <li>{@code name} – nome dell'iscritto</li>
+ *   <li>{@code queued}, {@code capacity} – eventi in attesa e dimensione del buffer</li>
+ *   <li>{@code delivered}, {@code dropped}, {@code failures} – eventi consegnati, scartati a buffer pieno e lotti falliti</li>
+ *   <li>{@code batches}, {@code maxBatchSize} – lotti consegnati e dimensione del lotto piu grande</li>
+ *   <li>{@code lastLagMillis}, {@code maxLagMillis} – ritardo tra pubblicazione e consegna</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventSubscriberResponseDto {
+    private String name;
+    private int queued;
+    private int capacity;
+    private long delivered;
+    private long dropped;
+    private long failures;
+    private long batches;
+    private long maxBatchSize;
+    private long lastLagMillis;
+    private long maxLagMillis;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.model.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO di risposta con l'occupazione di memoria del calendario a bitmap dei posti veicolo.
+ * <ul>
+ *   <li>{@code bucketMinutes} – durata in minuti di ogni intervallo</li>
+ *   <li>{@code bucketsPerSpot} – numero di intervalli (bit) per posto</li>
+ *   <li>{@code bitmapBytesPerSpot} – byte della bitmap di un posto</li>
+ *   <li>{@code estimatedBytesPerSpot} – stima per posto compreso l'overhead delle strutture</li>
+ *   <li>{@code spotsByParkingLot} – posti tracciati per ciascun parcheggio</li>
+ *   <li>{@code estimatedTotalBytes} – stima complessiva</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OccupancyCalendarMemoryResponseDto {
+    private long bucketMinutes;
+    private int bucketsPerSpot;
+    private long bitmapBytesPerSpot;
+    private long estimatedBytesPerSpot;
+    private Map<String, Integer> spotsByParkingLot;
+    private long estimatedTotalBytes;
+}
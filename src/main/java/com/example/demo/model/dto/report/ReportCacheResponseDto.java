@@ -0,0 +1,36 @@
+package com.example.demo.model.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta con lo stato della cache dei report di questa istanza.
+ * <ul>
+ *   <li>{@code size} – voci presenti</li>
+ *   <li>{@code maxEntries} – voci massime</li>
+ *   <li>{@code ttlSeconds} – durata di una voce in secondi</li>
+ *   <li>{@code hits} – richieste servite dalla cache dall'avvio</li>
+ *   <li>{@code misses} – richieste calcolate dall'avvio</li>
+ *   <li>{@code hitRate} – percentuale di richieste servite dalla cache</li>
+ *   <li>{@code evictions} – voci tolte perche la cache era piena</li>
+ *   <li>{@code expirations} – voci trovate scadute</li>
+ *   <li>{@code invalidations} – voci tolte per una modifica ai dati</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportCacheResponseDto {
+    private int size;
+    private int maxEntries;
+    private long ttlSeconds;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+}
@@ -0,0 +1,36 @@
+package com.example.demo.model.dto.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO di una riga dell'esportazione dello storico delle prenotazioni.
+ * <p>Le date sono nella zona del client (formato: {@code dd/MM/yyyy HH:mm}); l'ordine dei campi e quello delle
+ * colonne CSV.</p>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({"id", "parkingLotName", "vehicleSpotId", "vehicleSpotCategory", "initialDate", "endingDate",
+        "appointmentState", "seriesId"})
+public class ReservationExportRowDto {
+    private String id;
+    private String parkingLotName;
+    private String vehicleSpotId;
+    private VehicleSpotCategory vehicleSpotCategory;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+    private AppointmentState appointmentState;
+    private String seriesId;
+}
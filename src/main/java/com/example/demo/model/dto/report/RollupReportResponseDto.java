@@ -0,0 +1,37 @@
+package com.example.demo.model.dto.report;
+
+import com.example.demo.enumerators.RollupTier;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO di risposta con i contatori pre-aggregati delle prenotazioni di un periodo.
+ * <ul>
+ *   <li>{@code bucket} – inizio del periodo nella zona del client (formato: {@code dd/MM/yyyy HH:mm})</li>
+ *   <li>{@code granularity} – durata del periodo ({@link RollupTier})</li>
+ *   <li>{@code created} – prenotazioni create che iniziano nel periodo</li>
+ *   <li>{@code valid} – prenotazioni ancora valide che iniziano nel periodo</li>
+ *   <li>{@code canceled} – prenotazioni cancellate che iniziano nel periodo</li>
+ *   <li>{@code expired} – prenotazioni scadute che iniziano nel periodo</li>
+ *   <li>{@code occupiedMinutes} – minuti-posto occupati nel periodo</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RollupReportResponseDto {
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime bucket;
+    private RollupTier granularity;
+    private long created;
+    private long valid;
+    private long canceled;
+    private long expired;
+    private long occupiedMinutes;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.model.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO di risposta con lo stato del lease e le durate di un task schedulato su questa istanza.
+ * <ul>
+ *   <li>{@code jobName} – nome del task</li>
+ *   <li>{@code owner} – identificativo di questa istanza</li>
+ *   <li>{@code leader} – {@code true} se questa istanza detiene il lease</li>
+ *   <li>{@code acquisitions} – volte in cui questa istanza ha preso il lease</li>
+ *   <li>{@code runs} – esecuzioni su questa istanza</li>
+ *   <li>{@code skipped} – esecuzioni saltate perche il lease era di un'altra istanza</li>
+ *   <li>{@code lastDurationMillis}, {@code maxDurationMillis}, {@code averageDurationMillis} – durate delle esecuzioni</li>
+ * </ul>
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduledJobResponseDto {
+    private String jobName;
+    private String owner;
+    private boolean leader;
+    private long acquisitions;
+    private long runs;
+    private long skipped;
+    private long lastDurationMillis;
+    private long maxDurationMillis;
+    private long averageDurationMillis;
+}
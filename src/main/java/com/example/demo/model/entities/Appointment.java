@@ -8,6 +8,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -18,6 +20,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Document(collection = "Appointment")
+@CompoundIndex(name = "state_initialDate", def = "{'appointmentState': 1, 'initialDate': 1}")
+@CompoundIndex(name = "state_endingDate", def = "{'appointmentState': 1, 'endingDate': 1}")
+@CompoundIndex(name = "lot_initialDate", def = "{'parkingLotName': 1, 'initialDate': 1}")
+@CompoundIndex(name = "lot_state_initialDate", def = "{'parkingLotName': 1, 'appointmentState': 1, 'initialDate': 1}")
+@CompoundIndex(name = "lot_state_category", def = "{'parkingLotName': 1, 'appointmentState': 1, 'spot vehicleSpotCategory ': 1}")
 public class Appointment {
 
     @Id
@@ -39,4 +46,22 @@ public class Appointment {
     @Field("appointmentState")
     @Builder.Default
     private AppointmentState appointmentState = AppointmentState.VALID;
+    /**
+     * Serie di prenotazioni ricorrenti a cui appartiene la prenotazione, {@code null} per le prenotazioni singole.
+     */
+    @Field("seriesId")
+    @Indexed(sparse = true)
+    private String seriesId;
+    /**
+     * Momento del salvataggio come {@code VALID} (UTC), {@code null} per le prenotazioni precedenti al campo.
+     */
+    @Field("createdAt")
+    @Indexed(sparse = true)
+    private LocalDateTime createdAt;
+    /**
+     * Momento della cancellazione (UTC), {@code null} se la prenotazione non e stata cancellata.
+     */
+    @Field("canceledAt")
+    @Indexed(sparse = true)
+    private LocalDateTime canceledAt;
 }
@@ -0,0 +1,66 @@
+package com.example.demo.model.entities;
+
+import com.example.demo.enumerators.RollupTier;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Contatori pre-aggregati delle prenotazioni per parcheggio, categoria e periodo</p>
+ * <p>Una riga per ({@code tier}, parcheggio, categoria, inizio del periodo in UTC), con {@code _id} deterministico
+ * cosi ogni aggiornamento e un upsert con {@code $inc}. Una prenotazione e contata nel periodo in cui inizia;
+ * i minuti occupati sono invece ripartiti su tutti i periodi che la prenotazione attraversa.</p>
+ * <ul>
+ *     <li>{@code created} – prenotazioni create</li>
+ *     <li>{@code valid} – prenotazioni ancora {@code VALID}</li>
+ *     <li>{@code canceled} – prenotazioni cancellate</li>
+ *     <li>{@code expired} – prenotazioni scadute</li>
+ *     <li>{@code occupiedMinutes} – minuti-posto occupati da prenotazioni non cancellate</li>
+ *     <li>{@code updatedAt} – ultimo incremento (UTC), per non sovrascrivere con un ricalcolo gli incrementi
+ *     arrivati mentre era in corso</li>
+ * </ul>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "AppointmentRollup")
+@CompoundIndex(name = "tier_bucket", def = "{'tier': 1, 'bucket': 1}")
+@CompoundIndex(name = "lot_bucket", def = "{'parkingLotName': 1, 'bucket': 1}")
+public class AppointmentRollup {
+
+    @Id
+    private String id;
+    @Field("tier")
+    private RollupTier tier;
+    @Field("parkingLotName")
+    private String parkingLotName;
+    @Field("vehicleSpotCategory")
+    private VehicleSpotCategory vehicleSpotCategory;
+    @Field("bucket")
+    private LocalDateTime bucket;
+    @Field("created")
+    private long created;
+    @Field("valid")
+    private long valid;
+    @Field("canceled")
+    private long canceled;
+    @Field("expired")
+    private long expired;
+    @Field("occupiedMinutes")
+    private long occupiedMinutes;
+    @Field("updatedAt")
+    private LocalDateTime updatedAt;
+
+    public static String idOf(RollupTier tier, String parkingLotName, VehicleSpotCategory category, LocalDateTime bucket) {
+        return tier + "|" + parkingLotName + "|" + category + "|" + bucket;
+    }
+}
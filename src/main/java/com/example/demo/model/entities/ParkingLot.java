@@ -1,5 +1,6 @@
 package com.example.demo.model.entities;
 
+import com.example.demo.enumerators.SpotAllocationMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,5 +24,8 @@ public class ParkingLot {
     private String name;
     @Field("vehicleSpotNumber")
     private Long vehicleSpotNumber;
+    @Field("allocationMode")
+    @Builder.Default
+    private SpotAllocationMode allocationMode = SpotAllocationMode.FIRST_FIT;
 
 }
@@ -0,0 +1,41 @@
+package com.example.demo.model.entities;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * <p>Riepilogo dell'occupazione di un parcheggio, salvato periodicamente dalla vista in memoria</p>
+ * <p>Un documento per parcheggio ({@code _id} = nome del parcheggio): all'avvio permette di rispondere
+ * subito, prima che la vista venga ricostruita dalle aggregazioni.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "ParkingOccupancySummary")
+public class ParkingOccupancySummary {
+
+    @Id
+    private String parkingLotName;
+    @Field("parkingLotId")
+    private String parkingLotId;
+    @Field("totalSlots")
+    private long totalSlots;
+    @Field("occupiedSlots")
+    private long occupiedSlots;
+    @Field("spotsByCategory")
+    private Map<VehicleSpotCategory, Long> spotsByCategory;
+    @Field("occupiedByCategory")
+    private Map<VehicleSpotCategory, Long> occupiedByCategory;
+    @Field("updatedAt")
+    private Instant updatedAt;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.model.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * <p>Lease di un task schedulato, condiviso tra tutte le istanze dell'applicazione</p>
+ * <p>Un documento per task ({@code _id} = nome del task): l'istanza indicata in {@code owner} esegue il
+ * task finche rinnova la scadenza. Un lease scaduto puo essere preso da qualunque istanza; l'indice TTL
+ * elimina i documenti abbandonati.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "SchedulerLease")
+public class SchedulerLease {
+
+    @Id
+    private String jobName;
+    @Field("owner")
+    private String owner;
+    @Field("expiresAt")
+    @Indexed(name = "expiresAt_ttl", expireAfterSeconds = 0)
+    private Instant expiresAt;
+}
@@ -0,0 +1,52 @@
+package com.example.demo.model.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Calendario delle riserve di un posto veicolo, condiviso tra tutte le istanze dell'applicazione</p>
+ * <p>Un documento per posto ({@code _id} = id del posto): l'aggiunta di una riserva e un singolo
+ * aggiornamento condizionato sul documento, quindi atomico anche con piu repliche.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "VehicleSpotClaim")
+public class VehicleSpotClaim {
+
+    @Id
+    private String vehicleSpotId;
+    @Field("claims")
+    @Builder.Default
+    private List<Claim> claims = new ArrayList<>();
+
+    /**
+     * Intervallo riservato da una prenotazione (date UTC).
+     * <p>{@code expiresAt} e valorizzato solo per i posti trattenuti non ancora confermati: dopo quella data
+     * la riserva non occupa piu il posto e viene rimossa dal rilascio periodico.</p>
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Claim {
+        @Field("appointmentId")
+        private String appointmentId;
+        @Field("initialDate")
+        private LocalDateTime initialDate;
+        @Field("endingDate")
+        private LocalDateTime endingDate;
+        @Field("expiresAt")
+        private LocalDateTime expiresAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.model.entities;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.enumerators.WaitlistState;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Richiesta di prenotazione in lista d'attesa per un parcheggio e una categoria (date UTC)</p>
+ * <p>Quando un posto si libera la richiesta viene trasformata in un {@link Appointment} e
+ * {@code appointmentId} ne riporta l'id.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "WaitlistEntry")
+public class WaitlistEntry {
+
+    @Id
+    private String id;
+    @Field("parkingLotName")
+    private String parkingLotName;
+    @Field("vehicleSpotCategory")
+    private VehicleSpotCategory vehicleSpotCategory;
+    @Field("initialDate")
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime initialDate;
+    @Field("endingDate")
+    @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+    private LocalDateTime endingDate;
+    @Field("priority")
+    private int priority;
+    @Field("createdAt")
+    private LocalDateTime createdAt;
+    @Field("waitlistState")
+    @Indexed
+    @Builder.Default
+    private WaitlistState waitlistState = WaitlistState.WAITING;
+    @Field("appointmentId")
+    private String appointmentId;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.model.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * <p>Risultato delle aggregazioni che contano documenti per periodo ({@code $dateTrunc})</p>
+ * <p>{@code bucket} e l'istante di inizio del periodo nella zona usata per il troncamento.</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DateBucketCount {
+
+    private Instant bucket;
+    private long count;
+}
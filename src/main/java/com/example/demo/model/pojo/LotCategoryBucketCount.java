@@ -0,0 +1,23 @@
+package com.example.demo.model.pojo;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Risultato delle aggregazioni che contano documenti per parcheggio, categoria e periodo</p>
+ * <p>{@code bucket} e l'inizio del periodo (UTC).</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LotCategoryBucketCount {
+
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    private LocalDateTime bucket;
+    private long count;
+}
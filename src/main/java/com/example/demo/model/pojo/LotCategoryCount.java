@@ -0,0 +1,19 @@
+package com.example.demo.model.pojo;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>Risultato delle aggregazioni che contano documenti per parcheggio e categoria</p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LotCategoryCount {
+
+    private String parkingLotName;
+    private VehicleSpotCategory vehicleSpotCategory;
+    private long count;
+}
@@ -1,5 +1,6 @@
 package com.example.demo.repository;
 
+import com.example.demo.enumerators.AppointmentState;
 import com.example.demo.model.entities.Appointment;
 import com.example.demo.model.entities.VehicleSpot;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -8,17 +9,37 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface AppointmentRepository extends MongoRepository<Appointment, String> {
+public interface AppointmentRepository extends MongoRepository<Appointment, String>, AppointmentRepositoryCustom {
 
     @Query("{ 'initialDate' : { $lte: ?1 }, 'endingDate' : { $gte: ?0 }, 'vehicleSpotId' : ?2, 'appointmentState' : 'VALID'}")
     List<Appointment> findByDateWithin(LocalDateTime startingDate, LocalDateTime endingDate, String vehicleSpotId);
 
-    @Query("{'endingDate' : { $lte: ?0 }, 'appointmentState' : 'VALID'}")
-    List<Appointment> findValidAppointments(LocalDateTime startingDate);
-
     List<Appointment> findByParkingLotName (String parkingLotName);
 
+    /**
+     * <p>Prenotazioni del parcheggio in ordine di inizio, servite dall'indice ({@code parkingLotName},
+     * {@code initialDate}) senza ordinamento in memoria</p>
+     */
+    List<Appointment> findByParkingLotNameOrderByInitialDate(String parkingLotName);
+
+    @Query("{ 'parkingLotName' : ?0, 'initialDate' : { $lt: ?2 }, 'endingDate' : { $gt: ?1 }, 'appointmentState' : 'VALID'}")
+    List<Appointment> findValidByParkingLotNameWithin(String parkingLotName, LocalDateTime startingDate, LocalDateTime endingDate);
+
     List<Appointment> findByVehicleSpotId(String vehicleSpotId);
+
+    List<Appointment> findByAppointmentState(AppointmentState appointmentState);
+
+    long countByAppointmentState(AppointmentState appointmentState);
+
+    List<Appointment> findBySeriesIdAndAppointmentState(String seriesId, AppointmentState appointmentState);
+
+    /**
+     * <p>Prenotazioni del parcheggio iniziate in {@code [from, to)}, in ordine di inizio, lette da un cursore</p>
+     * <p>Lo {@link Stream} va chiuso per rilasciare il cursore.</p>
+     */
+    @Query(value = "{ 'parkingLotName' : ?0, 'initialDate' : { $gte: ?1, $lt: ?2 } }", sort = "{ 'initialDate' : 1 }")
+    Stream<Appointment> streamByParkingLotNameWithin(String parkingLotName, LocalDateTime from, LocalDateTime to);
  }
@@ -0,0 +1,160 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.AppointmentRollup;
+import com.example.demo.model.pojo.DateBucketCount;
+import com.example.demo.model.pojo.LotCategoryBucketCount;
+import com.example.demo.model.pojo.LotCategoryCount;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Operazioni su {@link com.example.demo.model.entities.Appointment} eseguite con {@code MongoTemplate}</p>
+ * <p>Raccoglie le query che non si possono esprimere con i metodi derivati di Spring Data.</p>
+ */
+public interface AppointmentRepositoryCustom {
+
+    /**
+     * <p>Restituisce gli id distinti dei posti veicolo con almeno una prenotazione {@code VALID}
+     * che si sovrappone all'intervallo (estremi inclusi)</p>
+     * <p>Un'unica {@code distinct} lato server al posto di una query per ogni posto. Con parcheggio e categoria
+     * la query e servita dall'indice {@code lot_state_category}.</p>
+     *
+     * @param parkingLotName parcheggio dei posti, {@code null} per tutti
+     * @param vehicleSpotCategory categoria dei posti, {@code null} per tutte
+     * @param startingDate data di inizio (UTC)
+     * @param endingDate data di fine (UTC)
+     * @return insieme degli id dei posti occupati
+     */
+    Set<String> findBusyVehicleSpotIds(String parkingLotName, VehicleSpotCategory vehicleSpotCategory,
+                                       LocalDateTime startingDate, LocalDateTime endingDate);
+
+    /**
+     * <p>Inserisce le prenotazioni con un'unica scrittura bulk non ordinata</p>
+     * <p>Un inserimento fallito non blocca gli altri: vengono restituiti gli id delle prenotazioni
+     * non salvate.</p>
+     *
+     * @param appointments prenotazioni con id gia assegnato
+     * @return id delle prenotazioni non inserite
+     */
+    Set<String> insertAllUnordered(List<Appointment> appointments);
+
+    /**
+     * <p>Prenotazioni {@code VALID} terminate entro la data indicata, in ordine di fine, servite dall'indice
+     * ({@code appointmentState}, {@code endingDate})</p>
+     *
+     * @param date data corrente (UTC)
+     * @param limit numero massimo di prenotazioni restituite
+     */
+    List<Appointment> findValidEndedBefore(LocalDateTime date, int limit);
+
+    /**
+     * <p>Imposta {@code EXPIRED} sulle prenotazioni indicate ancora {@code VALID} e terminate entro la data:
+     * una prenotazione cancellata, spostata o gia scaduta nel frattempo non viene toccata</p>
+     * <p>Una sola query trova le prenotazioni ancora da scadere, poi ognuna passa a {@code EXPIRED} con un
+     * aggiornamento condizionato sullo stesso filtro: tra istanze concorrenti solo una esegue la transizione.</p>
+     *
+     * @param appointmentIds id delle prenotazioni dovute
+     * @param date data corrente (UTC)
+     * @return id delle prenotazioni passate da {@code VALID} a {@code EXPIRED} con questa chiamata
+     */
+    Set<String> expireAll(Collection<String> appointmentIds, LocalDateTime date);
+
+    /**
+     * <p>Annulla tutte le prenotazioni {@code VALID} di una serie ricorrente con un solo {@code updateMany},
+     * impostando anche {@code canceledAt}</p>
+     *
+     * @param seriesId id della serie
+     * @return numero di prenotazioni annullate
+     */
+    long cancelSeries(String seriesId);
+
+    /**
+     * <p>Annulla la prenotazione solo se e ancora {@code VALID}, con un aggiornamento condizionato sullo stato:
+     * tra richieste concorrenti solo una esegue la transizione</p>
+     *
+     * @param id id della prenotazione
+     * @param canceledAt data di cancellazione (UTC)
+     * @return {@code true} se la prenotazione e passata da {@code VALID} a {@code CANCELED} con questa chiamata
+     */
+    boolean cancelIfValid(String id, LocalDateTime canceledAt);
+
+    /**
+     * <p>Conta le prenotazioni {@code VALID} per parcheggio e categoria con un'unica aggregazione lato server</p>
+     * <p>Il filtro usa il prefisso dell'indice ({@code appointmentState}, {@code endingDate}).</p>
+     *
+     * @return un elemento per ogni coppia parcheggio-categoria con almeno una prenotazione valida
+     */
+    List<LotCategoryCount> countValidByParkingLotAndCategory();
+
+    /**
+     * <p>Come {@link #countValidByParkingLotAndCategory()}, ma per un solo parcheggio: la {@code $match} usa
+     * l'indice ({@code parkingLotName}, {@code appointmentState}, categoria), che copre anche il raggruppamento,
+     * quindi il costo dipende solo dalle prenotazioni valide di quel parcheggio</p>
+     *
+     * @param parkingLotName nome esatto del parcheggio
+     * @return un elemento per ogni categoria con almeno una prenotazione valida
+     */
+    List<LotCategoryCount> countValidByCategory(String parkingLotName);
+
+    /**
+     * <p>Conta le prenotazioni {@code VALID} di un parcheggio iniziate in {@code [from, to)}, per periodo</p>
+     * <p>Un'unica aggregazione lato server: {@code $match} servito dall'indice ({@code parkingLotName},
+     * {@code appointmentState}, {@code initialDate}), {@code $group} sulla data di inizio troncata con
+     * {@code $dateTrunc} nella zona indicata (le settimane iniziano il lunedi) e ordinamento per periodo.</p>
+     *
+     * @param parkingLotName nome esatto del parcheggio
+     * @param from inizio dell'intervallo, incluso (UTC)
+     * @param to fine dell'intervallo, esclusa (UTC)
+     * @param unit {@link ChronoUnit#DAYS}, {@link ChronoUnit#WEEKS} o {@link ChronoUnit#MONTHS}
+     * @param zoneId zona in cui vengono calcolati i periodi
+     * @return un elemento per ogni periodo con almeno una prenotazione, in ordine cronologico
+     */
+    List<DateBucketCount> countValidByPeriod(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                             ChronoUnit unit, String zoneId);
+
+    /**
+     * <p>Conta le prenotazioni salvate da {@code from} in poi ({@code createdAt}), per parcheggio, categoria e
+     * periodo</p>
+     * <p>La {@code $match} usa l'indice su {@code createdAt}, quindi il costo dipende solo dalle prenotazioni
+     * dell'intervallo.</p>
+     *
+     * @param from inizio dell'intervallo, incluso (UTC)
+     * @param unit {@link ChronoUnit#MINUTES} o {@link ChronoUnit#HOURS}
+     * @return un elemento per ogni parcheggio, categoria e periodo con almeno una prenotazione
+     */
+    List<LotCategoryBucketCount> countCreatedSince(LocalDateTime from, ChronoUnit unit);
+
+    /**
+     * <p>Come {@link #countCreatedSince}, per le prenotazioni cancellate da {@code from} in poi
+     * ({@code canceledAt})</p>
+     */
+    List<LotCategoryBucketCount> countCanceledSince(LocalDateTime from, ChronoUnit unit);
+
+    /**
+     * <p>Prenotazioni che iniziano in {@code [from, to)} per parcheggio, categoria e ora di inizio, con una sola
+     * aggregazione: totale ({@code created}) e quante sono {@code VALID}, {@code CANCELED} ed {@code EXPIRED}</p>
+     *
+     * @param from inizio dell'intervallo, incluso e allineato all'ora (UTC)
+     * @param to fine dell'intervallo, esclusa e allineata all'ora (UTC)
+     * @return righe orarie con chiave e contatori, senza id e minuti occupati
+     */
+    List<AppointmentRollup> countByParkingLotCategoryAndHour(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * <p>Minuti-posto occupati in {@code [from, to)} dalle prenotazioni non cancellate, ripartiti sulle ore che
+     * attraversano, per parcheggio e categoria</p>
+     * <p>Una sola aggregazione: ogni prenotazione che si sovrappone all'intervallo viene espansa nelle sue ore
+     * ({@code $range} e {@code $unwind}) e i minuti di ogni ora sommati con {@code $group}.</p>
+     *
+     * @param from inizio dell'intervallo, incluso e allineato all'ora (UTC)
+     * @param to fine dell'intervallo, esclusa e allineata all'ora (UTC)
+     * @return righe orarie con chiave e minuti occupati, senza id e contatori
+     */
+    List<AppointmentRollup> sumOccupiedMinutesByHour(LocalDateTime from, LocalDateTime to);
+}
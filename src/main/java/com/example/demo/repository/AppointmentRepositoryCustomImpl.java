@@ -0,0 +1,229 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.AppointmentRollup;
+import com.example.demo.model.pojo.DateBucketCount;
+import com.example.demo.model.pojo.LotCategoryBucketCount;
+import com.example.demo.model.pojo.LotCategoryCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class AppointmentRepositoryCustomImpl implements AppointmentRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Set<String> findBusyVehicleSpotIds(String parkingLotName, VehicleSpotCategory vehicleSpotCategory,
+                                              LocalDateTime startingDate, LocalDateTime endingDate) {
+        Criteria criteria = Criteria.where("appointmentState").is(AppointmentState.VALID);
+        if (parkingLotName != null) {
+            criteria.and("parkingLotName").is(parkingLotName);
+        }
+        if (vehicleSpotCategory != null) {
+            criteria.and("vehicleSpotCategory").is(vehicleSpotCategory);
+        }
+        Query query = Query.query(criteria
+                .and("initialDate").lte(endingDate)
+                .and("endingDate").gte(startingDate));
+        return new HashSet<>(mongoTemplate.findDistinct(query, "vehicleSpotId", Appointment.class, String.class));
+    }
+
+    @Override
+    public Set<String> insertAllUnordered(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Appointment.class)
+                    .insert(appointments)
+                    .execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .map(error -> appointments.get(error.getIndex()).getId())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    @Override
+    public List<Appointment> findValidEndedBefore(LocalDateTime date, int limit) {
+        return mongoTemplate.find(Query.query(Criteria.where("appointmentState").is(AppointmentState.VALID)
+                        .and("endingDate").lte(date))
+                .with(Sort.by("endingDate"))
+                .limit(limit), Appointment.class);
+    }
+
+    @Override
+    public Set<String> expireAll(Collection<String> appointmentIds, LocalDateTime date) {
+        if (appointmentIds.isEmpty()) {
+            return Set.of();
+        }
+        Criteria due = Criteria.where("appointmentState").is(AppointmentState.VALID).and("endingDate").lte(date);
+        Query candidates = Query.query(Criteria.where("_id").in(appointmentIds).andOperator(due));
+        candidates.fields().include("_id");
+        Set<String> expired = new HashSet<>();
+        for (Appointment candidate : mongoTemplate.find(candidates, Appointment.class)) {
+            Query query = Query.query(Criteria.where("_id").is(candidate.getId()).andOperator(due));
+            if (mongoTemplate.updateFirst(query, Update.update("appointmentState", AppointmentState.EXPIRED),
+                    Appointment.class).getModifiedCount() > 0) {
+                expired.add(candidate.getId());
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public long cancelSeries(String seriesId) {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("seriesId").is(seriesId)
+                        .and("appointmentState").is(AppointmentState.VALID)),
+                Update.update("appointmentState", AppointmentState.CANCELED)
+                        .set("canceledAt", LocalDateTime.now(ZoneOffset.UTC)),
+                Appointment.class).getModifiedCount();
+    }
+
+    @Override
+    public boolean cancelIfValid(String id, LocalDateTime canceledAt) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)
+                        .and("appointmentState").is(AppointmentState.VALID)),
+                Update.update("appointmentState", AppointmentState.CANCELED)
+                        .set("canceledAt", canceledAt),
+                Appointment.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public List<LotCategoryCount> countValidByParkingLotAndCategory() {
+        return countByParkingLotAndCategory(Criteria.where("appointmentState").is(AppointmentState.VALID));
+    }
+
+    @Override
+    public List<LotCategoryCount> countValidByCategory(String parkingLotName) {
+        return countByParkingLotAndCategory(Criteria.where("parkingLotName").is(parkingLotName)
+                .and("appointmentState").is(AppointmentState.VALID));
+    }
+
+    @Override
+    public List<DateBucketCount> countValidByPeriod(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                    ChronoUnit unit, String zoneId) {
+        DateOperators.DateTrunc bucket = DateOperators.dateOf("initialDate")
+                .withTimezone(DateOperators.Timezone.valueOf(zoneId))
+                .truncate(DateOperators.TemporalUnit.from(unit));
+        if (unit == ChronoUnit.WEEKS) {
+            bucket = bucket.startOfWeek(DayOfWeek.MONDAY);
+        }
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Appointment.class,
+                        Aggregation.match(Criteria.where("parkingLotName").is(parkingLotName)
+                                .and("appointmentState").is(AppointmentState.VALID)
+                                .and("initialDate").gte(from).lt(to)),
+                        Aggregation.project().and(bucket).as("bucket"),
+                        Aggregation.group("bucket").count().as("count"),
+                        Aggregation.project("count").and("bucket").previousOperation(),
+                        Aggregation.sort(Sort.Direction.ASC, "bucket")),
+                DateBucketCount.class).getMappedResults();
+    }
+
+    @Override
+    public List<LotCategoryBucketCount> countCreatedSince(LocalDateTime from, ChronoUnit unit) {
+        return countByParkingLotCategoryAndPeriod("createdAt", from, unit);
+    }
+
+    @Override
+    public List<LotCategoryBucketCount> countCanceledSince(LocalDateTime from, ChronoUnit unit) {
+        return countByParkingLotCategoryAndPeriod("canceledAt", from, unit);
+    }
+
+    @Override
+    public List<AppointmentRollup> countByParkingLotCategoryAndHour(LocalDateTime from, LocalDateTime to) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Appointment.class,
+                        Aggregation.match(Criteria.where("initialDate").gte(from).lt(to)
+                                .and("appointmentState").in(AppointmentState.VALID, AppointmentState.CANCELED, AppointmentState.EXPIRED)),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory")
+                                .and(DateOperators.dateOf("initialDate").truncate(DateOperators.TemporalUnit.from(ChronoUnit.HOURS))).as("bucket")
+                                .and(isInState(AppointmentState.VALID)).as("valid")
+                                .and(isInState(AppointmentState.CANCELED)).as("canceled")
+                                .and(isInState(AppointmentState.EXPIRED)).as("expired"),
+                        Aggregation.group("parkingLotName", "vehicleSpotCategory", "bucket")
+                                .count().as("created")
+                                .sum("valid").as("valid")
+                                .sum("canceled").as("canceled")
+                                .sum("expired").as("expired"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "bucket", "created", "valid", "canceled",
+                                "expired").andExclude("_id")),
+                AppointmentRollup.class).getMappedResults();
+    }
+
+    @Override
+    public List<AppointmentRollup> sumOccupiedMinutesByHour(LocalDateTime from, LocalDateTime to) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Appointment.class,
+                        Aggregation.match(Criteria.where("initialDate").lt(to)
+                                .and("endingDate").gt(from)
+                                .and("appointmentState").in(AppointmentState.VALID, AppointmentState.EXPIRED)),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "initialDate", "endingDate")
+                                .and(DateOperators.dateOf("initialDate").truncate(DateOperators.TemporalUnit.from(ChronoUnit.HOURS))).as("firstHour"),
+                        // scostamento in ore di ogni ora attraversata rispetto alla prima
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "initialDate", "endingDate", "firstHour")
+                                .and(ArrayOperators.RangeOperator.rangeStartingAt(0).to(ArithmeticOperators.valueOf(
+                                        DateOperators.dateOf("firstHour").diffValueOf("endingDate", "hour")).add(1))).as("offset"),
+                        Aggregation.unwind("offset"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "initialDate", "endingDate")
+                                .and(DateOperators.dateOf("firstHour").addValueOf("offset", "hour")).as("bucket"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "bucket")
+                                .and(DateOperators.dateOf(AccumulatorOperators.Max.maxOf("initialDate").and("bucket"))
+                                        .diffValueOf(AccumulatorOperators.Min.minOf("endingDate")
+                                                .and(DateOperators.dateOf("bucket").add(1, "hour")), "minute")).as("occupiedMinutes"),
+                        Aggregation.match(Criteria.where("bucket").gte(from).lt(to).and("occupiedMinutes").gt(0)),
+                        Aggregation.group("parkingLotName", "vehicleSpotCategory", "bucket")
+                                .sum("occupiedMinutes").as("occupiedMinutes"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "bucket", "occupiedMinutes").andExclude("_id")),
+                AppointmentRollup.class).getMappedResults();
+    }
+
+    private static AggregationExpression isInState(AppointmentState state) {
+        return ConditionalOperators.when(ComparisonOperators.valueOf("appointmentState").equalToValue(state.name()))
+                .then(1).otherwise(0);
+    }
+
+    private List<LotCategoryBucketCount> countByParkingLotCategoryAndPeriod(String dateField, LocalDateTime from, ChronoUnit unit) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Appointment.class,
+                        Aggregation.match(Criteria.where(dateField).gte(from)),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory")
+                                .and(DateOperators.dateOf(dateField).truncate(DateOperators.TemporalUnit.from(unit))).as("bucket"),
+                        Aggregation.group("parkingLotName", "vehicleSpotCategory", "bucket").count().as("count"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "bucket", "count").andExclude("_id")),
+                LotCategoryBucketCount.class).getMappedResults();
+    }
+
+    private List<LotCategoryCount> countByParkingLotAndCategory(Criteria criteria) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Appointment.class,
+                        Aggregation.match(criteria),
+                        Aggregation.group("parkingLotName", "vehicleSpotCategory").count().as("count"),
+                        Aggregation.project("parkingLotName", "vehicleSpotCategory", "count").andExclude("_id")),
+                LotCategoryCount.class).getMappedResults();
+    }
+}
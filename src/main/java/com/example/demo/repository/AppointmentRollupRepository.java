@@ -0,0 +1,16 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.AppointmentRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AppointmentRollupRepository extends MongoRepository<AppointmentRollup, String>, AppointmentRollupRepositoryCustom {
+
+    List<AppointmentRollup> findByParkingLotNameAndBucketGreaterThanEqualAndBucketLessThan(String parkingLotName,
+                                                                                           LocalDateTime from,
+                                                                                           LocalDateTime to);
+}
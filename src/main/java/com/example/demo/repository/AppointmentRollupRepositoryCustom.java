@@ -0,0 +1,48 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.RollupTier;
+import com.example.demo.model.entities.AppointmentRollup;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * <p>Scritture su {@link AppointmentRollup} eseguite con {@code MongoTemplate}</p>
+ */
+public interface AppointmentRollupRepositoryCustom {
+
+    /**
+     * <p>Somma i contatori indicati alle righe con lo stesso {@code _id}, creandole se mancano, con un'unica
+     * scrittura bulk non ordinata di upsert {@code $inc}</p>
+     * <p>Gli incrementi sono commutativi: piu istanze possono scrivere sulle stesse righe senza coordinarsi.
+     * Ogni riga toccata riceve {@code updatedAt} con l'ora corrente (UTC).</p>
+     *
+     * @param deltas righe con id, chiave e incrementi (anche negativi)
+     */
+    void incrementAll(Collection<AppointmentRollup> deltas);
+
+    /**
+     * <p>Sposta le righe di livello {@code source} con inizio prima di {@code before} nelle righe di livello
+     * {@code target} che le contengono</p>
+     * <p>Si lavora un periodo di {@code target} alla volta, a partire dal piu vecchio: una {@code $group} per
+     * parcheggio e categoria, un {@code $inc} sulle righe di destinazione e la cancellazione delle righe sorgente.
+     * Le righe sorgente non devono ricevere scritture durante la compattazione.</p>
+     *
+     * @param before limite escluso, allineato all'inizio di un periodo di {@code target}
+     * @return numero di righe compattate
+     */
+    long compact(RollupTier source, RollupTier target, LocalDateTime before);
+
+    /**
+     * <p>Sostituisce le righe di livello {@code tier} con inizio in {@code [from, to)} con quelle indicate</p>
+     * <p>Un'unica scrittura bulk non ordinata: un upsert {@code $set} dei contatori per ogni riga indicata e la
+     * cancellazione delle altre righe dell'intervallo.</p>
+     * <p>Le righe incrementate da {@code startedAt} in poi non vengono ne sovrascritte ne cancellate: il ricalcolo
+     * potrebbe non contenere quegli incrementi.</p>
+     *
+     * @param rows righe ricalcolate, con id e chiave
+     * @param startedAt inizio delle letture su cui si basa il ricalcolo (UTC)
+     */
+    void replaceAll(RollupTier tier, LocalDateTime from, LocalDateTime to, Collection<AppointmentRollup> rows,
+                    LocalDateTime startedAt);
+}
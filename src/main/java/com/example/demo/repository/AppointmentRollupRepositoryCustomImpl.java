@@ -0,0 +1,117 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.RollupTier;
+import com.example.demo.model.entities.AppointmentRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+public class AppointmentRollupRepositoryCustomImpl implements AppointmentRollupRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void incrementAll(Collection<AppointmentRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentRollup.class);
+        for (AppointmentRollup delta : deltas) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(delta.getId())), new Update()
+                    .setOnInsert("tier", delta.getTier())
+                    .setOnInsert("parkingLotName", delta.getParkingLotName())
+                    .setOnInsert("vehicleSpotCategory", delta.getVehicleSpotCategory())
+                    .setOnInsert("bucket", delta.getBucket())
+                    .inc("created", delta.getCreated())
+                    .inc("valid", delta.getValid())
+                    .inc("canceled", delta.getCanceled())
+                    .inc("expired", delta.getExpired())
+                    .inc("occupiedMinutes", delta.getOccupiedMinutes())
+                    .set("updatedAt", LocalDateTime.now(ZoneOffset.UTC)));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public long compact(RollupTier source, RollupTier target, LocalDateTime before) {
+        long compacted = 0;
+        AppointmentRollup oldest;
+        while ((oldest = mongoTemplate.findOne(Query.query(Criteria.where("tier").is(source).and("bucket").lt(before))
+                .with(Sort.by("bucket")), AppointmentRollup.class)) != null) {
+            LocalDateTime start = target.truncate(oldest.getBucket());
+            LocalDateTime end = target.next(start).isBefore(before) ? target.next(start) : before;
+            Criteria period = Criteria.where("tier").is(source).and("bucket").gte(start).lt(end);
+
+            List<AppointmentRollup> sums = mongoTemplate.aggregate(Aggregation.newAggregation(AppointmentRollup.class,
+                            Aggregation.match(period),
+                            Aggregation.group("parkingLotName", "vehicleSpotCategory")
+                                    .sum("created").as("created")
+                                    .sum("valid").as("valid")
+                                    .sum("canceled").as("canceled")
+                                    .sum("expired").as("expired")
+                                    .sum("occupiedMinutes").as("occupiedMinutes"),
+                            Aggregation.project("parkingLotName", "vehicleSpotCategory", "created", "valid", "canceled",
+                                    "expired", "occupiedMinutes").andExclude("_id")),
+                    AppointmentRollup.class).getMappedResults();
+            sums.forEach(sum -> {
+                sum.setTier(target);
+                sum.setBucket(start);
+                sum.setId(AppointmentRollup.idOf(target, sum.getParkingLotName(), sum.getVehicleSpotCategory(), start));
+            });
+            incrementAll(sums);
+            compacted += mongoTemplate.remove(Query.query(period), AppointmentRollup.class).getDeletedCount();
+        }
+        return compacted;
+    }
+
+    @Override
+    public void replaceAll(RollupTier tier, LocalDateTime from, LocalDateTime to, Collection<AppointmentRollup> rows,
+                           LocalDateTime startedAt) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentRollup.class);
+        for (AppointmentRollup row : rows) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(row.getId()).andOperator(untouchedSince(startedAt))), new Update()
+                    .setOnInsert("tier", row.getTier())
+                    .setOnInsert("parkingLotName", row.getParkingLotName())
+                    .setOnInsert("vehicleSpotCategory", row.getVehicleSpotCategory())
+                    .setOnInsert("bucket", row.getBucket())
+                    .set("created", row.getCreated())
+                    .set("valid", row.getValid())
+                    .set("canceled", row.getCanceled())
+                    .set("expired", row.getExpired())
+                    .set("occupiedMinutes", row.getOccupiedMinutes()));
+        }
+        bulk.remove(Query.query(Criteria.where("tier").is(tier).and("bucket").gte(from).lt(to)
+                .and("_id").nin(rows.stream().map(AppointmentRollup::getId).toList())
+                .andOperator(untouchedSince(startedAt))));
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // una riga incrementata durante il ricalcolo non corrisponde al filtro e l'upsert trova la chiave gia usata
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Riga senza incrementi dall'istante indicato.
+     */
+    private static Criteria untouchedSince(LocalDateTime startedAt) {
+        return new Criteria().orOperator(Criteria.where("updatedAt").is(null),
+                Criteria.where("updatedAt").lt(startedAt));
+    }
+}
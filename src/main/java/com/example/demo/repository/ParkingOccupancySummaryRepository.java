@@ -0,0 +1,9 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.ParkingOccupancySummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ParkingOccupancySummaryRepository extends MongoRepository<ParkingOccupancySummary, String> {
+}
@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import java.time.Duration;
+
+/**
+ * <p>Operazioni atomiche sui lease dei task schedulati ({@link com.example.demo.model.entities.SchedulerLease})</p>
+ * <p>Ogni metodo e un solo aggiornamento sul database.</p>
+ */
+public interface SchedulerLeaseRepositoryCustom {
+
+    /**
+     * <p>Prende o rinnova il lease del task per l'istanza indicata</p>
+     * <p>Un unico upsert condizionato sul lease libero, scaduto o gia dell'istanza: se un'altra istanza lo
+     * detiene il filtro non trova nulla e l'inserimento fallisce sulla chiave duplicata.</p>
+     *
+     * @param jobName nome del task
+     * @param owner identificativo dell'istanza
+     * @param ttl durata del lease dal momento della chiamata
+     * @return {@code true} se l'istanza detiene il lease
+     */
+    boolean tryAcquire(String jobName, String owner, Duration ttl);
+
+    /**
+     * <p>Rilascia il lease se e ancora dell'istanza indicata, cosi un'altra lo prende senza attendere la scadenza</p>
+     */
+    void release(String jobName, String owner);
+}
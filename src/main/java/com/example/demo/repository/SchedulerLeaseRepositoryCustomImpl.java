@@ -0,0 +1,39 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.SchedulerLease;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class SchedulerLeaseRepositoryCustomImpl implements SchedulerLeaseRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean tryAcquire(String jobName, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        Query acquirable = Query.query(Criteria.where("_id").is(jobName)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lte(now)));
+        try {
+            mongoTemplate.upsert(acquirable, new Update()
+                    .set("owner", owner)
+                    .set("expiresAt", now.plus(ttl)), SchedulerLease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // il lease esiste ed e di un'altra istanza
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String jobName, String owner) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(jobName).and("owner").is(owner)), SchedulerLease.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.Appointment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Operazioni atomiche sul calendario condiviso delle riserve
+ * ({@link com.example.demo.model.entities.VehicleSpotClaim})</p>
+ * <p>Ogni metodo e un solo aggiornamento sul database, senza lock distribuiti.</p>
+ */
+public interface VehicleSpotClaimRepositoryCustom {
+
+    /**
+     * <p>Riserva l'intervallo sul posto se nessuna altra riserva vi si sovrappone (estremi inclusi)</p>
+     * <p>Un unico upsert condizionato: se il documento esiste ma l'intervallo e occupato il filtro non
+     * trova nulla e l'inserimento fallisce sulla chiave duplicata, quindi il conflitto emerge subito.</p>
+     *
+     * @return {@code true} se la riserva e stata registrata
+     */
+    boolean tryClaim(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate);
+
+    /**
+     * <p>Come {@link #tryClaim}, per un posto trattenuto: la riserva smette di occupare il posto dopo
+     * {@code expiresAt}, anche se l'istanza che l'ha creata non la rilascia</p>
+     *
+     * @param expiresAt scadenza dell'hold (UTC)
+     * @return {@code true} se la riserva e stata registrata
+     */
+    boolean tryHold(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate,
+                    LocalDateTime expiresAt);
+
+    /**
+     * <p>Rende definitiva la riserva di un posto trattenuto, se non e ancora scaduta</p>
+     *
+     * @param date data corrente (UTC)
+     * @return {@code true} se la riserva esisteva, non era scaduta ed e stata confermata
+     */
+    boolean confirmHeld(String vehicleSpotId, String appointmentId, LocalDateTime date);
+
+    /**
+     * <p>Come {@link #tryClaim}, ma per piu prenotazioni con un'unica scrittura bulk non ordinata</p>
+     *
+     * @param appointments prenotazioni con id e posto gia assegnati
+     * @return id delle prenotazioni la cui riserva e stata respinta
+     */
+    Set<String> tryClaimAll(List<Appointment> appointments);
+
+    /**
+     * <p>Sposta la riserva della prenotazione sul nuovo intervallo se nessuna altra riserva del posto vi si
+     * sovrappone (estremi inclusi)</p>
+     * <p>Un unico aggiornamento condizionato sul documento del posto: la riserva precedente resta valida fino
+     * allo spostamento, quindi nessuna altra richiesta puo prendere l'intervallo nel frattempo.</p>
+     *
+     * @return {@code true} se la riserva esisteva ed e stata spostata
+     */
+    boolean tryMove(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate);
+
+    /**
+     * <p>Registra la riserva senza verificare sovrapposizioni (ricaricamenti e riallineamenti)</p>
+     */
+    void forceClaim(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate);
+
+    /**
+     * <p>Rilascia la riserva della prenotazione sul posto</p>
+     */
+    void release(String vehicleSpotId, String appointmentId);
+
+    /**
+     * <p>Come {@link #release}, ma per piu prenotazioni con un'unica scrittura bulk non ordinata</p>
+     */
+    void releaseAll(List<Appointment> appointments);
+
+    /**
+     * <p>Rilascia su tutti i posti le riserve terminate prima della data indicata e quelle dei posti
+     * trattenuti scadute entro la data</p>
+     *
+     * @return numero di documenti modificati
+     */
+    long releaseEndedBefore(LocalDateTime date);
+}
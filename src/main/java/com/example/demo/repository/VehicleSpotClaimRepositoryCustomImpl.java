@@ -0,0 +1,152 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpotClaim;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class VehicleSpotClaimRepositoryCustomImpl implements VehicleSpotClaimRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean tryClaim(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        try {
+            mongoTemplate.upsert(freeSpot(vehicleSpotId, initialDate, endingDate),
+                    push(appointmentId, initialDate, endingDate, null), VehicleSpotClaim.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // il documento esiste ma l'intervallo e gia riservato
+            return false;
+        }
+    }
+
+    @Override
+    public boolean tryHold(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate,
+                           LocalDateTime expiresAt) {
+        try {
+            mongoTemplate.upsert(freeSpot(vehicleSpotId, initialDate, endingDate),
+                    push(appointmentId, initialDate, endingDate, expiresAt), VehicleSpotClaim.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean confirmHeld(String vehicleSpotId, String appointmentId, LocalDateTime date) {
+        Query query = Query.query(Criteria.where("_id").is(vehicleSpotId)
+                .and("claims").elemMatch(Criteria.where("appointmentId").is(appointmentId)
+                        .and("expiresAt").gt(date)));
+        return mongoTemplate.updateFirst(query, new Update().unset("claims.$.expiresAt"), VehicleSpotClaim.class)
+                .getModifiedCount() > 0;
+    }
+
+    @Override
+    public Set<String> tryClaimAll(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return Set.of();
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VehicleSpotClaim.class);
+        appointments.forEach(appointment -> operations.upsert(
+                freeSpot(appointment.getVehicleSpotId(), appointment.getInitialDate(), appointment.getEndingDate()),
+                push(appointment.getId(), appointment.getInitialDate(), appointment.getEndingDate(), null)));
+        try {
+            operations.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            // ogni errore (tipicamente chiave duplicata) e una riserva respinta
+            return e.getErrors().stream()
+                    .map(error -> appointments.get(error.getIndex()).getId())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    @Override
+    public boolean tryMove(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        Query query = Query.query(Criteria.where("_id").is(vehicleSpotId)
+                .and("claims.appointmentId").is(appointmentId)
+                .and("claims").not().elemMatch(overlapping(initialDate, endingDate)
+                        .and("appointmentId").ne(appointmentId)));
+        Update update = new Update()
+                .set("claims.$[mine].initialDate", initialDate)
+                .set("claims.$[mine].endingDate", endingDate)
+                .filterArray(Criteria.where("mine.appointmentId").is(appointmentId));
+        return mongoTemplate.updateFirst(query, update, VehicleSpotClaim.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void forceClaim(String vehicleSpotId, String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(vehicleSpotId)),
+                push(appointmentId, initialDate, endingDate, null), VehicleSpotClaim.class);
+    }
+
+    @Override
+    public void release(String vehicleSpotId, String appointmentId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(vehicleSpotId)),
+                new Update().pull("claims", Criteria.where("appointmentId").is(appointmentId).getCriteriaObject()),
+                VehicleSpotClaim.class);
+    }
+
+    @Override
+    public void releaseAll(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VehicleSpotClaim.class);
+        appointments.forEach(appointment -> operations.updateOne(
+                Query.query(Criteria.where("_id").is(appointment.getVehicleSpotId())),
+                new Update().pull("claims", Criteria.where("appointmentId").is(appointment.getId()).getCriteriaObject())));
+        operations.execute();
+    }
+
+    @Override
+    public long releaseEndedBefore(LocalDateTime date) {
+        Criteria released = new Criteria().orOperator(Criteria.where("endingDate").lt(date),
+                Criteria.where("expiresAt").lte(date));
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("claims").elemMatch(released)),
+                new Update().pull("claims", released.getCriteriaObject()),
+                VehicleSpotClaim.class).getModifiedCount();
+    }
+
+    /**
+     * Documento del posto senza riserve che si sovrappongono all'intervallo (estremi inclusi).
+     */
+    private static Query freeSpot(String vehicleSpotId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Query.query(Criteria.where("_id").is(vehicleSpotId)
+                .and("claims").not().elemMatch(overlapping(initialDate, endingDate)));
+    }
+
+    /**
+     * Riserva che occupa il posto nell'intervallo (estremi inclusi); gli hold scaduti non contano.
+     */
+    private static Criteria overlapping(LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Criteria.where("initialDate").lte(endingDate)
+                .and("endingDate").gte(initialDate)
+                .orOperator(Criteria.where("expiresAt").is(null),
+                        Criteria.where("expiresAt").gt(LocalDateTime.now(ZoneOffset.UTC)));
+    }
+
+    private static Update push(String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate,
+                               LocalDateTime expiresAt) {
+        return new Update().push("claims", VehicleSpotClaim.Claim.builder()
+                .appointmentId(appointmentId)
+                .initialDate(initialDate)
+                .endingDate(endingDate)
+                .expiresAt(expiresAt)
+                .build());
+    }
+}
@@ -5,10 +5,11 @@ import com.example.demo.model.entities.VehicleSpot;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface VehicleSpotRepository extends MongoRepository<VehicleSpot, String> {
+public interface VehicleSpotRepository extends MongoRepository<VehicleSpot, String>, VehicleSpotRepositoryCustom {
 
     long countByParkingLotName(String parkingLotName);
 
@@ -17,6 +18,8 @@ public interface VehicleSpotRepository extends MongoRepository<VehicleSpot, Stri
 
     List<VehicleSpot> findByVehicleSpotCategory(VehicleSpotCategory vehicleSpotCategory);
 
+    List<VehicleSpot> findByVehicleSpotCategoryAndIdNotIn(VehicleSpotCategory vehicleSpotCategory, Collection<String> excludedIds);
+
     List<VehicleSpot> findByParkingLotNameAndVehicleSpotCategory(String parkingLotName, VehicleSpotCategory category);
 
     List<VehicleSpot> findByParkingLotName(String parkingLotName);
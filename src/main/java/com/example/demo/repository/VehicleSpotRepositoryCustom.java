@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.pojo.LotCategoryCount;
+
+import java.util.List;
+
+/**
+ * <p>Operazioni su {@link com.example.demo.model.entities.VehicleSpot} eseguite con {@code MongoTemplate}</p>
+ */
+public interface VehicleSpotRepositoryCustom {
+
+    /**
+     * <p>Conta i posti veicolo per parcheggio e categoria con un'unica aggregazione lato server</p>
+     *
+     * @return un elemento per ogni coppia parcheggio-categoria con almeno un posto
+     */
+    List<LotCategoryCount> countByParkingLotAndCategory();
+
+    /**
+     * <p>Conta i posti veicolo di un solo parcheggio per categoria, servito dall'indice
+     * ({@code parkingLotName}, categoria)</p>
+     *
+     * @param parkingLotName nome esatto del parcheggio
+     * @return un elemento per ogni categoria con almeno un posto
+     */
+    List<LotCategoryCount> countByCategory(String parkingLotName);
+}
@@ -0,0 +1,39 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.model.pojo.LotCategoryCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VehicleSpotRepositoryCustomImpl implements VehicleSpotRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<LotCategoryCount> countByParkingLotAndCategory() {
+        return countByParkingLotAndCategory(null);
+    }
+
+    @Override
+    public List<LotCategoryCount> countByCategory(String parkingLotName) {
+        return countByParkingLotAndCategory(Criteria.where("parkingLotName").is(parkingLotName));
+    }
+
+    private List<LotCategoryCount> countByParkingLotAndCategory(Criteria criteria) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (criteria != null) {
+            operations.add(Aggregation.match(criteria));
+        }
+        operations.add(Aggregation.group("parkingLotName", "vehicleSpotCategory").count().as("count"));
+        operations.add(Aggregation.project("parkingLotName", "vehicleSpotCategory", "count").andExclude("_id"));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(VehicleSpot.class, operations),
+                LotCategoryCount.class).getMappedResults();
+    }
+}
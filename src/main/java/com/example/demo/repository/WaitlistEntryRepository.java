@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.WaitlistState;
+import com.example.demo.model.entities.WaitlistEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends MongoRepository<WaitlistEntry, String>, WaitlistEntryRepositoryCustom {
+
+    List<WaitlistEntry> findByWaitlistState(WaitlistState waitlistState);
+}
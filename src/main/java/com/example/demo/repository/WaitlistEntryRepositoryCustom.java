@@ -0,0 +1,28 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.WaitlistState;
+
+import java.util.Collection;
+
+/**
+ * <p>Cambi di stato condizionati delle richieste in lista d'attesa
+ * ({@link com.example.demo.model.entities.WaitlistEntry})</p>
+ * <p>Ogni metodo e un solo aggiornamento sul database: tra istanze concorrenti solo una trova la richiesta
+ * nello stato atteso, quindi una richiesta viene assegnata, cancellata o scaduta una volta sola.</p>
+ */
+public interface WaitlistEntryRepositoryCustom {
+
+    /**
+     * <p>Porta la richiesta da {@code expected} a {@code state}</p>
+     *
+     * @return {@code true} se la richiesta era in {@code expected} ed e stata modificata da questa chiamata
+     */
+    boolean updateState(String id, WaitlistState expected, WaitlistState state);
+
+    /**
+     * <p>Come {@link #updateState}, ma per piu richieste con un unico aggiornamento</p>
+     *
+     * @return numero di richieste modificate
+     */
+    long updateStates(Collection<String> ids, WaitlistState expected, WaitlistState state);
+}
@@ -0,0 +1,34 @@
+package com.example.demo.repository;
+
+import com.example.demo.enumerators.WaitlistState;
+import com.example.demo.model.entities.WaitlistEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+public class WaitlistEntryRepositoryCustomImpl implements WaitlistEntryRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateState(String id, WaitlistState expected, WaitlistState state) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("waitlistState").is(expected));
+        return mongoTemplate.updateFirst(query, Update.update("waitlistState", state), WaitlistEntry.class)
+                .getModifiedCount() > 0;
+    }
+
+    @Override
+    public long updateStates(Collection<String> ids, WaitlistState expected, WaitlistState state) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids).and("waitlistState").is(expected));
+        return mongoTemplate.updateMulti(query, Update.update("waitlistState", state), WaitlistEntry.class)
+                .getModifiedCount();
+    }
+}
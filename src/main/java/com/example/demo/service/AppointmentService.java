@@ -1,22 +1,40 @@
 package com.example.demo.service;
 
+import com.example.demo.annotations.LeaderOnly;
+import com.example.demo.config.AppProperties;
 import com.example.demo.enumerators.AppointmentState;
 import com.example.demo.enumerators.VehicleSpotCategory;
 import com.example.demo.model.dto.appointment.*;
 import com.example.demo.model.entities.Appointment;
 import com.example.demo.model.entities.VehicleSpot;
 import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
 import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.allocation.SpotAllocationStrategies;
+import com.example.demo.service.availability.AppointmentExpiryQueue;
+import com.example.demo.service.availability.AppointmentHoldRegistry;
+import com.example.demo.service.availability.EarliestWindowSearch;
+import com.example.demo.service.availability.RankedParallelSearch;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.recurrence.RecurrenceExpander;
 import com.example.demo.utils.DateUtilities;
 import com.example.demo.utils.Utils;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.IntFunction;
 
 @Service
 public class AppointmentService {
@@ -26,10 +44,34 @@ public class AppointmentService {
     private AppointmentDtoMapper mapper;
     @Autowired
     private VehicleSpotRepository vehicleSpotRepository;
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+    @Autowired
+    private VehicleSpotClaimRepository vehicleSpotClaimRepository;
+    @Autowired
+    private SpotAllocationStrategies allocationStrategies;
+    @Autowired
+    private AppointmentHoldRegistry holdRegistry;
+    @Autowired
+    private WaitlistService waitlistService;
+    @Autowired
+    private AppProperties appProperties;
+    @Autowired
+    private RankedParallelSearch rankedParallelSearch;
+    @Autowired
+    private AppointmentExpiryQueue expiryQueue;
+    @Autowired
+    private DomainEventBus eventBus;
 
     /**
      * <p>Aggiunge la prenotazione per un posto veicolo</p>
-     * <p>Verifica che il posto selezionato sia disponibile</p>
+     * <p>I posti vengono provati nell'ordine della strategia di assegnazione del parcheggio
+     * ({@link com.example.demo.service.allocation.SpotAllocationStrategy})</p>
+     * <p>Riserva in modo atomico il primo posto libero tramite {@link SpotAvailabilityIndex#claimFirstAvailable}
+     * e solo dopo salva la prenotazione, cosi due richieste concorrenti non ottengono lo stesso posto</p>
+     * <p>La riserva locale viene confermata sul database con {@link VehicleSpotClaimRepository#tryClaim}:
+     * con piu istanze dell'applicazione e il database a respingere le sovrapposizioni, con un solo
+     * aggiornamento per posto</p>
      * <p>Se non è disponibile lancia un eccezione</p>
      *
      * @param dto parametri richiesti per prenotare {@link AppointmentPostDto}
@@ -43,37 +85,357 @@ public class AppointmentService {
                 dto.getVehicleSpotCategory()
         );
 
-        // Converti le date al formato UTC per la verifica
-        LocalDateTime initialDate = DateUtilities.prepareADateForAService(dto.getInitialDate(), zoneIdFromClient);
-        LocalDateTime endingDate = DateUtilities.prepareADateForAService(dto.getEndingDate(), zoneIdFromClient);
+        // Crea la prenotazione (date convertite in UTC) con l'id gia assegnato per la riserva
+        Appointment appointment = newAppointment(dto, zoneIdFromClient);
 
-        // Trova il primo posto libero in quell'orario
-        VehicleSpot spot = spots.stream()
-                .filter(s -> DateUtilities.isTheVehicleSpotAvailable(
-                        s.getId(),
-                        initialDate,
-                        endingDate,
-                        appointmentRepository))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Nessun posto disponibile per la categoria '" +
-                        dto.getVehicleSpotCategory() + "' nel parcheggio '" + dto.getParkingLotName() + "'"));
+        // Riserva il primo posto libero in quell'orario
+        claimSpot(spots, appointment)
+                .orElseThrow(() -> new RuntimeException(noSpotMessage(dto)));
 
-        // Crea la prenotazione
-        Appointment appointment = mapper.fromDtoToEntity(dto, zoneIdFromClient);
-        appointment.setVehicleSpotId(spot.getId());
-        appointment.setParkingLotName(spot.getParkingLotName());
-        appointment.setVehicleSpotCategory(spot.getVehicleSpotCategory());
+        Appointment saved;
+        try {
+            saved = appointmentRepository.insert(appointment);
+        } catch (RuntimeException e) {
+            releaseSpot(appointment);
+            throw e;
+        }
+        eventBus.publish(AppointmentEvent.of(AppointmentEvent.Type.CREATED, saved));
 
-        return Optional.of(appointmentRepository.save(appointment))
+        return Optional.of(saved)
                 .map(value -> mapper.fromEntityToAppointmentResponseDto(value, zoneIdFromClient));
     }
 
+    /**
+     * <p>Trattiene un posto veicolo per il tempo del pagamento (prima fase della prenotazione)</p>
+     * <p>Il posto viene riservato come per {@link #postAppointment}, in memoria e sul database, ma la
+     * prenotazione resta in stato {@code HOLD} solo in memoria: non viene salvata finche non e confermata
+     * con {@link #confirmHold}. Se non viene confermata entro {@code app.hold.ttl-seconds} il posto torna
+     * libero da solo; anche la riserva sul database porta la scadenza, quindi il posto si libera pure se
+     * l'istanza si ferma prima.</p>
+     * <p>La conferma va inviata alla stessa istanza che ha creato l'hold.</p>
+     *
+     * @param dto parametri richiesti per prenotare {@link AppointmentPostDto}
+     * @param zoneIdFromClient zona oraria del client utilizzata per convertire le date
+     * @return {@link AppointmentHoldResponseDto} con la prenotazione trattenuta e la scadenza
+     * @throws RuntimeException se non ci sono posti disponibili
+     */
+    public AppointmentHoldResponseDto holdAppointment(AppointmentPostDto dto, String zoneIdFromClient) {
+        List<VehicleSpot> spots = vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(
+                dto.getParkingLotName(),
+                dto.getVehicleSpotCategory()
+        );
+        Appointment appointment = newAppointment(dto, zoneIdFromClient);
+        appointment.setAppointmentState(AppointmentState.HOLD);
+        // la riserva sul database scade da sola anche se questa istanza si ferma prima della scadenza
+        LocalDateTime claimExpiresAt = LocalDateTime.now(ZoneOffset.UTC).plus(holdRegistry.getTtl());
+        claimSpot(spots, appointment, claimExpiresAt)
+                .orElseThrow(() -> new RuntimeException(noSpotMessage(dto)));
 
+        Instant expiresAt = holdRegistry.hold(appointment, this::freeSpot);
+        return AppointmentHoldResponseDto.builder()
+                .appointment(mapper.fromEntityToAppointmentResponseDto(appointment, zoneIdFromClient))
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.of(zoneIdFromClient)))
+                .build();
+    }
+
+    /**
+     * <p>Conferma un posto trattenuto: la prenotazione diventa {@code VALID} e viene salvata</p>
+     *
+     * @param id ID della prenotazione trattenuta
+     * @param zoneIdFromClient zona oraria del client per la conversione delle date
+     * @return {@link AppointmentResponseDto} con la prenotazione salvata
+     * @throws RuntimeException se l'hold non esiste o e gia scaduto
+     */
+    public Optional<Object> confirmHold(String id, String zoneIdFromClient) {
+        Appointment appointment = holdRegistry.take(id)
+                .orElseThrow(() -> new RuntimeException("hold not found or expired with given id : " + id));
+        if (!vehicleSpotClaimRepository.confirmHeld(appointment.getVehicleSpotId(), id, LocalDateTime.now(ZoneOffset.UTC))) {
+            releaseSpot(appointment);
+            throw new RuntimeException("hold not found or expired with given id : " + id);
+        }
+        appointment.setAppointmentState(AppointmentState.VALID);
+        appointment.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
+
+        Appointment saved;
+        try {
+            saved = appointmentRepository.insert(appointment);
+        } catch (RuntimeException e) {
+            releaseSpot(appointment);
+            throw e;
+        }
+        eventBus.publish(AppointmentEvent.of(AppointmentEvent.Type.CREATED, saved));
+        return Optional.of(saved)
+                .map(value -> mapper.fromEntityToAppointmentResponseDto(value, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Rilascia un posto trattenuto prima della scadenza (carrello abbandonato o pagamento fallito)</p>
+     *
+     * @param id ID della prenotazione trattenuta
+     * @return {@code true} se l'hold è stato rilasciato
+     * @throws RuntimeException se l'hold non esiste o e gia scaduto
+     */
+    public boolean releaseHold(String id) {
+        Appointment appointment = holdRegistry.take(id)
+                .orElseThrow(() -> new RuntimeException("hold not found or expired with given id : " + id));
+        freeSpot(appointment);
+        return true;
+    }
+
+    /**
+     * <p>Iscrive una richiesta alla lista d'attesa del parcheggio e della categoria</p>
+     * <p>Se nel frattempo un posto si è liberato la prenotazione viene salvata subito e la richiesta
+     * risulta già {@code ASSIGNED}; altrimenti resta {@code WAITING} finché una cancellazione, un'eliminazione,
+     * un hold scaduto o un nuovo posto non la soddisfano</p>
+     *
+     * @param dto parametri richiesti per prenotare {@link AppointmentPostDto}
+     * @param priority priorità della richiesta, più alta viene servita prima
+     * @param zoneIdFromClient zona oraria del client utilizzata per convertire le date
+     * @return {@link WaitlistEntryResponseDto} con lo stato della richiesta
+     */
+    public WaitlistEntryResponseDto joinWaitlist(AppointmentPostDto dto, int priority, String zoneIdFromClient) {
+        List<VehicleSpot> spots = vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(
+                dto.getParkingLotName(),
+                dto.getVehicleSpotCategory()
+        );
+        if (spots.isEmpty()) {
+            throw new RuntimeException("Nessun posto della categoria '" + dto.getVehicleSpotCategory() +
+                    "' nel parcheggio '" + dto.getParkingLotName() + "'");
+        }
+        Appointment appointment = newAppointment(dto, zoneIdFromClient);
+        if (claimSpot(spots, appointment).isEmpty()) {
+            return waitlistService.enqueue(appointment, priority, zoneIdFromClient);
+        }
+        try {
+            appointmentRepository.insert(appointment);
+        } catch (RuntimeException e) {
+            releaseSpot(appointment);
+            throw e;
+        }
+        eventBus.publish(AppointmentEvent.of(AppointmentEvent.Type.CREATED, appointment));
+        return waitlistService.recordAssigned(appointment, priority, zoneIdFromClient);
+    }
+
+    /**
+     * <p>Aggiunge piu prenotazioni con una sola richiesta (clienti con flotte di veicoli)</p>
+     * <p>I posti vengono assegnati in un unico passaggio sull'indice in memoria: ogni assegnazione
+     * riserva subito il posto, quindi due elementi della stessa richiesta non ottengono mai lo stesso
+     * posto nello stesso intervallo. I posti di ogni coppia parcheggio/categoria vengono letti una volta sola.</p>
+     * <p>Le riserve vengono poi confermate sul database e le prenotazioni salvate con una scrittura bulk
+     * ciascuna; solo gli elementi respinti da un'altra istanza riprovano uno alla volta.</p>
+     * <p>L'esito e riportato per ogni elemento: un elemento non valido o senza posti liberi non
+     * impedisce il salvataggio degli altri</p>
+     *
+     * @param dtos prenotazioni richieste {@link AppointmentPostDto}
+     * @param zoneIdFromClient zona oraria del client utilizzata per convertire le date
+     * @return {@link AppointmentBatchResponseDto} con l'esito di ogni elemento
+     * @throws RuntimeException se la lista e vuota o supera {@code app.batch.max-size} elementi
+     */
+    public AppointmentBatchResponseDto postAppointmentBatch(List<AppointmentPostDto> dtos, String zoneIdFromClient) {
+        int maxSize = appProperties.getBatch().getMaxSize();
+        if (dtos == null || dtos.isEmpty() || dtos.size() > maxSize) {
+            throw new RuntimeException("please insert between 1 and " + maxSize + " appointments");
+        }
+        Map<String, List<VehicleSpot>> spotsByLotAndCategory = new HashMap<>();
+        Map<Integer, Appointment> claimed = new LinkedHashMap<>();
+        Map<Integer, String> errors = new HashMap<>();
+
+        for (int index = 0; index < dtos.size(); index++) {
+            AppointmentPostDto dto = dtos.get(index);
+            if (!isValidPostDto(dto, zoneIdFromClient)) {
+                errors.put(index, "please insert a valid date span for appointment ");
+                continue;
+            }
+            Appointment appointment = newAppointment(dto, zoneIdFromClient);
+            List<VehicleSpot> spots = allocationOrder(spotsFor(dto, spotsByLotAndCategory), appointment);
+            if (availabilityIndex.claimFirstAvailable(spots, appointment, spot -> true)
+                    .map(spot -> assignSpot(appointment, spot))
+                    .isEmpty()) {
+                errors.put(index, noSpotMessage(dto));
+                continue;
+            }
+            claimed.put(index, appointment);
+        }
+
+        confirmAndInsert(claimed, errors, index -> spotsFor(dtos.get(index), spotsByLotAndCategory),
+                index -> noSpotMessage(dtos.get(index)));
+
+        return AppointmentBatchResponseDto.builder()
+                .requested(dtos.size())
+                .booked(claimed.size())
+                .failed(dtos.size() - claimed.size())
+                .items(batchItems(dtos.size(), claimed, errors, zoneIdFromClient))
+                .build();
+    }
+
+    /**
+     * <p>Prenota una serie ricorrente (ad esempio ogni giorno feriale dalle 08:00 alle 18:00 per tre mesi)</p>
+     * <p>Le occorrenze vengono generate da {@link RecurrenceExpander} e verificate tutte sulle linee temporali
+     * in memoria dei posti, letti una sola volta. Si preferisce il posto libero per il maggior numero di
+     * occorrenze, cosi la serie resta sullo stesso posto; le occorrenze per cui e occupato usano un altro
+     * posto, riutilizzato finche possibile.</p>
+     * <p>Le riserve sul database e le prenotazioni della serie vengono scritte con una scrittura bulk ciascuna.
+     * L'esito e riportato per ogni occorrenza.</p>
+     *
+     * @param dto regola di ricorrenza {@link AppointmentSeriesPostDto}
+     * @param zoneIdFromClient zona oraria del client utilizzata per convertire le date
+     * @return {@link AppointmentSeriesResponseDto} con l'id della serie e l'esito di ogni occorrenza
+     * @throws RuntimeException se la regola non è valida o il parcheggio non ha posti della categoria
+     */
+    public AppointmentSeriesResponseDto postAppointmentSeries(AppointmentSeriesPostDto dto, String zoneIdFromClient) {
+        List<AppointmentPostDto> occurrences = RecurrenceExpander.expand(dto);
+        List<VehicleSpot> spots = vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(
+                dto.getParkingLotName(),
+                dto.getVehicleSpotCategory()
+        );
+        if (spots.isEmpty()) {
+            throw new RuntimeException("Nessun posto della categoria '" + dto.getVehicleSpotCategory() +
+                    "' nel parcheggio '" + dto.getParkingLotName() + "'");
+        }
+        String seriesId = new ObjectId().toHexString();
+        Map<Integer, Appointment> requested = new LinkedHashMap<>();
+        Map<Integer, Appointment> claimed = new LinkedHashMap<>();
+        Map<Integer, String> errors = new HashMap<>();
+
+        for (int index = 0; index < occurrences.size(); index++) {
+            if (!isValidPostDto(occurrences.get(index), zoneIdFromClient)) {
+                errors.put(index, "please insert a valid date span for appointment ");
+                continue;
+            }
+            Appointment appointment = newAppointment(occurrences.get(index), zoneIdFromClient);
+            appointment.setSeriesId(seriesId);
+            requested.put(index, appointment);
+        }
+        if (requested.isEmpty()) {
+            throw new RuntimeException("please insert a valid date span for appointment ");
+        }
+
+        List<VehicleSpot> ordered = allocationOrder(spots, requested.values().iterator().next());
+        VehicleSpot preferred = preferredSpot(ordered, requested.values());
+        VehicleSpot fallback = null;
+        for (Map.Entry<Integer, Appointment> entry : requested.entrySet()) {
+            Appointment appointment = entry.getValue();
+            if (availabilityIndex.tryClaim(preferred, appointment)) {
+                assignSpot(appointment, preferred);
+                claimed.put(entry.getKey(), appointment);
+                continue;
+            }
+            List<VehicleSpot> candidates = new ArrayList<>(ordered.size());
+            if (fallback != null) {
+                candidates.add(fallback);
+            }
+            for (VehicleSpot spot : ordered) {
+                if (spot != preferred && spot != fallback) {
+                    candidates.add(spot);
+                }
+            }
+            Optional<VehicleSpot> spot = availabilityIndex.claimFirstAvailable(candidates, appointment, candidate -> true);
+            if (spot.isEmpty()) {
+                errors.put(entry.getKey(), noSpotMessage(occurrences.get(entry.getKey())));
+                continue;
+            }
+            fallback = assignSpot(appointment, spot.get());
+            claimed.put(entry.getKey(), appointment);
+        }
+
+        confirmAndInsert(claimed, errors, index -> spots, index -> noSpotMessage(occurrences.get(index)));
+
+        return AppointmentSeriesResponseDto.builder()
+                .seriesId(seriesId)
+                .requested(occurrences.size())
+                .booked(claimed.size())
+                .failed(occurrences.size() - claimed.size())
+                .vehicleSpotIds(claimed.values().stream().map(Appointment::getVehicleSpotId).distinct().toList())
+                .items(batchItems(occurrences.size(), claimed, errors, zoneIdFromClient))
+                .build();
+    }
+
+    /**
+     * <p>Annulla tutte le prenotazioni ancora valide di una serie ricorrente</p>
+     * <p>Lo stato viene aggiornato con un solo {@code updateMany}; le riserve sul database vengono rilasciate
+     * con una scrittura bulk e i posti liberati offerti alla lista d'attesa</p>
+     *
+     * @param seriesId id della serie
+     * @return numero di prenotazioni annullate
+     * @throws RuntimeException se la serie non ha prenotazioni valide
+     */
+    public long cancelSeries(String seriesId) {
+        List<Appointment> toCancel = appointmentRepository.findBySeriesIdAndAppointmentState(seriesId, AppointmentState.VALID);
+        if (toCancel.isEmpty()) {
+            throw new RuntimeException("no valid appointments found for series with given id : " + seriesId);
+        }
+        long canceled = appointmentRepository.cancelSeries(seriesId);
+        toCancel.forEach(appointment -> {
+            appointment.setAppointmentState(AppointmentState.CANCELED);
+            availabilityIndex.unregister(appointment);
+        });
+        vehicleSpotClaimRepository.releaseAll(toCancel);
+        eventBus.publishAll(toCancel.stream()
+                .map(appointment -> AppointmentEvent.of(AppointmentEvent.Type.CANCELED, appointment))
+                .toList());
+        toCancel.forEach(waitlistService::onSpotFreed);
+        return canceled;
+    }
+
+    /**
+     * <p>Restituisce le prime finestre in cui si può parcheggiare per la durata indicata</p>
+     * <p>I buchi liberi di tutti i posti del parcheggio e della categoria vengono fusi in un'unica passata
+     * sull'indice in memoria ({@link EarliestWindowSearch}); la ricerca ha un limite di tempo configurato
+     * in {@code app.search.budget-millis}, oltre il quale restituisce le finestre trovate fino a quel momento</p>
+     *
+     * @param parkingLotName nome del parcheggio
+     * @param category categoria del posto veicolo
+     * @param durationMinutes durata richiesta in minuti
+     * @param from prima data di inizio nella zona del client, {@code null} per adesso
+     * @param limit numero di finestre richieste
+     * @param zoneIdFromClient zona oraria del client
+     * @return {@link AvailableWindowsResponseDto} con le finestre in ordine di inizio
+     * @throws RuntimeException se i parametri non sono validi o il parcheggio non ha posti della categoria
+     */
+    public AvailableWindowsResponseDto findEarliestWindows(String parkingLotName, VehicleSpotCategory category,
+                                                           long durationMinutes, LocalDateTime from, int limit,
+                                                           String zoneIdFromClient) {
+        AppProperties.SearchProperties search = appProperties.getSearch();
+        if (durationMinutes <= 0 || limit <= 0 || limit > search.getMaxResults()) {
+            throw new RuntimeException("please insert a positive duration and a limit between 1 and " + search.getMaxResults());
+        }
+        List<VehicleSpot> spots = vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(parkingLotName, category);
+        if (spots.isEmpty()) {
+            throw new RuntimeException("Nessun posto della categoria '" + category + "' nel parcheggio '" + parkingLotName + "'");
+        }
+
+        // prima data utile: non prima del minuto successivo ad adesso
+        LocalDateTime earliest = LocalDateTime.now(ZoneId.of("UTC")).withSecond(0).withNano(0).plusMinutes(1);
+        LocalDateTime start = from == null ? earliest : DateUtilities.prepareADateForAService(from, zoneIdFromClient);
+        if (start.isBefore(earliest)) {
+            start = earliest;
+        }
+        List<VehicleSpot> ordered = allocationStrategies.forParkingLot(parkingLotName)
+                .order(spots, start, start.plusMinutes(durationMinutes));
+        EarliestWindowSearch.Result result = availabilityIndex.findEarliestWindows(ordered, start,
+                Duration.ofMinutes(durationMinutes), limit, Duration.ofMillis(search.getBudgetMillis()));
+
+        return AvailableWindowsResponseDto.builder()
+                .parkingLotName(parkingLotName)
+                .vehicleSpotCategory(category)
+                .durationMinutes(durationMinutes)
+                .complete(result.complete())
+                .windows(result.windows().stream()
+                        .map(window -> AvailableWindowResponseDto.builder()
+                                .vehicleSpotId(window.spot().getId())
+                                .initialDate(toClientZone(window.initialDate(), zoneIdFromClient))
+                                .endingDate(toClientZone(window.endingDate(), zoneIdFromClient))
+                                .build())
+                        .toList())
+                .build();
+    }
 
     /**
      * <p>Restituisce tutti i posti veicolo disponibili per una specifica categoria e intervallo di date</p>
      * <p>Le date vengono convertite dal fuso orario del client a UTC per la verifica con i dati del database</p>
      * <p>Vengono filtrati solo i posti veicolo che risultano liberi nell'intervallo specificato</p>
+     * <p>Con l'indice in memoria attivo il filtro avviene in memoria; altrimenti si usano due sole query:
+     * gli id dei posti occupati nell'intervallo e i posti della categoria che non sono tra questi</p>
      *
      * @param category categoria del posto veicolo {@link VehicleSpotCategory}
      * @param dto {@link AppointmentDatesDto} contenente la data di inizio e fine
@@ -88,21 +450,64 @@ public class AppointmentService {
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("invalid category, please insert a correct category: " + Arrays.toString(VehicleSpotCategory.values()))
         );
-        List<VehicleSpot> vehicleSpots = vehicleSpotRepository.findByVehicleSpotCategory(foundCategory);
 
         // Converto l'orario in utc del database
         LocalDateTime InitialDate = DateUtilities.prepareADateForAService(dto.getInitialDate(), zoneIdFromClient);
         LocalDateTime EndingDate = DateUtilities.prepareADateForAService(dto.getEndingDate(), zoneIdFromClient);
 
-        return vehicleSpots.stream().filter
-                (vehicleSpot->
-                    DateUtilities.isTheVehicleSpotAvailable(
-                            vehicleSpot.getId(),
-                            InitialDate,
-                            EndingDate,
-                            appointmentRepository)
+        if (!availabilityIndex.isReady()) {
+            return vehicleSpotRepository.findByVehicleSpotCategoryAndIdNotIn(
+                    foundCategory,
+                    appointmentRepository.findBusyVehicleSpotIds(null, foundCategory, InitialDate, EndingDate));
+        }
+        return availabilityIndex.filterAvailable(
+                vehicleSpotRepository.findByVehicleSpotCategory(foundCategory), InitialDate, EndingDate);
+    }
+
+    /**
+     * <p>Cerca un posto libero su piu parcheggi e categorie, in ordine di preferenza</p>
+     * <p>Le categorie hanno la precedenza sui parcheggi: un posto della prima categoria in un qualsiasi
+     * parcheggio e preferito a un posto della seconda nel parcheggio piu vicino. Le ricerche per ogni coppia
+     * parcheggio/categoria girano in parallelo con {@link RankedParallelSearch}, che restituisce la coppia
+     * migliore appena e certa e annulla le altre</p>
+     *
+     * @param dto parcheggi, categorie e intervallo richiesti {@link CrossLotSearchDto}
+     * @param zoneIdFromClient zona oraria del client utilizzata per convertire le date
+     * @return {@link CrossLotSearchResponseDto} con il parcheggio, la categoria e i posti liberi
+     * @throws RuntimeException se nessun parcheggio ha posti liberi nelle categorie richieste
+     */
+    public CrossLotSearchResponseDto searchAcrossParkingLots(CrossLotSearchDto dto, String zoneIdFromClient) {
+        if (dto.getParkingLotNames() == null || dto.getParkingLotNames().isEmpty()
+                || dto.getCategories() == null || dto.getCategories().isEmpty()) {
+            throw new RuntimeException("please insert at least one parking lot and one category");
+        }
+        LocalDateTime initialDate = DateUtilities.prepareADateForAService(dto.getInitialDate(), zoneIdFromClient);
+        LocalDateTime endingDate = DateUtilities.prepareADateForAService(dto.getEndingDate(), zoneIdFromClient);
 
-        ).toList();
+        List<String> parkingLotNames = dto.getParkingLotNames();
+        List<VehicleSpotCategory> categories = dto.getCategories();
+        List<Callable<Optional<List<VehicleSpot>>>> searches = new ArrayList<>();
+        for (VehicleSpotCategory category : categories) {
+            for (String parkingLotName : parkingLotNames) {
+                searches.add(() -> {
+                    List<VehicleSpot> free = availabilityIndex.filterAvailable(
+                            vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(parkingLotName, category),
+                            initialDate, endingDate);
+                    return free.isEmpty() ? Optional.empty() : Optional.of(free);
+                });
+            }
+        }
+
+        RankedParallelSearch.Ranked<List<VehicleSpot>> found = rankedParallelSearch.first(searches)
+                .orElseThrow(() -> new RuntimeException("Nessun posto disponibile per le categorie " + categories +
+                        " nei parcheggi " + parkingLotNames));
+        return CrossLotSearchResponseDto.builder()
+                .parkingLotName(parkingLotNames.get(found.rank() % parkingLotNames.size()))
+                .vehicleSpotCategory(categories.get(found.rank() / parkingLotNames.size()))
+                .vehicleSpots(found.value())
+                .complete(found.complete())
+                .canceledSearches(found.canceled())
+                .build();
     }
 
     /**
@@ -144,6 +549,12 @@ public class AppointmentService {
         if (Utils.isRecordInTheDatabase(recordToDelete.getId(), appointmentRepository)){
             throw new RuntimeException("delete of the record with given id " + id + " has failed");
         }
+        availabilityIndex.unregister(recordToDelete);
+        releaseClaim(recordToDelete);
+        eventBus.publish(AppointmentEvent.of(AppointmentEvent.Type.DELETED, recordToDelete));
+        if (recordToDelete.getAppointmentState() == AppointmentState.VALID) {
+            waitlistService.onSpotFreed(recordToDelete);
+        }
         return true;
     }
 
@@ -153,12 +564,17 @@ public class AppointmentService {
     /**
      * <p>Aggiorna una prenotazione esistente tramite ID </p>
      * <p>Controllo che la prenotazione esista e poi effettua l'aggiornamento</p>
+     * <p>Se la prenotazione torna a occupare il posto o ne cambiano le date, il nuovo intervallo viene riservato
+     * come alla creazione, in memoria e sul database; se e gia occupato la riserva precedente resta invariata
+     * e l'aggiornamento viene respinto</p>
+     * <p>Se una prenotazione {@code VALID} lascia il suo intervallo, perche annullata, scaduta o spostata,
+     * l'intervallo precedente viene offerto alla lista d'attesa</p>
      *
      * @param id ID dell'appuntamento da aggiornare
      * @param dto {@link AppointmentUpdateDto} contenente i nuovi dati
      * @param zoneIdFromClient zona oraria del client per la conversione delle date
      * @return {@link AppointmentResponseDto} con i dati aggiornati
-     * @throws RuntimeException se l'appuntamento non esiste
+     * @throws RuntimeException se l'appuntamento non esiste o il posto e occupato nel nuovo intervallo
      */
 
     public Optional<Object> updateAppointmentById(String id, AppointmentUpdateDto dto, String zoneIdFromClient) {
@@ -166,9 +582,41 @@ public class AppointmentService {
             throw new RuntimeException("appointment not found with given id : " + id);
         };
         Appointment appointmentToUpdate =  appointmentRepository.findById(id).get();
+        AppointmentEvent.Snapshot previous = AppointmentEvent.Snapshot.of(appointmentToUpdate);
+        Appointment before = fromSnapshot(previous);
         Appointment updatedAppointment = (Appointment) Utils.fromUpdateDtoToEntity(appointmentToUpdate, dto);
+        if (previous.appointmentState() != AppointmentState.CANCELED
+                && updatedAppointment.getAppointmentState() == AppointmentState.CANCELED) {
+            updatedAppointment.setCanceledAt(LocalDateTime.now(ZoneOffset.UTC));
+        }
 
-        return Optional.of(appointmentRepository.save(updatedAppointment)).map(entity -> mapper.fromEntityToAppointmentResponseDto(updatedAppointment, zoneIdFromClient));
+        // Riserva il nuovo intervallo prima di salvare, come alla creazione
+        boolean moved = occupiesSpot(updatedAppointment)
+                && (!occupiesSpot(before)
+                || !Objects.equals(before.getInitialDate(), updatedAppointment.getInitialDate())
+                || !Objects.equals(before.getEndingDate(), updatedAppointment.getEndingDate()));
+        if (moved) {
+            claimNewInterval(updatedAppointment, before);
+        }
+        Appointment saved;
+        try {
+            saved = appointmentRepository.save(updatedAppointment);
+        } catch (RuntimeException e) {
+            if (moved) {
+                restoreClaim(updatedAppointment, before);
+            }
+            throw e;
+        }
+        if (occupiesSpot(before) && !occupiesSpot(saved)) {
+            availabilityIndex.unregister(before);
+            releaseClaim(before);
+        }
+        eventBus.publish(AppointmentEvent.changed(AppointmentEvent.Type.UPDATED, previous, saved));
+        if (occupiesSpot(before) && (moved || !occupiesSpot(saved))) {
+            waitlistService.onSpotFreed(before);
+        }
+
+        return Optional.of(saved).map(entity -> mapper.fromEntityToAppointmentResponseDto(updatedAppointment, zoneIdFromClient));
     }
 
     //USER
@@ -176,11 +624,14 @@ public class AppointmentService {
     /**
      * <p>Imposta lo stato di una prenotazione su {@code CANCELED}</p>
      * <p>Controllo che la prenotazione esista e poi effettua l'aggiornamento</p>
+     * <p>Solo una prenotazione {@code VALID} puo essere annullata: la transizione e un aggiornamento
+     * condizionato sullo stato, quindi una prenotazione gia annullata o scaduta, anche da una richiesta
+     * concorrente, viene respinta senza pubblicare eventi ne liberare di nuovo il posto</p>
      *
      * @param id ID della prenotazione da annullare
      * @param zoneIdFromClient zona oraria del client per la conversione delle date
      * @return {@link AppointmentResponseDto} con lo stato aggiornato
-     * @throws RuntimeException se l'appuntamento non esiste
+     * @throws RuntimeException se l'appuntamento non esiste o non e {@code VALID}
      */
 
     public Optional<Object> updateAppointmentStateToCancel(String id, String zoneIdFromClient){
@@ -188,43 +639,337 @@ public class AppointmentService {
             throw new RuntimeException("appointment not found with given id : " + id);
         };
         Appointment appointmentToUpdate =  appointmentRepository.findById(id).get();
+        AppointmentEvent.Snapshot previous = AppointmentEvent.Snapshot.of(appointmentToUpdate);
+        LocalDateTime canceledAt = LocalDateTime.now(ZoneOffset.UTC);
+        if (previous.appointmentState() != AppointmentState.VALID
+                || !appointmentRepository.cancelIfValid(id, canceledAt)) {
+            throw new RuntimeException("appointment with given id " + id + " is not valid and cannot be canceled");
+        }
         appointmentToUpdate.setAppointmentState(AppointmentState.CANCELED);
+        appointmentToUpdate.setCanceledAt(canceledAt);
+        Appointment saved = appointmentToUpdate;
+        availabilityIndex.unregister(saved);
+        releaseClaim(saved);
+        eventBus.publish(AppointmentEvent.changed(AppointmentEvent.Type.CANCELED, previous, saved));
+        waitlistService.onSpotFreed(saved);
 
-        return Optional.of(appointmentRepository.save(appointmentToUpdate)).map(entity -> mapper.fromEntityToAppointmentResponseDto(appointmentToUpdate, zoneIdFromClient));
+        return Optional.of(saved).map(entity -> mapper.fromEntityToAppointmentResponseDto(appointmentToUpdate, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Avvia la coda delle scadenze: ogni prenotazione passa a {@code EXPIRED} appena termina</p>
+     */
+    @PostConstruct
+    public void startExpiryQueue() {
+        expiryQueue.start(this::expireAppointments);
+    }
+
+    /**
+     * <p>Scade le prenotazioni terminate consegnate da {@link AppointmentExpiryQueue}</p>
+     * <p>Lo stato passa a {@code EXPIRED} con {@link AppointmentRepository#expireAll}, limitato alle prenotazioni
+     * ancora {@code VALID} e terminate. Solo le prenotazioni passate a {@code EXPIRED} da questa istanza vengono
+     * tolte dall'indice, rilasciate in blocco e pubblicate: quelle cancellate, spostate o gia scadute altrove nel
+     * frattempo sono state gestite da chi le ha modificate (le copie della coda hanno i dati di allora).</p>
+     *
+     * @param ended prenotazioni dovute (copie fatte da {@link AppointmentExpiryQueue#schedule} o lette dalla
+     *              riconciliazione periodica)
+     * @return numero di prenotazioni passate a {@code EXPIRED} da questa istanza
+     */
+    public int expireAppointments(List<Appointment> ended) {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"));
+        Set<String> expiredIds = appointmentRepository.expireAll(ended.stream().map(Appointment::getId).toList(), now);
+        List<Appointment> expired = ended.stream()
+                .filter(appointment -> expiredIds.contains(appointment.getId()))
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        expired.forEach(availabilityIndex::unregister);
+        vehicleSpotClaimRepository.releaseAll(expired);
+        expired.forEach(appointment -> appointment.setAppointmentState(AppointmentState.EXPIRED));
+        eventBus.publishAll(expired.stream()
+                .map(appointment -> AppointmentEvent.of(AppointmentEvent.Type.EXPIRED, appointment))
+                .toList());
+        return expired.size();
     }
 
     /**
-     * <p>Task schedulato ogni 60 secondi che aggiorna lo stato delle prenotazioni scadute</p>
+     * <p>Riconciliazione periodica delle prenotazioni scadute ({@code app.expiry.reconcile-millis})</p>
+     * <p>Le scadenze puntuali arrivano da {@link AppointmentExpiryQueue}; questo task recupera quelle perse
+     * (indice non caricato, errori del database, istanze ferme)</p>
      * <p>Le prenotazioni scadute sono quelle con una data di fine passata e stato ancora {@code VALID}</p>
      * Lo stato viene aggiornato a {@code EXPIRED}.
-     * <p>Utilizza il metodo {@link #expiredAppointments()} per ottenere le prenotazioni scadute</p>
-     * <p>Le prenotazioni aggiornate vengono salvate nel database</p>
+     * <p>Le prenotazioni vengono lette dall'indice ({@code appointmentState}, {@code endingDate}) a blocchi di
+     * {@code app.expiry.reconcile-batch-size} e passano da {@link #expireAppointments}, come quelle della coda:
+     * gli eventi vengono pubblicati e le riserve rilasciate. Le riserve terminate rimaste e quelle dei posti
+     * trattenuti scaduti vengono poi rilasciate su tutti i posti con un solo aggiornamento</p>
+     * <p>Lavora solo sul database condiviso, quindi lo esegue una sola istanza ({@link LeaderOnly})</p>
      * @throws RuntimeException se si verifica un errore durante il salvataggio</p>
      */
+    @LeaderOnly("expired-appointments")
+    @Scheduled(fixedDelayString = "${app.expiry.reconcile-millis:300000}")
+    public  void updateExpiredAppointments(){
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"));
+        int batchSize = appProperties.getExpiry().getReconcileBatchSize();
+        List<Appointment> ended;
+        int expired;
+        do {
+            // quelle scadute escono dal filtro, il blocco successivo legge le seguenti
+            ended = appointmentRepository.findValidEndedBefore(now, batchSize);
+            expired = expireAppointments(ended);
+        } while (ended.size() == batchSize && expired > 0);
+        vehicleSpotClaimRepository.releaseEndedBefore(now);
+    }
 
+    /**
+     * <p>Task schedulato ogni 60 secondi che allinea lo stato in memoria di questa istanza: l'indice
+     * scarta per data gli intervalli terminati e le richieste in lista d'attesa gia iniziate scadono</p>
+     */
     @Scheduled(fixedDelay = 60000)
-    public  void updateExpiredAppointments(){
-        List<Appointment> updatedAppointments = new ArrayList<>();
-        expiredAppointments()
-                .forEach(
-                        (appointment)->{
-                            appointment.setAppointmentState(AppointmentState.EXPIRED);
-                            updatedAppointments.add(appointment);
-                        }
-                );
-        appointmentRepository.saveAll(updatedAppointments);
-    }
-
-    /**
-     * <p>Restituisce tutte le prenotazioni ancora valide ma con data di fine superata</p>
-     * <p>Utilizza il repository per trovare le prenotazioni con stato {@code VALID} e data di fine passata</p>
-     * <p>Le prenotazioni vengono filtrate in base alla data corrente</p>
-     * <p>Utilizza il fuso orario UTC per la verifica delle date</p>
+    public void pruneEndedAppointments() {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"));
+        availabilityIndex.removeEndedBefore(now);
+        waitlistService.expireWaiting(now);
+    }
+
+    private Appointment newAppointment(AppointmentPostDto dto, String zoneIdFromClient) {
+        Appointment appointment = mapper.fromDtoToEntity(dto, zoneIdFromClient);
+        appointment.setId(new ObjectId().toHexString());
+        appointment.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
+        return appointment;
+    }
+
+    /**
+     * <p>Riserva il primo posto libero in memoria, nell'ordine della strategia del parcheggio, e lo
+     * conferma sul database con {@link VehicleSpotClaimRepository#tryClaim}; il posto ottenuto viene
+     * assegnato alla prenotazione</p>
+     */
+    private Optional<VehicleSpot> claimSpot(List<VehicleSpot> spots, Appointment appointment) {
+        return claimSpot(spots, appointment, null);
+    }
+
+    /**
+     * <p>Come {@link #claimSpot(List, Appointment)}; con {@code holdExpiresAt} la riserva sul database e
+     * quella di un posto trattenuto ({@link VehicleSpotClaimRepository#tryHold})</p>
+     */
+    private Optional<VehicleSpot> claimSpot(List<VehicleSpot> spots, Appointment appointment, LocalDateTime holdExpiresAt) {
+        return availabilityIndex.claimFirstAvailable(allocationOrder(spots, appointment), appointment,
+                        candidate -> holdExpiresAt == null
+                                ? vehicleSpotClaimRepository.tryClaim(candidate.getId(), appointment.getId(),
+                                        appointment.getInitialDate(), appointment.getEndingDate())
+                                : vehicleSpotClaimRepository.tryHold(candidate.getId(), appointment.getId(),
+                                        appointment.getInitialDate(), appointment.getEndingDate(), holdExpiresAt))
+                .map(spot -> assignSpot(appointment, spot));
+    }
+
+    private List<VehicleSpot> allocationOrder(List<VehicleSpot> spots, Appointment appointment) {
+        return allocationStrategies.forParkingLot(appointment.getParkingLotName())
+                .order(spots, appointment.getInitialDate(), appointment.getEndingDate());
+    }
+
+    private VehicleSpot assignSpot(Appointment appointment, VehicleSpot spot) {
+        appointment.setVehicleSpotId(spot.getId());
+        appointment.setParkingLotName(spot.getParkingLotName());
+        appointment.setVehicleSpotCategory(spot.getVehicleSpotCategory());
+        return spot;
+    }
+
+    /**
+     * <p>Annulla la riserva in memoria e sul database di una prenotazione non salvata</p>
+     */
+    private void releaseSpot(Appointment appointment) {
+        availabilityIndex.unregister(appointment);
+        vehicleSpotClaimRepository.release(appointment.getVehicleSpotId(), appointment.getId());
+    }
+
+    /**
+     * <p>Libera il posto di un hold rilasciato o scaduto e lo offre alla lista d'attesa</p>
+     */
+    private void freeSpot(Appointment appointment) {
+        releaseSpot(appointment);
+        waitlistService.onSpotFreed(appointment);
+    }
+
+    /**
+     * <p>Conferma sul database le riserve di una richiesta multipla e salva le prenotazioni, con una
+     * scrittura bulk ciascuna</p>
+     * <p>Gli elementi respinti da un'altra istanza riprovano uno alla volta sui posti di {@code spotsForIndex};
+     * quelli senza posto o non salvati finiscono in {@code errors}.</p>
+     */
+    private void confirmAndInsert(Map<Integer, Appointment> claimed, Map<Integer, String> errors,
+                                  IntFunction<List<VehicleSpot>> spotsForIndex, IntFunction<String> noSpotMessage) {
+        Set<String> rejected = vehicleSpotClaimRepository.tryClaimAll(new ArrayList<>(claimed.values()));
+        if (!rejected.isEmpty()) {
+            claimed.entrySet().removeIf(entry -> {
+                Appointment appointment = entry.getValue();
+                if (!rejected.contains(appointment.getId())) {
+                    return false;
+                }
+                availabilityIndex.unregister(appointment);
+                if (claimSpot(spotsForIndex.apply(entry.getKey()), appointment).isPresent()) {
+                    return false;
+                }
+                errors.put(entry.getKey(), noSpotMessage.apply(entry.getKey()));
+                return true;
+            });
+        }
+
+        Set<String> notInserted = appointmentRepository.insertAllUnordered(new ArrayList<>(claimed.values()));
+        if (!notInserted.isEmpty()) {
+            claimed.entrySet().removeIf(entry -> {
+                if (!notInserted.contains(entry.getValue().getId())) {
+                    return false;
+                }
+                releaseSpot(entry.getValue());
+                errors.put(entry.getKey(), "unable to save appointment");
+                return true;
+            });
+        }
+        eventBus.publishAll(claimed.values().stream()
+                .map(appointment -> AppointmentEvent.of(AppointmentEvent.Type.CREATED, appointment))
+                .toList());
+    }
+
+    private List<AppointmentBatchItemResponseDto> batchItems(int requested, Map<Integer, Appointment> claimed,
+                                                             Map<Integer, String> errors, String zoneIdFromClient) {
+        List<AppointmentBatchItemResponseDto> items = new ArrayList<>();
+        for (int index = 0; index < requested; index++) {
+            Appointment saved = claimed.get(index);
+            items.add(AppointmentBatchItemResponseDto.builder()
+                    .index(index)
+                    .booked(saved != null)
+                    .appointment(saved == null ? null : mapper.fromEntityToAppointmentResponseDto(saved, zoneIdFromClient))
+                    .error(errors.get(index))
+                    .build());
+        }
+        return items;
+    }
+
+    /**
+     * <p>Posto libero per il maggior numero di occorrenze di una serie, a parita il primo secondo la
+     * strategia del parcheggio; la scansione si ferma al primo posto libero per tutte</p>
+     */
+    private VehicleSpot preferredSpot(List<VehicleSpot> ordered, Collection<Appointment> occurrences) {
+        VehicleSpot best = ordered.get(0);
+        long bestFree = -1;
+        for (VehicleSpot spot : ordered) {
+            long free = occurrences.stream()
+                    .filter(occurrence -> availabilityIndex.isAvailable(spot, occurrence.getInitialDate(), occurrence.getEndingDate()))
+                    .count();
+            if (free > bestFree) {
+                best = spot;
+                bestFree = free;
+            }
+            if (free == occurrences.size()) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * <p>Posti del parcheggio e della categoria richiesti, letti una sola volta per richiesta multipla</p>
+     */
+    private List<VehicleSpot> spotsFor(AppointmentPostDto dto, Map<String, List<VehicleSpot>> cache) {
+        return cache.computeIfAbsent(dto.getParkingLotName() + "|" + dto.getVehicleSpotCategory(),
+                key -> vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(
+                        dto.getParkingLotName(), dto.getVehicleSpotCategory()));
+    }
+
+    /**
+     * <p>Validazione di un elemento di una richiesta multipla, che non passa da
+     * {@link com.example.demo.interceptors.DateValidationAdvice}</p>
+     */
+    private boolean isValidPostDto(AppointmentPostDto dto, String zoneIdFromClient) {
+        return dto != null
+                && dto.getParkingLotName() != null
+                && dto.getVehicleSpotCategory() != null
+                && dto.getInitialDate() != null
+                && dto.getEndingDate() != null
+                && DateUtilities.isAppointmentDateValid(dto.getInitialDate(), dto.getEndingDate(), zoneIdFromClient);
+    }
+
+    private static LocalDateTime toClientZone(LocalDateTime utcDate, String zoneIdFromClient) {
+        return utcDate.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.of(zoneIdFromClient)).toLocalDateTime();
+    }
+
+    private String noSpotMessage(AppointmentPostDto dto) {
+        return "Nessun posto disponibile per la categoria '" + dto.getVehicleSpotCategory() +
+                "' nel parcheggio '" + dto.getParkingLotName() + "'";
+    }
+
+    /**
+     * <p>Riserva l'intervallo aggiornato di una prenotazione sul suo posto, in memoria e poi sul database</p>
+     * <p>La riserva precedente viene spostata con {@link VehicleSpotClaimRepository#tryMove}, oppure creata con
+     * {@link VehicleSpotClaimRepository#tryClaim} se la prenotazione non occupava il posto; se una delle due
+     * fallisce viene ripristinata la riserva in memoria precedente</p>
      *
-     * @return lista di appuntamenti scaduti da aggiornare
+     * @throws RuntimeException se il posto e occupato nel nuovo intervallo
+     */
+    private void claimNewInterval(Appointment updated, Appointment before) {
+        VehicleSpot spot = VehicleSpot.builder()
+                .id(updated.getVehicleSpotId())
+                .parkingLotName(updated.getParkingLotName())
+                .vehicleSpotCategory(updated.getVehicleSpotCategory())
+                .build();
+        availabilityIndex.unregister(before);
+        if (!availabilityIndex.tryClaim(spot, updated)) {
+            availabilityIndex.register(before);
+            throw new RuntimeException(busySpotMessage(updated));
+        }
+        boolean confirmed = vehicleSpotClaimRepository.tryMove(updated.getVehicleSpotId(), updated.getId(),
+                updated.getInitialDate(), updated.getEndingDate())
+                || vehicleSpotClaimRepository.tryClaim(updated.getVehicleSpotId(), updated.getId(),
+                updated.getInitialDate(), updated.getEndingDate());
+        if (!confirmed) {
+            availabilityIndex.unregister(updated);
+            availabilityIndex.register(before);
+            throw new RuntimeException(busySpotMessage(updated));
+        }
+    }
+
+    /**
+     * <p>Riporta la riserva, in memoria e sul database, allo stato precedente a {@link #claimNewInterval}</p>
      */
+    private void restoreClaim(Appointment updated, Appointment before) {
+        availabilityIndex.unregister(updated);
+        availabilityIndex.register(before);
+        if (occupiesSpot(before)) {
+            vehicleSpotClaimRepository.tryMove(before.getVehicleSpotId(), before.getId(),
+                    before.getInitialDate(), before.getEndingDate());
+        } else {
+            releaseClaim(updated);
+        }
+    }
 
-    private List<Appointment> expiredAppointments(){
-        return appointmentRepository.findValidAppointments(LocalDateTime.ofInstant(Instant.now(), ZoneId.of("UTC")));
+    private static boolean occupiesSpot(Appointment appointment) {
+        return appointment.getAppointmentState() == AppointmentState.VALID && appointment.getVehicleSpotId() != null;
+    }
+
+    private static Appointment fromSnapshot(AppointmentEvent.Snapshot snapshot) {
+        return Appointment.builder()
+                .id(snapshot.id())
+                .parkingLotName(snapshot.parkingLotName())
+                .vehicleSpotId(snapshot.vehicleSpotId())
+                .vehicleSpotCategory(snapshot.vehicleSpotCategory())
+                .initialDate(snapshot.initialDate())
+                .endingDate(snapshot.endingDate())
+                .appointmentState(snapshot.appointmentState())
+                .seriesId(snapshot.seriesId())
+                .build();
+    }
+
+    private static String busySpotMessage(Appointment appointment) {
+        return "vehicle spot " + appointment.getVehicleSpotId() + " is already booked between "
+                + appointment.getInitialDate() + " and " + appointment.getEndingDate();
+    }
+
+    /**
+     * <p>Rilascia la riserva sul database della prenotazione, se assegnata a un posto</p>
+     */
+    private void releaseClaim(Appointment appointment) {
+        if (appointment.getVehicleSpotId() != null) {
+            vehicleSpotClaimRepository.release(appointment.getVehicleSpotId(), appointment.getId());
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.enumerators.SpotAllocationMode;
 import com.example.demo.model.dto.parkingLot.ParkingLotDtoMapper;
 import com.example.demo.model.dto.parkingLot.ParkingLotPostDto;
 import com.example.demo.model.dto.parkingLot.ParkingLotResponseDto;
@@ -8,11 +9,16 @@ import com.example.demo.model.entities.ParkingLot;
 import com.example.demo.repository.CapacityChangeRepository;
 import com.example.demo.repository.ParkingLotRepository;
 import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.allocation.SpotAllocationStrategies;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.ParkingLotEvent;
 import com.example.demo.utils.Utils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +32,12 @@ public class ParkingLotService {
     private VehicleSpotRepository vehicleSpotRepository;
     @Autowired
     private CapacityChangeRepository capacityChangeRepository;
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+    @Autowired
+    private SpotAllocationStrategies allocationStrategies;
+    @Autowired
+    private DomainEventBus eventBus;
 
     /**
      * <p>Aggiunge un nuovo parcheggio </p>
@@ -34,7 +46,9 @@ public class ParkingLotService {
      * @return {@code Optional<ParkingLotResponseDto>} contenente il parcheggio creato
      */
     public Optional<ParkingLotResponseDto> postParkingLot(ParkingLotPostDto dto) {
-        return Optional.of(parkingLotRepository.save(mapper.fromDtoToEntity(dto))).map(mapper::fromEntityToDto);
+        ParkingLot saved = parkingLotRepository.save(mapper.fromDtoToEntity(dto));
+        eventBus.publish(ParkingLotEvent.of(ParkingLotEvent.Type.CREATED, saved));
+        return Optional.of(saved).map(mapper::fromEntityToDto);
     }
 
     /**
@@ -96,10 +110,34 @@ public class ParkingLotService {
 
         existing.ifPresent(c -> capacityChange.setId(c.getId()));
         capacityChangeRepository.save(capacityChange);
+        eventBus.publish(ParkingLotEvent.of(ParkingLotEvent.Type.UPDATED, updatedParkingLot));
 
         return Optional.of(mapper.fromEntityToDto(updatedParkingLot));
     }
 
+    /**
+     * <p>Cambia il criterio di assegnazione dei posti di un parcheggio</p>
+     * <p>Il nuovo criterio vale per le prenotazioni successive; quelle esistenti non vengono spostate</p>
+     * @param parkingLotName parametro richiesto per la ricerca del parcheggio
+     * @param mode nome del criterio ({@code first-fit}, {@code best-fit}, {@code packed}, {@code spread})
+     * @return {@link ParkingLotResponseDto} contenente i dati aggiornati del parcheggio
+     * @throws RuntimeException se il parcheggio non viene trovato o il criterio non è valido
+     */
+    public Optional<ParkingLotResponseDto> updateAllocationModeByParkingLotName(String parkingLotName, String mode) {
+        SpotAllocationMode foundMode = Arrays.stream(SpotAllocationMode.values())
+                .filter(value -> value.getModeName().equalsIgnoreCase(mode) || value.name().equalsIgnoreCase(mode))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("invalid allocation mode, please insert one of: " + Arrays.toString(SpotAllocationMode.values())));
+        ParkingLot parkingLot = parkingLotRepository.findByName(parkingLotName)
+                .orElseThrow(() -> new RuntimeException("Parking lot with name " + parkingLotName + " not found"));
+
+        parkingLot.setAllocationMode(foundMode);
+        ParkingLot saved = parkingLotRepository.save(parkingLot);
+        allocationStrategies.evict(saved.getName());
+        eventBus.publish(ParkingLotEvent.of(ParkingLotEvent.Type.UPDATED, saved));
+        return Optional.of(mapper.fromEntityToDto(saved));
+    }
+
     /**
      * <p>Cancella un parcheggio tramite il nome</p>
      * <p>Cancella il parcheggio e tutti i posti veicolo associati.</p>
@@ -112,6 +150,9 @@ public class ParkingLotService {
                     vehicleSpotRepository.deleteByParkingLotId(parkingLot.getId());
 
                     parkingLotRepository.delete(parkingLot);
+                    availabilityIndex.removeParkingLot(parkingLot.getName());
+                    allocationStrategies.evict(parkingLot.getName());
+                    eventBus.publish(ParkingLotEvent.of(ParkingLotEvent.Type.DELETED, parkingLot));
                 }, () -> {
                     throw new RuntimeException("Parking lot with name '" + parkingLotName + "' not found");
                 });
@@ -129,6 +170,9 @@ public class ParkingLotService {
                     vehicleSpotRepository.deleteByParkingLotId(parkingLot.getId());
 
                     parkingLotRepository.delete(parkingLot);
+                    availabilityIndex.removeParkingLot(parkingLot.getName());
+                    allocationStrategies.evict(parkingLot.getName());
+                    eventBus.publish(ParkingLotEvent.of(ParkingLotEvent.Type.DELETED, parkingLot));
                 }, () -> {
                     throw new RuntimeException("Parking lot with name '" + id + "' not found");
                 });
@@ -1,31 +1,58 @@
 package com.example.demo.service;
 
+import com.example.demo.enumerators.CancellationWindow;
+import com.example.demo.enumerators.ExportFormat;
+import com.example.demo.enumerators.RollupTier;
 import com.example.demo.enumerators.VehicleSpotCategory;
 import com.example.demo.model.dto.capacityChange.CapacityChangeMapper;
 import com.example.demo.model.dto.capacityChange.CapacityChangeResponseDto;
+import com.example.demo.model.dto.report.CancellationRateResponseDto;
+import com.example.demo.model.dto.report.CapacityHeatmapResponseDto;
+import com.example.demo.model.dto.report.EventBusResponseDto;
+import com.example.demo.model.dto.report.EventSubscriberResponseDto;
+import com.example.demo.model.dto.report.OccupancyCalendarMemoryResponseDto;
 import com.example.demo.model.dto.report.ParkingOccupancyResponseDto;
 import com.example.demo.model.dto.report.ParkingOccupancyMapper;
+import com.example.demo.model.dto.report.ReportCacheResponseDto;
 import com.example.demo.model.dto.report.ReservationReportResponseDto;
+import com.example.demo.model.dto.report.RollupReportResponseDto;
 import com.example.demo.model.dto.report.ReservationReportMapper;
+import com.example.demo.model.dto.report.ScheduledJobResponseDto;
 import com.example.demo.model.entities.Appointment;
 import com.example.demo.model.entities.ParkingLot;
-import com.example.demo.model.entities.VehicleSpot;
 import com.example.demo.enumerators.AppointmentState;
 import com.example.demo.repository.AppointmentRepository;
 import com.example.demo.repository.CapacityChangeRepository;
 import com.example.demo.repository.ParkingLotRepository;
 import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.OccupancyCalendar;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.report.AppointmentRollups;
+import com.example.demo.service.report.CancellationCounters;
+import com.example.demo.service.report.CapacityHeatmap;
+import com.example.demo.service.report.OccupancyView;
+import com.example.demo.service.report.ReportCache;
+import com.example.demo.service.report.ReservationHistoryExport;
+import com.example.demo.service.scheduling.SchedulerLeaseManager;
+import com.example.demo.utils.DateUtilities;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.Month;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.WeekFields;
-import java.util.LinkedHashMap;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -49,12 +76,35 @@ public class ReportService {
     private CapacityChangeRepository capacityChangeRepository;
     @Autowired
     private CapacityChangeMapper capacityChangeMapper;
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+    @Autowired
+    private SchedulerLeaseManager schedulerLeaseManager;
+    @Autowired
+    private DomainEventBus eventBus;
+    @Autowired
+    private OccupancyView occupancyView;
+    @Autowired
+    private AppointmentRollups appointmentRollups;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ReportCache reportCache;
+    @Autowired
+    private CancellationCounters cancellationCounters;
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_ZONED_DATE_TIME;
+    private static final DateTimeFormatter REPORT_DAY_FORMATTER = DateTimeFormatter.ofPattern("dd MMMM yyyy", Locale.ENGLISH);
+    /**
+     * Limite di colonne della heatmap: un mese a 5 minuti.
+     */
+    private static final long MAX_HEATMAP_BUCKETS = 8928;
 
 
     /**
      * <p>Restituisce le statistiche di occupazione per tutti parcheggio</p>
+     * <p>I valori vengono letti dalla vista {@link OccupancyView}, aggiornata ad ogni modifica di prenotazioni,
+     * posti e parcheggi: il costo e O(parcheggi), senza scansioni delle collezioni.</p>
      * <p>Per ogni parcheggio il totale:</p>
      * <ul>
      *     <li>Il numero totale di posti veicolo</li>
@@ -68,48 +118,11 @@ public class ReportService {
      */
     public List<ParkingOccupancyResponseDto> getParkingOccupancy() {
         try {
-            List<ParkingLot> parkingLots = parkingLotRepository.findAll();
-            List<Appointment> allAppointments = appointmentRepository.findAll();
-
-            if ((parkingLots.isEmpty())) {
+            List<ParkingOccupancyResponseDto> occupancy = occupancyView.snapshot();
+            if (occupancy.isEmpty()) {
                 throw new RuntimeException("no parking lots found");
             }
-            return parkingLots.stream().map(parkingLot -> {
-                long totalVehichleSpot = parkingLot.getVehicleSpotNumber();
-
-                List<Appointment> appointments = allAppointments.stream()
-                        .filter(spot -> spot.getAppointmentState() == AppointmentState.VALID
-                                && spot.getParkingLotName().equals(parkingLot.getName()))
-                        .toList();
-
-                long occupiedSpots = appointments.size();
-                long availableSpots = Math.max(totalVehichleSpot - occupiedSpots, 0);
-
-                Map<VehicleSpotCategory, Long> totalByCategory = vehicleSpotRepository.findAll().stream()
-                        .filter(slot -> slot.getParkingLotId().equals(parkingLot.getId()))
-                        .collect(Collectors.groupingBy(VehicleSpot::getVehicleSpotCategory, Collectors.counting()));
-
-                Map<VehicleSpotCategory, Long> occupiedByCategory = allAppointments.stream()
-                        .filter(spot -> spot.getAppointmentState() == AppointmentState.VALID
-                                && parkingLot.getName().equals(spot.getParkingLotName()))
-                        .collect(Collectors.groupingBy(Appointment::getVehicleSpotCategory, Collectors.counting()));
-
-                Map<VehicleSpotCategory, Map<String, Long>> categoryBreakdown = totalByCategory.entrySet().stream()
-                        .collect(Collectors.toMap(
-                                Map.Entry::getKey,
-                                entry -> {
-                                    Map<String, Long> orderedMap = new LinkedHashMap<>();
-                                    orderedMap.put("total", entry.getValue());
-                                    orderedMap.put("occupied", occupiedByCategory.getOrDefault(entry.getKey(), 0L));
-                                    orderedMap.put("available", Math.max(entry.getValue() - occupiedByCategory.getOrDefault(entry.getKey(), 0L), 0));
-                                    return orderedMap;
-                                }
-                        ));
-
-
-                return new ParkingOccupancyResponseDto(parkingLot.getId(), parkingLot.getName(), totalVehichleSpot, occupiedSpots, availableSpots, categoryBreakdown);
-            }).toList();
-
+            return occupancy;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -117,120 +130,197 @@ public class ReportService {
         }
     }
 
+    /**
+     * <p>Restituisce le statistiche di occupazione di un parcheggio cercato per nome (senza distinguere
+     * maiuscole e minuscole), lette da {@link OccupancyView}</p>
+     * <p>Con {@code fresh} il parcheggio viene calcolato da solo sul database ({@link OccupancyView#compute}),
+     * con un costo che dipende solo dai suoi posti e dalle sue prenotazioni.</p>
+     *
+     * @param parkingLotName nome del parcheggio
+     * @param fresh {@code true} per ignorare la vista in memoria
+     * @return {@link ParkingOccupancyResponseDto} del parcheggio, vuoto se non esiste
+     */
+    public Optional<ParkingOccupancyResponseDto> getParkingOccupancyByName(String parkingLotName, boolean fresh) {
+        return fresh ? occupancyView.compute(parkingLotName) : occupancyView.find(parkingLotName);
+    }
+
     /**
      * <p>Restituisce le statistiche di occupazione giornaliere per un parcheggio specifico</p>
-     * <p>Consideriamo solo le prenotazioni con stato {@code VALID}(esclude {@code CANCELED,EXPIRED}</p>
-     * <p>Per ogni giorno viene calcolato il numero totale di prenotazioni effettuate</p>
+     * <p>Consideriamo solo le prenotazioni con stato {@code VALID} iniziate nell'intervallo richiesto</p>
+     * <p>Per ogni giorno (nella zona del client) viene calcolato il numero totale di prenotazioni effettuate,
+     * in ordine cronologico; vedi {@link #getPeriodReport}</p>
      * @return una lista {@link ReservationReportResponseDto} con le informazioni giornaliere
-     * @throws RuntimeException se non sono presenti prenotazioni valide nel sistema
+     * @throws RuntimeException se l'intervallo non è valido
      */
-    public List<ReservationReportResponseDto> getDailyReportByName(String parkingLotName) {
-        Map<LocalDate, Long> dailyReport = appointmentRepository.findAll().stream()
-                .filter(spot -> spot.getAppointmentState() != AppointmentState.CANCELED &&
-                        spot.getAppointmentState() != AppointmentState.EXPIRED &&
-                        spot.getParkingLotName().equalsIgnoreCase(parkingLotName))
-                .collect(Collectors.groupingBy(
-                        spot -> spot.getInitialDate().toLocalDate(),
-                        Collectors.counting()
-                ));
-
-        if (dailyReport.isEmpty()) {
-            return List.of();
-        }
-
-        return dailyReport.entrySet().stream()
-                .map(entry -> reservationReportMapper.toStatisticsDTO(
-                        entry.getKey().format(DateTimeFormatter.ofPattern("dd MMMM yyyy", Locale.ENGLISH)),
-                        entry.getValue()))
-                .collect(Collectors.toList());
+    public List<ReservationReportResponseDto> getDailyReportByName(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                                   String zoneIdFromClient) {
+        return getPeriodReport(parkingLotName, from, to, zoneIdFromClient, ChronoUnit.DAYS,
+                day -> day.format(REPORT_DAY_FORMATTER));
     }
 
     /**
      * <p>Restituisce le statistiche di occupazione settimanali per un parcheggio specifico</p>
-     * <p>Consideriamo solo le prenotazioni con stato {@code VALID} (esclude {@code CANCELED,EXPIRED}</p>
-     * <p>Per ogni settimana viene calcolato il numero totale di prenotazioni effettuate</p>
+     * <p>Consideriamo solo le prenotazioni con stato {@code VALID} iniziate nell'intervallo richiesto</p>
+     * <p>Per ogni settimana ISO (da lunedi a domenica, nella zona del client) viene calcolato il numero totale
+     * di prenotazioni effettuate; il periodo riporta le date complete, anche a cavallo di due anni</p>
      * @return una lista {@link ReservationReportResponseDto} con le informazioni settimanali
-     * @throws RuntimeException se non sono presenti prenotazioni valide nel sistema
+     * @throws RuntimeException se l'intervallo non è valido
      */
-    public List<ReservationReportResponseDto> getWeekReportByName(String parkingLotName) {
-        Map<Integer, Long> weekReport = appointmentRepository.findAll().stream()
-                .filter(spot -> spot.getAppointmentState() != AppointmentState.CANCELED &&
-                        spot.getAppointmentState() != AppointmentState.EXPIRED &&
-                        spot.getParkingLotName().equalsIgnoreCase(parkingLotName))
-                .collect(Collectors.groupingBy(
-                        spot -> spot.getInitialDate().toLocalDate().get(WeekFields.ISO.weekOfYear()),
-                        Collectors.counting()
-                ));
-
-        if (weekReport.isEmpty()) {
-            return List.of();
-        }
+    public List<ReservationReportResponseDto> getWeekReportByName(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                                  String zoneIdFromClient) {
+        return getPeriodReport(parkingLotName, from, to, zoneIdFromClient, ChronoUnit.WEEKS,
+                firstDay -> firstDay.format(REPORT_DAY_FORMATTER) + " - " + firstDay.plusDays(6).format(REPORT_DAY_FORMATTER));
+    }
 
-        return weekReport.entrySet().stream()
-                .map(weekEntry -> {
-                    int weekNumber = weekEntry.getKey();
-                    int year = LocalDate.now().getYear();
+    /**
+     * <p>Restituisce le statistiche di occupazione mensili per un parcheggio specifico</p>
+     * <p>Consideriamo solo le prenotazioni con stato {@code VALID} iniziate nell'intervallo richiesto</p>
+     * <p>Per ogni mese (nella zona del client) viene calcolato il numero totale di prenotazioni effettuate;
+     * mesi di anni diversi restano separati (es. {@code JANUARY 2026})</p>
+     * @return una lista {@link ReservationReportResponseDto} con le informazioni mensili
+     * @throws RuntimeException se l'intervallo non è valido
+     */
+    public List<ReservationReportResponseDto> getMonthReportByName(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                                   String zoneIdFromClient) {
+        return getPeriodReport(parkingLotName, from, to, zoneIdFromClient, ChronoUnit.MONTHS,
+                firstDay -> firstDay.getMonth().name() + " " + firstDay.getYear());
+    }
 
-                    LocalDate firstDay = LocalDate.of(year, 1, 1)
-                            .with(WeekFields.ISO.weekOfYear(), weekNumber)
-                            .with(WeekFields.ISO.dayOfWeek(), 1);
-                    LocalDate lastDay = firstDay.plusDays(6);
+    /**
+     * <p>Conta le prenotazioni {@code VALID} del parcheggio per periodo con un'unica aggregazione sul database</p>
+     * <p>L'intervallo {@code [from, to)} e nella zona del client; se manca un estremo l'intervallo dura un anno,
+     * e senza estremi e l'anno corrente. Il costo dipende dalle prenotazioni nell'intervallo, non dalla collezione.</p>
+     *
+     * @param parkingLotName nome del parcheggio (senza distinguere maiuscole e minuscole)
+     * @param unit durata dei periodi
+     * @param label etichetta del periodo a partire dal suo primo giorno
+     * @return lista vuota se il parcheggio non esiste o non ha prenotazioni nell'intervallo
+     */
+    private List<ReservationReportResponseDto> getPeriodReport(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                               String zoneIdFromClient, ChronoUnit unit,
+                                                               Function<LocalDate, String> label) {
+        ZoneId zoneId = ZoneId.of(zoneIdFromClient);
+        LocalDateTime start = reportStart(from, to, zoneId);
+        LocalDateTime end = reportEnd(start, to);
+        return reportCache.get(ReportCache.key("period-" + unit, parkingLotName, start, end, zoneIdFromClient),
+                () -> parkingLotRepository.findByNameIgnoreCase(parkingLotName)
+                        .map(parkingLot -> appointmentRepository.countValidByPeriod(parkingLot.getName(),
+                                        DateUtilities.prepareADateForAService(start, zoneIdFromClient),
+                                        DateUtilities.prepareADateForAService(end, zoneIdFromClient),
+                                        unit, zoneIdFromClient).stream()
+                                .map(bucket -> reservationReportMapper.toStatisticsDTO(
+                                        label.apply(bucket.getBucket().atZone(zoneId).toLocalDate()),
+                                        bucket.getCount()))
+                                .toList())
+                        .orElse(List.of()));
+    }
 
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMMM yyyy", Locale.ENGLISH);
-                    String period = firstDay.format(formatter) + " - " + lastDay.format(formatter);
 
-                    return reservationReportMapper.toStatisticsDTO(
-                            period,
-                            weekEntry.getValue());
-                })
-                .collect(Collectors.toList());
+    /**
+     * Inizio dell'intervallo di un report: {@code from}, un anno prima di {@code to} o l'inizio dell'anno corrente.
+     */
+    private static LocalDateTime reportStart(LocalDateTime from, LocalDateTime to, ZoneId zoneId) {
+        return from != null ? from
+                : to != null ? to.minusYears(1)
+                : LocalDate.now(zoneId).withDayOfYear(1).atStartOfDay();
     }
 
     /**
-     * <p>Restituisce le statistiche di occupazione mensili per un parcheggio specifico</p>
-     * <p>Consideriamo solo le prenotazioni con stato {@code VALID} (esclude {@code CANCELED,EXPIRED}</p>
-     * <p>Per ogni mese viene calcolato il numero totale di prenotazioni effettuate</p>
-     * @return una lista {@link ReservationReportResponseDto} con le informazioni mensili
-     * @throws RuntimeException se non sono presenti prenotazioni valide nel sistema
+     * Fine dell'intervallo di un report: {@code to} o un anno dopo l'inizio.
+     * @throws RuntimeException se l'intervallo è vuoto
      */
-    public List<ReservationReportResponseDto> getMonthReportByName(String parkingLotName) {
-        Map<Integer, Long> monthlyReport = appointmentRepository.findAll().stream()
-                .filter(spot -> spot.getAppointmentState() != AppointmentState.CANCELED &&
-                        spot.getAppointmentState() != AppointmentState.EXPIRED &&
-                        spot.getParkingLotName().equalsIgnoreCase(parkingLotName))
-                .collect(Collectors.groupingBy(
-                        spot -> spot.getInitialDate().getMonthValue(),
-                        Collectors.counting()
-                ));
-
-        if (monthlyReport.isEmpty()) {
-            return List.of();
+    private static LocalDateTime reportEnd(LocalDateTime start, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : start.plusYears(1);
+        if (!end.isAfter(start)) {
+            throw new RuntimeException("please insert a valid date span for the report");
         }
+        return end;
+    }
 
-        return monthlyReport.entrySet().stream()
-                .map(monthEntry -> reservationReportMapper.toStatisticsDTO(
-                        Month.of(monthEntry.getKey()).name(),
-                        monthEntry.getValue()))
-                .collect(Collectors.toList());
+    /**
+     * <p>Esporta le prenotazioni di un parcheggio iniziate nell'intervallo richiesto, in NDJSON o CSV</p>
+     * <p>Il filtro per parcheggio e intervallo e eseguito dal database e le prenotazioni sono lette da un cursore
+     * e scritte direttamente nella risposta (vedi {@link ReservationHistoryExport}): la memoria usata non dipende
+     * dal numero di prenotazioni. L'intervallo segue le regole di {@link #getDailyReportByName}.</p>
+     * <p>Parcheggio e intervallo sono controllati subito, prima che la risposta inizi.</p>
+     *
+     * @return il corpo della risposta, scritto quando il client lo legge
+     * @throws RuntimeException se il parcheggio non esiste o l'intervallo non è valido
+     */
+    public StreamingResponseBody exportReservationHistory(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                          ExportFormat format, String zoneIdFromClient) {
+        LocalDateTime start = reportStart(from, to, ZoneId.of(zoneIdFromClient));
+        LocalDateTime end = reportEnd(start, to);
+        ParkingLot parkingLot = parkingLotRepository.findByNameIgnoreCase(parkingLotName)
+                .orElseThrow(() -> new RuntimeException("Parking lot not found"));
+        LocalDateTime utcStart = DateUtilities.prepareADateForAService(start, zoneIdFromClient);
+        LocalDateTime utcEnd = DateUtilities.prepareADateForAService(end, zoneIdFromClient);
+        return out -> ReservationHistoryExport.write(
+                appointmentRepository.streamByParkingLotNameWithin(parkingLot.getName(), utcStart, utcEnd),
+                format, zoneIdFromClient, objectMapper, out);
+    }
+
+    /**
+     * <p>Restituisce i contatori pre-aggregati delle prenotazioni di un parcheggio nell'intervallo richiesto</p>
+     * <p>Legge solo {@link AppointmentRollups}: il costo dipende dal numero di periodi, non dalle prenotazioni.
+     * Il dettaglio e orario fino a due giorni, giornaliero fino a tre mesi e poi mensile; i periodi gia compattati
+     * restano al loro livello. I periodi sono in UTC e {@code bucket} e il loro inizio nella zona del client.</p>
+     *
+     * @param category categoria da considerare, {@code null} per tutte
+     * @return lista vuota se il parcheggio non esiste
+     * @throws RuntimeException se l'intervallo non è valido
+     */
+    public List<RollupReportResponseDto> getRollupReport(String parkingLotName, VehicleSpotCategory category,
+                                                         LocalDateTime from, LocalDateTime to, String zoneIdFromClient) {
+        if (!to.isAfter(from)) {
+            throw new RuntimeException("please insert a valid date span for the report");
+        }
+        ZoneId zoneId = ZoneId.of(zoneIdFromClient);
+        LocalDateTime start = DateUtilities.prepareADateForAService(from, zoneIdFromClient);
+        LocalDateTime end = DateUtilities.prepareADateForAService(to, zoneIdFromClient);
+        RollupTier granularity = AppointmentRollups.granularityFor(start, end);
+        return reportCache.get(ReportCache.key("rollup", parkingLotName, category, start, end, zoneIdFromClient),
+                () -> parkingLotRepository.findByNameIgnoreCase(parkingLotName)
+                        .map(parkingLot -> appointmentRollups.query(parkingLot.getName(), category, start, end, granularity).stream()
+                                .map(row -> RollupReportResponseDto.builder()
+                                        .bucket(row.getBucket().atZone(ZoneOffset.UTC).withZoneSameInstant(zoneId).toLocalDateTime())
+                                        .granularity(row.getTier())
+                                        .created(row.getCreated())
+                                        .valid(row.getValid())
+                                        .canceled(row.getCanceled())
+                                        .expired(row.getExpired())
+                                        .occupiedMinutes(row.getOccupiedMinutes())
+                                        .build())
+                                .toList())
+                        .orElse(List.of()));
     }
 
 
     /**
      * <p>Restituisce lo storico delle prenotazioni per ciascun parcheggio</p>
-     * <p>Consideriamo tutte le prenotazioni </p>
+     * <p>Consideriamo tutte le prenotazioni del parcheggio, lette in ordine di inizio con una query sull'indice
+     * ({@code parkingLotName}, {@code initialDate}) invece di scorrere l'intera collezione</p>
      * <p>Per ogni prenotazione viene generato un report che include data, orario, stato, categoria e parcheggio</p>
      * @return una lista {@link ReservationReportResponseDto} con le informazioni storiche delle prenotazioni
      * @throws RuntimeException se non sono presenti prenotazioni nel sistema
      */
     public List<ReservationReportResponseDto> getReportHistoryByParkingLotName(String parkingLotName) {
-        List<Appointment> appointments = appointmentRepository.findAll();
+        return reportCache.get(ReportCache.key("history", parkingLotName),
+                () -> loadReportHistoryByParkingLotName(parkingLotName));
+    }
+
+    private List<ReservationReportResponseDto> loadReportHistoryByParkingLotName(String parkingLotName) {
+        // il nome salvato sulle prenotazioni e quello del parcheggio, il filtro sull'indice e esatto
+        String storedName = parkingLotRepository.findByNameIgnoreCase(parkingLotName)
+                .map(ParkingLot::getName)
+                .orElse(parkingLotName);
+        List<Appointment> appointments = appointmentRepository.findByParkingLotNameOrderByInitialDate(storedName);
 
-        if (appointments.isEmpty()) {
+        if (appointments.isEmpty() && appointmentRepository.count() == 0) {
             throw new RuntimeException("No reservations found");
         }
 
         return appointments.stream()
-                .filter(app -> app.getParkingLotName().equalsIgnoreCase(parkingLotName))
                 .map(app -> {
                     String formattedStart = app.getInitialDate()
                             .format(DateTimeFormatter.ofPattern("dd MMMM yyyy HH:mm", Locale.ENGLISH));
@@ -251,14 +341,18 @@ public class ReportService {
      * <p>Restituisce la % delle prenotazioni cancellate sul totale delle prenotazioni effettuate</p>
      * <p>Consideriamo solo le prenotazioni con lo stato {@code CANCELED} </p>
      * <p>Per ogni prenotazione cancellata viene generato un report con la % delle cancellazioni in base alle prenotazioni</p>
+     * <p>Entrambi i totali sono conteggi sul database, senza leggere le prenotazioni; per parcheggio, categoria e
+     * finestra vedi {@link #getCancellationRate(CancellationWindow, String, VehicleSpotCategory)}</p>
      * @return percentuale di cancellazioni
      * @throws RuntimeException se non sono presenti prenotazioni valide nel sistema
      */
     public double getCancellationRate() {
+        return reportCache.get(ReportCache.key("cancellation-rate", null), this::loadCancellationRate);
+    }
+
+    private double loadCancellationRate() {
         long totalReservations = appointmentRepository.count();
-        long canceledReservations = appointmentRepository.findAll().stream()
-                .filter(appointment -> appointment.getAppointmentState() == AppointmentState.CANCELED)
-                .count();
+        long canceledReservations = appointmentRepository.countByAppointmentState(AppointmentState.CANCELED);
 
         if (totalReservations == 0) {
             throw new RuntimeException("no reservation found");
@@ -266,6 +360,50 @@ public class ReportService {
         return ((double) canceledReservations / totalReservations) * 100;
     }
 
+    /**
+     * <p>Restituisce il tasso di cancellazione in una finestra scorrevole, per parcheggio e categoria</p>
+     * <p>Legge i contatori in memoria di {@link CancellationCounters}, aggiornati ad ogni creazione e
+     * cancellazione: nessuna query sulle prenotazioni. Le finestre contano le transizioni avvenute nella
+     * finestra (prenotazioni salvate, prenotazioni cancellate).</p>
+     *
+     * @param parkingLotName parcheggio (senza distinguere maiuscole e minuscole), {@code null} per tutti
+     * @param category categoria, {@code null} per tutte
+     * @return {@link CancellationRateResponseDto} con i conteggi e il tasso
+     */
+    public CancellationRateResponseDto getCancellationRate(CancellationWindow window, String parkingLotName,
+                                                           VehicleSpotCategory category) {
+        CancellationCounters.Counts counts = cancellationCounters.count(parkingLotName, category, window);
+        return toCancellationRate(window, parkingLotName, category, counts);
+    }
+
+    /**
+     * <p>Restituisce il tasso di cancellazione in una finestra scorrevole per ogni parcheggio e categoria con
+     * almeno una prenotazione creata o cancellata nella finestra</p>
+     * @return lista di {@link CancellationRateResponseDto} ordinata per parcheggio e categoria
+     */
+    public List<CancellationRateResponseDto> getCancellationRateByParkingLot(CancellationWindow window) {
+        return cancellationCounters.countByParkingLotAndCategory(window).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparing(CancellationCounters.Key::parkingLotName, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(CancellationCounters.Key::vehicleSpotCategory, Comparator.nullsFirst(Comparator.naturalOrder()))))
+                .map(entry -> toCancellationRate(window, entry.getKey().parkingLotName(),
+                        entry.getKey().vehicleSpotCategory(), entry.getValue()))
+                .toList();
+    }
+
+    private static CancellationRateResponseDto toCancellationRate(CancellationWindow window, String parkingLotName,
+                                                                  VehicleSpotCategory category,
+                                                                  CancellationCounters.Counts counts) {
+        return CancellationRateResponseDto.builder()
+                .window(window)
+                .parkingLotName(parkingLotName)
+                .vehicleSpotCategory(category)
+                .created(counts.created())
+                .canceled(counts.canceled())
+                .cancellationRate(counts.created() == 0 ? 0 : (double) counts.canceled() / counts.created() * 100)
+                .build();
+    }
+
     /**
      * <p>Restituisce lo storico delle modifiche alla capacità di un parcheggio</p>
      * <p>Controllo se esiste il parcheggio, se non esiste il parcheggio lancio un'eccezione</p>
@@ -275,6 +413,11 @@ public class ReportService {
      * @throws RuntimeException se il parcheggio non esiste o se si verifica un errore durante l'elaborazione
      */
     public List<CapacityChangeResponseDto> getCapacityChangeHistoryByName(String parkingLotName) {
+        return reportCache.get(ReportCache.key("capacity-changes", parkingLotName),
+                () -> loadCapacityChangeHistoryByName(parkingLotName));
+    }
+
+    private List<CapacityChangeResponseDto> loadCapacityChangeHistoryByName(String parkingLotName) {
         ParkingLot parkingLot = parkingLotRepository.findByNameIgnoreCase(parkingLotName)
                 .orElseThrow(() -> new RuntimeException("Parking lot not found"));
 
@@ -290,6 +433,141 @@ public class ReportService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * <p>Restituisce i posti liberi per categoria in ogni intervallo della finestra indicata</p>
+     * <p>Posti e prenotazioni {@code VALID} del parcheggio nella finestra vengono letti una sola volta;
+     * tutti i conteggi sono calcolati in memoria con una passata a linea di scansione ({@link CapacityHeatmap})
+     * invece di una ricerca dei posti disponibili per ogni intervallo</p>
+     *
+     * @param parkingLotName nome del parcheggio
+     * @param from inizio della finestra nella zona del client
+     * @param to fine della finestra nella zona del client
+     * @param bucketMinutes durata in minuti di ogni intervallo
+     * @param zoneIdFromClient zona oraria del client
+     * @return {@link CapacityHeatmapResponseDto} con la matrice categorie x intervalli
+     * @throws RuntimeException se il parcheggio non esiste o la finestra non è valida
+     */
+    public CapacityHeatmapResponseDto getCapacityHeatmap(String parkingLotName, LocalDateTime from, LocalDateTime to,
+                                                         long bucketMinutes, String zoneIdFromClient) {
+        if (bucketMinutes <= 0 || !to.isAfter(from)) {
+            throw new RuntimeException("please insert a valid date span and bucket size for the heatmap");
+        }
+        long buckets = (Duration.between(from, to).toMinutes() + bucketMinutes - 1) / bucketMinutes;
+        if (buckets > MAX_HEATMAP_BUCKETS) {
+            throw new RuntimeException("the heatmap can have at most " + MAX_HEATMAP_BUCKETS + " buckets, please use a larger bucket");
+        }
+        return reportCache.get(ReportCache.key("heatmap", parkingLotName, from, to, bucketMinutes, zoneIdFromClient),
+                () -> loadCapacityHeatmap(parkingLotName, from, buckets, bucketMinutes, zoneIdFromClient));
+    }
+
+    private CapacityHeatmapResponseDto loadCapacityHeatmap(String parkingLotName, LocalDateTime from, long buckets,
+                                                           long bucketMinutes, String zoneIdFromClient) {
+        ParkingLot parkingLot = parkingLotRepository.findByNameIgnoreCase(parkingLotName)
+                .orElseThrow(() -> new RuntimeException("Parking lot not found"));
+
+        LocalDateTime start = DateUtilities.prepareADateForAService(from, zoneIdFromClient);
+        LocalDateTime end = start.plusMinutes(buckets * bucketMinutes);
+        CapacityHeatmap heatmap = CapacityHeatmap.compute(start, Duration.ofMinutes(bucketMinutes), (int) buckets,
+                vehicleSpotRepository.findByParkingLotName(parkingLot.getName()),
+                appointmentRepository.findValidByParkingLotNameWithin(parkingLot.getName(), start, end));
+
+        return CapacityHeatmapResponseDto.builder()
+                .parkingLotName(parkingLot.getName())
+                .from(from)
+                .to(from.plusMinutes(buckets * bucketMinutes))
+                .bucketMinutes(bucketMinutes)
+                .categories(heatmap.getCategories())
+                .totals(heatmap.getTotals())
+                .free(heatmap.getFree())
+                .build();
+    }
+
+    /**
+     * <p>Restituisce la memoria occupata dal calendario di occupazione a bitmap</p>
+     * <p>La memoria per posto e fissa (un bit per intervallo dell'orizzonte), quindi il totale
+     * cresce linearmente con il numero di posti e serve a dimensionare l'heap</p>
+     * @return {@link OccupancyCalendarMemoryResponseDto} con il dettaglio per parcheggio
+     */
+    public OccupancyCalendarMemoryResponseDto getOccupancyCalendarMemory() {
+        Map<String, Integer> spotsByParkingLot = occupancyCalendar.spotsByParkingLot();
+        long totalSpots = spotsByParkingLot.values().stream().mapToLong(Integer::longValue).sum();
+
+        return OccupancyCalendarMemoryResponseDto.builder()
+                .bucketMinutes(occupancyCalendar.getBucketMinutes())
+                .bucketsPerSpot(occupancyCalendar.getCapacity())
+                .bitmapBytesPerSpot(occupancyCalendar.bitmapBytesPerSpot())
+                .estimatedBytesPerSpot(occupancyCalendar.estimatedBytesPerSpot())
+                .spotsByParkingLot(spotsByParkingLot)
+                .estimatedTotalBytes(totalSpots * occupancyCalendar.estimatedBytesPerSpot())
+                .build();
+    }
+
+    /**
+     * <p>Restituisce lo stato dei lease e le durate dei task schedulati visti da questa istanza</p>
+     * <p>Su ogni istanza un task ha esecuzioni o esecuzioni saltate: insieme mostrano quale istanza
+     * lo esegue e quante volte il lease e passato di mano</p>
+     * @return lista di {@link ScheduledJobResponseDto} ordinata per nome del task
+     */
+    public List<ScheduledJobResponseDto> getScheduledJobs() {
+        return schedulerLeaseManager.stats().stream()
+                .map(stats -> ScheduledJobResponseDto.builder()
+                        .jobName(stats.jobName())
+                        .owner(schedulerLeaseManager.getOwner())
+                        .leader(stats.leader())
+                        .acquisitions(stats.acquisitions())
+                        .runs(stats.runs())
+                        .skipped(stats.skipped())
+                        .lastDurationMillis(stats.lastDurationMillis())
+                        .maxDurationMillis(stats.maxDurationMillis())
+                        .averageDurationMillis(stats.runs() == 0 ? 0 : stats.totalDurationMillis() / stats.runs())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * <p>Restituisce lo stato del bus degli eventi di dominio: ritardo ed eventi scartati per iscritto</p>
+     * @return {@link EventBusResponseDto}
+     */
+    public EventBusResponseDto getEventBus() {
+        return EventBusResponseDto.builder()
+                .published(eventBus.getPublished())
+                .subscribers(eventBus.stats().stream()
+                        .map(stats -> EventSubscriberResponseDto.builder()
+                                .name(stats.name())
+                                .queued(stats.queued())
+                                .capacity(stats.capacity())
+                                .delivered(stats.delivered())
+                                .dropped(stats.dropped())
+                                .failures(stats.failures())
+                                .batches(stats.batches())
+                                .maxBatchSize(stats.maxBatchSize())
+                                .lastLagMillis(stats.lastLagMillis())
+                                .maxLagMillis(stats.maxLagMillis())
+                                .build())
+                        .toList())
+                .build();
+    }
 
+    /**
+     * <p>Restituisce lo stato della cache dei report su questa istanza</p>
+     * <p>I report su un parcheggio restano in cache fino alla scadenza o alla prima modifica di prenotazioni,
+     * posti o parcheggi che lo riguarda (vedi {@link ReportCache})</p>
+     * @return {@link ReportCacheResponseDto} con occupazione e contatori dall'avvio
+     */
+    public ReportCacheResponseDto getReportCache() {
+        ReportCache.Stats stats = reportCache.stats();
+        long requests = stats.hits() + stats.misses();
+        return ReportCacheResponseDto.builder()
+                .size(stats.size())
+                .maxEntries(stats.maxEntries())
+                .ttlSeconds(stats.ttl().toSeconds())
+                .hits(stats.hits())
+                .misses(stats.misses())
+                .hitRate(requests == 0 ? 0 : (double) stats.hits() / requests * 100)
+                .evictions(stats.evictions())
+                .expirations(stats.expirations())
+                .invalidations(stats.invalidations())
+                .build();
+    }
 
 }
@@ -8,7 +8,11 @@ import com.example.demo.model.dto.vehicleSpot.VehicleSpotUpdateDto;
 import com.example.demo.model.entities.ParkingLot;
 import com.example.demo.model.entities.VehicleSpot;
 import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
 import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.VehicleSpotEvent;
 import com.example.demo.utils.Utils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,6 +30,14 @@ public class VehicleSpotService {
     private VehicleSpotDtoMapper mapper;
     @Autowired
     private ParkingLotRepository parkingLotRepository;
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+    @Autowired
+    private VehicleSpotClaimRepository vehicleSpotClaimRepository;
+    @Autowired
+    private WaitlistService waitlistService;
+    @Autowired
+    private DomainEventBus eventBus;
 
     /**
      *<p>Aggiunge dei nuovi posti veicolo a un parcheggio specifico</p>
@@ -61,6 +73,12 @@ public class VehicleSpotService {
             spot.setVehicleSpotCategory(VehicleSpotCategory.valueOf(dto.getVehicleSpotCategory().toUpperCase()));
             createdSpots.add(vehicleSpotRepository.save(spot));
         }
+        eventBus.publishAll(createdSpots.stream()
+                .map(created -> VehicleSpotEvent.of(VehicleSpotEvent.Type.CREATED, created))
+                .toList());
+
+        // i nuovi posti sono liberi per intero: vengono offerti subito alla lista d'attesa
+        waitlistService.onSpotsAdded(createdSpots);
 
 
         return Optional.of(createdSpots.stream().map(mapper::fromEntityToDto).toList());
@@ -113,8 +131,12 @@ public class VehicleSpotService {
             throw new RuntimeException("Vehicle spot not found with given id : " + id);
         };
         VehicleSpot vehicleSpotToUpdate =  vehicleSpotRepository.findById(id).get();
+        String previousParkingLotName = vehicleSpotToUpdate.getParkingLotName();
+        VehicleSpotCategory previousCategory = vehicleSpotToUpdate.getVehicleSpotCategory();
         VehicleSpot updatedSpot = (VehicleSpot) Utils.fromUpdateDtoToEntity(vehicleSpotToUpdate, dto);
-        return Optional.of(vehicleSpotRepository.save(updatedSpot)).map(mapper::fromEntityToDto);
+        VehicleSpot saved = vehicleSpotRepository.save(updatedSpot);
+        eventBus.publish(VehicleSpotEvent.changed(VehicleSpotEvent.Type.UPDATED, previousParkingLotName, previousCategory, saved));
+        return Optional.of(saved).map(mapper::fromEntityToDto);
     }
 
     /**
@@ -133,6 +155,9 @@ public class VehicleSpotService {
         if (Utils.isRecordInTheDatabase(recordToDelete.getId(), vehicleSpotRepository)){
             throw new RuntimeException("delete of the record with given id " + id + " has failed");
         }
+        availabilityIndex.removeSpot(recordToDelete.getId());
+        vehicleSpotClaimRepository.deleteById(recordToDelete.getId());
+        eventBus.publish(VehicleSpotEvent.of(VehicleSpotEvent.Type.DELETED, recordToDelete));
         return true;
     }
 
@@ -162,10 +187,13 @@ public class VehicleSpotService {
         if (currentVehicleSpot >= parkingLot.getVehicleSpotNumber()) {
             throw new RuntimeException("Cannot reassign slot. Parking Lot '" + newParkingLotId + "' has reached maximum capacity.");
         }
+        String previousParkingLotName = vehicleSpot.getParkingLotName();
         vehicleSpot.setParkingLotId(parkingLot.getId());
         vehicleSpot.setParkingLotName(parkingLot.getName());
 
         VehicleSpot updatedSpot = vehicleSpotRepository.save(vehicleSpot);
+        eventBus.publish(VehicleSpotEvent.changed(VehicleSpotEvent.Type.MOVED, previousParkingLotName,
+                updatedSpot.getVehicleSpotCategory(), updatedSpot));
         return mapper.fromEntityToDto(updatedSpot);
     }
 }
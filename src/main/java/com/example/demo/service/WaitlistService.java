@@ -0,0 +1,244 @@
+package com.example.demo.service;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.WaitlistState;
+import com.example.demo.model.dto.appointment.WaitlistEntryResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.model.entities.WaitlistEntry;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.WaitlistEntryRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.waitlist.Waitlist;
+import com.example.demo.utils.DateUtilities;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class WaitlistService {
+    @Autowired
+    private Waitlist waitlist;
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+    @Autowired
+    private VehicleSpotClaimRepository vehicleSpotClaimRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private DomainEventBus eventBus;
+
+    /**
+     * <p>Mette in lista d'attesa una richiesta che non ha trovato posto</p>
+     *
+     * @param appointment prenotazione richiesta, con date UTC, parcheggio e categoria
+     * @param priority priorità della richiesta, più alta viene servita prima
+     * @param zoneIdFromClient zona oraria del client per la conversione delle date
+     * @return {@link WaitlistEntryResponseDto} con la richiesta in attesa
+     */
+    public WaitlistEntryResponseDto enqueue(Appointment appointment, int priority, String zoneIdFromClient) {
+        WaitlistEntry entry = waitlistEntryRepository.insert(newEntry(appointment, priority));
+        waitlist.add(entry);
+        return toDto(entry, zoneIdFromClient);
+    }
+
+    /**
+     * <p>Registra come gia assegnata una richiesta che ha trovato posto al momento dell'iscrizione</p>
+     *
+     * @param appointment prenotazione salvata
+     * @param priority priorità della richiesta
+     * @param zoneIdFromClient zona oraria del client per la conversione delle date
+     * @return {@link WaitlistEntryResponseDto} in stato {@code ASSIGNED}
+     */
+    public WaitlistEntryResponseDto recordAssigned(Appointment appointment, int priority, String zoneIdFromClient) {
+        WaitlistEntry entry = newEntry(appointment, priority);
+        entry.setWaitlistState(WaitlistState.ASSIGNED);
+        entry.setAppointmentId(appointment.getId());
+        return toDto(waitlistEntryRepository.insert(entry), zoneIdFromClient);
+    }
+
+    /**
+     * <p>Restituisce lo stato di una richiesta in lista d'attesa</p>
+     *
+     * @param id ID della richiesta
+     * @param zoneIdFromClient zona oraria del client per la conversione delle date
+     * @return {@link WaitlistEntryResponseDto} con lo stato e l'eventuale prenotazione assegnata
+     */
+    public Optional<Object> getWaitlistEntry(String id, String zoneIdFromClient) {
+        return waitlist.get(id)
+                .or(() -> waitlistEntryRepository.findById(id))
+                .map(entry -> toDto(entry, zoneIdFromClient));
+    }
+
+    /**
+     * <p>Toglie una richiesta dalla lista d'attesa</p>
+     *
+     * @param id ID della richiesta
+     * @return {@code true} se la richiesta è stata tolta
+     * @throws RuntimeException se la richiesta non è più in attesa
+     */
+    public boolean leaveWaitlist(String id) {
+        if (!waitlist.take(id)
+                || !waitlistEntryRepository.updateState(id, WaitlistState.WAITING, WaitlistState.CANCELED)) {
+            throw new RuntimeException("waitlist entry not found or no longer waiting with given id : " + id);
+        }
+        return true;
+    }
+
+    /**
+     * <p>Assegna il posto liberato da una prenotazione alle richieste in attesa che si sovrappongono
+     * all'intervallo liberato</p>
+     * <p>Il posto e ricostruito dalla prenotazione, senza rileggere i posti dal database.</p>
+     */
+    public void onSpotFreed(Appointment freed) {
+        if (freed.getVehicleSpotId() == null || waitlist.size() == 0) {
+            return;
+        }
+        VehicleSpot spot = VehicleSpot.builder()
+                .id(freed.getVehicleSpotId())
+                .parkingLotName(freed.getParkingLotName())
+                .vehicleSpotCategory(freed.getVehicleSpotCategory())
+                .build();
+        assign(spot, waitlist.candidates(freed.getParkingLotName(), freed.getVehicleSpotCategory(),
+                freed.getInitialDate(), freed.getEndingDate()));
+    }
+
+    /**
+     * <p>Assegna i posti appena creati (aumento di capienza) alle richieste in attesa</p>
+     */
+    public void onSpotsAdded(List<VehicleSpot> spots) {
+        if (waitlist.size() == 0) {
+            return;
+        }
+        spots.forEach(spot -> assign(spot, waitlist.all(spot.getParkingLotName(), spot.getVehicleSpotCategory())));
+    }
+
+    /**
+     * <p>Scarta le richieste in attesa che sarebbero gia iniziate</p>
+     */
+    public void expireWaiting(LocalDateTime now) {
+        List<WaitlistEntry> expired = waitlist.removeStartingBefore(now);
+        waitlistEntryRepository.updateStates(expired.stream().map(WaitlistEntry::getId).toList(),
+                WaitlistState.WAITING, WaitlistState.EXPIRED);
+    }
+
+    /**
+     * <p>Un solo passaggio sulle richieste candidate per un posto</p>
+     * <p>Ogni richiesta che entra nel posto viene prima tolta dalla coda (un passaggio concorrente non puo
+     * assegnarla due volte) e portata da {@code WAITING} ad {@code ASSIGNED} con un aggiornamento condizionato
+     * sul database: se un'altra istanza l'ha gia assegnata, cancellata o fatta scadere viene scartata. Poi viene
+     * riservata sulla linea temporale del posto; quelle che non entrano tornano {@code WAITING} e in coda nella
+     * stessa posizione. Le riserve sul database e le prenotazioni vengono scritte con una scrittura bulk
+     * ciascuna.</p>
+     */
+    private void assign(VehicleSpot spot, List<WaitlistEntry> candidates) {
+        Map<String, WaitlistEntry> entryByAppointment = new HashMap<>();
+        List<Appointment> claimed = new ArrayList<>();
+        for (WaitlistEntry entry : candidates) {
+            // controllo senza riserva: evita il doppio aggiornamento per le richieste che non entrano
+            if (!availabilityIndex.isAvailable(spot, entry.getInitialDate(), entry.getEndingDate())
+                    || !waitlist.take(entry.getId())) {
+                continue;
+            }
+            if (!waitlistEntryRepository.updateState(entry.getId(), WaitlistState.WAITING, WaitlistState.ASSIGNED)) {
+                continue;
+            }
+            Appointment appointment = Appointment.builder()
+                    .id(new ObjectId().toHexString())
+                    .vehicleSpotId(spot.getId())
+                    .parkingLotName(spot.getParkingLotName())
+                    .vehicleSpotCategory(spot.getVehicleSpotCategory())
+                    .initialDate(entry.getInitialDate())
+                    .endingDate(entry.getEndingDate())
+                    .appointmentState(AppointmentState.VALID)
+                    .createdAt(LocalDateTime.now(ZoneOffset.UTC))
+                    .build();
+            if (availabilityIndex.tryClaim(spot, appointment)) {
+                claimed.add(appointment);
+                entryByAppointment.put(appointment.getId(), entry);
+            } else {
+                requeue(entry);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Set<String> rejected = vehicleSpotClaimRepository.tryClaimAll(claimed);
+        claimed.removeIf(appointment -> {
+            if (!rejected.contains(appointment.getId())) {
+                return false;
+            }
+            availabilityIndex.unregister(appointment);
+            requeue(entryByAppointment.get(appointment.getId()));
+            return true;
+        });
+
+        Set<String> notInserted = appointmentRepository.insertAllUnordered(claimed);
+        List<WaitlistEntry> assigned = new ArrayList<>();
+        for (Appointment appointment : claimed) {
+            WaitlistEntry entry = entryByAppointment.get(appointment.getId());
+            if (notInserted.contains(appointment.getId())) {
+                availabilityIndex.unregister(appointment);
+                vehicleSpotClaimRepository.release(appointment.getVehicleSpotId(), appointment.getId());
+                requeue(entry);
+                continue;
+            }
+            entry.setWaitlistState(WaitlistState.ASSIGNED);
+            entry.setAppointmentId(appointment.getId());
+            assigned.add(entry);
+            eventBus.publish(AppointmentEvent.of(AppointmentEvent.Type.CREATED, appointment));
+        }
+        if (!assigned.isEmpty()) {
+            waitlistEntryRepository.saveAll(assigned);
+        }
+    }
+
+    /**
+     * <p>Rimette in attesa una richiesta portata ad {@code ASSIGNED} che non ha ottenuto il posto</p>
+     */
+    private void requeue(WaitlistEntry entry) {
+        if (waitlistEntryRepository.updateState(entry.getId(), WaitlistState.ASSIGNED, WaitlistState.WAITING)) {
+            waitlist.add(entry);
+        }
+    }
+
+    private WaitlistEntry newEntry(Appointment appointment, int priority) {
+        return WaitlistEntry.builder()
+                .id(new ObjectId().toHexString())
+                .parkingLotName(appointment.getParkingLotName())
+                .vehicleSpotCategory(appointment.getVehicleSpotCategory())
+                .initialDate(appointment.getInitialDate())
+                .endingDate(appointment.getEndingDate())
+                .priority(priority)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private WaitlistEntryResponseDto toDto(WaitlistEntry entry, String zoneIdFromClient) {
+        return WaitlistEntryResponseDto.builder()
+                .id(entry.getId())
+                .parkingLotName(entry.getParkingLotName())
+                .vehicleSpotCategory(entry.getVehicleSpotCategory())
+                .initialDate(DateUtilities.convertToZone(entry.getInitialDate(), zoneIdFromClient))
+                .endingDate(DateUtilities.convertToZone(entry.getEndingDate(), zoneIdFromClient))
+                .priority(entry.getPriority())
+                .waitlistState(entry.getWaitlistState())
+                .appointmentId(entry.getAppointmentId())
+                .build();
+    }
+}
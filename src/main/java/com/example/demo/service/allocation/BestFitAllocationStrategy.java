@@ -0,0 +1,54 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Posto con il buco libero piu piccolo che contiene la prenotazione</p>
+ * <p>I buchi grandi, e i posti ancora vuoti, restano disponibili per le prenotazioni lunghe che
+ * altrimenti verrebbero respinte pur essendoci tempo libero complessivo.</p>
+ */
+@Component
+public class BestFitAllocationStrategy implements SpotAllocationStrategy {
+
+    /**
+     * Buco aperto da almeno un lato o posto occupato: in coda, nell'ordine naturale.
+     */
+    private static final Duration OPEN = Duration.ofSeconds(Long.MAX_VALUE);
+
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+
+    @Override
+    public SpotAllocationMode getMode() {
+        return SpotAllocationMode.BEST_FIT;
+    }
+
+    @Override
+    public List<VehicleSpot> order(List<VehicleSpot> candidates, LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, Duration[]> fit = candidates.stream()
+                .collect(Collectors.toMap(VehicleSpot::getId,
+                        spot -> availabilityIndex.gapAround(spot.getId(), startDate, endDate)
+                                .map(gap -> new Duration[]{
+                                        Optional.ofNullable(gap.length()).orElse(OPEN),
+                                        Optional.ofNullable(gap.closestSlack(startDate, endDate)).orElse(OPEN)})
+                                .orElse(new Duration[]{OPEN, OPEN}),
+                        (first, second) -> first));
+        // a parita di buco (tipicamente aperto) si preferisce il posto dove la prenotazione si accosta di piu
+        return candidates.stream()
+                .sorted(Comparator.<VehicleSpot, Duration>comparing(spot -> fit.get(spot.getId())[0])
+                        .thenComparing(spot -> fit.get(spot.getId())[1]))
+                .toList();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.VehicleSpot;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Primo posto libero nell'ordine naturale dei posti (comportamento storico)</p>
+ */
+@Component
+public class FirstFitAllocationStrategy implements SpotAllocationStrategy {
+
+    @Override
+    public SpotAllocationMode getMode() {
+        return SpotAllocationMode.FIRST_FIT;
+    }
+
+    @Override
+    public List<VehicleSpot> order(List<VehicleSpot> candidates, LocalDateTime startDate, LocalDateTime endDate) {
+        return candidates;
+    }
+}
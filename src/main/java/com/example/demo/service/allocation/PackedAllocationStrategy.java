@@ -0,0 +1,50 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.availability.SpotGap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Posto in cui la prenotazione si accosta di piu a una prenotazione esistente</p>
+ * <p>Le linee temporali gia usate vengono riempite senza lasciare ritagli e i posti vuoti si toccano
+ * solo quando nessun posto occupato ha spazio, cosi restano interi per le prenotazioni lunghe.</p>
+ */
+@Component
+public class PackedAllocationStrategy implements SpotAllocationStrategy {
+
+    /**
+     * Posto vuoto o occupato: in coda, nell'ordine naturale.
+     */
+    private static final Duration OPEN = Duration.ofSeconds(Long.MAX_VALUE);
+
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+
+    @Override
+    public SpotAllocationMode getMode() {
+        return SpotAllocationMode.PACKED;
+    }
+
+    @Override
+    public List<VehicleSpot> order(List<VehicleSpot> candidates, LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, Duration> slack = candidates.stream()
+                .collect(Collectors.toMap(VehicleSpot::getId,
+                        spot -> availabilityIndex.gapAround(spot.getId(), startDate, endDate)
+                                .map(gap -> gap.closestSlack(startDate, endDate))
+                                .orElse(OPEN),
+                        (first, second) -> first));
+        return candidates.stream()
+                .sorted(Comparator.comparing(spot -> slack.get(spot.getId())))
+                .toList();
+    }
+}
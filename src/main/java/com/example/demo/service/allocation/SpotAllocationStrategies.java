@@ -0,0 +1,53 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.repository.ParkingLotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Registro delle {@link SpotAllocationStrategy} disponibili e scelta della strategia di un parcheggio</p>
+ * <p>Il criterio di ogni parcheggio viene letto una volta e tenuto in memoria; va invalidato con
+ * {@link #evict(String)} quando il parcheggio cambia criterio o viene cancellato.</p>
+ */
+@Component
+public class SpotAllocationStrategies {
+
+    private final Map<SpotAllocationMode, SpotAllocationStrategy> strategies = new EnumMap<>(SpotAllocationMode.class);
+    private final Map<String, SpotAllocationMode> modeByParkingLot = new ConcurrentHashMap<>();
+    private final ParkingLotRepository parkingLotRepository;
+
+    @Autowired
+    public SpotAllocationStrategies(List<SpotAllocationStrategy> strategies, ParkingLotRepository parkingLotRepository) {
+        strategies.forEach(strategy -> this.strategies.put(strategy.getMode(), strategy));
+        this.parkingLotRepository = parkingLotRepository;
+    }
+
+    public SpotAllocationStrategy get(SpotAllocationMode mode) {
+        SpotAllocationStrategy strategy = strategies.get(mode == null ? SpotAllocationMode.FIRST_FIT : mode);
+        if (strategy == null) {
+            throw new RuntimeException("allocation mode not supported: " + mode);
+        }
+        return strategy;
+    }
+
+    /**
+     * <p>Strategia del parcheggio; {@code FIRST_FIT} se il parcheggio non esiste o non ha un criterio</p>
+     */
+    public SpotAllocationStrategy forParkingLot(String parkingLotName) {
+        // il nome del parcheggio e cercato senza distinzione di maiuscole
+        return get(modeByParkingLot.computeIfAbsent(parkingLotName.toLowerCase(), name -> parkingLotRepository.findByName(parkingLotName)
+                .map(ParkingLot::getAllocationMode)
+                .orElse(SpotAllocationMode.FIRST_FIT)));
+    }
+
+    public void evict(String parkingLotName) {
+        modeByParkingLot.remove(parkingLotName.toLowerCase());
+    }
+}
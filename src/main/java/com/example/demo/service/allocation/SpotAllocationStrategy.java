@@ -0,0 +1,28 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.VehicleSpot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Strategia di assegnazione dei posti veicolo di un parcheggio</p>
+ * <p>Una strategia non riserva nulla: ordina i posti candidati per preferenza e la riserva avviene
+ * poi con {@link com.example.demo.service.availability.SpotAvailabilityIndex#claimFirstAvailable}
+ * seguendo quell'ordine. I posti occupati possono restare nella lista, verranno scartati dalla riserva.</p>
+ * <p>Le implementazioni sono bean Spring; quella usata da un parcheggio si sceglie con
+ * {@link com.example.demo.model.entities.ParkingLot#getAllocationMode()}.</p>
+ */
+public interface SpotAllocationStrategy {
+
+    SpotAllocationMode getMode();
+
+    /**
+     * @param candidates posti della categoria richiesta, nell'ordine naturale
+     * @param startDate data di inizio della prenotazione (UTC)
+     * @param endDate data di fine della prenotazione (UTC)
+     * @return i posti nell'ordine in cui provare a riservarli
+     */
+    List<VehicleSpot> order(List<VehicleSpot> candidates, LocalDateTime startDate, LocalDateTime endDate);
+}
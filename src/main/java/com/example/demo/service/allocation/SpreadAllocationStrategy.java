@@ -0,0 +1,59 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.availability.SpotGap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>Distribuisce i tentativi di riserva sui posti per ridurre la contesa sotto carico</p>
+ * <p>Con l'ordine naturale tutte le richieste concorrenti provano gli stessi primi posti e quelle che
+ * perdono il compare-and-set ripartono dal successivo. Qui ogni richiesta sceglie due posti a caso e
+ * prova per primo quello con meno prenotazioni (power of two choices), poi prosegue in ordine circolare
+ * da quel punto, cosi le richieste partono da punti diversi della lista.</p>
+ */
+@Component
+public class SpreadAllocationStrategy implements SpotAllocationStrategy {
+
+    @Autowired
+    private SpotAvailabilityIndex availabilityIndex;
+
+    @Override
+    public SpotAllocationMode getMode() {
+        return SpotAllocationMode.SPREAD;
+    }
+
+    @Override
+    public List<VehicleSpot> order(List<VehicleSpot> candidates, LocalDateTime startDate, LocalDateTime endDate) {
+        int size = candidates.size();
+        if (size < 2) {
+            return candidates;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size);
+        int start = load(candidates.get(second), startDate, endDate) < load(candidates.get(first), startDate, endDate) ? second : first;
+
+        List<VehicleSpot> ordered = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ordered.add(candidates.get((start + i) % size));
+        }
+        return ordered;
+    }
+
+    /**
+     * Prenotazioni del posto, {@code Integer.MAX_VALUE} se e occupato nell'intervallo.
+     */
+    private int load(VehicleSpot spot, LocalDateTime startDate, LocalDateTime endDate) {
+        return availabilityIndex.gapAround(spot.getId(), startDate, endDate)
+                .map(SpotGap::bookings)
+                .orElse(Integer.MAX_VALUE);
+    }
+}
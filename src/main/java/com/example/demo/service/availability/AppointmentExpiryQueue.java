@@ -0,0 +1,156 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.model.entities.Appointment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Coda delle prossime scadenze delle prenotazioni, ordinata per data di fine</p>
+ * <p>Viene riempita da {@link SpotAvailabilityIndex} al caricamento e ad ogni riserva o rimozione, cosi
+ * contiene sempre le prenotazioni presenti nell'indice. Un thread dedicato attende la prima scadenza
+ * su una {@link DelayQueue} e consegna alla callback tutte quelle gia dovute in un solo lotto: lo
+ * stato cambia appena la prenotazione termina, senza interrogare il database quando non scade nulla.</p>
+ * <p>Una cancellazione toglie subito l'elemento dalla coda e una modifica delle date sostituisce quello
+ * precedente, cosi la coda non trattiene le prenotazioni cancellate o spostate. Se una cancellazione si
+ * incrocia con una nuova pianificazione dello stesso id l'elemento rimasto non corrisponde piu a quello
+ * registrato per l'id e viene scartato quando scade.</p>
+ */
+@Component
+public class AppointmentExpiryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentExpiryQueue.class);
+
+    private static final class Due implements Delayed {
+        private final Appointment appointment;
+        private final long dueAtMillis;
+
+        private Due(Appointment appointment) {
+            this.appointment = appointment;
+            Instant dueAt = appointment.getEndingDate().toInstant(ZoneOffset.UTC);
+            // arrotondato per eccesso: mai prima della data di fine, che deve risultare <= adesso
+            this.dueAtMillis = dueAt.toEpochMilli() + (dueAt.getNano() % 1_000_000 == 0 ? 0 : 1);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Due) other).dueAtMillis);
+        }
+    }
+
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+    private final Map<String, Due> scheduled = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    /**
+     * <p>Pianifica la scadenza della prenotazione alla sua data di fine, sostituendo quella precedente</p>
+     * <p>Viene conservata una copia di id, posto, parcheggio, categoria e date (UTC).</p>
+     */
+    public void schedule(Appointment appointment) {
+        Due due = new Due(Appointment.builder()
+                .id(appointment.getId())
+                .vehicleSpotId(appointment.getVehicleSpotId())
+                .parkingLotName(appointment.getParkingLotName())
+                .vehicleSpotCategory(appointment.getVehicleSpotCategory())
+                .initialDate(appointment.getInitialDate())
+                .endingDate(appointment.getEndingDate())
+                .build());
+        Due previous = scheduled.put(appointment.getId(), due);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.add(due);
+    }
+
+    /**
+     * <p>Annulla la scadenza pianificata (cancellazione, eliminazione o riserva annullata)</p>
+     */
+    public void cancel(String appointmentId) {
+        Due due = scheduled.remove(appointmentId);
+        if (due != null) {
+            queue.remove(due);
+        }
+    }
+
+    /**
+     * <p>Avvia il thread che consegna a {@code onDue} le prenotazioni terminate, a lotti</p>
+     * <p>Ogni prenotazione consegnata contiene solo la copia fatta da {@link #schedule}. Un errore della callback
+     * viene registrato e il lotto resta alla riconciliazione periodica.</p>
+     */
+    public synchronized void start(Consumer<List<Appointment>> onDue) {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(() -> run(onDue), "appointment-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @return scadenze pianificate
+     */
+    public int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * @return elementi nella coda, compresi quelli non ancora scartati
+     */
+    int queued() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private void run(Consumer<List<Appointment>> onDue) {
+        List<Due> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+            List<Appointment> expired = new ArrayList<>(batch.size());
+            for (Due due : batch) {
+                // scarta gli elementi annullati o sostituiti da una nuova data di fine
+                if (scheduled.remove(due.appointment.getId(), due)) {
+                    expired.add(due.appointment);
+                }
+            }
+            batch.clear();
+            if (expired.isEmpty()) {
+                continue;
+            }
+            try {
+                onDue.accept(expired);
+            } catch (RuntimeException e) {
+                log.warn("Scadenza di {} prenotazioni non riuscita, resta alla riconciliazione: {}", expired.size(), e.getMessage());
+            }
+        }
+    }
+}
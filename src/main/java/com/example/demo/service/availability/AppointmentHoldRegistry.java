@@ -0,0 +1,102 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.model.entities.Appointment;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Prenotazioni {@code HOLD} in attesa di conferma, tenute solo in memoria</p>
+ * <p>Ogni hold ha un timer dedicato sullo scheduler interno: alla scadenza viene tolto dal registro e
+ * passato alla callback di rilascio, senza attendere il task schedulato delle prenotazioni scadute.
+ * I timer annullati vengono rimossi subito dalla coda dello scheduler.</p>
+ * <p>Conferma, rilascio e scadenza si contendono la rimozione dalla mappa: vince solo il primo.</p>
+ */
+@Component
+public class AppointmentHoldRegistry {
+
+    private record Hold(Appointment appointment, Instant expiresAt, ScheduledFuture<?> expiry) {
+    }
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Duration ttl;
+
+    @Autowired
+    public AppointmentHoldRegistry(AppProperties appProperties) {
+        this(Duration.ofSeconds(appProperties.getHold().getTtlSeconds()));
+    }
+
+    AppointmentHoldRegistry(Duration ttl) {
+        this.ttl = ttl;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "appointment-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * <p>Registra l'hold; alla scadenza viene passato a {@code onExpiry} se nel frattempo non e stato
+     * confermato o rilasciato</p>
+     *
+     * @param appointment prenotazione con id, posto e stato {@code HOLD}
+     * @param onExpiry rilascio del posto trattenuto
+     * @return istante di scadenza
+     */
+    public Instant hold(Appointment appointment, Consumer<Appointment> onExpiry) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        // registrato prima del timer, cosi una scadenza immediata lo trova gia nella mappa
+        Hold registered = new Hold(appointment, expiresAt, null);
+        holds.put(appointment.getId(), registered);
+        ScheduledFuture<?> expiry = scheduler.schedule(() -> {
+            Hold expired = holds.remove(appointment.getId());
+            if (expired != null) {
+                onExpiry.accept(expired.appointment());
+            }
+        }, ttl.toMillis(), TimeUnit.MILLISECONDS);
+        holds.replace(appointment.getId(), registered, new Hold(appointment, expiresAt, expiry));
+        return expiresAt;
+    }
+
+    /**
+     * <p>Toglie l'hold dal registro e ne annulla la scadenza (conferma o rilascio)</p>
+     *
+     * @return la prenotazione trattenuta, oppure vuoto se non esiste o e gia scaduta
+     */
+    public Optional<Appointment> take(String appointmentId) {
+        Hold hold = holds.remove(appointmentId);
+        if (hold == null) {
+            return Optional.empty();
+        }
+        if (hold.expiry() != null) {
+            hold.expiry().cancel(false);
+        }
+        return Optional.of(hold.appointment());
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.model.entities.VehicleSpot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * <p>Ricerca delle prime finestre libere di una certa durata tra tutti i posti di un parcheggio</p>
+ * <p>Ogni posto contribuisce con un iteratore sui propri intervalli liberi; una coda con priorita tiene
+ * la prossima finestra utile di ogni posto, ordinata per data di inizio e poi per ordine del posto.
+ * Si estrae la minima, la si restituisce e si fa avanzare l'iteratore di quel posto al buco successivo:
+ * una sola passata, senza provare intervallo per intervallo.</p>
+ * <p>La ricerca si ferma al raggiungimento del numero di finestre richiesto o allo scadere del tempo
+ * concesso; nel secondo caso il risultato e parziale.</p>
+ */
+public final class EarliestWindowSearch {
+
+    /**
+     * Finestra libera trovata: il posto e l'intervallo prenotabile (UTC).
+     */
+    public record Window(VehicleSpot spot, LocalDateTime initialDate, LocalDateTime endingDate) {
+    }
+
+    /**
+     * @param windows finestre trovate, in ordine di inizio
+     * @param complete {@code false} se il tempo concesso e scaduto prima di trovarle tutte
+     */
+    public record Result(List<Window> windows, boolean complete) {
+    }
+
+    private record Candidate(LocalDateTime start, int order, VehicleSpot spot, Iterator<LocalDateTime[]> gaps) {
+    }
+
+    private static final Comparator<Candidate> EARLIEST = Comparator
+            .comparing(Candidate::start)
+            .thenComparingInt(Candidate::order);
+
+    private EarliestWindowSearch() {
+    }
+
+    /**
+     * @param spots posti in ordine di preferenza, usato a parita di inizio
+     * @param gapsOf intervalli liberi di un posto a partire da {@code from}
+     * @param from prima data di inizio ammessa (UTC)
+     * @param duration durata richiesta
+     * @param limit numero massimo di finestre
+     * @param budget tempo massimo della ricerca
+     */
+    static Result search(List<VehicleSpot> spots, Function<VehicleSpot, Iterator<LocalDateTime[]>> gapsOf,
+                         LocalDateTime from, Duration duration, int limit, Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Math.max(1, spots.size()), EARLIEST);
+        for (int order = 0; order < spots.size(); order++) {
+            if (System.nanoTime() > deadline) {
+                return new Result(List.of(), false);
+            }
+            Candidate candidate = nextFitting(order, spots.get(order), gapsOf.apply(spots.get(order)), duration, deadline);
+            if (candidate != null) {
+                queue.add(candidate);
+            }
+        }
+
+        List<Window> windows = new ArrayList<>(limit);
+        while (windows.size() < limit && !queue.isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                return new Result(windows, false);
+            }
+            Candidate earliest = queue.poll();
+            windows.add(new Window(earliest.spot(), earliest.start(), earliest.start().plus(duration)));
+            Candidate next = nextFitting(earliest.order(), earliest.spot(), earliest.gaps(), duration, deadline);
+            if (next != null) {
+                queue.add(next);
+            }
+        }
+        return new Result(windows, true);
+    }
+
+    /**
+     * Primo buco del posto abbastanza lungo per la durata richiesta, {@code null} se non ce ne sono
+     * (o se il tempo e scaduto).
+     */
+    private static Candidate nextFitting(int order, VehicleSpot spot, Iterator<LocalDateTime[]> gaps,
+                                         Duration duration, long deadline) {
+        while (gaps.hasNext() && System.nanoTime() <= deadline) {
+            LocalDateTime[] gap = gaps.next();
+            if (gap[1] == null || !gap[0].plus(duration).isAfter(gap[1])) {
+                return new Candidate(gap[0], order, spot, gaps);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.config.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Calendario di occupazione a bitmap, raggruppato per parcheggio</p>
+ * <p>Ogni posto veicolo ha un bit per ogni intervallo di {@code app.calendar.bucket-minutes} minuti
+ * nei prossimi {@code app.calendar.horizon-days} giorni; il bit e acceso se almeno una prenotazione
+ * {@code VALID} tocca quell'intervallo. I bit sono tenuti in un buffer circolare di {@code long}:
+ * quando il tempo avanza gli intervalli passati vengono azzerati e riutilizzati per quelli futuri,
+ * quindi la memoria per posto e fissa.</p>
+ * <p>Il calendario e un filtro veloce: se tutti i bit della finestra sono spenti il posto e libero,
+ * altrimenti la verifica esatta resta a {@link SpotTimeline}. Viene aggiornato da
+ * {@link SpotAvailabilityIndex} insieme alle linee temporali.</p>
+ */
+@Component
+public class OccupancyCalendar {
+
+    /**
+     * Esito della verifica sul calendario.
+     */
+    public enum Probe {
+        /** nessun intervallo della finestra e occupato */
+        FREE,
+        /** almeno un intervallo e occupato (anche solo in parte) */
+        BUSY,
+        /** la finestra esce dall'orizzonte del calendario */
+        UNKNOWN
+    }
+
+    /** stima dell'overhead per posto: header dell'array, entry della mappa e chiave */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long bucketMinutes;
+    private final int capacity;
+    private final int words;
+    private final Map<String, Map<String, AtomicLongArray>> lots = new ConcurrentHashMap<>();
+    private volatile long origin;
+
+    @Autowired
+    public OccupancyCalendar(AppProperties appProperties) {
+        this(appProperties.getCalendar().getBucketMinutes(), appProperties.getCalendar().getHorizonDays(), LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    OccupancyCalendar(int bucketMinutes, int horizonDays, LocalDateTime now) {
+        this.bucketMinutes = bucketMinutes;
+        this.capacity = Math.toIntExact(horizonDays * 24L * 60L / bucketMinutes);
+        this.words = (capacity + 63) >>> 6;
+        this.origin = bucketOf(now);
+    }
+
+    /**
+     * <p>Accende i bit degli intervalli toccati da {@code [start, end]} (solo la parte dentro l'orizzonte)</p>
+     */
+    public void mark(String parkingLotName, String vehicleSpotId, LocalDateTime start, LocalDateTime end) {
+        long first = Math.max(bucketOf(start), origin);
+        long last = Math.min(bucketOf(end), origin + capacity - 1);
+        if (first > last) {
+            return;
+        }
+        AtomicLongArray bits = lots.computeIfAbsent(parkingLotName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(vehicleSpotId, id -> new AtomicLongArray(words));
+        update(bits, first, last, true);
+    }
+
+    /**
+     * <p>Spegne i bit degli intervalli toccati da {@code [start, end]}</p>
+     * <p>Chi chiama deve poi riaccendere gli intervalli ancora occupati da altre prenotazioni
+     * (vedi {@link SpotAvailabilityIndex#unregister}).</p>
+     */
+    public void clear(String parkingLotName, String vehicleSpotId, LocalDateTime start, LocalDateTime end) {
+        AtomicLongArray bits = bitsOf(parkingLotName, vehicleSpotId);
+        long first = Math.max(bucketOf(start), origin);
+        long last = Math.min(bucketOf(end), origin + capacity - 1);
+        if (bits == null || first > last) {
+            return;
+        }
+        update(bits, first, last, false);
+    }
+
+    /**
+     * <p>Verifica la finestra con una scansione a parole dei bit del posto</p>
+     */
+    public Probe probe(String parkingLotName, String vehicleSpotId, LocalDateTime start, LocalDateTime end) {
+        long first = bucketOf(start);
+        long last = bucketOf(end);
+        long currentOrigin = origin;
+        if (first < currentOrigin || last >= currentOrigin + capacity) {
+            return Probe.UNKNOWN;
+        }
+        AtomicLongArray bits = bitsOf(parkingLotName, vehicleSpotId);
+        if (bits == null) {
+            return Probe.FREE;
+        }
+        return anySet(bits, first, last) ? Probe.BUSY : Probe.FREE;
+    }
+
+    /**
+     * <p>Fa avanzare l'orizzonte fino all'intervallo che contiene {@code now}</p>
+     * <p>Gli intervalli usciti vengono azzerati; le loro posizioni rappresentano ora gli intervalli
+     * entrati in fondo all'orizzonte, che il chiamante deve ripopolare.</p>
+     *
+     * @return inizio del tratto entrato nell'orizzonte, oppure {@code null} se l'orizzonte non si e mosso
+     */
+    public synchronized LocalDateTime advanceTo(LocalDateTime now) {
+        long target = bucketOf(now);
+        long previous = origin;
+        if (target <= previous) {
+            return null;
+        }
+        long last = Math.min(target - 1, previous + capacity - 1);
+        lots.values().forEach(spots -> spots.values().forEach(bits -> update(bits, previous, last, false)));
+        origin = target;
+        return startOf(Math.max(previous + capacity, target));
+    }
+
+    /**
+     * @return fine (esclusa) dell'orizzonte corrente
+     */
+    public LocalDateTime horizonEnd() {
+        return startOf(origin + capacity);
+    }
+
+    public void removeParkingLot(String parkingLotName) {
+        lots.remove(parkingLotName);
+    }
+
+    public void removeSpot(String parkingLotName, String vehicleSpotId) {
+        Map<String, AtomicLongArray> spots = lots.get(parkingLotName);
+        if (spots != null) {
+            spots.remove(vehicleSpotId);
+        }
+    }
+
+    public long getBucketMinutes() {
+        return bucketMinutes;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return byte occupati dalla bitmap di un singolo posto
+     */
+    public long bitmapBytesPerSpot() {
+        return words * 8L;
+    }
+
+    /**
+     * @return stima della memoria per posto compreso l'overhead delle strutture
+     */
+    public long estimatedBytesPerSpot() {
+        return bitmapBytesPerSpot() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * @return numero di posti tracciati per ogni parcheggio
+     */
+    public Map<String, Integer> spotsByParkingLot() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        lots.forEach((name, spots) -> result.put(name, spots.size()));
+        return result;
+    }
+
+    private AtomicLongArray bitsOf(String parkingLotName, String vehicleSpotId) {
+        Map<String, AtomicLongArray> spots = lots.get(parkingLotName);
+        return spots == null ? null : spots.get(vehicleSpotId);
+    }
+
+    private long bucketOf(LocalDateTime instant) {
+        return Math.floorDiv(instant.toEpochSecond(ZoneOffset.UTC) / 60, bucketMinutes);
+    }
+
+    private LocalDateTime startOf(long bucket) {
+        return LocalDateTime.ofEpochSecond(bucket * bucketMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * <p>Accende o spegne i bit degli intervalli assoluti {@code [first, last]}, gestendo il giro del buffer</p>
+     */
+    private void update(AtomicLongArray bits, long first, long last, boolean set) {
+        int from = (int) Math.floorMod(first, (long) capacity);
+        int to = (int) Math.floorMod(last, (long) capacity);
+        if (from <= to) {
+            updateRange(bits, from, to, set);
+        } else {
+            updateRange(bits, from, capacity - 1, set);
+            updateRange(bits, 0, to, set);
+        }
+    }
+
+    private static void updateRange(AtomicLongArray bits, int from, int to, boolean set) {
+        for (int word = from >>> 6; word <= to >>> 6; word++) {
+            long mask = mask(word, from, to);
+            if (set) {
+                bits.getAndAccumulate(word, mask, (current, m) -> current | m);
+            } else {
+                bits.getAndAccumulate(word, ~mask, (current, m) -> current & m);
+            }
+        }
+    }
+
+    private boolean anySet(AtomicLongArray bits, long first, long last) {
+        int from = (int) Math.floorMod(first, (long) capacity);
+        int to = (int) Math.floorMod(last, (long) capacity);
+        if (from <= to) {
+            return anySetInRange(bits, from, to);
+        }
+        return anySetInRange(bits, from, capacity - 1) || anySetInRange(bits, 0, to);
+    }
+
+    private static boolean anySetInRange(AtomicLongArray bits, int from, int to) {
+        for (int word = from >>> 6; word <= to >>> 6; word++) {
+            if ((bits.get(word) & mask(word, from, to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Maschera dei bit di {@code word} compresi tra le posizioni {@code from} e {@code to}</p>
+     */
+    private static long mask(int word, int from, int to) {
+        int low = word == from >>> 6 ? from & 63 : 0;
+        int high = word == to >>> 6 ? to & 63 : 63;
+        return (-1L >>> (63 - (high - low))) << low;
+    }
+}
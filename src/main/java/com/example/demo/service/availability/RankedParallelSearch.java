@@ -0,0 +1,145 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Esegue in parallelo ricerche ordinate per preferenza e restituisce il primo risultato accettabile
+ * in ordine di preferenza, non il primo che arriva</p>
+ * <p>Il risultato di rango {@code k} e definitivo quando tutte le ricerche di rango inferiore sono terminate
+ * senza risultato: a quel punto le ricerche ancora in corso o in coda vengono annullate.</p>
+ * <p>Le ricerche girano su un pool limitato con coda limitata; a coda piena la ricerca viene eseguita dal
+ * thread chiamante, cosi un picco di richieste rallenta i chiamanti invece di accumulare lavoro.</p>
+ */
+@Component
+public class RankedParallelSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(RankedParallelSearch.class);
+
+    /**
+     * @param rank posizione della ricerca nell'ordine di preferenza
+     * @param value risultato della ricerca
+     * @param complete {@code false} se il tempo e scaduto: il risultato e il migliore noto, non per forza il migliore
+     * @param canceled ricerche annullate perche non piu necessarie
+     */
+    public record Ranked<T>(int rank, T value, boolean complete, int canceled) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    @Autowired
+    public RankedParallelSearch(AppProperties appProperties) {
+        this(appProperties.getSearch().getParallelism(), appProperties.getSearch().getQueueCapacity(),
+                Duration.ofMillis(appProperties.getSearch().getCrossLotTimeoutMillis()));
+    }
+
+    RankedParallelSearch(int parallelism, int queueCapacity, Duration timeout) {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ranked-search-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param searches ricerche in ordine di preferenza; un risultato vuoto o un errore significa "non accettabile"
+     * @return il risultato accettabile di rango minimo, oppure vuoto se nessuna ricerca ha trovato qualcosa
+     */
+    public <T> Optional<Ranked<T>> first(List<Callable<Optional<T>>> searches) {
+        int size = searches.size();
+        ExecutorCompletionService<Optional<T>> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<Optional<T>>, Integer> ranks = new IdentityHashMap<>();
+        List<Future<Optional<T>>> futures = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            Future<Optional<T>> future = completion.submit(searches.get(rank));
+            ranks.put(future, rank);
+            futures.add(future);
+        }
+
+        List<Optional<T>> results = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            results.add(null);
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int best = size;
+        int resolved = 0;
+        boolean complete = true;
+        int canceled = 0;
+        try {
+            while (resolved < size && resolved != best) {
+                Future<Optional<T>> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    complete = false;
+                    break;
+                }
+                int rank = ranks.get(done);
+                Optional<T> result = outcome(done);
+                results.set(rank, result);
+                if (result.isPresent() && rank < best) {
+                    best = rank;
+                }
+                // avanza sulle ricerche di rango minimo gia terminate senza risultato
+                while (resolved < size && results.get(resolved) != null && results.get(resolved).isEmpty()) {
+                    resolved++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete = false;
+        } finally {
+            for (Future<Optional<T>> future : futures) {
+                if (!future.isDone() && future.cancel(true)) {
+                    canceled++;
+                }
+            }
+        }
+        if (best == size) {
+            return Optional.empty();
+        }
+        return Optional.of(new Ranked<>(best, results.get(best).get(), complete, canceled));
+    }
+
+    private static <T> Optional<T> outcome(Future<Optional<T>> future) {
+        try {
+            Optional<T> result = future.get();
+            return result == null ? Optional.empty() : result;
+        } catch (ExecutionException e) {
+            log.warn("Ricerca fallita: {}", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
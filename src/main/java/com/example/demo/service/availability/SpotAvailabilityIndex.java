@@ -0,0 +1,361 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.utils.DateUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Indice in memoria della disponibilita dei posti veicolo</p>
+ * <p>Per ogni {@link VehicleSpot} mantiene una {@link SpotTimeline} con le prenotazioni {@code VALID},
+ * caricata all'avvio e aggiornata da {@link com.example.demo.service.AppointmentService} ad ogni
+ * creazione, modifica, cancellazione e scadenza.</p>
+ * <p>Accanto alle linee temporali tiene aggiornato l'{@link OccupancyCalendar}, usato come primo filtro
+ * nella ricerca dei posti liberi, e l'{@link AppointmentExpiryQueue} con la data di fine di ogni
+ * prenotazione registrata.</p>
+ * <p>Finche il caricamento iniziale non e completato le verifiche vengono delegate al database.</p>
+ */
+@Component
+public class SpotAvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotAvailabilityIndex.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private OccupancyCalendar calendar;
+    @Autowired
+    private AppointmentExpiryQueue expiryQueue;
+
+    private final Map<String, SpotTimeline> timelines = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder claimRetries = new LongAdder();
+
+    /**
+     * <p>Carica tutte le prenotazioni {@code VALID} all'avvio dell'applicazione</p>
+     * <p>Se il database non e raggiungibile l'indice resta disattivato e le verifiche usano le query</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            List<Appointment> validAppointments = appointmentRepository.findByAppointmentState(AppointmentState.VALID);
+            validAppointments.forEach(this::register);
+            ready = true;
+            log.info("Indice disponibilita caricato: {} prenotazioni su {} posti, calendario {} byte per posto",
+                    validAppointments.size(), timelines.size(), calendar.estimatedBytesPerSpot());
+        } catch (RuntimeException e) {
+            log.warn("Impossibile caricare l'indice disponibilita, uso le query sul database: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return riserve riuscite con {@link #claimFirstAvailable} dall'avvio
+     */
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    /**
+     * @return tentativi di riserva persi su posti che risultavano liberi (contesa con altre richieste,
+     * in memoria o sul database) dall'avvio
+     */
+    public long getClaimRetries() {
+        return claimRetries.sum();
+    }
+
+    /**
+     * <p>Verifica se il posto veicolo e libero nell'intervallo indicato (date UTC)</p>
+     *
+     * @param vehicleSpotId id del posto veicolo
+     * @param startDate data di inizio
+     * @param endDate data di fine
+     * @return {@code true} se nessuna prenotazione valida si sovrappone all'intervallo
+     */
+    public boolean isAvailable(String vehicleSpotId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!ready) {
+            return DateUtilities.isTheVehicleSpotAvailable(vehicleSpotId, startDate, endDate, appointmentRepository);
+        }
+        SpotTimeline timeline = timelines.get(vehicleSpotId);
+        return timeline == null || timeline.isFree(startDate, endDate);
+    }
+
+    /**
+     * <p>Come {@link #isAvailable(String, LocalDateTime, LocalDateTime)}, ma consulta prima il calendario
+     * del parcheggio: se tutti gli intervalli della finestra sono liberi non serve la linea temporale</p>
+     */
+    public boolean isAvailable(VehicleSpot spot, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!ready) {
+            return isAvailable(spot.getId(), startDate, endDate);
+        }
+        SpotTimeline timeline = timelines.get(spot.getId());
+        if (timeline == null) {
+            return true;
+        }
+        // il calendario e indicizzato con il parcheggio registrato nella linea temporale
+        OccupancyCalendar.Probe probe = calendar.probe(timeline.getParkingLotName(), spot.getId(), startDate, endDate);
+        return probe == OccupancyCalendar.Probe.FREE || timeline.isFree(startDate, endDate);
+    }
+
+    /**
+     * <p>Restituisce il buco libero del posto che contiene l'intervallo, usato dalle strategie di
+     * assegnazione dei posti</p>
+     * <p>Senza indice caricato, o per un posto senza prenotazioni, il buco e aperto da entrambi i lati.</p>
+     *
+     * @return il buco libero, oppure vuoto se il posto e occupato nell'intervallo
+     */
+    public Optional<SpotGap> gapAround(String vehicleSpotId, LocalDateTime startDate, LocalDateTime endDate) {
+        SpotTimeline timeline = ready ? timelines.get(vehicleSpotId) : null;
+        if (timeline == null) {
+            return Optional.of(new SpotGap(null, null, 0));
+        }
+        return Optional.ofNullable(timeline.gapAround(startDate, endDate));
+    }
+
+    /**
+     * <p>Prime finestre libere di durata {@code duration} tra i posti indicati, a partire da {@code from}</p>
+     * <p>Vedi {@link EarliestWindowSearch}; un posto senza prenotazioni e libero da {@code from}.</p>
+     *
+     * @param spots posti in ordine di preferenza
+     * @param from prima data di inizio ammessa (UTC)
+     * @param duration durata richiesta
+     * @param limit numero massimo di finestre
+     * @param budget tempo massimo della ricerca
+     * @throws RuntimeException se l'indice non e ancora caricato
+     */
+    public EarliestWindowSearch.Result findEarliestWindows(List<VehicleSpot> spots, LocalDateTime from, Duration duration,
+                                                          int limit, Duration budget) {
+        if (!ready) {
+            throw new RuntimeException("availability index not loaded yet, please retry later");
+        }
+        SpotTimeline empty = new SpotTimeline(null);
+        return EarliestWindowSearch.search(spots,
+                spot -> timelines.getOrDefault(spot.getId(), empty).freeWindowsFrom(from),
+                from, duration, limit, budget);
+    }
+
+    /**
+     * <p>Restituisce tutti i posti liberi nell'intervallo</p>
+     */
+    public List<VehicleSpot> filterAvailable(List<VehicleSpot> spots, LocalDateTime startDate, LocalDateTime endDate) {
+        return spots.stream()
+                .filter(availabilityFilter(spots, startDate, endDate))
+                .toList();
+    }
+
+    /**
+     * <p>Riserva il primo posto libero della lista per la prenotazione, seguendo l'ordine della lista</p>
+     * <p>Ogni tentativo e un compare-and-set sulla linea temporale del singolo posto: due richieste
+     * concorrenti si contendono solo se puntano allo stesso posto e chi perde passa al successivo.</p>
+     * <p>Dopo la riserva locale il posto viene confermato con {@code confirm} (la riserva sul database
+     * condivisa tra le istanze); se la conferma fallisce la riserva locale viene annullata e si prova
+     * il posto successivo.</p>
+     * <p>La prenotazione deve avere gia un id; le date sono quelle UTC della prenotazione.</p>
+     *
+     * @param spots posti candidati in ordine di preferenza
+     * @param appointment prenotazione da collocare
+     * @param confirm conferma del posto riservato localmente
+     * @return il posto riservato, oppure vuoto se nessun posto e libero
+     */
+    public Optional<VehicleSpot> claimFirstAvailable(List<VehicleSpot> spots, Appointment appointment, Predicate<VehicleSpot> confirm) {
+        Predicate<VehicleSpot> available = availabilityFilter(spots, appointment.getInitialDate(), appointment.getEndingDate());
+        for (VehicleSpot spot : spots) {
+            if (!available.test(spot)) {
+                continue;
+            }
+            // da qui in poi un fallimento e una contesa persa: il posto sembrava libero
+            if (tryClaim(spot, appointment)) {
+                if (confirm.test(spot)) {
+                    claims.increment();
+                    return Optional.of(spot);
+                }
+                release(spot, appointment);
+            }
+            claimRetries.increment();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Riserva in modo atomico il posto per la prenotazione se nessun'altra vi si sovrappone</p>
+     * <p>La riserva va annullata con {@link #unregister(Appointment)} se il salvataggio fallisce.</p>
+     *
+     * @return {@code true} se il posto e stato riservato
+     */
+    public boolean tryClaim(VehicleSpot spot, Appointment appointment) {
+        SpotTimeline timeline = timelines.computeIfAbsent(spot.getId(), id -> new SpotTimeline(spot.getParkingLotName()));
+        if (!Objects.equals(timeline.getParkingLotName(), spot.getParkingLotName())) {
+            moveCalendar(spot.getId(), timeline, spot.getParkingLotName());
+        }
+        if (!timeline.tryClaim(new SpotTimeline.Slot(appointment.getId(), appointment.getInitialDate(), appointment.getEndingDate()))) {
+            return false;
+        }
+        calendar.mark(spot.getParkingLotName(), spot.getId(), appointment.getInitialDate(), appointment.getEndingDate());
+        expiryQueue.schedule(Appointment.builder()
+                .id(appointment.getId())
+                .vehicleSpotId(spot.getId())
+                .parkingLotName(spot.getParkingLotName())
+                .vehicleSpotCategory(spot.getVehicleSpotCategory())
+                .initialDate(appointment.getInitialDate())
+                .endingDate(appointment.getEndingDate())
+                .build());
+        return true;
+    }
+
+    /**
+     * <p>Annulla una riserva ottenuta con {@link #tryClaim(VehicleSpot, Appointment)}</p>
+     */
+    public void release(VehicleSpot spot, Appointment appointment) {
+        unregister(Appointment.builder()
+                .id(appointment.getId())
+                .vehicleSpotId(spot.getId())
+                .build());
+    }
+
+    /**
+     * <p>Registra una prenotazione nell'indice; solo le prenotazioni {@code VALID} occupano il posto</p>
+     */
+    public void register(Appointment appointment) {
+        if (appointment.getAppointmentState() != AppointmentState.VALID || appointment.getVehicleSpotId() == null) {
+            return;
+        }
+        SpotTimeline timeline = timelines.computeIfAbsent(appointment.getVehicleSpotId(),
+                id -> new SpotTimeline(appointment.getParkingLotName()));
+        if (!Objects.equals(timeline.getParkingLotName(), appointment.getParkingLotName())) {
+            moveCalendar(appointment.getVehicleSpotId(), timeline, appointment.getParkingLotName());
+        }
+        timeline.add(new SpotTimeline.Slot(appointment.getId(), appointment.getInitialDate(), appointment.getEndingDate()));
+        calendar.mark(appointment.getParkingLotName(), appointment.getVehicleSpotId(), appointment.getInitialDate(), appointment.getEndingDate());
+        expiryQueue.schedule(appointment);
+    }
+
+    /**
+     * <p>Rimuove una prenotazione dall'indice (cancellazione, eliminazione, scadenza)</p>
+     * <p>Nel calendario vengono spenti gli intervalli della prenotazione rimossa e poi riaccesi quelli
+     * ancora toccati da altre prenotazioni dello stesso posto.</p>
+     */
+    public void unregister(Appointment appointment) {
+        if (appointment.getVehicleSpotId() == null) {
+            return;
+        }
+        SpotTimeline timeline = timelines.get(appointment.getVehicleSpotId());
+        if (timeline == null) {
+            return;
+        }
+        SpotTimeline.Slot removed = timeline.remove(appointment.getId());
+        if (removed != null) {
+            expiryQueue.cancel(appointment.getId());
+            String parkingLotName = timeline.getParkingLotName();
+            calendar.clear(parkingLotName, appointment.getVehicleSpotId(), removed.initialDate(), removed.endingDate());
+            timeline.overlapping(removed.initialDate(), removed.endingDate())
+                    .forEach(slot -> calendar.mark(parkingLotName, appointment.getVehicleSpotId(), slot.initialDate(), slot.endingDate()));
+        }
+    }
+
+    /**
+     * <p>Rimuove dall'indice le prenotazioni terminate entro la data indicata, con lo stesso criterio
+     * della scadenza sul database, senza bisogno degli id delle prenotazioni scadute</p>
+     * <p>Il calendario non viene toccato: gli intervalli passati escono dall'orizzonte con {@link #rollCalendar()}.
+     * Le scadenze gia pianificate per queste prenotazioni restano nella coda e non trovano piu nulla da rimuovere.</p>
+     *
+     * @return numero di prenotazioni rimosse
+     */
+    public int removeEndedBefore(LocalDateTime date) {
+        int removed = 0;
+        for (SpotTimeline timeline : timelines.values()) {
+            removed += timeline.removeEndedBefore(date);
+        }
+        return removed;
+    }
+
+    /**
+     * <p>Elimina la linea temporale di un posto veicolo cancellato</p>
+     */
+    public void removeSpot(String vehicleSpotId) {
+        SpotTimeline timeline = timelines.remove(vehicleSpotId);
+        if (timeline != null) {
+            calendar.removeSpot(timeline.getParkingLotName(), vehicleSpotId);
+        }
+    }
+
+    /**
+     * <p>Elimina il calendario di un parcheggio cancellato</p>
+     */
+    public void removeParkingLot(String parkingLotName) {
+        calendar.removeParkingLot(parkingLotName);
+    }
+
+    /**
+     * <p>Fa scorrere l'orizzonte del calendario e riaccende gli intervalli appena entrati
+     * a partire dalle linee temporali</p>
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void rollCalendar() {
+        LocalDateTime entered = calendar.advanceTo(LocalDateTime.now(ZoneOffset.UTC));
+        if (entered == null) {
+            return;
+        }
+        LocalDateTime horizonEnd = calendar.horizonEnd();
+        timelines.forEach((vehicleSpotId, timeline) -> timeline.overlapping(entered, horizonEnd)
+                .forEach(slot -> calendar.mark(timeline.getParkingLotName(), vehicleSpotId, slot.initialDate(), slot.endingDate())));
+    }
+
+    /**
+     * <p>Sposta i bit di un posto nel calendario del nuovo parcheggio (posto spostato con
+     * {@code VehicleSpotService.moveVehicleSpotInParkingLotById})</p>
+     */
+    private void moveCalendar(String vehicleSpotId, SpotTimeline timeline, String parkingLotName) {
+        calendar.removeSpot(timeline.getParkingLotName(), vehicleSpotId);
+        timeline.setParkingLotName(parkingLotName);
+        timeline.all().forEach(slot -> calendar.mark(parkingLotName, vehicleSpotId, slot.initialDate(), slot.endingDate()));
+    }
+
+    /**
+     * <p>Filtro di disponibilita per una lista di posti</p>
+     * <p>Senza indice carica una sola volta gli id dei posti occupati invece di una query per posto, limitata
+     * al parcheggio e alla categoria dei posti quando sono gli stessi per tutta la lista.</p>
+     */
+    private Predicate<VehicleSpot> availabilityFilter(List<VehicleSpot> spots, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!ready) {
+            Set<String> busySpotIds = appointmentRepository.findBusyVehicleSpotIds(
+                    common(spots, VehicleSpot::getParkingLotName), common(spots, VehicleSpot::getVehicleSpotCategory),
+                    startDate, endDate);
+            return spot -> !busySpotIds.contains(spot.getId());
+        }
+        return spot -> isAvailable(spot, startDate, endDate);
+    }
+
+    /**
+     * <p>Il valore condiviso da tutti i posti, oppure {@code null} se la lista e vuota o i valori sono diversi</p>
+     */
+    private static <T> T common(List<VehicleSpot> spots, Function<VehicleSpot, T> property) {
+        Set<T> values = spots.stream().map(property).collect(Collectors.toSet());
+        return values.size() == 1 ? values.iterator().next() : null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.service.availability;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * <p>Buco libero di un posto veicolo che contiene un intervallo richiesto</p>
+ * <p>{@code previousEnd} e {@code nextStart} sono la fine della prenotazione precedente e l'inizio della
+ * successiva; {@code null} se dal lato corrispondente il posto e libero senza limiti.</p>
+ *
+ * @param previousEnd fine della prenotazione precedente (UTC)
+ * @param nextStart inizio della prenotazione successiva (UTC)
+ * @param bookings numero di prenotazioni del posto
+ */
+public record SpotGap(LocalDateTime previousEnd, LocalDateTime nextStart, int bookings) {
+
+    /**
+     * Durata complessiva del buco, {@code null} se aperto da almeno un lato.
+     */
+    public Duration length() {
+        return previousEnd == null || nextStart == null ? null : Duration.between(previousEnd, nextStart);
+    }
+
+    /**
+     * Tempo libero che resterebbe tra la prenotazione e la piu vicina delle prenotazioni adiacenti,
+     * {@code null} se il posto non ha prenotazioni adiacenti.
+     */
+    public Duration closestSlack(LocalDateTime start, LocalDateTime end) {
+        Duration before = previousEnd == null ? null : Duration.between(previousEnd, start);
+        Duration after = nextStart == null ? null : Duration.between(end, nextStart);
+        if (before == null) {
+            return after;
+        }
+        return after == null || before.compareTo(after) <= 0 ? before : after;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.demo.service.availability;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Linea temporale delle prenotazioni {@code VALID} di un singolo posto veicolo</p>
+ * <p>Gli intervalli sono tenuti in un array ordinato per data di inizio e sostituito per intero
+ * ad ogni modifica con un compare-and-set, cosi le letture non richiedono lock e le scritture
+ * concorrenti si contendono solo lo stesso posto.</p>
+ * <p>Per trovare le sovrapposizioni si usa la durata massima registrata: un intervallo che si
+ * sovrappone a {@code [start, end]} deve iniziare tra {@code start - durataMassima} e {@code end},
+ * quindi basta una ricerca binaria piu la scansione di quella finestra (O(log n + k)).</p>
+ */
+final class SpotTimeline {
+
+    /**
+     * Intervallo occupato da una prenotazione.
+     */
+    record Slot(String appointmentId, LocalDateTime initialDate, LocalDateTime endingDate) {
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !initialDate.isAfter(end) && !endingDate.isBefore(start);
+        }
+    }
+
+    /**
+     * Stato immutabile della linea temporale.
+     */
+    private record State(Slot[] slots, Duration longest) {
+
+        int firstCandidate(LocalDateTime start) {
+            return firstStartingFrom(slots, start.minus(longest));
+        }
+
+        State with(Slot slot) {
+            Slot[] current = without(slots, slot.appointmentId());
+            int index = firstStartingFrom(current, slot.initialDate());
+            Slot[] updated = new Slot[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = slot;
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+
+            Duration duration = Duration.between(slot.initialDate(), slot.endingDate());
+            return new State(updated, duration.compareTo(longest) > 0 ? duration : longest);
+        }
+    }
+
+    /**
+     * Risoluzione delle date delle prenotazioni ({@code dd/MM/yyyy HH:mm}).
+     */
+    static final Duration GRANULARITY = Duration.ofMinutes(1);
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(new Slot[0], Duration.ZERO));
+    private volatile String parkingLotName;
+
+    SpotTimeline(String parkingLotName) {
+        this.parkingLotName = parkingLotName;
+    }
+
+    String getParkingLotName() {
+        return parkingLotName;
+    }
+
+    void setParkingLotName(String parkingLotName) {
+        this.parkingLotName = parkingLotName;
+    }
+
+    /**
+     * <p>Verifica che nessuna prenotazione si sovrapponga all'intervallo (estremi inclusi),
+     * con la stessa semantica di {@code AppointmentRepository.findByDateWithin}</p>
+     */
+    boolean isFree(LocalDateTime start, LocalDateTime end) {
+        return isFree(state.get(), start, end);
+    }
+
+    /**
+     * <p>Restituisce gli intervalli che si sovrappongono a {@code [start, end]}</p>
+     */
+    List<Slot> overlapping(LocalDateTime start, LocalDateTime end) {
+        State snapshot = state.get();
+        List<Slot> result = new ArrayList<>();
+        Slot[] slots = snapshot.slots();
+        for (int i = snapshot.firstCandidate(start); i < slots.length && !slots[i].initialDate().isAfter(end); i++) {
+            if (slots[i].overlaps(start, end)) {
+                result.add(slots[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * <p>Restituisce il buco libero che contiene {@code [start, end]}, oppure {@code null} se
+     * l'intervallo non e libero</p>
+     * <p>La prenotazione precedente che finisce piu tardi si cerca a ritroso: un intervallo che inizia
+     * prima di {@code fineMigliore - durataMassima} non puo finire dopo, quindi la scansione si ferma li.</p>
+     */
+    SpotGap gapAround(LocalDateTime start, LocalDateTime end) {
+        State snapshot = state.get();
+        if (!isFree(snapshot, start, end)) {
+            return null;
+        }
+        Slot[] slots = snapshot.slots();
+        int next = firstStartingFrom(slots, end);
+        LocalDateTime previousEnd = null;
+        for (int i = firstStartingFrom(slots, start) - 1; i >= 0; i--) {
+            if (previousEnd != null && !slots[i].initialDate().plus(snapshot.longest()).isAfter(previousEnd)) {
+                break;
+            }
+            if (previousEnd == null || slots[i].endingDate().isAfter(previousEnd)) {
+                previousEnd = slots[i].endingDate();
+            }
+        }
+        return new SpotGap(previousEnd, next < slots.length ? slots[next].initialDate() : null, slots.length);
+    }
+
+    /**
+     * <p>Intervalli liberi del posto a partire da {@code from}, in ordine, calcolati pigramente su
+     * un'istantanea della linea temporale</p>
+     * <p>Ogni elemento e {@code [inizio, fine]}: la prima data prenotabile e l'ultima data di fine ammessa
+     * (un minuto prima della prenotazione successiva, perche gli estremi si sovrappongono); la fine e
+     * {@code null} dopo l'ultima prenotazione.</p>
+     */
+    Iterator<LocalDateTime[]> freeWindowsFrom(LocalDateTime from) {
+        State snapshot = state.get();
+        Slot[] slots = snapshot.slots();
+        return new Iterator<>() {
+            private LocalDateTime cursor = from;
+            private int index = snapshot.firstCandidate(from);
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public LocalDateTime[] next() {
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                // le prenotazioni che iniziano entro il cursore lo spostano oltre la loro fine
+                while (index < slots.length && !slots[index].initialDate().isAfter(cursor)) {
+                    if (!slots[index].endingDate().isBefore(cursor)) {
+                        cursor = slots[index].endingDate().plus(GRANULARITY);
+                    }
+                    index++;
+                }
+                LocalDateTime[] window = {cursor, index < slots.length ? slots[index].initialDate().minus(GRANULARITY) : null};
+                cursor = window[1] == null ? null : slots[index].initialDate();
+                return window;
+            }
+        };
+    }
+
+    List<Slot> all() {
+        return List.of(state.get().slots());
+    }
+
+    /**
+     * <p>Aggiunge l'intervallo solo se il posto e libero, in modo atomico rispetto alle altre scritture</p>
+     * <p>Se un'altra scrittura cambia la linea temporale nel frattempo la verifica viene ripetuta
+     * sul nuovo stato.</p>
+     *
+     * @return {@code true} se l'intervallo e stato riservato
+     */
+    boolean tryClaim(Slot slot) {
+        while (true) {
+            State current = state.get();
+            if (!isFree(current, slot.initialDate(), slot.endingDate())) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.with(slot))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * <p>Aggiunge l'intervallo senza verificare sovrapposizioni (caricamento e riallineamento)</p>
+     */
+    void add(Slot slot) {
+        state.updateAndGet(current -> current.with(slot));
+    }
+
+    /**
+     * @return l'intervallo rimosso, oppure {@code null} se non era presente
+     */
+    Slot remove(String appointmentId) {
+        while (true) {
+            State current = state.get();
+            Slot[] updated = without(current.slots(), appointmentId);
+            if (updated == current.slots()) {
+                return null;
+            }
+            if (state.compareAndSet(current, new State(updated, current.longest()))) {
+                return Arrays.stream(current.slots())
+                        .filter(slot -> slot.appointmentId().equals(appointmentId))
+                        .findFirst()
+                        .orElse(null);
+            }
+        }
+    }
+
+    /**
+     * <p>Rimuove gli intervalli terminati entro la data indicata (scadenza delle prenotazioni)</p>
+     *
+     * @return numero di intervalli rimossi
+     */
+    int removeEndedBefore(LocalDateTime date) {
+        while (true) {
+            State current = state.get();
+            if (!hasEndedBefore(current.slots(), date)) {
+                return 0;
+            }
+            Slot[] updated = Arrays.stream(current.slots())
+                    .filter(slot -> slot.endingDate().isAfter(date))
+                    .toArray(Slot[]::new);
+            if (state.compareAndSet(current, new State(updated, current.longest()))) {
+                return current.slots().length - updated.length;
+            }
+        }
+    }
+
+    /**
+     * Solo gli intervalli iniziati entro la data possono essere terminati: basta scorrere quelli.
+     */
+    private static boolean hasEndedBefore(Slot[] slots, LocalDateTime date) {
+        for (int i = 0; i < slots.length && !slots[i].initialDate().isAfter(date); i++) {
+            if (!slots[i].endingDate().isAfter(date)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFree(State snapshot, LocalDateTime start, LocalDateTime end) {
+        Slot[] slots = snapshot.slots();
+        for (int i = snapshot.firstCandidate(start); i < slots.length && !slots[i].initialDate().isAfter(end); i++) {
+            if (slots[i].overlaps(start, end)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Slot[] without(Slot[] source, String appointmentId) {
+        for (int i = 0; i < source.length; i++) {
+            if (source[i].appointmentId().equals(appointmentId)) {
+                Slot[] updated = new Slot[source.length - 1];
+                System.arraycopy(source, 0, updated, 0, i);
+                System.arraycopy(source, i + 1, updated, i, source.length - i - 1);
+                return updated;
+            }
+        }
+        return source;
+    }
+
+    /**
+     * <p>Indice del primo intervallo che inizia in {@code instant} o dopo</p>
+     */
+    private static int firstStartingFrom(Slot[] source, LocalDateTime instant) {
+        int low = 0;
+        int high = source.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (source[mid].initialDate().isBefore(instant)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
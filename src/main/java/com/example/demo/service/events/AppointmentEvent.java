@@ -0,0 +1,47 @@
+package com.example.demo.service.events;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * <p>Modifica di una prenotazione salvata</p>
+ * <p>Le prenotazioni sono copiate al momento della pubblicazione, quindi l'evento resta valido anche se
+ * l'entita viene modificata in seguito. {@code previous} e la prenotazione prima della modifica, presente
+ * per {@link Type#UPDATED} e per le cancellazioni singole ({@link Type#CANCELED}).</p>
+ */
+public record AppointmentEvent(Type type, Snapshot appointment, Snapshot previous, Instant occurredAt) implements DomainEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        CANCELED,
+        DELETED,
+        EXPIRED
+    }
+
+    /**
+     * Copia dei campi della prenotazione che servono alle viste derivate (date UTC).
+     */
+    public record Snapshot(String id, String parkingLotName, String vehicleSpotId, VehicleSpotCategory vehicleSpotCategory,
+                           LocalDateTime initialDate, LocalDateTime endingDate, AppointmentState appointmentState,
+                           String seriesId) {
+
+        public static Snapshot of(Appointment appointment) {
+            return new Snapshot(appointment.getId(), appointment.getParkingLotName(), appointment.getVehicleSpotId(),
+                    appointment.getVehicleSpotCategory(), appointment.getInitialDate(), appointment.getEndingDate(),
+                    appointment.getAppointmentState(), appointment.getSeriesId());
+        }
+    }
+
+    public static AppointmentEvent of(Type type, Appointment appointment) {
+        return new AppointmentEvent(type, Snapshot.of(appointment), null, Instant.now());
+    }
+
+    public static AppointmentEvent changed(Type type, Snapshot previous, Appointment appointment) {
+        return new AppointmentEvent(type, Snapshot.of(appointment), previous, Instant.now());
+    }
+}
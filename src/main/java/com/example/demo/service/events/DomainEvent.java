@@ -0,0 +1,15 @@
+package com.example.demo.service.events;
+
+import java.time.Instant;
+
+/**
+ * <p>Modifica di una prenotazione, di un posto veicolo o di un parcheggio, pubblicata su {@link DomainEventBus}
+ * dopo che e stata scritta sul database</p>
+ */
+public sealed interface DomainEvent permits AppointmentEvent, VehicleSpotEvent, ParkingLotEvent {
+
+    /**
+     * @return istante della pubblicazione, usato per misurare il ritardo di consegna
+     */
+    Instant occurredAt();
+}
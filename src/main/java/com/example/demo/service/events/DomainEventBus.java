@@ -0,0 +1,172 @@
+package com.example.demo.service.events;
+
+import com.example.demo.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <p>Bus in memoria degli eventi di dominio ({@link DomainEvent}) per le viste derivate: contatori, cache,
+ * tabelloni di occupazione</p>
+ * <p>Ogni iscritto ha un buffer circolare limitato ({@link ArrayBlockingQueue}) e un thread dedicato che
+ * lo svuota a lotti: la pubblicazione non si blocca mai e un iscritto lento non rallenta gli altri. Se il
+ * buffer di un iscritto e pieno l'evento viene scartato per quell'iscritto e conteggiato; le viste devono
+ * quindi potersi ricostruire dal database.</p>
+ * <p>Gli eventi arrivano a ciascun iscritto nell'ordine di pubblicazione. Il bus e locale all'istanza: le
+ * modifiche fatte da altre istanze non vengono consegnate.</p>
+ */
+@Component
+public class DomainEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainEventBus.class);
+
+    /**
+     * Istantanea delle statistiche di un iscritto.
+     *
+     * @param queued eventi in attesa nel buffer (ritardo in numero di eventi)
+     * @param lastLagMillis ritardo tra pubblicazione e consegna del primo evento dell'ultimo lotto
+     */
+    public record SubscriberStats(String name, int queued, int capacity, long delivered, long dropped, long batches,
+                                  long failures, long maxBatchSize, long lastLagMillis, long maxLagMillis) {
+    }
+
+    /**
+     * Iscrizione al bus: va chiusa quando l'iscritto non riceve piu eventi.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Consumer<List<DomainEvent>> handler;
+        private final ArrayBlockingQueue<DomainEvent> buffer;
+        private final Thread worker;
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator maxLagMillis = new LongAccumulator(Math::max, 0);
+        private volatile long lastLagMillis;
+
+        private Subscription(String name, Consumer<List<DomainEvent>> handler) {
+            this.name = name;
+            this.handler = handler;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+            this.worker = new Thread(this::run, "domain-events-" + name);
+            this.worker.setDaemon(true);
+        }
+
+        private void offer(DomainEvent event) {
+            if (!buffer.offer(event)) {
+                dropped.increment();
+            }
+        }
+
+        private void run() {
+            List<DomainEvent> batch = new ArrayList<>(maxBatch);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(buffer.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                buffer.drainTo(batch, maxBatch - 1);
+                long lag = Duration.between(batch.get(0).occurredAt(), Instant.now()).toMillis();
+                lastLagMillis = lag;
+                maxLagMillis.accumulate(lag);
+                try {
+                    handler.accept(List.copyOf(batch));
+                    delivered.add(batch.size());
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    log.warn("Iscritto {}: lotto di {} eventi non elaborato: {}", name, batch.size(), e.getMessage());
+                }
+                batches.increment();
+                maxBatchSize.accumulate(batch.size());
+                batch.clear();
+            }
+        }
+
+        private SubscriberStats stats() {
+            return new SubscriberStats(name, buffer.size(), capacity, delivered.sum(), dropped.sum(), batches.sum(),
+                    failures.sum(), maxBatchSize.get(), lastLagMillis, maxLagMillis.get());
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            worker.interrupt();
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+    private final int capacity;
+    private final int maxBatch;
+
+    @Autowired
+    public DomainEventBus(AppProperties appProperties) {
+        this(appProperties.getEvents().getBufferCapacity(), appProperties.getEvents().getMaxBatch());
+    }
+
+    DomainEventBus(int capacity, int maxBatch) {
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * <p>Iscrive un gestore che ricevera, a lotti di al massimo {@code app.events.max-batch} eventi, tutti
+     * gli eventi pubblicati da ora in poi</p>
+     * <p>Il gestore viene chiamato sempre dallo stesso thread; un'eccezione scarta solo il lotto corrente.</p>
+     *
+     * @param name nome dell'iscritto, usato per il thread e le statistiche
+     * @param handler gestore dei lotti di eventi
+     */
+    public Subscription subscribe(String name, Consumer<List<DomainEvent>> handler) {
+        Subscription subscription = new Subscription(name, handler);
+        subscriptions.add(subscription);
+        subscription.worker.start();
+        return subscription;
+    }
+
+    /**
+     * <p>Consegna l'evento ai buffer degli iscritti senza bloccarsi</p>
+     */
+    public void publish(DomainEvent event) {
+        published.increment();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public void publishAll(List<? extends DomainEvent> events) {
+        events.forEach(this::publish);
+    }
+
+    /**
+     * @return eventi pubblicati dall'avvio
+     */
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public List<SubscriberStats> stats() {
+        return subscriptions.stream().map(Subscription::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+    }
+}
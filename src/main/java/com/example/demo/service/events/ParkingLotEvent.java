@@ -0,0 +1,21 @@
+package com.example.demo.service.events;
+
+import com.example.demo.model.entities.ParkingLot;
+
+import java.time.Instant;
+
+/**
+ * <p>Modifica di un parcheggio (creazione, capacita o criterio di assegnazione, cancellazione)</p>
+ */
+public record ParkingLotEvent(Type type, String parkingLotId, String parkingLotName, Long vehicleSpotNumber, Instant occurredAt) implements DomainEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static ParkingLotEvent of(Type type, ParkingLot parkingLot) {
+        return new ParkingLotEvent(type, parkingLot.getId(), parkingLot.getName(), parkingLot.getVehicleSpotNumber(), Instant.now());
+    }
+}
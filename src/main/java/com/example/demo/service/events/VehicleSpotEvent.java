@@ -0,0 +1,34 @@
+package com.example.demo.service.events;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.VehicleSpot;
+
+import java.time.Instant;
+
+/**
+ * <p>Modifica di un posto veicolo</p>
+ * <p>{@code previousParkingLotName} e {@code previousCategory} sono presenti solo per {@link Type#UPDATED} e
+ * {@link Type#MOVED}: parcheggio e categoria prima della modifica.</p>
+ */
+public record VehicleSpotEvent(Type type, String vehicleSpotId, String parkingLotName, VehicleSpotCategory vehicleSpotCategory,
+                               String previousParkingLotName, VehicleSpotCategory previousCategory,
+                               Instant occurredAt) implements DomainEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        MOVED,
+        DELETED
+    }
+
+    public static VehicleSpotEvent of(Type type, VehicleSpot spot) {
+        return new VehicleSpotEvent(type, spot.getId(), spot.getParkingLotName(), spot.getVehicleSpotCategory(),
+                null, null, Instant.now());
+    }
+
+    public static VehicleSpotEvent changed(Type type, String previousParkingLotName, VehicleSpotCategory previousCategory,
+                                           VehicleSpot spot) {
+        return new VehicleSpotEvent(type, spot.getId(), spot.getParkingLotName(), spot.getVehicleSpotCategory(),
+                previousParkingLotName, previousCategory, Instant.now());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.service.recurrence;
+
+import com.example.demo.enumerators.RecurrenceFrequency;
+import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.dto.appointment.AppointmentSeriesPostDto;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Espande una regola di ricorrenza nelle singole occorrenze</p>
+ * <p>Le occorrenze sono calcolate nell'ora locale del client (08:00 resta 08:00 anche dopo il cambio
+ * dell'ora legale) e convertite in UTC solo al momento della prenotazione.</p>
+ */
+public final class RecurrenceExpander {
+
+    /**
+     * Limite di occorrenze per serie: circa un anno di prenotazioni giornaliere.
+     */
+    public static final int MAX_OCCURRENCES = 366;
+
+    private RecurrenceExpander() {
+    }
+
+    /**
+     * @param dto regola di ricorrenza {@link AppointmentSeriesPostDto}
+     * @return le occorrenze in ordine di data, nella zona oraria del client
+     * @throws RuntimeException se la regola non ha fine, ha count o intervallo minori di 1, supera
+     * {@link #MAX_OCCURRENCES} occorrenze o produce occorrenze che si sovrappongono
+     */
+    public static List<AppointmentPostDto> expand(AppointmentSeriesPostDto dto) {
+        if (dto.getUntil() == null && dto.getCount() == null) {
+            throw new RuntimeException("please insert 'until' or 'count' for the recurrence");
+        }
+        int interval = dto.getInterval() == null ? 1 : dto.getInterval();
+        if (interval < 1) {
+            throw new RuntimeException("recurrence interval must be at least 1");
+        }
+        if (dto.getCount() != null && dto.getCount() < 1) {
+            throw new RuntimeException("recurrence count must be at least 1");
+        }
+        // una occorrenza oltre il limite basta per respingere la serie, qualunque sia il count richiesto
+        int limit = dto.getCount() == null ? MAX_OCCURRENCES + 1 : Math.min(dto.getCount(), MAX_OCCURRENCES + 1);
+        LocalDate until = dto.getUntil() == null ? LocalDate.MAX : dto.getUntil();
+        Duration length = Duration.between(dto.getInitialDate(), dto.getEndingDate());
+
+        List<AppointmentPostDto> occurrences = new ArrayList<>();
+        for (LocalDate day : days(dto, interval, limit, until)) {
+            LocalDateTime initialDate = day.atTime(dto.getInitialDate().toLocalTime());
+            if (!occurrences.isEmpty()
+                    && !initialDate.isAfter(occurrences.get(occurrences.size() - 1).getEndingDate())) {
+                throw new RuntimeException("recurring appointments must not overlap each other");
+            }
+            occurrences.add(AppointmentPostDto.builder()
+                    .parkingLotName(dto.getParkingLotName())
+                    .vehicleSpotCategory(dto.getVehicleSpotCategory())
+                    .initialDate(initialDate)
+                    .endingDate(initialDate.plus(length))
+                    .build());
+        }
+        if (occurrences.size() > MAX_OCCURRENCES) {
+            throw new RuntimeException("a recurring series can have at most " + MAX_OCCURRENCES + " appointments");
+        }
+        return occurrences;
+    }
+
+    /**
+     * Giorni delle occorrenze, al massimo {@code limit} e non oltre {@code until}.
+     */
+    private static List<LocalDate> days(AppointmentSeriesPostDto dto, int interval, int limit, LocalDate until) {
+        LocalDate first = dto.getInitialDate().toLocalDate();
+        List<LocalDate> days = new ArrayList<>();
+        if (dto.getFrequency() == RecurrenceFrequency.DAILY) {
+            for (LocalDate day = first; days.size() < limit && !day.isAfter(until); day = day.plusDays(interval)) {
+                days.add(day);
+            }
+            return days;
+        }
+
+        Set<DayOfWeek> daysOfWeek = dto.getDaysOfWeek() == null || dto.getDaysOfWeek().isEmpty()
+                ? Set.of(first.getDayOfWeek())
+                : dto.getDaysOfWeek();
+        // si scorrono solo le settimane della regola: al massimo limit + 1 settimane, qualunque sia l'intervallo
+        for (LocalDate weekStart = first.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+             days.size() < limit && !weekStart.isAfter(until); weekStart = weekStart.plusWeeks(interval)) {
+            for (int offset = 0; offset < 7 && days.size() < limit; offset++) {
+                LocalDate day = weekStart.plusDays(offset);
+                if (day.isAfter(until)) {
+                    break;
+                }
+                if (!day.isBefore(first) && daysOfWeek.contains(day.getDayOfWeek())) {
+                    days.add(day);
+                }
+            }
+        }
+        return days;
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.demo.service.report;
+
+import com.example.demo.annotations.LeaderOnly;
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.RollupTier;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.AppointmentRollup;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.AppointmentRollupRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <p>Mantiene i contatori pre-aggregati delle prenotazioni ({@link AppointmentRollup}) e li legge per i report</p>
+ * <p>Gli eventi di {@link DomainEventBus} di ogni lotto vengono tradotti in incrementi per (livello, parcheggio,
+ * categoria, periodo), sommati in memoria e scritti con un solo bulk di upsert {@code $inc}. Una compattazione
+ * periodica sposta le ore piu vecchie di {@code app.rollup.hourly-retention-days} nei giorni e i giorni piu
+ * vecchi di {@code app.rollup.daily-retention-days} nei mesi.</p>
+ * <p>Ogni incremento va al livello che conserva il suo periodo in quel momento, e la compattazione lavora con un
+ * giorno di ritardo: le righe che compatta non ricevono piu scritture.</p>
+ * <p>Gli eventi arrivano solo dall'istanza che ha fatto la modifica: {@code EXPIRED} lo pubblica solo l'istanza
+ * che ha eseguito la transizione, e gli eventi scartati dal bus non generano incrementi. Per questo ogni {@code app.rollup.reconcile-millis} le righe orarie dall'inizio
+ * della conservazione fino all'ora corrente vengono ricalcolate dalle prenotazioni con due aggregazioni e
+ * sovrascritte; le ore future ricevono solo gli incrementi e vengono ricalcolate quando passano. Le righe
+ * incrementate mentre un ricalcolo e in corso restano quelle degli incrementi fino al ricalcolo successivo, e le
+ * prenotazioni eliminate non vengono piu contate tra le create.</p>
+ * <p>I report per settimana e mese nella zona del client restano sulle prenotazioni: i periodi delle righe sono
+ * in UTC e non si allineano ai suoi confini.</p>
+ */
+@Component
+public class AppointmentRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentRollups.class);
+
+    /**
+     * Ritardo della compattazione rispetto ai limiti usati dalle scritture.
+     */
+    private static final Duration COMPACTION_GRACE = Duration.ofDays(1);
+
+    private final AppointmentRollupRepository appointmentRollupRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final DomainEventBus eventBus;
+    private final int hourlyRetentionDays;
+    private final int dailyRetentionDays;
+    private final Clock clock;
+    private DomainEventBus.Subscription subscription;
+
+    @Autowired
+    public AppointmentRollups(AppointmentRollupRepository appointmentRollupRepository,
+                              AppointmentRepository appointmentRepository, DomainEventBus eventBus,
+                              AppProperties appProperties) {
+        this(appointmentRollupRepository, appointmentRepository, eventBus,
+                appProperties.getRollup().getHourlyRetentionDays(), appProperties.getRollup().getDailyRetentionDays(),
+                Clock.systemUTC());
+    }
+
+    AppointmentRollups(AppointmentRollupRepository appointmentRollupRepository,
+                       AppointmentRepository appointmentRepository, DomainEventBus eventBus,
+                       int hourlyRetentionDays, int dailyRetentionDays, Clock clock) {
+        this.appointmentRollupRepository = appointmentRollupRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.eventBus = eventBus;
+        this.hourlyRetentionDays = hourlyRetentionDays;
+        this.dailyRetentionDays = dailyRetentionDays;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = eventBus.subscribe("appointment-rollup", this::apply);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * <p>Compatta le ore nei giorni e poi i giorni nei mesi</p>
+     * <p>Basta una istanza: la compattazione lavora solo sul database.</p>
+     */
+    @LeaderOnly("appointment-rollup-compaction")
+    @Scheduled(fixedDelayString = "${app.rollup.compact-millis:3600000}")
+    public void compact() {
+        LocalDateTime graced = LocalDateTime.now(clock).minus(COMPACTION_GRACE);
+        long hours = appointmentRollupRepository.compact(RollupTier.HOUR, RollupTier.DAY, hourlyCutoff(graced));
+        long days = appointmentRollupRepository.compact(RollupTier.DAY, RollupTier.MONTH, dailyCutoff(graced));
+        if (hours > 0 || days > 0) {
+            log.info("Compattate {} righe orarie e {} righe giornaliere", hours, days);
+        }
+    }
+
+    /**
+     * <p>Ricalcola dalle prenotazioni le righe orarie dall'inizio della conservazione delle ore fino all'ora
+     * corrente inclusa, e le sovrascrive</p>
+     * <p>Basta una istanza: il ricalcolo lavora solo sul database. L'intervallo non tocca le righe che la
+     * compattazione sta spostando.</p>
+     */
+    @LeaderOnly("appointment-rollup-reconcile")
+    @Scheduled(initialDelayString = "${app.rollup.reconcile-millis:900000}",
+            fixedDelayString = "${app.rollup.reconcile-millis:900000}")
+    public void reconcile() {
+        // prima delle letture: le righe incrementate da qui in poi non vengono sovrascritte
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime from = hourlyCutoff(now);
+        LocalDateTime to = RollupTier.HOUR.next(RollupTier.HOUR.truncate(now));
+
+        Map<String, AppointmentRollup> rows = new LinkedHashMap<>();
+        for (AppointmentRollup counts : appointmentRepository.countByParkingLotCategoryAndHour(from, to)) {
+            AppointmentRollup row = row(rows, counts);
+            row.setCreated(counts.getCreated());
+            row.setValid(counts.getValid());
+            row.setCanceled(counts.getCanceled());
+            row.setExpired(counts.getExpired());
+        }
+        for (AppointmentRollup minutes : appointmentRepository.sumOccupiedMinutesByHour(from, to)) {
+            row(rows, minutes).setOccupiedMinutes(minutes.getOccupiedMinutes());
+        }
+        appointmentRollupRepository.replaceAll(RollupTier.HOUR, from, to, rows.values(), now);
+    }
+
+    /**
+     * <p>Righe del parcheggio che si sovrappongono a {@code [from, to)} (UTC), sommate al livello indicato</p>
+     * <p>Le righe di un livello piu grossolano restano al proprio livello: ogni riga restituita indica in
+     * {@code tier} il periodo che copre. Il risultato e ordinato per inizio del periodo.</p>
+     *
+     * @param category categoria da considerare, {@code null} per sommarle tutte
+     * @param granularity livello minimo delle righe restituite
+     */
+    public List<AppointmentRollup> query(String parkingLotName, VehicleSpotCategory category, LocalDateTime from,
+                                         LocalDateTime to, RollupTier granularity) {
+        Map<String, AppointmentRollup> merged = new LinkedHashMap<>();
+        appointmentRollupRepository.findByParkingLotNameAndBucketGreaterThanEqualAndBucketLessThan(
+                        parkingLotName, RollupTier.MONTH.truncate(from), to).stream()
+                .filter(row -> category == null || row.getVehicleSpotCategory() == category)
+                .filter(row -> row.getTier().next(row.getBucket()).isAfter(from))
+                .forEach(row -> {
+                    RollupTier tier = row.getTier().compareTo(granularity) > 0 ? row.getTier() : granularity;
+                    LocalDateTime bucket = tier.truncate(row.getBucket());
+                    AppointmentRollup sum = merged.computeIfAbsent(AppointmentRollup.idOf(tier, parkingLotName, category, bucket),
+                            id -> AppointmentRollup.builder().id(id).tier(tier).parkingLotName(parkingLotName)
+                                    .vehicleSpotCategory(category).bucket(bucket).build());
+                    add(sum, row);
+                });
+        List<AppointmentRollup> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(AppointmentRollup::getBucket).thenComparing(AppointmentRollup::getTier));
+        return result;
+    }
+
+    /**
+     * <p>Livello adatto a un intervallo: ore fino a due giorni, giorni fino a tre mesi, poi mesi</p>
+     */
+    public static RollupTier granularityFor(LocalDateTime from, LocalDateTime to) {
+        Duration span = Duration.between(from, to);
+        if (span.compareTo(Duration.ofDays(2)) <= 0) {
+            return RollupTier.HOUR;
+        }
+        return span.compareTo(Duration.ofDays(92)) <= 0 ? RollupTier.DAY : RollupTier.MONTH;
+    }
+
+    /**
+     * <p>Traduce un lotto di eventi in incrementi e li scrive insieme; chiamato dal thread dell'iscrizione al bus</p>
+     */
+    void apply(List<DomainEvent> events) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<String, AppointmentRollup> deltas = new LinkedHashMap<>();
+        for (DomainEvent event : events) {
+            if (event instanceof AppointmentEvent appointmentEvent) {
+                collect(deltas, appointmentEvent, now);
+            }
+        }
+        appointmentRollupRepository.incrementAll(deltas.values());
+    }
+
+    private void collect(Map<String, AppointmentRollup> deltas, AppointmentEvent event, LocalDateTime now) {
+        AppointmentEvent.Snapshot current = event.appointment();
+        AppointmentEvent.Snapshot previous = event.previous();
+        switch (event.type()) {
+            case CREATED -> {
+                count(deltas, current, now, delta -> delta.setCreated(delta.getCreated() + 1));
+                if (isValid(current)) {
+                    book(deltas, current, now, 1);
+                }
+            }
+            case UPDATED -> {
+                if (isValid(previous)) {
+                    book(deltas, previous, now, -1);
+                }
+                if (isValid(current)) {
+                    book(deltas, current, now, 1);
+                }
+                if (previous != null && previous.appointmentState() != current.appointmentState()) {
+                    ended(deltas, current, now);
+                }
+            }
+            case CANCELED -> {
+                // le cancellazioni di una serie non hanno lo stato precedente: riguardano solo prenotazioni valide
+                if (previous == null || isValid(previous)) {
+                    book(deltas, current, now, -1);
+                }
+                ended(deltas, current, now);
+            }
+            case EXPIRED -> {
+                // pubblicato solo da chi ha eseguito la transizione; i minuti restano: il posto e stato occupato fino alla fine
+                count(deltas, current, now, delta -> delta.setValid(delta.getValid() - 1));
+                ended(deltas, current, now);
+            }
+            case DELETED -> {
+                if (isValid(current)) {
+                    book(deltas, current, now, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prenotazione valida aggiunta o tolta: contatore {@code valid} e minuti occupati.
+     */
+    private void book(Map<String, AppointmentRollup> deltas, AppointmentEvent.Snapshot appointment, LocalDateTime now, int sign) {
+        count(deltas, appointment, now, delta -> delta.setValid(delta.getValid() + sign));
+        if (appointment.initialDate() == null || appointment.endingDate() == null) {
+            return;
+        }
+        for (LocalDateTime hour = RollupTier.HOUR.truncate(appointment.initialDate());
+             hour.isBefore(appointment.endingDate());
+             hour = RollupTier.HOUR.next(hour)) {
+            LocalDateTime start = appointment.initialDate().isAfter(hour) ? appointment.initialDate() : hour;
+            LocalDateTime end = appointment.endingDate().isBefore(hour.plusHours(1)) ? appointment.endingDate() : hour.plusHours(1);
+            AppointmentRollup delta = delta(deltas, appointment, hour, now);
+            delta.setOccupiedMinutes(delta.getOccupiedMinutes() + sign * Duration.between(start, end).toMinutes());
+        }
+    }
+
+    /**
+     * Prenotazione passata a {@code CANCELED} o {@code EXPIRED}.
+     */
+    private void ended(Map<String, AppointmentRollup> deltas, AppointmentEvent.Snapshot appointment, LocalDateTime now) {
+        if (appointment.appointmentState() == AppointmentState.CANCELED) {
+            count(deltas, appointment, now, delta -> delta.setCanceled(delta.getCanceled() + 1));
+        } else if (appointment.appointmentState() == AppointmentState.EXPIRED) {
+            count(deltas, appointment, now, delta -> delta.setExpired(delta.getExpired() + 1));
+        }
+    }
+
+    /**
+     * I contatori di una prenotazione vanno nel periodo in cui inizia.
+     */
+    private void count(Map<String, AppointmentRollup> deltas, AppointmentEvent.Snapshot appointment, LocalDateTime now,
+                       Consumer<AppointmentRollup> change) {
+        if (appointment.initialDate() != null) {
+            change.accept(delta(deltas, appointment, appointment.initialDate(), now));
+        }
+    }
+
+    private static AppointmentRollup row(Map<String, AppointmentRollup> rows, AppointmentRollup key) {
+        return rows.computeIfAbsent(
+                AppointmentRollup.idOf(RollupTier.HOUR, key.getParkingLotName(), key.getVehicleSpotCategory(), key.getBucket()),
+                id -> AppointmentRollup.builder()
+                        .id(id)
+                        .tier(RollupTier.HOUR)
+                        .parkingLotName(key.getParkingLotName())
+                        .vehicleSpotCategory(key.getVehicleSpotCategory())
+                        .bucket(key.getBucket())
+                        .build());
+    }
+
+    private AppointmentRollup delta(Map<String, AppointmentRollup> deltas, AppointmentEvent.Snapshot appointment,
+                                    LocalDateTime date, LocalDateTime now) {
+        RollupTier tier = tierFor(date, now);
+        LocalDateTime bucket = tier.truncate(date);
+        return deltas.computeIfAbsent(
+                AppointmentRollup.idOf(tier, appointment.parkingLotName(), appointment.vehicleSpotCategory(), bucket),
+                id -> AppointmentRollup.builder()
+                        .id(id)
+                        .tier(tier)
+                        .parkingLotName(appointment.parkingLotName())
+                        .vehicleSpotCategory(appointment.vehicleSpotCategory())
+                        .bucket(bucket)
+                        .build());
+    }
+
+    /**
+     * <p>Livello che conserva il periodo di {@code date} adesso: ore recenti, poi giorni, poi mesi</p>
+     */
+    RollupTier tierFor(LocalDateTime date, LocalDateTime now) {
+        if (!date.isBefore(hourlyCutoff(now))) {
+            return RollupTier.HOUR;
+        }
+        return date.isBefore(dailyCutoff(now)) ? RollupTier.MONTH : RollupTier.DAY;
+    }
+
+    private LocalDateTime hourlyCutoff(LocalDateTime now) {
+        return now.toLocalDate().minusDays(hourlyRetentionDays).atStartOfDay();
+    }
+
+    private LocalDateTime dailyCutoff(LocalDateTime now) {
+        return RollupTier.MONTH.truncate(now.minusDays(dailyRetentionDays));
+    }
+
+    private static void add(AppointmentRollup sum, AppointmentRollup row) {
+        sum.setCreated(sum.getCreated() + row.getCreated());
+        sum.setValid(sum.getValid() + row.getValid());
+        sum.setCanceled(sum.getCanceled() + row.getCanceled());
+        sum.setExpired(sum.getExpired() + row.getExpired());
+        sum.setOccupiedMinutes(sum.getOccupiedMinutes() + row.getOccupiedMinutes());
+    }
+
+    private static boolean isValid(AppointmentEvent.Snapshot appointment) {
+        return appointment != null && appointment.appointmentState() == AppointmentState.VALID;
+    }
+}
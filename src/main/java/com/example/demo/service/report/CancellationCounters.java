@@ -0,0 +1,275 @@
+package com.example.demo.service.report;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.CancellationWindow;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.pojo.LotCategoryBucketCount;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Prenotazioni create e cancellate per parcheggio e categoria nelle finestre scorrevoli di
+ * {@link CancellationWindow}, tenute in memoria</p>
+ * <p>Ogni coppia parcheggio-categoria ha due buffer circolari: 60 intervalli di un minuto per l'ultima ora e
+ * 720 intervalli di un'ora per l'ultimo giorno e gli ultimi 30 giorni. Gli eventi di {@link DomainEventBus}
+ * incrementano l'intervallo del momento della transizione, quindi una lettura costa O(intervalli della
+ * finestra) per coppia, senza query. Gli intervalli usciti dalla finestra vengono riusati alla prima scrittura.</p>
+ * <p>All'avvio e ogni {@code app.cancellation.reconcile-millis} i contatori vengono ricalcolati da
+ * {@code createdAt} e {@code canceledAt} delle prenotazioni con aggregazioni servite dai rispettivi indici:
+ * il ricalcolo corregge le derive (eventi scartati dal bus, modifiche fatte da altre istanze). Le modifiche
+ * concorrenti a un ricalcolo possono essere perse o contate due volte fino al ricalcolo successivo.</p>
+ */
+@Component
+public class CancellationCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(CancellationCounters.class);
+
+    private static final int MINUTE_SLOTS = 60;
+    private static final int HOUR_SLOTS = 30 * 24;
+
+    /**
+     * Coppia parcheggio-categoria.
+     */
+    public record Key(String parkingLotName, VehicleSpotCategory vehicleSpotCategory) {
+    }
+
+    /**
+     * Prenotazioni create e cancellate in una finestra.
+     */
+    public record Counts(long created, long canceled) {
+
+        Counts plus(Counts other) {
+            return new Counts(created + other.created, canceled + other.canceled);
+        }
+    }
+
+    /**
+     * Buffer circolare di contatori: l'intervallo {@code index} (dall'epoca) occupa la posizione
+     * {@code index % size} finche un intervallo piu recente non la riusa.
+     */
+    private static final class Ring {
+        private final long slotMillis;
+        private final long[] indexes;
+        private final int[] created;
+        private final int[] canceled;
+
+        private Ring(Duration slot, int size) {
+            this.slotMillis = slot.toMillis();
+            this.indexes = new long[size];
+            this.created = new int[size];
+            this.canceled = new int[size];
+            Arrays.fill(indexes, Long.MIN_VALUE);
+        }
+
+        private void add(long atMillis, long nowMillis, long createdDelta, long canceledDelta) {
+            long index = Math.floorDiv(atMillis, slotMillis);
+            if (index <= Math.floorDiv(nowMillis, slotMillis) - indexes.length) {
+                return;
+            }
+            int position = (int) Math.floorMod(index, (long) indexes.length);
+            if (indexes[position] != index) {
+                if (indexes[position] > index) {
+                    return;
+                }
+                indexes[position] = index;
+                created[position] = 0;
+                canceled[position] = 0;
+            }
+            created[position] += (int) createdDelta;
+            canceled[position] += (int) canceledDelta;
+        }
+
+        private Counts sum(long nowMillis, int slots) {
+            long current = Math.floorDiv(nowMillis, slotMillis);
+            long createdSum = 0;
+            long canceledSum = 0;
+            for (long index = current - slots + 1; index <= current; index++) {
+                int position = (int) Math.floorMod(index, (long) indexes.length);
+                if (indexes[position] == index) {
+                    createdSum += created[position];
+                    canceledSum += canceled[position];
+                }
+            }
+            return new Counts(createdSum, canceledSum);
+        }
+    }
+
+    private static final class Series {
+        private final Ring minutes = new Ring(Duration.ofMinutes(1), MINUTE_SLOTS);
+        private final Ring hours = new Ring(Duration.ofHours(1), HOUR_SLOTS);
+
+        private synchronized void add(long atMillis, long nowMillis, long created, long canceled) {
+            minutes.add(atMillis, nowMillis, created, canceled);
+            hours.add(atMillis, nowMillis, created, canceled);
+        }
+
+        private synchronized void load(ChronoUnit unit, long atMillis, long nowMillis, long created, long canceled) {
+            (unit == ChronoUnit.MINUTES ? minutes : hours).add(atMillis, nowMillis, created, canceled);
+        }
+
+        private synchronized Counts sum(CancellationWindow window, long nowMillis) {
+            return switch (window) {
+                case LAST_HOUR -> minutes.sum(nowMillis, MINUTE_SLOTS);
+                case LAST_DAY -> hours.sum(nowMillis, 24);
+                case LAST_30_DAYS -> hours.sum(nowMillis, HOUR_SLOTS);
+            };
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final DomainEventBus eventBus;
+    private final Clock clock;
+    private volatile Map<Key, Series> series = new ConcurrentHashMap<>();
+    private DomainEventBus.Subscription subscription;
+
+    @Autowired
+    public CancellationCounters(AppointmentRepository appointmentRepository, DomainEventBus eventBus) {
+        this(appointmentRepository, eventBus, Clock.systemUTC());
+    }
+
+    CancellationCounters(AppointmentRepository appointmentRepository, DomainEventBus eventBus, Clock clock) {
+        this.appointmentRepository = appointmentRepository;
+        this.eventBus = eventBus;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = eventBus.subscribe("cancellation-counters", this::apply);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * <p>Carica i contatori all'avvio; se il database non e raggiungibile restano quelli degli eventi e
+     * vengono riallineati dalla prossima riconciliazione</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Contatori delle cancellazioni non caricati, ritento alla prossima riconciliazione: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * <p>Ricalcola tutti i contatori dal database e sostituisce quelli in memoria</p>
+     * <p>Quattro aggregazioni (create e cancellate, al minuto per l'ultima ora e all'ora per gli ultimi
+     * 30 giorni), ognuna limitata all'intervallo dal proprio indice.</p>
+     */
+    @Scheduled(initialDelayString = "${app.cancellation.reconcile-millis:900000}",
+            fixedDelayString = "${app.cancellation.reconcile-millis:900000}")
+    public void reconcile() {
+        long now = clock.millis();
+        LocalDateTime utcNow = LocalDateTime.now(clock);
+        LocalDateTime minutesFrom = utcNow.truncatedTo(ChronoUnit.MINUTES).minusMinutes(MINUTE_SLOTS - 1);
+        LocalDateTime hoursFrom = utcNow.truncatedTo(ChronoUnit.HOURS).minusHours(HOUR_SLOTS - 1);
+
+        Map<Key, Series> rebuilt = new ConcurrentHashMap<>();
+        load(rebuilt, ChronoUnit.MINUTES, appointmentRepository.countCreatedSince(minutesFrom, ChronoUnit.MINUTES), now, true);
+        load(rebuilt, ChronoUnit.MINUTES, appointmentRepository.countCanceledSince(minutesFrom, ChronoUnit.MINUTES), now, false);
+        load(rebuilt, ChronoUnit.HOURS, appointmentRepository.countCreatedSince(hoursFrom, ChronoUnit.HOURS), now, true);
+        load(rebuilt, ChronoUnit.HOURS, appointmentRepository.countCanceledSince(hoursFrom, ChronoUnit.HOURS), now, false);
+        series = rebuilt;
+    }
+
+    /**
+     * <p>Prenotazioni create e cancellate nella finestra</p>
+     *
+     * @param parkingLotName parcheggio (senza distinguere maiuscole e minuscole), {@code null} per tutti
+     * @param category categoria, {@code null} per tutte
+     */
+    public Counts count(String parkingLotName, VehicleSpotCategory category, CancellationWindow window) {
+        long now = clock.millis();
+        return series.entrySet().stream()
+                .filter(entry -> parkingLotName == null || parkingLotName.equalsIgnoreCase(entry.getKey().parkingLotName()))
+                .filter(entry -> category == null || category == entry.getKey().vehicleSpotCategory())
+                .map(entry -> entry.getValue().sum(window, now))
+                .reduce(new Counts(0, 0), Counts::plus);
+    }
+
+    /**
+     * <p>Prenotazioni create e cancellate nella finestra per ogni coppia parcheggio-categoria con almeno una
+     * transizione</p>
+     */
+    public Map<Key, Counts> countByParkingLotAndCategory(CancellationWindow window) {
+        long now = clock.millis();
+        Map<Key, Counts> counts = new ConcurrentHashMap<>();
+        series.forEach((key, value) -> {
+            Counts sum = value.sum(window, now);
+            if (sum.created() > 0 || sum.canceled() > 0) {
+                counts.put(key, sum);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * <p>Conta le creazioni e le cancellazioni di un lotto di eventi; chiamato dal thread dell'iscrizione al bus</p>
+     */
+    void apply(List<DomainEvent> events) {
+        long now = clock.millis();
+        for (DomainEvent event : events) {
+            if (!(event instanceof AppointmentEvent appointmentEvent)) {
+                continue;
+            }
+            AppointmentEvent.Snapshot current = appointmentEvent.appointment();
+            AppointmentEvent.Snapshot previous = appointmentEvent.previous();
+            long at = appointmentEvent.occurredAt().toEpochMilli();
+            switch (appointmentEvent.type()) {
+                case CREATED -> series(current).add(at, now, 1, 0);
+                case CANCELED, UPDATED -> {
+                    // le cancellazioni di una serie non hanno lo stato precedente: erano tutte VALID
+                    boolean wasCanceled = previous != null && previous.appointmentState() == AppointmentState.CANCELED;
+                    if (!wasCanceled && current.appointmentState() == AppointmentState.CANCELED) {
+                        series(current).add(at, now, 0, 1);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private Series series(AppointmentEvent.Snapshot appointment) {
+        return series.computeIfAbsent(new Key(appointment.parkingLotName(), appointment.vehicleSpotCategory()),
+                key -> new Series());
+    }
+
+    private static void load(Map<Key, Series> target, ChronoUnit unit, List<LotCategoryBucketCount> counts, long now,
+                             boolean created) {
+        for (LotCategoryBucketCount count : counts) {
+            long at = count.getBucket().toInstant(ZoneOffset.UTC).toEpochMilli();
+            target.computeIfAbsent(new Key(count.getParkingLotName(), count.getVehicleSpotCategory()), key -> new Series())
+                    .load(unit, at, now, created ? count.getCount() : 0, created ? 0 : count.getCount());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Posti liberi per categoria in ogni intervallo di una finestra temporale, calcolati con una
+ * sola passata a linea di scansione</p>
+ * <p>Ogni prenotazione diventa un intervallo di bucket {@code [primo, ultimo]}: si incrementa il contatore
+ * della categoria in {@code primo} e lo si decrementa in {@code ultimo + 1}, poi una somma prefissa da
+ * gli occupati per bucket. Il costo e O(prenotazioni + categorie x bucket), indipendente dal numero di posti.</p>
+ * <p>Le prenotazioni dello stesso posto che toccano lo stesso bucket (una finisce alle 10:05, la successiva
+ * inizia alle 10:10) vengono fuse prima della scansione, cosi il posto e contato una volta sola.</p>
+ * <p>Un bucket e {@code [inizio, inizio + durata)}: una prenotazione che termina esattamente all'inizio
+ * del bucket non lo occupa.</p>
+ */
+public final class CapacityHeatmap {
+
+    private final LocalDateTime from;
+    private final long bucketSeconds;
+    private final int buckets;
+    private final List<VehicleSpotCategory> categories = List.of(VehicleSpotCategory.values());
+    private final int[] totals = new int[categories.size()];
+    private final int[][] free;
+
+    private CapacityHeatmap(LocalDateTime from, Duration bucket, int buckets) {
+        this.from = from;
+        this.bucketSeconds = bucket.getSeconds();
+        this.buckets = buckets;
+        this.free = new int[categories.size()][buckets];
+    }
+
+    /**
+     * @param from inizio della finestra (UTC)
+     * @param bucket durata di un intervallo
+     * @param buckets numero di intervalli
+     * @param spots posti del parcheggio
+     * @param appointments prenotazioni {@code VALID} del parcheggio che si sovrappongono alla finestra
+     */
+    public static CapacityHeatmap compute(LocalDateTime from, Duration bucket, int buckets,
+                                          List<VehicleSpot> spots, List<Appointment> appointments) {
+        CapacityHeatmap heatmap = new CapacityHeatmap(from, bucket, buckets);
+        heatmap.sweep(spots, appointments);
+        return heatmap;
+    }
+
+    public List<VehicleSpotCategory> getCategories() {
+        return categories;
+    }
+
+    public int[] getTotals() {
+        return totals;
+    }
+
+    /**
+     * @return posti liberi, una riga per categoria nell'ordine di {@link #getCategories()} e una colonna per bucket
+     */
+    public int[][] getFree() {
+        return free;
+    }
+
+    private void sweep(List<VehicleSpot> spots, List<Appointment> appointments) {
+        Map<String, VehicleSpotCategory> categoryBySpot = new HashMap<>(spots.size() * 2);
+        for (VehicleSpot spot : spots) {
+            totals[spot.getVehicleSpotCategory().ordinal()]++;
+            categoryBySpot.put(spot.getId(), spot.getVehicleSpotCategory());
+        }
+
+        int[][] delta = new int[categories.size()][buckets + 1];
+        List<Appointment> sorted = new ArrayList<>(appointments);
+        sorted.sort(Comparator.comparing(Appointment::getVehicleSpotId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Appointment::getInitialDate));
+
+        String currentSpot = null;
+        int rangeStart = -1;
+        int rangeEnd = -1;
+        int[] row = null;
+        for (Appointment appointment : sorted) {
+            VehicleSpotCategory category = categoryBySpot.get(appointment.getVehicleSpotId());
+            int first = Math.max(0, bucketOf(appointment.getInitialDate()));
+            int last = Math.min(buckets - 1, lastBucketOf(appointment.getEndingDate()));
+            if (category == null || first > last) {
+                continue;
+            }
+            if (appointment.getVehicleSpotId().equals(currentSpot) && first <= rangeEnd + 1) {
+                rangeEnd = Math.max(rangeEnd, last);
+                continue;
+            }
+            if (row != null) {
+                row[rangeStart]++;
+                row[rangeEnd + 1]--;
+            }
+            currentSpot = appointment.getVehicleSpotId();
+            row = delta[category.ordinal()];
+            rangeStart = first;
+            rangeEnd = last;
+        }
+        if (row != null) {
+            row[rangeStart]++;
+            row[rangeEnd + 1]--;
+        }
+
+        for (int c = 0; c < categories.size(); c++) {
+            int occupied = 0;
+            for (int b = 0; b < buckets; b++) {
+                occupied += delta[c][b];
+                free[c][b] = Math.max(totals[c] - occupied, 0);
+            }
+        }
+    }
+
+    /**
+     * Bucket che contiene l'istante.
+     */
+    private int bucketOf(LocalDateTime date) {
+        return (int) Math.floorDiv(Duration.between(from, date).getSeconds(), bucketSeconds);
+    }
+
+    /**
+     * Ultimo bucket toccato da un intervallo che termina nell'istante (estremo escluso).
+     */
+    private int lastBucketOf(LocalDateTime endingDate) {
+        long seconds = Duration.between(from, endingDate).getSeconds();
+        return (int) (Math.floorDiv(seconds + bucketSeconds - 1, bucketSeconds) - 1);
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.demo.service.report;
+
+import com.example.demo.annotations.LeaderOnly;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.report.ParkingOccupancyResponseDto;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.model.entities.ParkingOccupancySummary;
+import com.example.demo.model.pojo.LotCategoryCount;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.repository.ParkingOccupancySummaryRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.ParkingLotEvent;
+import com.example.demo.service.events.VehicleSpotEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>Vista materializzata dell'occupazione di ogni parcheggio, per categoria, tenuta in memoria</p>
+ * <p>I contatori (posti per categoria, prenotazioni {@code VALID} per categoria, capacita) vengono aggiornati
+ * ad ogni evento di {@link DomainEventBus}, quindi la lettura costa O(parcheggi) senza scansioni delle
+ * collezioni. All'avvio si parte dai riepiloghi salvati in {@link ParkingOccupancySummary} e poi si ricostruisce
+ * la vista con due aggregazioni lato server; la ricostruzione si ripete periodicamente e corregge le derive
+ * (eventi scartati dal bus, modifiche fatte da altre istanze, scadenze della riconciliazione sul database).</p>
+ * <p>Le modifiche concorrenti a una ricostruzione possono essere contate due volte o perse fino alla
+ * ricostruzione successiva; i contatori non scendono mai sotto zero.</p>
+ */
+@Component
+public class OccupancyView {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyView.class);
+
+    /**
+     * Contatori di un parcheggio; {@code parkingLotId} e {@code null} finche il parcheggio non e noto.
+     */
+    private static final class Counters {
+        private String parkingLotId;
+        private long capacity;
+        private long occupied;
+        private final Map<VehicleSpotCategory, Long> spots = new EnumMap<>(VehicleSpotCategory.class);
+        private final Map<VehicleSpotCategory, Long> occupiedByCategory = new EnumMap<>(VehicleSpotCategory.class);
+        private boolean dirty = true;
+
+        private void occupy(VehicleSpotCategory category, long delta) {
+            occupied = Math.max(occupied + delta, 0);
+            adjust(occupiedByCategory, category, delta);
+            dirty = true;
+        }
+
+        private void spot(VehicleSpotCategory category, long delta) {
+            adjust(spots, category, delta);
+            dirty = true;
+        }
+
+        private static void adjust(Map<VehicleSpotCategory, Long> counts, VehicleSpotCategory category, long delta) {
+            if (category == null) {
+                return;
+            }
+            long value = counts.getOrDefault(category, 0L) + delta;
+            if (value > 0) {
+                counts.put(category, value);
+            } else {
+                counts.remove(category);
+            }
+        }
+    }
+
+    private final ParkingLotRepository parkingLotRepository;
+    private final VehicleSpotRepository vehicleSpotRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ParkingOccupancySummaryRepository summaryRepository;
+    private final DomainEventBus eventBus;
+
+    private Map<String, Counters> lots = new LinkedHashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private volatile boolean ready;
+    private DomainEventBus.Subscription subscription;
+
+    @Autowired
+    public OccupancyView(ParkingLotRepository parkingLotRepository, VehicleSpotRepository vehicleSpotRepository,
+                         AppointmentRepository appointmentRepository, ParkingOccupancySummaryRepository summaryRepository,
+                         DomainEventBus eventBus) {
+        this.parkingLotRepository = parkingLotRepository;
+        this.vehicleSpotRepository = vehicleSpotRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.summaryRepository = summaryRepository;
+        this.eventBus = eventBus;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = eventBus.subscribe("occupancy-view", this::apply);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * <p>Carica i riepiloghi salvati e poi ricostruisce la vista dal database</p>
+     * <p>Se il database non e raggiungibile l'avvio prosegue e la vista viene ricostruita dal task periodico</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            loadSummaries();
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Vista di occupazione non caricata, ritento alla prossima ricostruzione: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * <p>Ricostruisce la vista con la lista dei parcheggi e due aggregazioni per parcheggio e categoria
+     * (posti veicolo e prenotazioni {@code VALID}), poi la sostituisce in blocco</p>
+     */
+    @Scheduled(initialDelayString = "${app.occupancy.rebuild-millis:600000}", fixedDelayString = "${app.occupancy.rebuild-millis:600000}")
+    public void rebuild() {
+        List<ParkingLot> parkingLots = parkingLotRepository.findAll();
+        List<LotCategoryCount> spots = vehicleSpotRepository.countByParkingLotAndCategory();
+        List<LotCategoryCount> valid = appointmentRepository.countValidByParkingLotAndCategory();
+
+        Map<String, Counters> rebuilt = new LinkedHashMap<>();
+        parkingLots.forEach(parkingLot -> rebuilt.put(parkingLot.getName(), counters(parkingLot)));
+        spots.forEach(count -> Optional.ofNullable(rebuilt.get(count.getParkingLotName()))
+                .ifPresent(counters -> counters.spot(count.getVehicleSpotCategory(), count.getCount())));
+        valid.forEach(count -> Optional.ofNullable(rebuilt.get(count.getParkingLotName()))
+                .ifPresent(counters -> counters.occupy(count.getVehicleSpotCategory(), count.getCount())));
+
+        synchronized (this) {
+            lots.keySet().stream().filter(name -> !rebuilt.containsKey(name)).forEach(removed::add);
+            lots = rebuilt;
+            ready = true;
+        }
+    }
+
+    /**
+     * <p>Salva i riepiloghi dei parcheggi modificati ed elimina quelli dei parcheggi rimossi</p>
+     * <p>Basta una istanza: ognuna ricostruisce periodicamente la propria vista dal database.</p>
+     */
+    @LeaderOnly("occupancy-summary")
+    @Scheduled(fixedDelayString = "${app.occupancy.persist-millis:30000}")
+    public void persist() {
+        List<ParkingOccupancySummary> changed = new ArrayList<>();
+        List<String> deleted;
+        synchronized (this) {
+            if (!ready) {
+                return;
+            }
+            Instant now = Instant.now();
+            lots.forEach((name, counters) -> {
+                if (counters.dirty && counters.parkingLotId != null) {
+                    changed.add(toSummary(name, counters, now));
+                    counters.dirty = false;
+                }
+            });
+            deleted = List.copyOf(removed);
+            removed.clear();
+        }
+        try {
+            summaryRepository.saveAll(changed);
+            summaryRepository.deleteAllById(deleted);
+        } catch (RuntimeException e) {
+            log.warn("Riepiloghi di occupazione non salvati, ritento al prossimo giro: {}", e.getMessage());
+            synchronized (this) {
+                changed.forEach(summary -> Optional.ofNullable(lots.get(summary.getParkingLotName()))
+                        .ifPresent(counters -> counters.dirty = true));
+                removed.addAll(deleted);
+            }
+        }
+    }
+
+    /**
+     * <p>Occupazione di tutti i parcheggi noti, nell'ordine di caricamento</p>
+     * <p>Se la vista non e ancora pronta viene ricostruita subito.</p>
+     */
+    public List<ParkingOccupancyResponseDto> snapshot() {
+        ensureReady();
+        synchronized (this) {
+            List<ParkingOccupancyResponseDto> result = new ArrayList<>(lots.size());
+            lots.forEach((name, counters) -> {
+                if (counters.parkingLotId != null) {
+                    result.add(toDto(name, counters));
+                }
+            });
+            return result;
+        }
+    }
+
+    /**
+     * <p>Occupazione di un parcheggio cercato per nome, senza distinguere maiuscole e minuscole</p>
+     * <p>Se la vista non e ancora pronta il parcheggio viene calcolato da solo con {@link #compute}.</p>
+     */
+    public Optional<ParkingOccupancyResponseDto> find(String parkingLotName) {
+        if (!ready) {
+            return compute(parkingLotName);
+        }
+        synchronized (this) {
+            Counters exact = lots.get(parkingLotName);
+            if (exact != null && exact.parkingLotId != null) {
+                return Optional.of(toDto(parkingLotName, exact));
+            }
+            return lots.entrySet().stream()
+                    .filter(entry -> entry.getValue().parkingLotId != null && entry.getKey().equalsIgnoreCase(parkingLotName))
+                    .findFirst()
+                    .map(entry -> toDto(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * <p>Calcola l'occupazione di un solo parcheggio direttamente dal database, senza passare dalla vista</p>
+     * <p>Due aggregazioni filtrate sul parcheggio e servite dagli indici composti (posti per categoria,
+     * prenotazioni {@code VALID} per categoria): il costo dipende solo dai dati di quel parcheggio. Il nome
+     * viene cercato esatto e poi senza distinguere maiuscole e minuscole.</p>
+     */
+    public Optional<ParkingOccupancyResponseDto> compute(String parkingLotName) {
+        return parkingLotRepository.findByName(parkingLotName)
+                .or(() -> parkingLotRepository.findByNameIgnoreCase(parkingLotName))
+                .map(parkingLot -> {
+                    Counters counters = counters(parkingLot);
+                    vehicleSpotRepository.countByCategory(parkingLot.getName())
+                            .forEach(count -> counters.spot(count.getVehicleSpotCategory(), count.getCount()));
+                    appointmentRepository.countValidByCategory(parkingLot.getName())
+                            .forEach(count -> counters.occupy(count.getVehicleSpotCategory(), count.getCount()));
+                    return toDto(parkingLot.getName(), counters);
+                });
+    }
+
+    /**
+     * <p>Applica un lotto di eventi ai contatori; chiamato dal thread dell'iscrizione al bus</p>
+     */
+    synchronized void apply(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof AppointmentEvent appointmentEvent) {
+                applyAppointment(appointmentEvent);
+            } else if (event instanceof VehicleSpotEvent spotEvent) {
+                applyVehicleSpot(spotEvent);
+            } else if (event instanceof ParkingLotEvent parkingLotEvent) {
+                applyParkingLot(parkingLotEvent);
+            }
+        }
+    }
+
+    private void applyAppointment(AppointmentEvent event) {
+        AppointmentEvent.Snapshot current = event.appointment();
+        AppointmentEvent.Snapshot previous = event.previous();
+        switch (event.type()) {
+            case CREATED -> occupy(current, isValid(current) ? 1 : 0);
+            case UPDATED -> {
+                occupy(previous, isValid(previous) ? -1 : 0);
+                occupy(current, isValid(current) ? 1 : 0);
+            }
+            // le cancellazioni di una serie non hanno lo stato precedente: riguardano solo prenotazioni valide
+            case CANCELED -> occupy(current, previous == null || isValid(previous) ? -1 : 0);
+            case DELETED -> occupy(current, isValid(current) ? -1 : 0);
+            case EXPIRED -> occupy(current, -1);
+        }
+    }
+
+    private void applyVehicleSpot(VehicleSpotEvent event) {
+        switch (event.type()) {
+            case CREATED -> counters(event.parkingLotName()).spot(event.vehicleSpotCategory(), 1);
+            case DELETED -> counters(event.parkingLotName()).spot(event.vehicleSpotCategory(), -1);
+            case UPDATED, MOVED -> {
+                counters(event.previousParkingLotName()).spot(event.previousCategory(), -1);
+                counters(event.parkingLotName()).spot(event.vehicleSpotCategory(), 1);
+            }
+        }
+    }
+
+    private void applyParkingLot(ParkingLotEvent event) {
+        if (event.type() == ParkingLotEvent.Type.DELETED) {
+            if (lots.remove(event.parkingLotName()) != null) {
+                removed.add(event.parkingLotName());
+            }
+            return;
+        }
+        Counters counters = counters(event.parkingLotName());
+        counters.parkingLotId = event.parkingLotId();
+        counters.capacity = event.vehicleSpotNumber() == null ? 0 : event.vehicleSpotNumber();
+        counters.dirty = true;
+        removed.remove(event.parkingLotName());
+    }
+
+    private void occupy(AppointmentEvent.Snapshot appointment, long delta) {
+        if (appointment != null && delta != 0 && appointment.parkingLotName() != null) {
+            counters(appointment.parkingLotName()).occupy(appointment.vehicleSpotCategory(), delta);
+        }
+    }
+
+    private Counters counters(String parkingLotName) {
+        return lots.computeIfAbsent(parkingLotName == null ? "" : parkingLotName, name -> new Counters());
+    }
+
+    private static Counters counters(ParkingLot parkingLot) {
+        Counters counters = new Counters();
+        counters.parkingLotId = parkingLot.getId();
+        counters.capacity = parkingLot.getVehicleSpotNumber() == null ? 0 : parkingLot.getVehicleSpotNumber();
+        return counters;
+    }
+
+    private static boolean isValid(AppointmentEvent.Snapshot appointment) {
+        return appointment != null && appointment.appointmentState() == AppointmentState.VALID;
+    }
+
+    private void ensureReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    private synchronized void loadSummaries() {
+        if (ready) {
+            return;
+        }
+        Map<String, Counters> loaded = new LinkedHashMap<>();
+        summaryRepository.findAll().forEach(summary -> {
+            Counters counters = new Counters();
+            counters.parkingLotId = summary.getParkingLotId();
+            counters.capacity = summary.getTotalSlots();
+            counters.occupied = summary.getOccupiedSlots();
+            if (summary.getSpotsByCategory() != null) {
+                counters.spots.putAll(summary.getSpotsByCategory());
+            }
+            if (summary.getOccupiedByCategory() != null) {
+                counters.occupiedByCategory.putAll(summary.getOccupiedByCategory());
+            }
+            counters.dirty = false;
+            loaded.put(summary.getParkingLotName(), counters);
+        });
+        if (!loaded.isEmpty()) {
+            lots = loaded;
+            ready = true;
+        }
+    }
+
+    private static ParkingOccupancySummary toSummary(String parkingLotName, Counters counters, Instant now) {
+        return ParkingOccupancySummary.builder()
+                .parkingLotName(parkingLotName)
+                .parkingLotId(counters.parkingLotId)
+                .totalSlots(counters.capacity)
+                .occupiedSlots(counters.occupied)
+                .spotsByCategory(new EnumMap<>(counters.spots))
+                .occupiedByCategory(new EnumMap<>(counters.occupiedByCategory))
+                .updatedAt(now)
+                .build();
+    }
+
+    private static ParkingOccupancyResponseDto toDto(String parkingLotName, Counters counters) {
+        Map<VehicleSpotCategory, Map<String, Long>> categoryBreakdown = new EnumMap<>(VehicleSpotCategory.class);
+        counters.spots.forEach((category, total) -> {
+            long occupied = counters.occupiedByCategory.getOrDefault(category, 0L);
+            Map<String, Long> orderedMap = new LinkedHashMap<>();
+            orderedMap.put("total", total);
+            orderedMap.put("occupied", occupied);
+            orderedMap.put("available", Math.max(total - occupied, 0));
+            categoryBreakdown.put(category, orderedMap);
+        });
+        return new ParkingOccupancyResponseDto(counters.parkingLotId, parkingLotName, counters.capacity,
+                counters.occupied, Math.max(counters.capacity - counters.occupied, 0), categoryBreakdown);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.demo.service.report;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.ParkingLotEvent;
+import com.example.demo.service.events.VehicleSpotEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * <p>Risultati dei report tenuti in memoria, per tipo di report, parcheggio e parametri</p>
+ * <p>Le voci scadono dopo {@code app.report-cache.ttl-seconds} e oltre {@code app.report-cache.max-entries}
+ * viene tolta la voce usata meno di recente. Le modifiche a prenotazioni e posti tolgono solo le voci del loro
+ * parcheggio (e dell'eventuale parcheggio precedente), e lo stesso vale per le modifiche ai parcheggi, compresi
+ * i cambi di capienza. Le voci senza parcheggio (report su tutti i parcheggi) vengono tolte da qualsiasi
+ * modifica.</p>
+ * <p>Le modifiche arrivano da {@link DomainEventBus}, quindi solo quelle fatte su questa istanza e con il ritardo
+ * del bus: le modifiche fatte su altre istanze si vedono alla scadenza della voce. Un risultato calcolato mentre
+ * arriva una modifica del suo parcheggio non viene salvato, perche potrebbe non contenerla: ogni parcheggio ha il
+ * suo contatore delle modifiche, cosi le modifiche agli altri parcheggi non impediscono il salvataggio.</p>
+ */
+@Component
+public class ReportCache {
+
+    /**
+     * Chiave di una voce: il nome del parcheggio e confrontato senza distinguere maiuscole e minuscole.
+     */
+    public record Key(String report, String parkingLotName, List<Object> args) {
+    }
+
+    /**
+     * Contatori dall'avvio e occupazione attuale.
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, long invalidations, int size,
+                        int maxEntries, Duration ttl) {
+    }
+
+    private record Entry(Object value, long expiresAtMillis) {
+    }
+
+    private final DomainEventBus eventBus;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+    /**
+     * Modifiche per parcheggio (nome normalizzato), usate dalle voci di quel parcheggio.
+     */
+    private final Map<String, Long> lotGenerations = new HashMap<>();
+    /**
+     * Tutte le modifiche, usate dalle voci senza parcheggio.
+     */
+    private long generation;
+    /**
+     * Svuotamenti completi, che valgono per ogni parcheggio.
+     */
+    private long clears;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private DomainEventBus.Subscription subscription;
+
+    @Autowired
+    public ReportCache(DomainEventBus eventBus, AppProperties appProperties) {
+        this(eventBus, appProperties.getReportCache().getMaxEntries(),
+                Duration.ofSeconds(appProperties.getReportCache().getTtlSeconds()), Clock.systemUTC());
+    }
+
+    ReportCache(DomainEventBus eventBus, int maxEntries, Duration ttl, Clock clock) {
+        this.eventBus = eventBus;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= ReportCache.this.maxEntries) {
+                    return false;
+                }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = eventBus.subscribe("report-cache", this::apply);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * @param parkingLotName parcheggio del report, {@code null} per i report su tutti i parcheggi
+     * @param args parametri che distinguono il risultato (intervallo, zona, ...)
+     */
+    public static Key key(String report, String parkingLotName, Object... args) {
+        return new Key(report, normalize(parkingLotName), Arrays.asList(args));
+    }
+
+    /**
+     * <p>Restituisce il risultato in cache o lo calcola con {@code loader} e lo salva</p>
+     * <p>Il calcolo avviene fuori dal lock; le eccezioni di {@code loader} arrivano al chiamante e non vengono
+     * salvate.</p>
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        long seen;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtMillis() > clock.millis()) {
+                    hits++;
+                    return (T) entry.value();
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            seen = generationOf(key.parkingLotName());
+        }
+        T value = loader.get();
+        synchronized (entries) {
+            if (generationOf(key.parkingLotName()) == seen) {
+                entries.put(key, new Entry(value, clock.millis() + ttl.toMillis()));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * <p>Toglie le voci dei parcheggi indicati e quelle su tutti i parcheggi</p>
+     */
+    public void invalidate(Set<String> parkingLotNames) {
+        Set<String> normalized = new HashSet<>();
+        parkingLotNames.forEach(name -> normalized.add(normalize(name)));
+        synchronized (entries) {
+            generation++;
+            normalized.forEach(name -> lotGenerations.merge(name, 1L, Long::sum));
+            int before = entries.size();
+            entries.keySet().removeIf(key -> key.parkingLotName() == null || normalized.contains(key.parkingLotName()));
+            invalidations += before - entries.size();
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            clears++;
+            invalidations += entries.size();
+            entries.clear();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits, misses, evictions, expirations, invalidations, entries.size(), maxEntries, ttl);
+        }
+    }
+
+    /**
+     * <p>Toglie le voci toccate da un lotto di eventi; chiamato dal thread dell'iscrizione al bus</p>
+     */
+    void apply(List<DomainEvent> events) {
+        Set<String> parkingLotNames = new HashSet<>();
+        for (DomainEvent event : events) {
+            if (event instanceof ParkingLotEvent parkingLotEvent) {
+                if (parkingLotEvent.parkingLotName() == null) {
+                    invalidateAll();
+                    return;
+                }
+                parkingLotNames.add(parkingLotEvent.parkingLotName());
+            } else if (event instanceof AppointmentEvent appointmentEvent) {
+                parkingLotNames.add(appointmentEvent.appointment().parkingLotName());
+                if (appointmentEvent.previous() != null) {
+                    parkingLotNames.add(appointmentEvent.previous().parkingLotName());
+                }
+            } else if (event instanceof VehicleSpotEvent vehicleSpotEvent) {
+                parkingLotNames.add(vehicleSpotEvent.parkingLotName());
+                parkingLotNames.add(vehicleSpotEvent.previousParkingLotName());
+            }
+        }
+        parkingLotNames.remove(null);
+        if (!parkingLotNames.isEmpty()) {
+            invalidate(parkingLotNames);
+        }
+    }
+
+    /**
+     * Stato delle modifiche che riguardano le voci del parcheggio; va letto tenendo il lock.
+     */
+    private long generationOf(String parkingLotName) {
+        return parkingLotName == null ? generation : clears + lotGenerations.getOrDefault(parkingLotName, 0L);
+    }
+
+    private static String normalize(String parkingLotName) {
+        return parkingLotName == null ? null : parkingLotName.toLowerCase(Locale.ROOT);
+    }
+}
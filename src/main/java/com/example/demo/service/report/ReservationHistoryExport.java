@@ -0,0 +1,121 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.ExportFormat;
+import com.example.demo.model.dto.report.ReservationExportRowDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.utils.DateUtilities;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * <p>Scrive lo storico delle prenotazioni in NDJSON o CSV una riga alla volta</p>
+ * <p>Le prenotazioni arrivano da un cursore e ognuna viene scritta e dimenticata: la memoria usata non dipende
+ * dal numero di righe. L'uscita viene svuotata ogni {@value #FLUSH_EVERY} righe, cosi il client riceve i dati
+ * mentre il cursore avanza.</p>
+ */
+public final class ReservationHistoryExport {
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final String[] CSV_HEADER = {"id", "parkingLotName", "vehicleSpotId", "vehicleSpotCategory",
+            "initialDate", "endingDate", "appointmentState", "seriesId"};
+
+    private ReservationHistoryExport() {
+    }
+
+    /**
+     * <p>Scrive tutte le prenotazioni di {@code appointments} e chiude lo stream (e quindi il cursore)</p>
+     *
+     * @param zoneIdFromClient zona in cui riportare le date, salvate in UTC
+     * @return numero di righe scritte, intestazione CSV esclusa
+     */
+    public static long write(Stream<Appointment> appointments, ExportFormat format, String zoneIdFromClient,
+                             ObjectMapper objectMapper, OutputStream out) throws IOException {
+        ZoneId zoneId = ZoneId.of(zoneIdFromClient);
+        ObjectWriter json = objectMapper.writerFor(ReservationExportRowDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long rows = 0;
+        try (appointments) {
+            if (format == ExportFormat.CSV) {
+                writer.write(String.join(",", CSV_HEADER));
+                writer.write('\n');
+            }
+            for (Iterator<Appointment> iterator = appointments.iterator(); iterator.hasNext(); ) {
+                ReservationExportRowDto row = toRow(iterator.next(), zoneId);
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    json.writeValue(writer, row);
+                }
+                writer.write('\n');
+                if (++rows % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static ReservationExportRowDto toRow(Appointment appointment, ZoneId zoneId) {
+        return ReservationExportRowDto.builder()
+                .id(appointment.getId())
+                .parkingLotName(appointment.getParkingLotName())
+                .vehicleSpotId(appointment.getVehicleSpotId())
+                .vehicleSpotCategory(appointment.getVehicleSpotCategory())
+                .initialDate(toZone(appointment.getInitialDate(), zoneId))
+                .endingDate(toZone(appointment.getEndingDate(), zoneId))
+                .appointmentState(appointment.getAppointmentState())
+                .seriesId(appointment.getSeriesId())
+                .build();
+    }
+
+    private static void writeCsv(Writer writer, ReservationExportRowDto row) throws IOException {
+        writer.write(csv(row.getId()));
+        writer.write(',');
+        writer.write(csv(row.getParkingLotName()));
+        writer.write(',');
+        writer.write(csv(row.getVehicleSpotId()));
+        writer.write(',');
+        writer.write(csv(row.getVehicleSpotCategory()));
+        writer.write(',');
+        writer.write(csv(row.getInitialDate() == null ? null : row.getInitialDate().format(DateUtilities.getDateFormat())));
+        writer.write(',');
+        writer.write(csv(row.getEndingDate() == null ? null : row.getEndingDate().format(DateUtilities.getDateFormat())));
+        writer.write(',');
+        writer.write(csv(row.getAppointmentState()));
+        writer.write(',');
+        writer.write(csv(row.getSeriesId()));
+    }
+
+    /**
+     * Campo CSV (RFC 4180): tra virgolette solo se contiene separatori, virgolette o a capo.
+     */
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static LocalDateTime toZone(LocalDateTime utc, ZoneId zoneId) {
+        return utc == null ? null : utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(zoneId).toLocalDateTime();
+    }
+}
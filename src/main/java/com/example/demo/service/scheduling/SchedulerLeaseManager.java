@@ -0,0 +1,210 @@
+package com.example.demo.service.scheduling;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.repository.SchedulerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Coordina i task schedulati tra le istanze dell'applicazione: per ogni task una sola istanza, quella
+ * che detiene il lease su {@link com.example.demo.model.entities.SchedulerLease}, lo esegue</p>
+ * <p>Un thread dedicato rinnova i lease di tutti i task noti ad ogni heartbeat; se l'istanza che li
+ * detiene si ferma, un'altra li prende al primo heartbeat dopo la scadenza. La verifica prima di ogni
+ * esecuzione non interroga il database: l'istanza si considera leader fino alla scadenza del lease
+ * misurata dall'inizio dell'ultimo rinnovo riuscito, che non supera mai quella scritta sul database.</p>
+ * <p>Se il database non risponde l'istanza resta leader solo fino a quella scadenza. Gli orologi delle
+ * istanze devono differire molto meno della durata del lease.</p>
+ * <p>I task si registrano con {@link com.example.demo.annotations.LeaderOnly}.</p>
+ */
+@Component
+public class SchedulerLeaseManager {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLeaseManager.class);
+
+    /**
+     * Stato locale del lease e statistiche delle esecuzioni di un task.
+     */
+    private static final class Job {
+        private volatile long leaderUntilNanos;
+        private volatile boolean leader;
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile long lastNanos;
+    }
+
+    /**
+     * Istantanea delle statistiche di un task.
+     */
+    public record JobStats(String jobName, boolean leader, long acquisitions, long runs, long skipped,
+                           long lastDurationMillis, long maxDurationMillis, long totalDurationMillis) {
+    }
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor heartbeat;
+    private final String owner;
+    private final Duration ttl;
+
+    @Autowired
+    public SchedulerLeaseManager(SchedulerLeaseRepository schedulerLeaseRepository, AppProperties appProperties) {
+        this(schedulerLeaseRepository, instanceName(),
+                Duration.ofMillis(appProperties.getLease().getTtlMillis()),
+                Duration.ofMillis(appProperties.getLease().getHeartbeatMillis()));
+    }
+
+    SchedulerLeaseManager(SchedulerLeaseRepository schedulerLeaseRepository, String owner, Duration ttl, Duration heartbeatPeriod) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.owner = owner;
+        this.ttl = ttl;
+        this.heartbeat = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = heartbeatPeriod.toMillis();
+        this.heartbeat.scheduleAtFixedRate(this::renewAll, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Verifica se questa istanza deve eseguire il task</p>
+     * <p>Alla prima chiamata il task viene registrato e il lease richiesto subito; in seguito la risposta
+     * usa lo stato aggiornato dall'heartbeat.</p>
+     *
+     * @param jobName nome del task, uguale su tutte le istanze
+     * @return {@code true} se l'istanza detiene il lease non scaduto
+     */
+    public boolean isLeader(String jobName) {
+        Job job = jobs.get(jobName);
+        if (job == null) {
+            job = jobs.computeIfAbsent(jobName, name -> new Job());
+            renew(jobName, job);
+        }
+        return isLeader(job);
+    }
+
+    /**
+     * <p>Registra un'esecuzione saltata perche il lease e di un'altra istanza</p>
+     */
+    public void recordSkipped(String jobName) {
+        jobs.computeIfAbsent(jobName, name -> new Job()).skipped.increment();
+    }
+
+    /**
+     * <p>Registra la durata di un'esecuzione del task</p>
+     */
+    public void recordRun(String jobName, long elapsedNanos) {
+        Job job = jobs.computeIfAbsent(jobName, name -> new Job());
+        job.runs.increment();
+        job.totalNanos.add(elapsedNanos);
+        job.maxNanos.accumulate(elapsedNanos);
+        job.lastNanos = elapsedNanos;
+    }
+
+    /**
+     * @return statistiche dei task registrati, ordinate per nome
+     */
+    public List<JobStats> stats() {
+        return jobs.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .map(entry -> {
+                    Job job = entry.getValue();
+                    return new JobStats(entry.getKey(), isLeader(job), job.acquisitions.sum(), job.runs.sum(),
+                            job.skipped.sum(), toMillis(job.lastNanos), toMillis(job.maxNanos.get()),
+                            toMillis(job.totalNanos.sum()));
+                })
+                .toList();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * <p>Ferma l'heartbeat e rilascia i lease detenuti, cosi un'altra istanza li prende senza attendere la scadenza</p>
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        jobs.forEach((jobName, job) -> {
+            if (!isLeader(job)) {
+                return;
+            }
+            job.leader = false;
+            try {
+                schedulerLeaseRepository.release(jobName, owner);
+            } catch (RuntimeException e) {
+                log.warn("Impossibile rilasciare il lease del task {}: {}", jobName, e.getMessage());
+            }
+        });
+    }
+
+    void renewAll() {
+        jobs.forEach(this::renew);
+    }
+
+    private void renew(String jobName, Job job) {
+        long start = System.nanoTime();
+        boolean held;
+        try {
+            held = schedulerLeaseRepository.tryAcquire(jobName, owner, ttl);
+        } catch (RuntimeException e) {
+            // senza risposta resta valida la scadenza dell'ultimo rinnovo riuscito
+            log.warn("Rinnovo del lease del task {} non riuscito: {}", jobName, e.getMessage());
+            return;
+        }
+        if (!held) {
+            if (job.leader) {
+                log.info("Lease del task {} passato a un'altra istanza", jobName);
+            }
+            job.leader = false;
+            return;
+        }
+        if (!isLeader(job)) {
+            job.acquisitions.increment();
+            log.info("Lease del task {} acquisito da {}", jobName, owner);
+        }
+        job.leaderUntilNanos = start + ttl.toNanos();
+        job.leader = true;
+    }
+
+    private static boolean isLeader(Job job) {
+        return job.leader && System.nanoTime() - job.leaderUntilNanos < 0;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String instanceName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "instance";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.service.waitlist;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.enumerators.WaitlistState;
+import com.example.demo.model.entities.WaitlistEntry;
+import com.example.demo.repository.WaitlistEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Liste d'attesa in memoria, una per coppia parcheggio/categoria</p>
+ * <p>Ogni lista tiene le richieste ordinate per data di inizio, insieme alla durata massima registrata:
+ * quando si libera l'intervallo {@code [start, end]} le sole richieste che possono beneficiarne iniziano
+ * tra {@code start - durataMassima} e {@code end}, quindi non serve scorrere tutta la coda.</p>
+ * <p>L'ordine di servizio e per priorita decrescente e poi per arrivo (FIFO).</p>
+ * <p>Le richieste sono salvate nella collezione {@code WaitlistEntry}; qui si tengono solo quelle
+ * {@code WAITING}, ricaricate all'avvio e ogni {@code app.waitlist.reload-millis}: il ricaricamento aggiunge
+ * le richieste iscritte su altre istanze e toglie quelle che altre istanze hanno assegnato, cancellato o fatto
+ * scadere. Tra un ricaricamento e l'altro una richiesta puo comparire su piu istanze, ma il passaggio a
+ * {@code ASSIGNED} e condizionato sul database e riesce una volta sola.</p>
+ */
+@Component
+public class Waitlist {
+
+    private static final Logger log = LoggerFactory.getLogger(Waitlist.class);
+
+    /**
+     * Ordine di servizio: priorita decrescente, poi arrivo.
+     */
+    public static final Comparator<WaitlistEntry> SERVICE_ORDER = Comparator
+            .comparingInt(WaitlistEntry::getPriority).reversed()
+            .thenComparing(WaitlistEntry::getCreatedAt)
+            .thenComparing(WaitlistEntry::getId);
+
+    private static final Comparator<WaitlistEntry> START_ORDER = Comparator
+            .comparing(WaitlistEntry::getInitialDate)
+            .thenComparing(WaitlistEntry::getId);
+
+    private record Key(String parkingLotName, VehicleSpotCategory vehicleSpotCategory) {
+    }
+
+    private static final class Queue {
+        private final NavigableSet<WaitlistEntry> byStart = new ConcurrentSkipListSet<>(START_ORDER);
+        private final AtomicReference<Duration> longest = new AtomicReference<>(Duration.ZERO);
+    }
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    private final Map<Key, Queue> queues = new ConcurrentHashMap<>();
+    private final Map<String, WaitlistEntry> entries = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            List<WaitlistEntry> waiting = waitlistEntryRepository.findByWaitlistState(WaitlistState.WAITING);
+            waiting.forEach(this::add);
+            log.info("Liste d'attesa caricate: {} richieste", waiting.size());
+        } catch (RuntimeException e) {
+            log.warn("Impossibile caricare le liste d'attesa: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * <p>Allinea le code alle richieste {@code WAITING} sul database</p>
+     * <p>Vengono tolte solo le richieste gia in coda prima della lettura, cosi una richiesta iscritta durante il
+     * ricaricamento non viene persa.</p>
+     */
+    @Scheduled(initialDelayString = "${app.waitlist.reload-millis:60000}",
+            fixedDelayString = "${app.waitlist.reload-millis:60000}")
+    public void reload() {
+        Set<String> before = new HashSet<>(entries.keySet());
+        List<WaitlistEntry> waiting;
+        try {
+            waiting = waitlistEntryRepository.findByWaitlistState(WaitlistState.WAITING);
+        } catch (RuntimeException e) {
+            log.warn("Impossibile ricaricare le liste d'attesa: {}", e.getMessage());
+            return;
+        }
+        for (WaitlistEntry entry : waiting) {
+            if (!before.remove(entry.getId())) {
+                add(entry);
+            }
+        }
+        before.forEach(this::take);
+    }
+
+    /**
+     * <p>Aggiunge (o rimette in coda, con la stessa posizione) una richiesta {@code WAITING}</p>
+     */
+    public void add(WaitlistEntry entry) {
+        Queue queue = queues.computeIfAbsent(key(entry.getParkingLotName(), entry.getVehicleSpotCategory()), key -> new Queue());
+        Duration duration = Duration.between(entry.getInitialDate(), entry.getEndingDate());
+        queue.longest.accumulateAndGet(duration, (current, candidate) -> candidate.compareTo(current) > 0 ? candidate : current);
+        // prima nella coda e poi nella mappa: take() vede solo richieste gia in coda
+        queue.byStart.add(entry);
+        entries.put(entry.getId(), entry);
+    }
+
+    /**
+     * <p>Toglie la richiesta dalla coda; tra passaggi concorrenti solo uno la ottiene</p>
+     *
+     * @return {@code true} se la richiesta e stata tolta da questa chiamata
+     */
+    public boolean take(String entryId) {
+        WaitlistEntry entry = entries.remove(entryId);
+        if (entry == null) {
+            return false;
+        }
+        Queue queue = queues.get(key(entry.getParkingLotName(), entry.getVehicleSpotCategory()));
+        if (queue != null) {
+            queue.byStart.remove(entry);
+        }
+        return true;
+    }
+
+    public Optional<WaitlistEntry> get(String entryId) {
+        return Optional.ofNullable(entries.get(entryId));
+    }
+
+    /**
+     * <p>Richieste che si sovrappongono all'intervallo liberato, in ordine di servizio</p>
+     */
+    public List<WaitlistEntry> candidates(String parkingLotName, VehicleSpotCategory category, LocalDateTime start, LocalDateTime end) {
+        Queue queue = queues.get(key(parkingLotName, category));
+        if (queue == null) {
+            return List.of();
+        }
+        WaitlistEntry from = bound(start.minus(queue.longest.get()), "");
+        WaitlistEntry to = bound(end, "\uffff");
+        List<WaitlistEntry> result = new ArrayList<>();
+        for (WaitlistEntry entry : queue.byStart.subSet(from, true, to, true)) {
+            if (!entry.getEndingDate().isBefore(start)) {
+                result.add(entry);
+            }
+        }
+        result.sort(SERVICE_ORDER);
+        return result;
+    }
+
+    /**
+     * <p>Tutte le richieste della coda, in ordine di servizio (posto nuovo, libero per intero)</p>
+     */
+    public List<WaitlistEntry> all(String parkingLotName, VehicleSpotCategory category) {
+        Queue queue = queues.get(key(parkingLotName, category));
+        if (queue == null) {
+            return List.of();
+        }
+        List<WaitlistEntry> result = new ArrayList<>(queue.byStart);
+        result.sort(SERVICE_ORDER);
+        return result;
+    }
+
+    /**
+     * <p>Toglie dalle code le richieste che iniziano prima della data indicata, ormai non piu servibili</p>
+     *
+     * @return le richieste tolte
+     */
+    public List<WaitlistEntry> removeStartingBefore(LocalDateTime date) {
+        List<WaitlistEntry> removed = new ArrayList<>();
+        queues.values().forEach(queue -> queue.byStart.headSet(bound(date, ""), false).forEach(entry -> {
+            if (take(entry.getId())) {
+                removed.add(entry);
+            }
+        }));
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static Key key(String parkingLotName, VehicleSpotCategory category) {
+        return new Key(parkingLotName, category);
+    }
+
+    /**
+     * Elemento fittizio per delimitare i sottoinsiemi per data di inizio.
+     */
+    private static WaitlistEntry bound(LocalDateTime initialDate, String id) {
+        return WaitlistEntry.builder().initialDate(initialDate).id(id).build();
+    }
+}
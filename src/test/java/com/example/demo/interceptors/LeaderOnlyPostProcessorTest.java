@@ -0,0 +1,98 @@
+package com.example.demo.interceptors;
+
+import com.example.demo.annotations.LeaderOnly;
+import com.example.demo.service.scheduling.SchedulerLeaseManager;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LeaderOnlyPostProcessorTest {
+
+    static class Jobs {
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicInteger local = new AtomicInteger();
+
+        @LeaderOnly("shared")
+        public String shared() {
+            runs.incrementAndGet();
+            return "done";
+        }
+
+        public void perInstance() {
+            local.incrementAndGet();
+        }
+
+        // il bean e un proxy CGLIB: i campi vanno letti attraverso metodi
+        public int runs() {
+            return runs.get();
+        }
+
+        public int local() {
+            return local.get();
+        }
+    }
+
+    static class ScheduledJobs {
+        @LeaderOnly("scheduled")
+        @Scheduled(fixedDelay = 10)
+        public void run() {
+        }
+    }
+
+    @EnableScheduling
+    static class SchedulingConfig {
+    }
+
+    @Test
+    void onlyTheLeaderRunsAnnotatedMethodsAndTheirDurationIsRecorded() {
+        SchedulerLeaseManager leases = Mockito.mock(SchedulerLeaseManager.class);
+        try (AnnotationConfigApplicationContext context = context(leases, Jobs.class)) {
+            Jobs jobs = context.getBean(Jobs.class);
+
+            when(leases.isLeader("shared")).thenReturn(false);
+            assertNull(jobs.shared());
+            jobs.perInstance();
+            assertEquals(0, jobs.runs());
+            assertEquals(1, jobs.local());
+            verify(leases).recordSkipped("shared");
+
+            when(leases.isLeader("shared")).thenReturn(true);
+            assertEquals("done", jobs.shared());
+            assertEquals(1, jobs.runs());
+            verify(leases).recordRun(eq("shared"), anyLong());
+        }
+    }
+
+    @Test
+    void scheduledInvocationsGoThroughTheProxy() {
+        SchedulerLeaseManager leases = Mockito.mock(SchedulerLeaseManager.class);
+        try (AnnotationConfigApplicationContext context = context(leases, ScheduledJobs.class, SchedulingConfig.class)) {
+            verify(leases, timeout(2000).atLeastOnce()).recordSkipped("scheduled");
+            verify(leases, after(50).never()).recordRun(eq("scheduled"), anyLong());
+        }
+    }
+
+    private static AnnotationConfigApplicationContext context(SchedulerLeaseManager leases, Class<?>... beans) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(SchedulerLeaseManager.class, () -> leases);
+        context.register(LeaderOnlyPostProcessor.class);
+        context.register(beans);
+        context.refresh();
+        return context;
+    }
+}
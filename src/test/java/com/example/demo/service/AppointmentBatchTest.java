@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentBatchItemResponseDto;
+import com.example.demo.model.dto.appointment.AppointmentBatchResponseDto;
+import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentBatchTest {
+
+    private static final String LOT = "aeroporto";
+    private static final int SPOTS = 5;
+
+    private AppointmentRepository appointmentRepository;
+    private VehicleSpotRepository vehicleSpotRepository;
+    private VehicleSpotClaimRepository claimRepository;
+    private AppointmentService service;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        vehicleSpotRepository = Mockito.mock(VehicleSpotRepository.class);
+        claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+
+        List<VehicleSpot> spots = IntStream.range(0, SPOTS)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+        when(vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD)).thenReturn(spots);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+        when(appointmentRepository.insertAllUnordered(anyList())).thenReturn(Set.of());
+        when(claimRepository.tryClaimAll(anyList())).thenReturn(Set.of());
+
+        SpotAvailabilityIndex index = ServiceFixtures.loadedIndex(appointmentRepository);
+
+        service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .vehicleSpotRepository(vehicleSpotRepository)
+                .claimRepository(claimRepository)
+                .build();
+    }
+
+    @Test
+    void emptyOrOversizedBatchIsRejectedBeforeClaimingSpots() {
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+        List<AppointmentPostDto> oversized = new ArrayList<>();
+        for (int i = 0; i <= new AppProperties().getBatch().getMaxSize(); i++) {
+            oversized.add(new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, start, start.plusHours(3)));
+        }
+
+        assertThrows(RuntimeException.class, () -> service.postAppointmentBatch(List.of(), "UTC"));
+        assertThrows(RuntimeException.class, () -> service.postAppointmentBatch(oversized, "UTC"));
+        verify(vehicleSpotRepository, times(0)).findByParkingLotNameAndVehicleSpotCategory(any(), any());
+    }
+
+    @Test
+    void batchNeverAssignsTheSameSpotTwiceAndReportsEachItem() {
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+        List<AppointmentPostDto> dtos = new ArrayList<>();
+        for (int i = 0; i < SPOTS + 2; i++) {
+            dtos.add(new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, start, start.plusHours(3)));
+        }
+        dtos.add(new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, start.plusHours(3), start));
+
+        AppointmentBatchResponseDto response = service.postAppointmentBatch(dtos, "UTC");
+
+        assertEquals(dtos.size(), response.getRequested());
+        assertEquals(SPOTS, response.getBooked());
+        assertEquals(3, response.getFailed());
+        List<AppointmentBatchItemResponseDto> items = response.getItems();
+        assertTrue(items.subList(0, SPOTS).stream().allMatch(AppointmentBatchItemResponseDto::isBooked));
+        assertTrue(items.subList(SPOTS, dtos.size()).stream().noneMatch(AppointmentBatchItemResponseDto::isBooked));
+        assertNotNull(items.get(dtos.size() - 1).getError());
+
+        // una sola lettura dei posti, una sola scrittura bulk per riserve e prenotazioni
+        verify(vehicleSpotRepository, times(1)).findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD);
+        verify(claimRepository, times(1)).tryClaimAll(anyList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Appointment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(appointmentRepository, times(1)).insertAllUnordered(inserted.capture());
+        Set<String> spotIds = inserted.getValue().stream().map(Appointment::getVehicleSpotId).collect(Collectors.toSet());
+        assertEquals(SPOTS, spotIds.size());
+    }
+
+    @Test
+    void itemRejectedByAnotherInstanceMovesToTheNextFreeSpot() {
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+        List<AppointmentPostDto> dtos = List.of(new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, start, start.plusHours(1)));
+        when(claimRepository.tryClaimAll(anyList()))
+                .thenAnswer(invocation -> Set.of(invocation.<List<Appointment>>getArgument(0).get(0).getId()));
+        when(claimRepository.tryClaim(Mockito.eq("spot-0"), any(), any(), any())).thenReturn(false);
+        when(claimRepository.tryClaim(Mockito.eq("spot-1"), any(), any(), any())).thenReturn(true);
+
+        AppointmentBatchResponseDto response = service.postAppointmentBatch(dtos, "UTC");
+
+        assertEquals(1, response.getBooked());
+        assertNull(response.getItems().get(0).getError());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Appointment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(appointmentRepository).insertAllUnordered(inserted.capture());
+        assertEquals("spot-1", inserted.getValue().get(0).getVehicleSpotId());
+    }
+}
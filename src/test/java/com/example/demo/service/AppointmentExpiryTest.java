@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentExpiryTest {
+
+    private AppointmentRepository appointmentRepository;
+    private VehicleSpotClaimRepository claimRepository;
+    private DomainEventBus eventBus;
+    private SpotAvailabilityIndex index;
+    private AppProperties properties;
+    private AppointmentService service;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        eventBus = Mockito.mock(DomainEventBus.class);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+        properties = new AppProperties();
+
+        service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .claimRepository(claimRepository)
+                .eventBus(eventBus)
+                .appProperties(properties)
+                .build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyAppointmentsExpiredByThisCallArePublishedAndReleased() {
+        LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1).withSecond(0).withNano(0);
+        Appointment expired = appointment("expired", "spot-0", end);
+        Appointment touchedElsewhere = appointment("elsewhere", "spot-1", end);
+        index.register(expired);
+        index.register(touchedElsewhere);
+        // l'altra prenotazione e stata cancellata, spostata o scaduta da un'altra istanza
+        when(appointmentRepository.expireAll(anyCollection(), any())).thenReturn(Set.of("expired"));
+
+        service.expireAppointments(List.of(expired, touchedElsewhere));
+
+        ArgumentCaptor<List<Appointment>> released = ArgumentCaptor.forClass(List.class);
+        verify(claimRepository).releaseAll(released.capture());
+        assertEquals(List.of(expired), released.getValue());
+        ArgumentCaptor<List<DomainEvent>> published = ArgumentCaptor.forClass(List.class);
+        verify(eventBus).publishAll(published.capture());
+        assertEquals(1, published.getValue().size());
+        assertEquals("expired", ((AppointmentEvent) published.getValue().get(0)).appointment().id());
+        assertTrue(index.isAvailable("spot-0", end.minusHours(2), end.minusHours(1)));
+        assertFalse(index.isAvailable("spot-1", end.minusHours(2), end.minusHours(1)));
+    }
+
+    @Test
+    void nothingIsPublishedWhenAnotherInstanceExpiredEverything() {
+        Appointment appointment = appointment("a", "spot-0", LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+        when(appointmentRepository.expireAll(anyCollection(), any())).thenReturn(Set.of());
+
+        service.expireAppointments(List.of(appointment));
+
+        verify(claimRepository, never()).releaseAll(any());
+        verify(eventBus, never()).publishAll(any());
+        assertEquals(AppointmentState.VALID, appointment.getAppointmentState());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void periodicSweepExpiresInBatchesAndPublishesTheTransitions() {
+        properties.getExpiry().setReconcileBatchSize(2);
+        LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC).minusHours(1);
+        when(appointmentRepository.findValidEndedBefore(any(), eq(2))).thenReturn(
+                List.of(appointment("a", "spot-0", end), appointment("b", "spot-1", end)),
+                List.of(appointment("c", "spot-2", end)));
+        when(appointmentRepository.expireAll(anyCollection(), any()))
+                .thenAnswer(invocation -> Set.copyOf(invocation.<Collection<String>>getArgument(0)));
+
+        service.updateExpiredAppointments();
+
+        verify(appointmentRepository, times(2)).findValidEndedBefore(any(), eq(2));
+        ArgumentCaptor<List<DomainEvent>> published = ArgumentCaptor.forClass(List.class);
+        verify(eventBus, times(2)).publishAll(published.capture());
+        assertEquals(List.of(2, 1), published.getAllValues().stream().map(List::size).toList());
+        verify(claimRepository).releaseEndedBefore(any());
+    }
+
+    @Test
+    void periodicSweepStopsWhenABatchExpiresNothing() {
+        properties.getExpiry().setReconcileBatchSize(1);
+        when(appointmentRepository.findValidEndedBefore(any(), eq(1)))
+                .thenReturn(List.of(appointment("a", "spot-0", LocalDateTime.now(ZoneOffset.UTC).minusHours(1))));
+        when(appointmentRepository.expireAll(anyCollection(), any())).thenReturn(Set.of());
+
+        service.updateExpiredAppointments();
+
+        verify(appointmentRepository, times(1)).findValidEndedBefore(any(), eq(1));
+        verify(eventBus, never()).publishAll(any());
+    }
+
+    private static Appointment appointment(String id, String vehicleSpotId, LocalDateTime endingDate) {
+        return Appointment.builder()
+                .id(id)
+                .vehicleSpotId(vehicleSpotId)
+                .parkingLotName("porto")
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(endingDate.minusHours(3))
+                .endingDate(endingDate)
+                .appointmentState(AppointmentState.VALID)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentHoldResponseDto;
+import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.AppointmentHoldRegistry;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentHoldTest {
+
+    private static final String LOT = "fiera";
+
+    private AppointmentRepository appointmentRepository;
+    private VehicleSpotClaimRepository claimRepository;
+    private SpotAvailabilityIndex index;
+    private AppointmentHoldRegistry holdRegistry;
+    private AppointmentService service;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        VehicleSpotRepository vehicleSpotRepository = Mockito.mock(VehicleSpotRepository.class);
+        claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        VehicleSpot spot = VehicleSpot.builder().id("spot-0").parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build();
+        when(vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD)).thenReturn(List.of(spot));
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+        when(appointmentRepository.insert(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(claimRepository.tryClaim(anyString(), anyString(), any(), any())).thenReturn(true);
+        when(claimRepository.tryHold(anyString(), anyString(), any(), any(), any())).thenReturn(true);
+        when(claimRepository.confirmHeld(anyString(), anyString(), any())).thenReturn(true);
+
+        AppProperties properties = new AppProperties();
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+        holdRegistry = new AppointmentHoldRegistry(properties);
+
+        service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .vehicleSpotRepository(vehicleSpotRepository)
+                .claimRepository(claimRepository)
+                .holdRegistry(holdRegistry)
+                .build();
+        start = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        holdRegistry.shutdown();
+    }
+
+    @Test
+    void heldSpotIsUnavailableUntilConfirmed() {
+        AppointmentHoldResponseDto hold = service.holdAppointment(dto(), "UTC");
+
+        assertEquals(AppointmentState.HOLD, hold.getAppointment().getAppointmentState());
+        assertFalse(index.isAvailable("spot-0", start, start.plusHours(1)));
+        assertThrows(RuntimeException.class, () -> service.postAppointment(dto(), "UTC"));
+
+        service.confirmHold(hold.getAppointment().getId(), "UTC");
+
+        ArgumentCaptor<Appointment> inserted = ArgumentCaptor.forClass(Appointment.class);
+        verify(appointmentRepository).insert(inserted.capture());
+        assertEquals(AppointmentState.VALID, inserted.getValue().getAppointmentState());
+        assertFalse(index.isAvailable("spot-0", start, start.plusHours(1)));
+        assertThrows(RuntimeException.class, () -> service.confirmHold(hold.getAppointment().getId(), "UTC"));
+    }
+
+    @Test
+    void heldClaimCarriesTheHoldExpiry() {
+        LocalDateTime before = LocalDateTime.now(ZoneOffset.UTC);
+
+        AppointmentHoldResponseDto hold = service.holdAppointment(dto(), "UTC");
+
+        ArgumentCaptor<LocalDateTime> expiresAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(claimRepository).tryHold(eq("spot-0"), eq(hold.getAppointment().getId()), any(), any(), expiresAt.capture());
+        assertFalse(expiresAt.getValue().isBefore(before.plus(holdRegistry.getTtl())));
+        verify(claimRepository, never()).tryClaim(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void holdExpiredOnTheDatabaseCannotBeConfirmed() {
+        when(claimRepository.confirmHeld(anyString(), anyString(), any())).thenReturn(false);
+        AppointmentHoldResponseDto hold = service.holdAppointment(dto(), "UTC");
+
+        assertThrows(RuntimeException.class, () -> service.confirmHold(hold.getAppointment().getId(), "UTC"));
+
+        verify(appointmentRepository, never()).insert(any(Appointment.class));
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(1)));
+        verify(claimRepository).release("spot-0", hold.getAppointment().getId());
+    }
+
+    @Test
+    void releasedHoldFreesTheSpot() {
+        AppointmentHoldResponseDto hold = service.holdAppointment(dto(), "UTC");
+
+        assertTrue(service.releaseHold(hold.getAppointment().getId()));
+
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(1)));
+        verify(claimRepository).release("spot-0", hold.getAppointment().getId());
+    }
+
+    private AppointmentPostDto dto() {
+        return new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, start, start.plusHours(1));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.RecurrenceFrequency;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentSeriesPostDto;
+import com.example.demo.model.dto.appointment.AppointmentSeriesResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentSeriesTest {
+
+    private static final String LOT = "stazione";
+    private static final int DAYS = 5;
+
+    private AppointmentRepository appointmentRepository;
+    private VehicleSpotRepository vehicleSpotRepository;
+    private VehicleSpotClaimRepository claimRepository;
+    private SpotAvailabilityIndex index;
+    private AppointmentService service;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        vehicleSpotRepository = Mockito.mock(VehicleSpotRepository.class);
+        claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        start = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+        List<VehicleSpot> spots = IntStream.range(0, 3)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+        when(vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD)).thenReturn(spots);
+        // spot-0 occupato il terzo giorno, spot-1 il primo, spot-2 il primo e il terzo
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of(
+                existing("a", "spot-0", 2), existing("b", "spot-1", 0), existing("c", "spot-2", 0), existing("d", "spot-2", 2)));
+        when(appointmentRepository.insertAllUnordered(anyList())).thenReturn(Set.of());
+        when(claimRepository.tryClaimAll(anyList())).thenReturn(Set.of());
+
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+
+        service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .vehicleSpotRepository(vehicleSpotRepository)
+                .claimRepository(claimRepository)
+                .build();
+    }
+
+    @Test
+    void seriesKeepsThePreferredSpotAndFallsBackOnlyWhereItIsBusy() {
+        AppointmentSeriesResponseDto response = service.postAppointmentSeries(series(), "UTC");
+
+        assertEquals(DAYS, response.getRequested());
+        assertEquals(DAYS, response.getBooked());
+        assertEquals(List.of("spot-0", "spot-1"), response.getVehicleSpotIds());
+
+        // una sola lettura dei posti, una sola scrittura bulk per riserve e prenotazioni
+        verify(vehicleSpotRepository, times(1)).findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD);
+        verify(claimRepository, times(1)).tryClaimAll(anyList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Appointment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(appointmentRepository, times(1)).insertAllUnordered(inserted.capture());
+        List<Appointment> series = inserted.getValue();
+        assertEquals(DAYS, series.size());
+        assertTrue(series.stream().allMatch(appointment -> response.getSeriesId().equals(appointment.getSeriesId())));
+        assertEquals("spot-1", series.get(2).getVehicleSpotId());
+    }
+
+    @Test
+    void cancellingTheSeriesIsOneUpdateAndFreesEverySpot() {
+        service.postAppointmentSeries(series(), "UTC");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Appointment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(appointmentRepository).insertAllUnordered(inserted.capture());
+        List<Appointment> series = inserted.getValue();
+        String seriesId = series.get(0).getSeriesId();
+        when(appointmentRepository.findBySeriesIdAndAppointmentState(seriesId, AppointmentState.VALID)).thenReturn(series);
+        when(appointmentRepository.cancelSeries(seriesId)).thenReturn((long) series.size());
+
+        assertEquals(DAYS, service.cancelSeries(seriesId));
+
+        verify(appointmentRepository, times(1)).cancelSeries(seriesId);
+        verify(claimRepository, times(1)).releaseAll(series);
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(10)));
+        assertFalse(index.isAvailable("spot-0", start.plusDays(2), start.plusDays(2).plusHours(10)));
+    }
+
+    private AppointmentSeriesPostDto series() {
+        return AppointmentSeriesPostDto.builder()
+                .parkingLotName(LOT)
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(start)
+                .endingDate(start.plusHours(10))
+                .frequency(RecurrenceFrequency.DAILY)
+                .count(DAYS)
+                .build();
+    }
+
+    private Appointment existing(String id, String spotId, int day) {
+        return Appointment.builder()
+                .id(id)
+                .vehicleSpotId(spotId)
+                .parkingLotName(LOT)
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(start.plusDays(day).plusHours(2))
+                .endingDate(start.plusDays(day).plusHours(4))
+                .appointmentState(AppointmentState.VALID)
+                .build();
+    }
+}
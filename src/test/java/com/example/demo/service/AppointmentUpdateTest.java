@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentUpdateDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.DomainEventBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentUpdateTest {
+
+    private static final String LOT = "fiera";
+
+    private AppointmentRepository appointmentRepository;
+    private VehicleSpotClaimRepository claimRepository;
+    private SpotAvailabilityIndex index;
+    private WaitlistService waitlistService;
+    private DomainEventBus eventBus;
+    private AppointmentService service;
+    private LocalDateTime start;
+    private Appointment moving;
+
+    @BeforeEach
+    void setUp() {
+        start = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+        moving = booking("moving", start, start.plusHours(1));
+        Appointment other = booking("other", start.plusHours(2), start.plusHours(3));
+
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        when(appointmentRepository.findByAppointmentState(AppointmentState.VALID)).thenReturn(List.of(moving, other));
+        when(appointmentRepository.findById("moving")).thenReturn(Optional.of(moving));
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(claimRepository.tryMove(anyString(), anyString(), any(), any())).thenReturn(true);
+
+        AppProperties properties = new AppProperties();
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+        waitlistService = Mockito.mock(WaitlistService.class);
+        eventBus = Mockito.mock(DomainEventBus.class);
+
+        service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .claimRepository(claimRepository)
+                .waitlistService(waitlistService)
+                .eventBus(eventBus)
+                .build();
+    }
+
+    @Test
+    void movingOntoABookedIntervalKeepsThePreviousSlot() {
+        AppointmentUpdateDto dto = AppointmentUpdateDto.builder()
+                .initialDate(start.plusHours(2).plusMinutes(30))
+                .endingDate(start.plusHours(3).plusMinutes(30))
+                .build();
+
+        assertThrows(RuntimeException.class, () -> service.updateAppointmentById("moving", dto, "UTC"));
+
+        assertFalse(index.isAvailable("spot-0", start, start.plusHours(1)));
+        assertTrue(index.isAvailable("spot-0", start.plusHours(3).plusMinutes(15), start.plusHours(3).plusMinutes(30)));
+        verify(claimRepository, never()).tryMove(anyString(), anyString(), any(), any());
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+        verify(waitlistService, never()).onSpotFreed(any(Appointment.class));
+    }
+
+    @Test
+    void movingOntoAFreeIntervalMovesTheClaim() {
+        AppointmentUpdateDto dto = AppointmentUpdateDto.builder()
+                .initialDate(start.plusHours(4))
+                .endingDate(start.plusHours(5))
+                .build();
+
+        service.updateAppointmentById("moving", dto, "UTC");
+
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(1)));
+        assertFalse(index.isAvailable("spot-0", start.plusHours(4), start.plusHours(5)));
+        verify(claimRepository).tryMove("spot-0", "moving", start.plusHours(4), start.plusHours(5));
+        ArgumentCaptor<Appointment> freed = ArgumentCaptor.forClass(Appointment.class);
+        verify(waitlistService).onSpotFreed(freed.capture());
+        assertEquals(start, freed.getValue().getInitialDate());
+        assertEquals(start.plusHours(1), freed.getValue().getEndingDate());
+    }
+
+    @Test
+    void cancelingFromTheAdminUpdateOffersTheSlotToTheWaitlist() {
+        AppointmentUpdateDto dto = AppointmentUpdateDto.builder()
+                .appointmentState(AppointmentState.CANCELED)
+                .build();
+
+        service.updateAppointmentById("moving", dto, "UTC");
+
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(1)));
+        verify(claimRepository).release("spot-0", "moving");
+        verify(waitlistService).onSpotFreed(any(Appointment.class));
+    }
+
+    @Test
+    void claimRejectedByTheDatabaseRestoresThePreviousSlot() {
+        when(claimRepository.tryMove(anyString(), anyString(), any(), any())).thenReturn(false);
+        AppointmentUpdateDto dto = AppointmentUpdateDto.builder()
+                .initialDate(start.plusHours(4))
+                .endingDate(start.plusHours(5))
+                .build();
+
+        assertThrows(RuntimeException.class, () -> service.updateAppointmentById("moving", dto, "UTC"));
+
+        assertFalse(index.isAvailable("spot-0", start, start.plusHours(1)));
+        assertTrue(index.isAvailable("spot-0", start.plusHours(4), start.plusHours(5)));
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+    }
+
+    @Test
+    void cancelingAValidBookingFreesTheSpotOnce() {
+        when(appointmentRepository.cancelIfValid(eq("moving"), any())).thenReturn(true);
+
+        service.updateAppointmentStateToCancel("moving", "UTC");
+
+        assertTrue(index.isAvailable("spot-0", start, start.plusHours(1)));
+        verify(claimRepository).release("spot-0", "moving");
+        verify(eventBus).publish(any());
+        verify(waitlistService).onSpotFreed(any(Appointment.class));
+    }
+
+    @Test
+    void cancelingABookingThatIsNoLongerValidIsRejected() {
+        when(appointmentRepository.cancelIfValid(eq("moving"), any())).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> service.updateAppointmentStateToCancel("moving", "UTC"));
+
+        assertFalse(index.isAvailable("spot-0", start, start.plusHours(1)));
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+        verify(eventBus, never()).publish(any());
+        verify(waitlistService, never()).onSpotFreed(any(Appointment.class));
+    }
+
+    private static Appointment booking(String id, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Appointment.builder()
+                .id(id)
+                .vehicleSpotId("spot-0")
+                .parkingLotName(LOT)
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(initialDate)
+                .endingDate(endingDate)
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentDatesDto;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.utils.DateUtilities;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Confronto tra la ricerca dei posti liberi con una query per posto e quella con due query,
+ * su 10.000 posti e con una latenza simulata di 100 microsecondi per round-trip</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class AvailableSpotsRoundTripTest {
+
+    private static final int SPOTS = 10_000;
+    private static final long ROUND_TRIP_NANOS = 100_000;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    @Mock
+    private VehicleSpotRepository vehicleSpotRepository;
+    @Mock
+    private SpotAvailabilityIndex availabilityIndex;
+    @InjectMocks
+    private AppointmentService appointmentService;
+
+    private final AtomicInteger roundTrips = new AtomicInteger();
+
+    @Test
+    void availableSpotsUseTwoRoundTripsRegardlessOfLotSize() {
+        List<VehicleSpot> spots = IntStream.range(0, SPOTS)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+        Set<String> busy = Set.of("spot-1", "spot-2");
+        List<VehicleSpot> free = spots.stream().filter(spot -> !busy.contains(spot.getId())).toList();
+
+        when(vehicleSpotRepository.findByVehicleSpotCategory(VehicleSpotCategory.STANDARD)).then(roundTrip(spots));
+        when(appointmentRepository.findByDateWithin(any(), any(), anyString())).then(roundTrip(List.of()));
+        when(appointmentRepository.findBusyVehicleSpotIds(isNull(), eq(VehicleSpotCategory.STANDARD), any(), any())).then(roundTrip(busy));
+        when(vehicleSpotRepository.findByVehicleSpotCategoryAndIdNotIn(VehicleSpotCategory.STANDARD, busy)).then(roundTrip(free));
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0);
+        LocalDateTime end = start.plusHours(2);
+
+        long before = System.nanoTime();
+        List<VehicleSpot> perSpot = vehicleSpotRepository.findByVehicleSpotCategory(VehicleSpotCategory.STANDARD).stream()
+                .filter(spot -> DateUtilities.isTheVehicleSpotAvailable(spot.getId(), start, end, appointmentRepository))
+                .toList();
+        long perSpotNanos = System.nanoTime() - before;
+        int perSpotRoundTrips = roundTrips.getAndSet(0);
+
+        before = System.nanoTime();
+        List<VehicleSpot> twoQueries = appointmentService.getAvailableVehicleSpotByCategory(
+                "standard", new AppointmentDatesDto(start, end), "UTC");
+        long twoQueriesNanos = System.nanoTime() - before;
+
+        assertEquals(SPOTS + 1, perSpotRoundTrips);
+        assertEquals(2, roundTrips.get());
+        // ogni round-trip simulato attende ROUND_TRIP_NANOS: due query restano sotto a un decimo del percorso per posto
+        assertTrue(twoQueriesNanos * 10 < perSpotNanos);
+        assertEquals(SPOTS - busy.size(), twoQueries.size());
+        assertEquals(SPOTS, perSpot.size());
+    }
+
+    private <T> Answer<T> roundTrip(T result) {
+        return invocation -> {
+            roundTrips.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return result;
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>500 richieste concorrenti di prenotazione su 20 posti con finestre che si sovrappongono:
+ * nessun posto deve risultare prenotato due volte nello stesso intervallo</p>
+ * <p>Le richieste sono ripartite su due istanze, ciascuna con il proprio indice in memoria, che
+ * condividono solo le riserve sul database (simulate con una mappa sincronizzata)</p>
+ */
+class ConcurrentBookingStressTest {
+
+    private static final int REQUESTS = 500;
+    private static final int SPOTS = 20;
+    private static final String LOT = "stadio";
+
+    @Test
+    void concurrentRequestsNeverDoubleBookASpot() throws InterruptedException {
+        AppointmentRepository appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        VehicleSpotRepository vehicleSpotRepository = Mockito.mock(VehicleSpotRepository.class);
+        VehicleSpotClaimRepository claimRepository = sharedClaimRepository();
+        Queue<Appointment> inserted = new ConcurrentLinkedQueue<>();
+
+        List<VehicleSpot> spots = IntStream.range(0, SPOTS)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+        when(vehicleSpotRepository.findByParkingLotNameAndVehicleSpotCategory(LOT, VehicleSpotCategory.STANDARD)).thenReturn(spots);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+        when(appointmentRepository.insert(any(Appointment.class))).thenAnswer(invocation -> {
+            Appointment appointment = invocation.getArgument(0);
+            inserted.add(appointment);
+            return appointment;
+        });
+
+        AppointmentService[] instances = {
+                instance(appointmentRepository, vehicleSpotRepository, claimRepository),
+                instance(appointmentRepository, vehicleSpotRepository, claimRepository)
+        };
+
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withNano(0).withSecond(0);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            // 10 finestre sfalsate di 30 minuti, ciascuna di 2 ore: molte si sovrappongono
+            LocalDateTime initialDate = base.plusMinutes(30L * (i % 10));
+            AppointmentPostDto dto = new AppointmentPostDto(LOT, VehicleSpotCategory.STANDARD, initialDate, initialDate.plusHours(2));
+            AppointmentService service = instances[i % instances.length];
+            executor.submit(() -> {
+                start.await();
+                try {
+                    service.postAppointment(dto, "UTC");
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(REQUESTS, inserted.size() + rejected.get());
+        assertFalse(inserted.isEmpty());
+
+        Map<String, List<Appointment>> bySpot = inserted.stream().collect(Collectors.groupingBy(Appointment::getVehicleSpotId));
+        bySpot.forEach((spotId, bookings) -> {
+            List<Appointment> sorted = new ArrayList<>(bookings);
+            sorted.sort((a, b) -> a.getInitialDate().compareTo(b.getInitialDate()));
+            for (int i = 1; i < sorted.size(); i++) {
+                assertTrue(sorted.get(i).getInitialDate().isAfter(sorted.get(i - 1).getEndingDate()),
+                        "double booking on " + spotId);
+            }
+        });
+    }
+
+    private static AppointmentService instance(AppointmentRepository appointmentRepository,
+                                               VehicleSpotRepository vehicleSpotRepository,
+                                               VehicleSpotClaimRepository claimRepository) {
+        SpotAvailabilityIndex index = ServiceFixtures.loadedIndex(appointmentRepository);
+
+        AppointmentService service = ServiceFixtures.appointmentService(appointmentRepository, index)
+                .vehicleSpotRepository(vehicleSpotRepository)
+                .claimRepository(claimRepository)
+                .build();
+        return service;
+    }
+
+    /**
+     * Riserve condivise: il controllo di sovrapposizione e l'aggiunta sono atomici come l'upsert condizionato.
+     */
+    private static VehicleSpotClaimRepository sharedClaimRepository() {
+        Map<String, List<LocalDateTime[]>> claims = new HashMap<>();
+        VehicleSpotClaimRepository repository = Mockito.mock(VehicleSpotClaimRepository.class);
+        when(repository.tryClaim(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            String spotId = invocation.getArgument(0);
+            LocalDateTime start = invocation.getArgument(2);
+            LocalDateTime end = invocation.getArgument(3);
+            synchronized (claims) {
+                List<LocalDateTime[]> spotClaims = claims.computeIfAbsent(spotId, id -> new ArrayList<>());
+                if (spotClaims.stream().anyMatch(claim -> !claim[0].isAfter(end) && !claim[1].isBefore(start))) {
+                    return false;
+                }
+                spotClaims.add(new LocalDateTime[]{start, end});
+                return true;
+            }
+        });
+        return repository;
+    }
+}
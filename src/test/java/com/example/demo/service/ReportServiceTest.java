@@ -0,0 +1,168 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.ExportFormat;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.report.ReservationReportMapperImpl;
+import com.example.demo.model.dto.report.ReservationReportResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.model.pojo.DateBucketCount;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.report.ReportCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportServiceTest {
+
+    private static final String ZONE = "Europe/Rome";
+
+    private AppointmentRepository appointmentRepository;
+    private ParkingLotRepository parkingLotRepository;
+    private ReportService service;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        parkingLotRepository = Mockito.mock(ParkingLotRepository.class);
+        when(parkingLotRepository.findByNameIgnoreCase("centro"))
+                .thenReturn(Optional.of(ParkingLot.builder().id("lot").name("Centro").build()));
+
+        service = new ReportService();
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(service, "parkingLotRepository", parkingLotRepository);
+        ReflectionTestUtils.setField(service, "reservationReportMapper", new ReservationReportMapperImpl());
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(service, "reportCache", new ReportCache(Mockito.mock(DomainEventBus.class), new AppProperties()));
+    }
+
+    @Test
+    void weeksAndMonthsKeepTheirYearAndTheRangeIsConvertedToUtc() {
+        LocalDateTime from = LocalDateTime.of(2024, 12, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        LocalDateTime utcFrom = LocalDateTime.of(2024, 11, 30, 23, 0);
+        LocalDateTime utcTo = LocalDateTime.of(2025, 1, 31, 23, 0);
+        when(appointmentRepository.countValidByPeriod("Centro", utcFrom, utcTo, ChronoUnit.WEEKS, ZONE)).thenReturn(List.of(
+                new DateBucketCount(startOfDay(LocalDate.of(2024, 12, 30)), 4),
+                new DateBucketCount(startOfDay(LocalDate.of(2025, 1, 6)), 2)));
+        when(appointmentRepository.countValidByPeriod("Centro", utcFrom, utcTo, ChronoUnit.MONTHS, ZONE)).thenReturn(List.of(
+                new DateBucketCount(startOfDay(LocalDate.of(2024, 12, 1)), 3),
+                new DateBucketCount(startOfDay(LocalDate.of(2025, 1, 1)), 3)));
+
+        assertEquals(List.of(
+                        new ReservationReportResponseDto("30 December 2024 - 05 January 2025", 4),
+                        new ReservationReportResponseDto("06 January 2025 - 12 January 2025", 2)),
+                service.getWeekReportByName("centro", from, to, ZONE));
+        assertEquals(List.of(
+                        new ReservationReportResponseDto("DECEMBER 2024", 3),
+                        new ReservationReportResponseDto("JANUARY 2025", 3)),
+                service.getMonthReportByName("centro", from, to, ZONE));
+    }
+
+    @Test
+    void missingBoundsDefaultToOneYearAndUnknownLotsAreEmpty() {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        when(appointmentRepository.countValidByPeriod("Centro", LocalDateTime.of(2025, 2, 28, 23, 0),
+                LocalDateTime.of(2026, 2, 28, 23, 0), ChronoUnit.DAYS, ZONE))
+                .thenReturn(List.of(new DateBucketCount(startOfDay(LocalDate.of(2025, 3, 1)), 1)));
+
+        assertEquals(List.of(new ReservationReportResponseDto("01 March 2025", 1)),
+                service.getDailyReportByName("centro", from, null, ZONE));
+        assertTrue(service.getDailyReportByName("altrove", from, null, ZONE).isEmpty());
+        assertEquals(1, service.getDailyReportByName("CENTRO", from, null, ZONE).size());
+        verify(appointmentRepository, times(1)).countValidByPeriod(Mockito.eq("Centro"), Mockito.any(), Mockito.any(),
+                Mockito.eq(ChronoUnit.DAYS), Mockito.eq(ZONE));
+        assertThrows(RuntimeException.class, () -> service.getDailyReportByName("centro", from, from, ZONE));
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void exportStreamsTheLotWithinTheRangeAndClosesTheCursor() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(appointmentRepository.streamByParkingLotNameWithin("Centro", LocalDateTime.of(2025, 2, 28, 23, 0),
+                LocalDateTime.of(2025, 3, 31, 22, 0))).thenAnswer(invocation -> Stream.of(
+                        Appointment.builder().id("a1").parkingLotName("Centro").vehicleSpotId("s, 1")
+                                .vehicleSpotCategory(VehicleSpotCategory.VIP)
+                                .initialDate(LocalDateTime.of(2025, 3, 10, 8, 0))
+                                .endingDate(LocalDateTime.of(2025, 3, 10, 9, 30)).build(),
+                        Appointment.builder().id("a2").parkingLotName("Centro").vehicleSpotId("s2")
+                                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                                .initialDate(LocalDateTime.of(2025, 3, 11, 8, 0))
+                                .endingDate(LocalDateTime.of(2025, 3, 11, 9, 0))
+                                .appointmentState(AppointmentState.CANCELED).seriesId("x").build())
+                .onClose(() -> closed.set(true)));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        service.exportReservationHistory("centro", from, to, ExportFormat.CSV, ZONE).writeTo(csv);
+        assertEquals("""
+                id,parkingLotName,vehicleSpotId,vehicleSpotCategory,initialDate,endingDate,appointmentState,seriesId
+                a1,Centro,"s, 1",VIP,10/03/2025 09:00,10/03/2025 10:30,VALID,
+                a2,Centro,s2,STANDARD,11/03/2025 09:00,11/03/2025 10:00,CANCELED,x
+                """, csv.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        service.exportReservationHistory("centro", from, to, ExportFormat.NDJSON, ZONE).writeTo(ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":\"a1\",\"parkingLotName\":\"Centro\",\"vehicleSpotId\":\"s, 1\",\"vehicleSpotCategory\":\"VIP\","
+                + "\"initialDate\":\"10/03/2025 09:00\",\"endingDate\":\"10/03/2025 10:30\",\"appointmentState\":\"VALID\","
+                + "\"seriesId\":null}", lines[0]);
+        assertThrows(RuntimeException.class,
+                () -> service.exportReservationHistory("altrove", from, to, ExportFormat.CSV, ZONE));
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void cancellationRateCountsCanceledRowsWithoutLoadingThem() {
+        when(appointmentRepository.count()).thenReturn(8L);
+        when(appointmentRepository.countByAppointmentState(AppointmentState.CANCELED)).thenReturn(2L);
+
+        assertEquals(25.0, service.getCancellationRate());
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void reportHistoryReadsOnlyTheParkingLotAppointments() {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 10, 9, 0);
+        when(appointmentRepository.findByParkingLotNameOrderByInitialDate("Centro")).thenReturn(List.of(
+                Appointment.builder().id("a1").parkingLotName("Centro").vehicleSpotCategory(VehicleSpotCategory.VIP)
+                        .initialDate(start).endingDate(start.plusMinutes(90)).build()));
+
+        assertEquals(List.of(new ReservationReportResponseDto("10 March 2025 09:00 - 10:30 → VALID → VIP", 1)),
+                service.getReportHistoryByParkingLotName("centro"));
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    private static Instant startOfDay(LocalDate day) {
+        return day.atStartOfDay(ZoneId.of(ZONE)).toInstant();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AppProperties;
+import com.example.demo.model.dto.appointment.AppointmentDtoMapper;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.allocation.FirstFitAllocationStrategy;
+import com.example.demo.service.allocation.SpotAllocationStrategies;
+import com.example.demo.service.availability.AppointmentExpiryQueue;
+import com.example.demo.service.availability.AppointmentHoldRegistry;
+import com.example.demo.service.availability.OccupancyCalendar;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.DomainEventBus;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * <p>Collegamenti condivisi dai test dei servizi, al posto dell'iniezione di Spring</p>
+ * <p>Ogni collaboratore non indicato e un mock, o l'implementazione reale quando il test non ha motivo di
+ * sostituirla (allocazione first-fit, mapper, {@link AppProperties} di default).</p>
+ */
+public final class ServiceFixtures {
+
+    private ServiceFixtures() {
+    }
+
+    /**
+     * <p>Indice di disponibilità caricato con le prenotazioni valide restituite dal repository</p>
+     * @param appointmentRepository repository, già istruito su {@code findByAppointmentState}
+     * @return indice pronto all'uso
+     */
+    public static SpotAvailabilityIndex loadedIndex(AppointmentRepository appointmentRepository) {
+        SpotAvailabilityIndex index = new SpotAvailabilityIndex();
+        ReflectionTestUtils.setField(index, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(index, "calendar", new OccupancyCalendar(new AppProperties()));
+        ReflectionTestUtils.setField(index, "expiryQueue", new AppointmentExpiryQueue());
+        index.load();
+        return index;
+    }
+
+    /**
+     * <p>Costruttore di un {@link AppointmentService} che lavora su repository e indice indicati</p>
+     * @param appointmentRepository repository delle prenotazioni
+     * @param index indice di disponibilità, di solito {@link #loadedIndex(AppointmentRepository)}
+     * @return costruttore con i collaboratori di default
+     */
+    static AppointmentServiceBuilder appointmentService(AppointmentRepository appointmentRepository, SpotAvailabilityIndex index) {
+        return new AppointmentServiceBuilder(appointmentRepository, index);
+    }
+
+    static final class AppointmentServiceBuilder {
+
+        private final AppointmentRepository appointmentRepository;
+        private final SpotAvailabilityIndex index;
+        private VehicleSpotRepository vehicleSpotRepository = Mockito.mock(VehicleSpotRepository.class);
+        private VehicleSpotClaimRepository claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        private WaitlistService waitlistService = Mockito.mock(WaitlistService.class);
+        private DomainEventBus eventBus = Mockito.mock(DomainEventBus.class);
+        private AppointmentHoldRegistry holdRegistry;
+        private AppProperties appProperties = new AppProperties();
+
+        private AppointmentServiceBuilder(AppointmentRepository appointmentRepository, SpotAvailabilityIndex index) {
+            this.appointmentRepository = appointmentRepository;
+            this.index = index;
+        }
+
+        AppointmentServiceBuilder vehicleSpotRepository(VehicleSpotRepository vehicleSpotRepository) {
+            this.vehicleSpotRepository = vehicleSpotRepository;
+            return this;
+        }
+
+        AppointmentServiceBuilder claimRepository(VehicleSpotClaimRepository claimRepository) {
+            this.claimRepository = claimRepository;
+            return this;
+        }
+
+        AppointmentServiceBuilder waitlistService(WaitlistService waitlistService) {
+            this.waitlistService = waitlistService;
+            return this;
+        }
+
+        AppointmentServiceBuilder eventBus(DomainEventBus eventBus) {
+            this.eventBus = eventBus;
+            return this;
+        }
+
+        AppointmentServiceBuilder holdRegistry(AppointmentHoldRegistry holdRegistry) {
+            this.holdRegistry = holdRegistry;
+            return this;
+        }
+
+        AppointmentServiceBuilder appProperties(AppProperties appProperties) {
+            this.appProperties = appProperties;
+            return this;
+        }
+
+        AppointmentService build() {
+            AppointmentService service = new AppointmentService();
+            ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+            ReflectionTestUtils.setField(service, "vehicleSpotRepository", vehicleSpotRepository);
+            ReflectionTestUtils.setField(service, "availabilityIndex", index);
+            ReflectionTestUtils.setField(service, "vehicleSpotClaimRepository", claimRepository);
+            ReflectionTestUtils.setField(service, "allocationStrategies",
+                    new SpotAllocationStrategies(List.of(new FirstFitAllocationStrategy()), Mockito.mock(ParkingLotRepository.class)));
+            ReflectionTestUtils.setField(service, "holdRegistry", holdRegistry);
+            ReflectionTestUtils.setField(service, "waitlistService", waitlistService);
+            ReflectionTestUtils.setField(service, "eventBus", eventBus);
+            ReflectionTestUtils.setField(service, "mapper", Mockito.mock(AppointmentDtoMapper.class, Mockito.CALLS_REAL_METHODS));
+            ReflectionTestUtils.setField(service, "appProperties", appProperties);
+            return service;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.service;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.enumerators.WaitlistState;
+import com.example.demo.model.dto.appointment.WaitlistEntryResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.model.entities.WaitlistEntry;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.VehicleSpotClaimRepository;
+import com.example.demo.repository.WaitlistEntryRepository;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.waitlist.Waitlist;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class WaitlistServiceTest {
+
+    private static final String LOT = "ospedale";
+
+    private Waitlist waitlist;
+    private SpotAvailabilityIndex index;
+    private WaitlistService service;
+    private final Map<String, WaitlistEntry> stored = new HashMap<>();
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        VehicleSpotClaimRepository claimRepository = Mockito.mock(VehicleSpotClaimRepository.class);
+        WaitlistEntryRepository entryRepository = Mockito.mock(WaitlistEntryRepository.class);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+        when(appointmentRepository.insertAllUnordered(anyList())).thenReturn(Set.of());
+        when(claimRepository.tryClaimAll(anyList())).thenReturn(Set.of());
+        when(entryRepository.insert(any(WaitlistEntry.class))).thenAnswer(invocation -> {
+            WaitlistEntry entry = invocation.getArgument(0);
+            stored.put(entry.getId(), entry);
+            return entry;
+        });
+        when(entryRepository.findByWaitlistState(any())).thenAnswer(invocation -> stored.values().stream()
+                .filter(entry -> entry.getWaitlistState() == invocation.getArgument(0))
+                .toList());
+        when(entryRepository.updateState(anyString(), any(), any())).thenAnswer(invocation ->
+                updateState(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(entryRepository.updateStates(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> updateState(id, invocation.getArgument(1), invocation.getArgument(2))).count();
+        });
+
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+
+        waitlist = new Waitlist();
+        ReflectionTestUtils.setField(waitlist, "waitlistEntryRepository", entryRepository);
+
+        service = new WaitlistService();
+        ReflectionTestUtils.setField(service, "waitlist", waitlist);
+        ReflectionTestUtils.setField(service, "waitlistEntryRepository", entryRepository);
+        ReflectionTestUtils.setField(service, "eventBus", Mockito.mock(DomainEventBus.class));
+        ReflectionTestUtils.setField(service, "availabilityIndex", index);
+        ReflectionTestUtils.setField(service, "vehicleSpotClaimRepository", claimRepository);
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        start = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+    }
+
+    @Test
+    void freedSlotGoesToTheHighestPriorityThenToTheFirstArrived() {
+        Appointment booked = booking("booked", start, start.plusHours(4));
+        index.register(booked);
+
+        WaitlistEntryResponseDto first = service.enqueue(request(start, start.plusHours(2)), 0, "UTC");
+        WaitlistEntryResponseDto second = service.enqueue(request(start.plusHours(1), start.plusHours(3)), 0, "UTC");
+        WaitlistEntryResponseDto urgent = service.enqueue(request(start.plusHours(1), start.plusHours(2)), 5, "UTC");
+
+        index.unregister(booked);
+        service.onSpotFreed(booked);
+
+        // la richiesta urgente occupa [1h, 2h]: la prima si sovrappone e resta in attesa, come la seconda
+        assertEquals(WaitlistState.ASSIGNED, state(urgent.getId()));
+        assertEquals(WaitlistState.WAITING, state(first.getId()));
+        assertEquals(WaitlistState.WAITING, state(second.getId()));
+        assertNotNull(stored.get(urgent.getId()).getAppointmentId());
+        assertFalse(index.isAvailable("spot-0", start.plusHours(1), start.plusHours(2)));
+    }
+
+    @Test
+    void onlyRequestsOverlappingTheFreedWindowAreConsidered() {
+        service.enqueue(request(start, start.plusHours(1)), 0, "UTC");
+        service.enqueue(request(start.plusDays(1), start.plusDays(1).plusHours(1)), 0, "UTC");
+        service.enqueue(request(start.minusHours(20), start.plusHours(2)), 0, "UTC");
+
+        List<?> candidates = waitlist.candidates(LOT, VehicleSpotCategory.STANDARD, start.plusMinutes(30), start.plusHours(3));
+
+        // la richiesta lunga inizia molto prima ma si sovrappone: la finestra tiene conto della durata massima
+        assertEquals(2, candidates.size());
+    }
+
+    @Test
+    void newSpotServesWaitingRequestsInOrder() {
+        WaitlistEntryResponseDto first = service.enqueue(request(start, start.plusHours(2)), 0, "UTC");
+        WaitlistEntryResponseDto overlapping = service.enqueue(request(start.plusHours(1), start.plusHours(3)), 0, "UTC");
+        WaitlistEntryResponseDto later = service.enqueue(request(start.plusHours(5), start.plusHours(6)), 0, "UTC");
+
+        service.onSpotsAdded(List.of(spot()));
+
+        assertEquals(WaitlistState.ASSIGNED, state(first.getId()));
+        assertEquals(WaitlistState.WAITING, state(overlapping.getId()));
+        assertEquals(WaitlistState.ASSIGNED, state(later.getId()));
+        assertEquals(1, waitlist.size());
+    }
+
+    @Test
+    void requestsThatWouldAlreadyHaveStartedExpire() {
+        WaitlistEntryResponseDto past = service.enqueue(request(start, start.plusHours(1)), 0, "UTC");
+        WaitlistEntryResponseDto future = service.enqueue(request(start.plusDays(2), start.plusDays(2).plusHours(1)), 0, "UTC");
+
+        service.expireWaiting(start.plusDays(1));
+
+        assertEquals(WaitlistState.EXPIRED, state(past.getId()));
+        assertTrue(waitlist.get(past.getId()).isEmpty());
+        assertTrue(waitlist.get(future.getId()).isPresent());
+    }
+
+    @Test
+    void requestAlreadyTakenByAnotherInstanceIsSkipped() {
+        WaitlistEntryResponseDto taken = service.enqueue(request(start, start.plusHours(2)), 5, "UTC");
+        WaitlistEntryResponseDto next = service.enqueue(request(start, start.plusHours(2)), 0, "UTC");
+        // un'altra istanza ha gia assegnato la prima richiesta, ancora in coda qui
+        stored.get(taken.getId()).setWaitlistState(WaitlistState.ASSIGNED);
+
+        service.onSpotsAdded(List.of(spot()));
+
+        assertNull(stored.get(taken.getId()).getAppointmentId());
+        assertEquals(WaitlistState.ASSIGNED, state(next.getId()));
+        assertNotNull(stored.get(next.getId()).getAppointmentId());
+        assertEquals(0, waitlist.size());
+    }
+
+    @Test
+    void reloadAddsRequestsFromOtherInstancesAndDropsTheOnesNoLongerWaiting() {
+        WaitlistEntryResponseDto local = service.enqueue(request(start, start.plusHours(1)), 0, "UTC");
+        WaitlistEntry remote = WaitlistEntry.builder().id("remote").parkingLotName(LOT)
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD).initialDate(start).endingDate(start.plusHours(1))
+                .createdAt(start).build();
+        stored.put(remote.getId(), remote);
+        stored.get(local.getId()).setWaitlistState(WaitlistState.CANCELED);
+
+        waitlist.reload();
+
+        assertTrue(waitlist.get(local.getId()).isEmpty());
+        assertTrue(waitlist.get(remote.getId()).isPresent());
+    }
+
+    private boolean updateState(String id, WaitlistState expected, WaitlistState state) {
+        WaitlistEntry entry = stored.get(id);
+        if (entry == null || entry.getWaitlistState() != expected) {
+            return false;
+        }
+        entry.setWaitlistState(state);
+        return true;
+    }
+
+    private WaitlistState state(String entryId) {
+        return stored.get(entryId).getWaitlistState();
+    }
+
+    private static VehicleSpot spot() {
+        return VehicleSpot.builder().id("spot-0").parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build();
+    }
+
+    private static Appointment request(LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Appointment.builder()
+                .parkingLotName(LOT)
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(initialDate)
+                .endingDate(endingDate)
+                .appointmentState(AppointmentState.VALID)
+                .build();
+    }
+
+    private static Appointment booking(String id, LocalDateTime initialDate, LocalDateTime endingDate) {
+        Appointment appointment = request(initialDate, endingDate);
+        appointment.setId(id);
+        appointment.setVehicleSpotId("spot-0");
+        return appointment;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.service.ServiceFixtures;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Confronto delle strategie di assegnazione rigiocando uno storico di prenotazioni:
+ * tasso di accettazione e latenza media di assegnazione</p>
+ * <p>Lo storico e generato con un seme fisso (molte soste brevi, alcune lunghe, in ordine di arrivo
+ * casuale); {@link #replay} accetta anche prenotazioni reali esportate dalla collezione {@code Appointment}.</p>
+ */
+class SpotAllocationReplayTest {
+
+    private static final String LOT = "centro";
+    private static final int SPOTS = 20;
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 3, 4, 0, 0);
+    /**
+     * Limite largo per una assegnazione su {@value #SPOTS} posti in memoria, che richiede pochi microsecondi.
+     */
+    private static final long MAX_NANOS_PER_ASSIGNMENT = 1_000_000;
+
+    @Test
+    void shortBookingFillsTheSmallGapAndLeavesTheEmptySpotToTheLongOne() {
+        LocalDateTime morning = DAY.plusHours(8);
+        // spot-0 vuoto, spot-1 con un buco di due ore tra le 10 e le 12
+        List<Appointment> existing = List.of(
+                booking("a", "spot-1", morning, morning.plusHours(2)),
+                booking("b", "spot-1", morning.plusHours(4), morning.plusHours(12)));
+        List<Appointment> history = List.of(
+                booking("short", morning.plusHours(2).plusMinutes(15), morning.plusHours(3).plusMinutes(45)),
+                booking("long", morning.plusHours(1), morning.plusHours(10)));
+
+        assertEquals(1, replay(SpotAllocationMode.FIRST_FIT, existing, history, 2).accepted());
+        assertEquals(2, replay(SpotAllocationMode.BEST_FIT, existing, history, 2).accepted());
+        assertEquals(2, replay(SpotAllocationMode.PACKED, existing, history, 2).accepted());
+    }
+
+    @Test
+    void replayHistoryWithEveryStrategy() {
+        List<Appointment> history = history(new Random(42), 1000);
+        Map<SpotAllocationMode, Result> results = new EnumMap<>(SpotAllocationMode.class);
+        for (SpotAllocationMode mode : SpotAllocationMode.values()) {
+            results.put(mode, replay(mode, List.of(), history, SPOTS));
+        }
+        // con arrivi in ordine casuale le differenze dipendono dal carico: qui non si confrontano le strategie
+        results.forEach((mode, result) -> {
+            assertTrue(result.accepted() > 0, mode.getModeName());
+            assertTrue(result.nanos() / history.size() < MAX_NANOS_PER_ASSIGNMENT, mode.getModeName());
+        });
+    }
+
+    /**
+     * Rigioca lo storico con la strategia indicata su un indice che contiene solo {@code existing}.
+     */
+    static Result replay(SpotAllocationMode mode, List<Appointment> existing, List<Appointment> history, int spotCount) {
+        AppointmentRepository appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(existing);
+        SpotAvailabilityIndex index = ServiceFixtures.loadedIndex(appointmentRepository);
+
+        SpotAllocationStrategy strategy = strategy(mode, index);
+        List<VehicleSpot> spots = IntStream.range(0, spotCount)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+
+        int accepted = 0;
+        long started = System.nanoTime();
+        for (Appointment appointment : history) {
+            List<VehicleSpot> ordered = strategy.order(spots, appointment.getInitialDate(), appointment.getEndingDate());
+            if (index.claimFirstAvailable(ordered, appointment, spot -> true).isPresent()) {
+                accepted++;
+            }
+        }
+        return new Result(accepted, System.nanoTime() - started);
+    }
+
+    private static SpotAllocationStrategy strategy(SpotAllocationMode mode, SpotAvailabilityIndex index) {
+        SpotAllocationStrategy strategy = switch (mode) {
+            case FIRST_FIT -> new FirstFitAllocationStrategy();
+            case BEST_FIT -> new BestFitAllocationStrategy();
+            case PACKED -> new PackedAllocationStrategy();
+            case SPREAD -> new SpreadAllocationStrategy();
+        };
+        if (!(strategy instanceof FirstFitAllocationStrategy)) {
+            ReflectionTestUtils.setField(strategy, "availabilityIndex", index);
+        }
+        return strategy;
+    }
+
+    /**
+     * Una settimana di richieste: 85% soste da 1 a 3 ore, 15% soste da 8 a 14 ore, a quarti d'ora.
+     */
+    private static List<Appointment> history(Random random, int size) {
+        List<Appointment> history = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            boolean longStay = random.nextInt(100) < 15;
+            int quarters = longStay ? 32 + random.nextInt(25) : 4 + random.nextInt(9);
+            LocalDateTime start = DAY.plusMinutes(15L * random.nextInt(7 * 96 - quarters));
+            history.add(booking("a-" + i, start, start.plusMinutes(15L * quarters - 1)));
+        }
+        return history;
+    }
+
+    private static Appointment booking(String id, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return booking(id, null, initialDate, endingDate);
+    }
+
+    private static Appointment booking(String id, String vehicleSpotId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Appointment.builder()
+                .id(id)
+                .vehicleSpotId(vehicleSpotId)
+                .parkingLotName(LOT)
+                .initialDate(initialDate)
+                .endingDate(endingDate)
+                .build();
+    }
+
+    record Result(int accepted, long nanos) {
+    }
+}
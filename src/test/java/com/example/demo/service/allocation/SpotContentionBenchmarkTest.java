@@ -0,0 +1,112 @@
+package com.example.demo.service.allocation;
+
+import com.example.demo.enumerators.SpotAllocationMode;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.service.ServiceFixtures;
+import com.example.demo.service.availability.SpotAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Picco di prenotazioni concorrenti sullo stesso parcheggio e categoria (evento allo stadio):
+ * tentativi persi per ogni prenotazione riuscita, con ordine naturale e con {@code SPREAD}</p>
+ * <p>Le richieste sono ripartite su due istanze con indici in memoria separati; la conferma sul database
+ * e simulata con una mappa condivisa e una breve attesa, durante la quale il posto resta riservato in
+ * memoria come nel flusso reale.</p>
+ */
+class SpotContentionBenchmarkTest {
+
+    private static final String LOT = "stadio";
+    private static final int SPOTS = 200;
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 1600;
+    private static final LocalDateTime EVENT = LocalDateTime.of(2030, 6, 1, 18, 0);
+
+    @Test
+    void spreadingProbesCutsRetriesPerBooking() throws InterruptedException {
+        double firstFit = retriesPerBooking(SpotAllocationMode.FIRST_FIT);
+        double spread = retriesPerBooking(SpotAllocationMode.SPREAD);
+
+        assertTrue(spread <= firstFit);
+    }
+
+    private static double retriesPerBooking(SpotAllocationMode mode) throws InterruptedException {
+        SpotAvailabilityIndex[] instances = {index(), index()};
+        SpotAllocationStrategy[] strategies = {strategy(mode, instances[0]), strategy(mode, instances[1])};
+        // riserve sul database condivise dalle due istanze: in questo scenario gli intervalli coincidono
+        Map<String, String> databaseClaims = new ConcurrentHashMap<>();
+        List<VehicleSpot> spots = IntStream.range(0, SPOTS)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName(LOT).vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        for (int i = 0; i < REQUESTS; i++) {
+            // 8 fasce orarie: la capienza (200 x 8) basta per tutte le richieste
+            LocalDateTime initialDate = EVENT.plusHours(i % 8);
+            Appointment appointment = Appointment.builder()
+                    .id("a-" + i)
+                    .parkingLotName(LOT)
+                    .initialDate(initialDate)
+                    .endingDate(initialDate.plusMinutes(59))
+                    .build();
+            // blocchi di 8 richieste alternati tra le istanze: entrambe prenotano tutte le fasce
+            SpotAvailabilityIndex index = instances[(i / 8) % 2];
+            SpotAllocationStrategy strategy = strategies[(i / 8) % 2];
+            executor.submit(() -> {
+                start.await();
+                List<VehicleSpot> ordered = strategy.order(spots, appointment.getInitialDate(), appointment.getEndingDate());
+                index.claimFirstAvailable(ordered, appointment, spot -> {
+                    LockSupport.parkNanos(20_000);
+                    return databaseClaims.putIfAbsent(spot.getId() + "|" + appointment.getInitialDate(), appointment.getId()) == null;
+                }).ifPresent(spot -> booked.incrementAndGet());
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(REQUESTS, booked.get());
+        long retries = instances[0].getClaimRetries() + instances[1].getClaimRetries();
+        return (double) retries / booked.get();
+    }
+
+    private static SpotAvailabilityIndex index() {
+        AppointmentRepository appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of());
+        SpotAvailabilityIndex index = ServiceFixtures.loadedIndex(appointmentRepository);
+        return index;
+    }
+
+    private static SpotAllocationStrategy strategy(SpotAllocationMode mode, SpotAvailabilityIndex index) {
+        if (mode != SpotAllocationMode.SPREAD) {
+            return new FirstFitAllocationStrategy();
+        }
+        SpreadAllocationStrategy strategy = new SpreadAllocationStrategy();
+        ReflectionTestUtils.setField(strategy, "availabilityIndex", index);
+        return strategy;
+    }
+}
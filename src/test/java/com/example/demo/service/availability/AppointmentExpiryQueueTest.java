@@ -0,0 +1,80 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.model.entities.Appointment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentExpiryQueueTest {
+
+    private final AppointmentExpiryQueue queue = new AppointmentExpiryQueue();
+    private final BlockingQueue<List<Appointment>> delivered = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void endedAppointmentsAreDeliveredTogetherAndFutureOnesWhenTheyEnd() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        queue.schedule(appointment("ended-1", "spot-1", now.minusMinutes(5)));
+        queue.schedule(appointment("ended-2", "spot-2", now.minusSeconds(1)));
+        queue.schedule(appointment("soon", "spot-1", now.plusNanos(300_000_000)));
+
+        queue.start(delivered::add);
+
+        List<Appointment> first = delivered.poll(1, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(List.of("ended-1", "ended-2"), first.stream().map(Appointment::getId).toList());
+        assertEquals("spot-1", first.get(0).getVehicleSpotId());
+        assertEquals("lot", first.get(0).getParkingLotName());
+
+        List<Appointment> second = delivered.poll(2, TimeUnit.SECONDS);
+        assertNotNull(second);
+        assertEquals("soon", second.get(0).getId());
+        assertTrue(!LocalDateTime.now(ZoneOffset.UTC).isBefore(second.get(0).getEndingDate()));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void canceledAndRescheduledAppointmentsAreNotDeliveredEarly() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        queue.schedule(appointment("canceled", "spot-1", now.minusMinutes(1)));
+        queue.schedule(appointment("moved", "spot-2", now.minusMinutes(1)));
+        queue.cancel("canceled");
+        queue.schedule(appointment("moved", "spot-2", now.plusDays(1)));
+        queue.schedule(appointment("ended", "spot-3", now.minusMinutes(1)));
+
+        // l'elemento cancellato e quello sostituito non restano nella coda
+        assertEquals(2, queue.queued());
+        queue.start(delivered::add);
+
+        List<Appointment> first = delivered.poll(1, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(List.of("ended"), first.stream().map(Appointment::getId).toList());
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.size());
+    }
+
+    private static Appointment appointment(String id, String vehicleSpotId, LocalDateTime endingDate) {
+        return Appointment.builder()
+                .id(id)
+                .vehicleSpotId(vehicleSpotId)
+                .parkingLotName("lot")
+                .initialDate(endingDate.minusHours(1))
+                .endingDate(endingDate)
+                .build();
+    }
+}
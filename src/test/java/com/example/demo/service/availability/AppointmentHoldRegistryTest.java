@@ -0,0 +1,40 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.model.entities.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentHoldRegistryTest {
+
+    @Test
+    void expiredHoldIsReleasedOnceAndCannotBeTaken() throws InterruptedException {
+        AppointmentHoldRegistry registry = new AppointmentHoldRegistry(Duration.ofMillis(50));
+        CountDownLatch released = new CountDownLatch(1);
+        registry.hold(Appointment.builder().id("h1").build(), appointment -> released.countDown());
+
+        assertTrue(released.await(2, TimeUnit.SECONDS));
+        assertTrue(registry.take("h1").isEmpty());
+        assertEquals(0, registry.size());
+        registry.shutdown();
+    }
+
+    @Test
+    void takenHoldNeverExpires() throws InterruptedException {
+        AppointmentHoldRegistry registry = new AppointmentHoldRegistry(Duration.ofMillis(50));
+        AtomicInteger expired = new AtomicInteger();
+        registry.hold(Appointment.builder().id("h1").build(), appointment -> expired.incrementAndGet());
+
+        assertTrue(registry.take("h1").isPresent());
+        Thread.sleep(200);
+        assertEquals(0, expired.get());
+        assertTrue(registry.take("h1").isEmpty());
+        registry.shutdown();
+    }
+}
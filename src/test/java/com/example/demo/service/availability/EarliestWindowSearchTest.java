@@ -0,0 +1,91 @@
+package com.example.demo.service.availability;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.service.ServiceFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class EarliestWindowSearchTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2030, 5, 6, 8, 0);
+
+    private List<VehicleSpot> spots;
+    private SpotAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        spots = IntStream.range(0, 3)
+                .mapToObj(i -> VehicleSpot.builder().id("spot-" + i).parkingLotName("centro").vehicleSpotCategory(VehicleSpotCategory.STANDARD).build())
+                .toList();
+        AppointmentRepository appointmentRepository = Mockito.mock(AppointmentRepository.class);
+        when(appointmentRepository.findByAppointmentState(any())).thenReturn(List.of(
+                // spot-0: libero solo un'ora tra le 10 e le 11, poi dalle 14
+                booking("a", "spot-0", FROM, FROM.plusHours(2)),
+                booking("b", "spot-0", FROM.plusHours(3), FROM.plusHours(6)),
+                // spot-1: occupato fino alle 12
+                booking("c", "spot-1", FROM.minusHours(1), FROM.plusHours(4)),
+                // spot-2: occupato fino alle 12 e dalle 16 alle 18
+                booking("d", "spot-2", FROM, FROM.plusHours(4)),
+                booking("e", "spot-2", FROM.plusHours(8), FROM.plusHours(10))));
+
+        index = ServiceFixtures.loadedIndex(appointmentRepository);
+    }
+
+    @Test
+    void returnsTheEarliestWindowsAcrossSpotsInOneMerge() {
+        EarliestWindowSearch.Result result = index.findEarliestWindows(spots, FROM, Duration.ofHours(3), 4, Duration.ofSeconds(1));
+
+        assertTrue(result.complete());
+        List<EarliestWindowSearch.Window> windows = result.windows();
+        assertEquals(4, windows.size());
+        // a parita di inizio vince l'ordine dei posti
+        assertEquals("spot-1", windows.get(0).spot().getId());
+        assertEquals(FROM.plusHours(4).plusMinutes(1), windows.get(0).initialDate());
+        assertEquals("spot-2", windows.get(1).spot().getId());
+        assertEquals(FROM.plusHours(4).plusMinutes(1), windows.get(1).initialDate());
+        // il buco di un'ora di spot-0 e troppo corto
+        assertEquals("spot-0", windows.get(2).spot().getId());
+        assertEquals(FROM.plusHours(6).plusMinutes(1), windows.get(2).initialDate());
+        assertEquals("spot-2", windows.get(3).spot().getId());
+        assertEquals(FROM.plusHours(10).plusMinutes(1), windows.get(3).initialDate());
+        assertEquals(FROM.plusHours(13).plusMinutes(1), windows.get(3).endingDate());
+    }
+
+    @Test
+    void freeSpotsAreAvailableRightAway() {
+        VehicleSpot unused = VehicleSpot.builder().id("unused").parkingLotName("centro").build();
+
+        EarliestWindowSearch.Result result = index.findEarliestWindows(List.of(spots.get(0), unused), FROM, Duration.ofHours(1), 1, Duration.ofSeconds(1));
+
+        assertEquals("unused", result.windows().get(0).spot().getId());
+        assertEquals(FROM, result.windows().get(0).initialDate());
+    }
+
+    @Test
+    void exhaustedBudgetReturnsAPartialResult() {
+        EarliestWindowSearch.Result result = index.findEarliestWindows(spots, FROM, Duration.ofHours(1), 3, Duration.ZERO);
+
+        assertFalse(result.complete());
+    }
+
+    private static Appointment booking(String id, String spotId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Appointment.builder().id(id).vehicleSpotId(spotId).parkingLotName("centro")
+                .initialDate(initialDate).endingDate(endingDate).appointmentState(AppointmentState.VALID).build();
+    }
+}
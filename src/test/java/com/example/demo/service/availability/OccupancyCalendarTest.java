@@ -0,0 +1,59 @@
+package com.example.demo.service.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OccupancyCalendarTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Test
+    void markedWindowIsBusyAndNeighboursAreFree() {
+        OccupancyCalendar calendar = new OccupancyCalendar(15, 90, NOW);
+        calendar.mark("lot", "spot", NOW.plusHours(10), NOW.plusHours(12));
+
+        assertEquals(OccupancyCalendar.Probe.BUSY, calendar.probe("lot", "spot", NOW.plusHours(11), NOW.plusHours(13)));
+        assertEquals(OccupancyCalendar.Probe.FREE, calendar.probe("lot", "spot", NOW.plusHours(12).plusMinutes(15), NOW.plusHours(20)));
+        assertEquals(OccupancyCalendar.Probe.FREE, calendar.probe("lot", "other", NOW.plusHours(11), NOW.plusHours(13)));
+        assertEquals(OccupancyCalendar.Probe.UNKNOWN, calendar.probe("lot", "spot", NOW.plusDays(89), NOW.plusDays(91)));
+    }
+
+    @Test
+    void clearOnlyTouchesTheGivenWindow() {
+        OccupancyCalendar calendar = new OccupancyCalendar(15, 90, NOW);
+        calendar.mark("lot", "spot", NOW.plusHours(1), NOW.plusHours(30));
+        calendar.clear("lot", "spot", NOW.plusHours(2), NOW.plusHours(25));
+
+        assertEquals(OccupancyCalendar.Probe.FREE, calendar.probe("lot", "spot", NOW.plusHours(3), NOW.plusHours(24)));
+        assertEquals(OccupancyCalendar.Probe.BUSY, calendar.probe("lot", "spot", NOW.plusHours(1), NOW.plusHours(1).plusMinutes(10)));
+        assertEquals(OccupancyCalendar.Probe.BUSY, calendar.probe("lot", "spot", NOW.plusHours(29), NOW.plusHours(29)));
+    }
+
+    @Test
+    void advancingReusesBucketsThatLeftTheHorizon() {
+        OccupancyCalendar calendar = new OccupancyCalendar(15, 1, NOW);
+        calendar.mark("lot", "spot", NOW, NOW.plusHours(2));
+
+        LocalDateTime entered = calendar.advanceTo(NOW.plusHours(3));
+
+        assertEquals(NOW.plusDays(1), entered);
+        assertEquals(NOW.plusDays(1).plusHours(3), calendar.horizonEnd());
+        assertEquals(OccupancyCalendar.Probe.FREE, calendar.probe("lot", "spot", NOW.plusDays(1), NOW.plusDays(1).plusHours(2)));
+        assertNull(calendar.advanceTo(NOW.plusHours(3)));
+
+        calendar.mark("lot", "spot", NOW.plusDays(1).plusHours(1), NOW.plusDays(1).plusHours(2));
+        assertEquals(OccupancyCalendar.Probe.BUSY, calendar.probe("lot", "spot", NOW.plusDays(1), NOW.plusDays(1).plusHours(1)));
+    }
+
+    @Test
+    void memoryPerSpotIsFixedByBucketAndHorizon() {
+        OccupancyCalendar calendar = new OccupancyCalendar(15, 90, NOW);
+
+        assertEquals(8640, calendar.getCapacity());
+        assertEquals(135 * 8, calendar.bitmapBytesPerSpot());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service.availability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedParallelSearchTest {
+
+    private final RankedParallelSearch search = new RankedParallelSearch(4, 16, Duration.ofSeconds(2));
+
+    @AfterEach
+    void tearDown() {
+        search.shutdown();
+    }
+
+    @Test
+    void waitsForBetterRanksAndCancelsTheRest() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<Optional<String>>> searches = List.of(
+                after(100, null),
+                after(200, "secondo"),
+                after(0, "terzo"),
+                () -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return Optional.of("quarto");
+                });
+
+        RankedParallelSearch.Ranked<String> found = search.first(searches).orElseThrow();
+
+        assertEquals(1, found.rank());
+        assertEquals("secondo", found.value());
+        assertTrue(found.complete());
+        assertEquals(1, found.canceled());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failuresAndEmptyResultsAreNotAcceptable() {
+        List<Callable<Optional<String>>> searches = List.of(
+                () -> {
+                    throw new IllegalStateException("database non raggiungibile");
+                },
+                after(0, null));
+
+        assertTrue(search.first(searches).isEmpty());
+    }
+
+    @Test
+    void timeoutReturnsTheBestResultKnownSoFar() {
+        RankedParallelSearch impatient = new RankedParallelSearch(2, 4, Duration.ofMillis(100));
+        try {
+            RankedParallelSearch.Ranked<String> found = impatient.first(List.of(after(5_000, "primo"), after(0, "secondo")))
+                    .orElseThrow();
+
+            assertEquals(1, found.rank());
+            assertFalse(found.complete());
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    private static Callable<Optional<String>> after(long millis, String value) {
+        return () -> {
+            Thread.sleep(millis);
+            return Optional.ofNullable(value);
+        };
+    }
+}
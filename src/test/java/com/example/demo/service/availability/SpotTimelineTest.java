@@ -0,0 +1,95 @@
+package com.example.demo.service.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpotTimelineTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    @Test
+    void overlapIsInclusiveLikeTheRepositoryQuery() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("a", BASE, BASE.plusHours(2)));
+
+        assertFalse(timeline.isFree(BASE.plusHours(1), BASE.plusHours(3)));
+        assertFalse(timeline.isFree(BASE.plusHours(2), BASE.plusHours(3)));
+        assertFalse(timeline.isFree(BASE.minusHours(1), BASE));
+        assertTrue(timeline.isFree(BASE.plusHours(2).plusMinutes(1), BASE.plusHours(3)));
+        assertTrue(timeline.isFree(BASE.minusHours(2), BASE.minusMinutes(1)));
+    }
+
+    @Test
+    void longBookingIsFoundEvenWhenShorterOnesStartLater() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("long", BASE, BASE.plusDays(3)));
+        timeline.add(new SpotTimeline.Slot("short", BASE.plusDays(4), BASE.plusDays(4).plusHours(1)));
+
+        assertFalse(timeline.isFree(BASE.plusDays(2), BASE.plusDays(2).plusHours(1)));
+        assertTrue(timeline.isFree(BASE.plusDays(3).plusHours(1), BASE.plusDays(3).plusHours(2)));
+    }
+
+    @Test
+    void removeAndReAddAreIdempotentById() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("a", BASE, BASE.plusHours(1)));
+        timeline.add(new SpotTimeline.Slot("a", BASE.plusHours(5), BASE.plusHours(6)));
+
+        assertTrue(timeline.isFree(BASE, BASE.plusHours(1)));
+        assertFalse(timeline.isFree(BASE.plusHours(5), BASE.plusHours(6)));
+
+        timeline.remove("a");
+        assertTrue(timeline.isFree(BASE.plusHours(5), BASE.plusHours(6)));
+    }
+
+    @Test
+    void gapAroundFindsTheLatestPreviousEndAndTheNextStart() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("long", BASE, BASE.plusHours(6)));
+        timeline.add(new SpotTimeline.Slot("short", BASE.plusHours(1), BASE.plusHours(2)));
+        timeline.add(new SpotTimeline.Slot("next", BASE.plusHours(9), BASE.plusHours(10)));
+
+        SpotGap gap = timeline.gapAround(BASE.plusHours(7), BASE.plusHours(8));
+
+        assertEquals(BASE.plusHours(6), gap.previousEnd());
+        assertEquals(BASE.plusHours(9), gap.nextStart());
+        assertEquals(3, gap.bookings());
+        assertNull(timeline.gapAround(BASE.plusHours(5), BASE.plusHours(7)));
+        assertNull(timeline.gapAround(BASE.plusHours(11), BASE.plusHours(12)).nextStart());
+    }
+
+    @Test
+    void freeWindowsSkipBookingsIncludingTheirEndMinute() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("long", BASE, BASE.plusHours(6)));
+        timeline.add(new SpotTimeline.Slot("inside", BASE.plusHours(1), BASE.plusHours(2)));
+        timeline.add(new SpotTimeline.Slot("next", BASE.plusHours(8), BASE.plusHours(9)));
+
+        Iterator<LocalDateTime[]> windows = timeline.freeWindowsFrom(BASE.plusHours(3));
+
+        assertArrayEquals(new LocalDateTime[]{BASE.plusHours(6).plusMinutes(1), BASE.plusHours(8).minusMinutes(1)}, windows.next());
+        assertArrayEquals(new LocalDateTime[]{BASE.plusHours(9).plusMinutes(1), null}, windows.next());
+        assertFalse(windows.hasNext());
+    }
+
+    @Test
+    void removeEndedBeforeDropsOnlyFinishedBookings() {
+        SpotTimeline timeline = new SpotTimeline("lot");
+        timeline.add(new SpotTimeline.Slot("ended", BASE, BASE.plusHours(1)));
+        timeline.add(new SpotTimeline.Slot("running", BASE, BASE.plusHours(3)));
+        timeline.add(new SpotTimeline.Slot("future", BASE.plusHours(4), BASE.plusHours(5)));
+
+        assertEquals(1, timeline.removeEndedBefore(BASE.plusHours(1)));
+        assertEquals(0, timeline.removeEndedBefore(BASE.plusHours(1)));
+        assertEquals(2, timeline.all().size());
+        assertFalse(timeline.isFree(BASE, BASE.plusMinutes(30)));
+    }
+}
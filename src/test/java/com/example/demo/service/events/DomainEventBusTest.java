@@ -0,0 +1,117 @@
+package com.example.demo.service.events;
+
+import com.example.demo.model.entities.ParkingLot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainEventBusTest {
+
+    private final DomainEventBus bus = new DomainEventBus(8, 4);
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void eventsArriveInOrderInBoundedBatches() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<DomainEvent>> batches = new LinkedBlockingQueue<>();
+        bus.subscribe("ordered", batch -> {
+            await(release);
+            batches.add(batch);
+        });
+
+        // il primo evento blocca l'iscritto, i successivi si accumulano nel buffer
+        IntStream.range(0, 7).forEach(i -> bus.publish(event("lot-" + i)));
+        release.countDown();
+
+        List<String> received = new ArrayList<>();
+        while (received.size() < 7) {
+            List<DomainEvent> batch = batches.poll(1, TimeUnit.SECONDS);
+            assertNotNull(batch);
+            assertTrue(batch.size() <= 4);
+            batch.forEach(event -> received.add(((ParkingLotEvent) event).parkingLotName()));
+        }
+        assertEquals(IntStream.range(0, 7).mapToObj(i -> "lot-" + i).toList(), received);
+    }
+
+    @Test
+    void aFullBufferDropsOnlyForTheSlowSubscriber() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(20);
+        AtomicInteger inFlight = new AtomicInteger();
+        bus.subscribe("slow", batch -> {
+            inFlight.set(batch.size());
+            await(release);
+        });
+        bus.subscribe("fast", batch -> batch.forEach(event -> fastDone.countDown()));
+
+        IntStream.range(0, 20).forEach(i -> {
+            bus.publish(event("lot"));
+            // lascia svuotare il buffer dell'iscritto veloce
+            sleep(2);
+        });
+
+        assertTrue(fastDone.await(2, TimeUnit.SECONDS));
+        DomainEventBus.SubscriberStats slow = bus.stats().get(0);
+        DomainEventBus.SubscriberStats fast = bus.stats().get(1);
+        assertTrue(slow.dropped() > 0);
+        // il primo lotto, bloccato nell'iscritto, puo contenere piu di un evento
+        assertEquals(20, slow.dropped() + slow.queued() + inFlight.get());
+        assertEquals(0, fast.dropped());
+        assertEquals(20, bus.getPublished());
+        release.countDown();
+    }
+
+    @Test
+    void aFailingBatchDoesNotStopTheSubscriber() throws InterruptedException {
+        BlockingQueue<DomainEvent> received = new LinkedBlockingQueue<>();
+        bus.subscribe("flaky", batch -> {
+            if (((ParkingLotEvent) batch.get(0)).parkingLotName().equals("boom")) {
+                throw new RuntimeException("boom");
+            }
+            received.addAll(batch);
+        });
+
+        bus.publish(event("boom"));
+        sleep(50);
+        bus.publish(event("ok"));
+
+        assertNotNull(received.poll(1, TimeUnit.SECONDS));
+        assertEquals(1, bus.stats().get(0).failures());
+    }
+
+    private static ParkingLotEvent event(String parkingLotName) {
+        return ParkingLotEvent.of(ParkingLotEvent.Type.CREATED, ParkingLot.builder().name(parkingLotName).build());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
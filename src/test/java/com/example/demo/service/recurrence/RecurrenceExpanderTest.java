@@ -0,0 +1,87 @@
+package com.example.demo.service.recurrence;
+
+import com.example.demo.enumerators.RecurrenceFrequency;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.appointment.AppointmentPostDto;
+import com.example.demo.model.dto.appointment.AppointmentSeriesPostDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecurrenceExpanderTest {
+
+    // lunedi
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    @Test
+    void weekdaysForThreeMonthsAreAboutSixtyFiveOccurrences() {
+        List<AppointmentPostDto> occurrences = RecurrenceExpander.expand(series(RecurrenceFrequency.WEEKLY)
+                .daysOfWeek(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY))
+                .until(LocalDate.of(2030, 4, 6))
+                .build());
+
+        assertEquals(65, occurrences.size());
+        assertTrue(occurrences.stream().noneMatch(occurrence -> occurrence.getInitialDate().getDayOfWeek().getValue() > 5));
+        assertEquals(LocalDateTime.of(2030, 4, 5, 18, 0), occurrences.get(64).getEndingDate());
+    }
+
+    @Test
+    void countAndIntervalLimitTheSeries() {
+        List<AppointmentPostDto> occurrences = RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY)
+                .interval(2)
+                .count(3)
+                .build());
+
+        assertEquals(List.of(MONDAY, MONDAY.plusDays(2), MONDAY.plusDays(4)),
+                occurrences.stream().map(AppointmentPostDto::getInitialDate).toList());
+    }
+
+    @Test
+    void everyOtherWeekDefaultsToTheFirstDay() {
+        List<AppointmentPostDto> occurrences = RecurrenceExpander.expand(series(RecurrenceFrequency.WEEKLY)
+                .interval(2)
+                .count(3)
+                .build());
+
+        assertEquals(List.of(MONDAY, MONDAY.plusWeeks(2), MONDAY.plusWeeks(4)),
+                occurrences.stream().map(AppointmentPostDto::getInitialDate).toList());
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY).build()));
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY)
+                .count(RecurrenceExpander.MAX_OCCURRENCES + 1).build()));
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY)
+                .endingDate(MONDAY.plusDays(2)).count(2).build()));
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY)
+                .count(0).build()));
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.WEEKLY)
+                .count(3).interval(0).build()));
+    }
+
+    @Test
+    void hugeCountIsRejectedWithoutExpandingIt() {
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.DAILY)
+                .count(Integer.MAX_VALUE).build()));
+        assertThrows(RuntimeException.class, () -> RecurrenceExpander.expand(series(RecurrenceFrequency.WEEKLY)
+                .count(Integer.MAX_VALUE).build()));
+    }
+
+    private static AppointmentSeriesPostDto.AppointmentSeriesPostDtoBuilder series(RecurrenceFrequency frequency) {
+        return AppointmentSeriesPostDto.builder()
+                .parkingLotName("stazione")
+                .vehicleSpotCategory(VehicleSpotCategory.STANDARD)
+                .initialDate(MONDAY)
+                .endingDate(MONDAY.withHour(18))
+                .frequency(frequency);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.RollupTier;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.AppointmentRollup;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.AppointmentRollupRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentRollupsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 6, 15, 12, 0);
+
+    private final AppointmentRollupRepository repository = mock(AppointmentRollupRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final AppointmentRollups rollups = new AppointmentRollups(repository, appointmentRepository, mock(DomainEventBus.class), 7, 180,
+            Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsBecomeIncrementsSpreadOverTheHoursTheyOccupy() {
+        AppointmentEvent.Snapshot booked = snapshot("1", LocalDateTime.of(2030, 6, 15, 8, 30), AppointmentState.VALID);
+        AppointmentEvent.Snapshot canceled = snapshot("1", booked.initialDate(), AppointmentState.CANCELED);
+        AppointmentEvent.Snapshot old = snapshot("2", LocalDateTime.of(2030, 6, 1, 23, 30), AppointmentState.VALID);
+        rollups.apply(List.of(
+                new AppointmentEvent(AppointmentEvent.Type.CREATED, booked, null, Instant.now()),
+                new AppointmentEvent(AppointmentEvent.Type.CREATED, old, null, Instant.now())));
+        rollups.apply(List.of(new AppointmentEvent(AppointmentEvent.Type.CANCELED, canceled, booked, Instant.now())));
+
+        ArgumentCaptor<Collection<AppointmentRollup>> increments = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, times(2)).incrementAll(increments.capture());
+        Map<String, AppointmentRollup> created = byId(increments.getAllValues().get(0));
+        AppointmentRollup firstHour = created.get(id(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 8, 0)));
+        assertEquals(1, firstHour.getCreated());
+        assertEquals(1, firstHour.getValid());
+        assertEquals(30, firstHour.getOccupiedMinutes());
+        assertEquals(60, created.get(id(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 9, 0))).getOccupiedMinutes());
+        assertEquals(30, created.get(id(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 10, 0))).getOccupiedMinutes());
+        // oltre la conservazione delle ore: i minuti di ogni giorno finiscono nella riga giornaliera
+        assertEquals(30, created.get(id(RollupTier.DAY, LocalDateTime.of(2030, 6, 1, 0, 0))).getOccupiedMinutes());
+        assertEquals(1, created.get(id(RollupTier.DAY, LocalDateTime.of(2030, 6, 1, 0, 0))).getCreated());
+        assertEquals(90, created.get(id(RollupTier.DAY, LocalDateTime.of(2030, 6, 2, 0, 0))).getOccupiedMinutes());
+
+        Map<String, AppointmentRollup> undone = byId(increments.getAllValues().get(1));
+        AppointmentRollup canceledHour = undone.get(id(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 8, 0)));
+        assertEquals(-1, canceledHour.getValid());
+        assertEquals(1, canceledHour.getCanceled());
+        assertEquals(-30, canceledHour.getOccupiedMinutes());
+        assertEquals(0, canceledHour.getCreated());
+    }
+
+    @Test
+    void queryMergesRowsAtTheRequestedGranularityAndKeepsCoarserOnes() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 10, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 6, 16, 0, 0);
+        when(repository.findByParkingLotNameAndBucketGreaterThanEqualAndBucketLessThan("A", LocalDateTime.of(2030, 1, 1, 0, 0), to))
+                .thenReturn(List.of(
+                        row(RollupTier.MONTH, LocalDateTime.of(2030, 1, 1, 0, 0), VehicleSpotCategory.STANDARD, 5),
+                        row(RollupTier.DAY, LocalDateTime.of(2030, 6, 14, 0, 0), VehicleSpotCategory.STANDARD, 2),
+                        row(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 8, 0), VehicleSpotCategory.STANDARD, 1),
+                        row(RollupTier.HOUR, LocalDateTime.of(2030, 6, 15, 9, 0), VehicleSpotCategory.VIP, 3)));
+
+        List<AppointmentRollup> days = rollups.query("A", null, from, to, RollupTier.DAY);
+        assertEquals(List.of(RollupTier.MONTH, RollupTier.DAY, RollupTier.DAY), days.stream().map(AppointmentRollup::getTier).toList());
+        assertEquals(List.of(5L, 2L, 4L), days.stream().map(AppointmentRollup::getCreated).toList());
+        assertEquals(LocalDateTime.of(2030, 6, 15, 0, 0), days.get(2).getBucket());
+
+        List<AppointmentRollup> vip = rollups.query("A", VehicleSpotCategory.VIP, from, to, RollupTier.HOUR);
+        assertEquals(1, vip.size());
+        assertEquals(LocalDateTime.of(2030, 6, 15, 9, 0), vip.get(0).getBucket());
+        assertEquals(RollupTier.MONTH, AppointmentRollups.granularityFor(from, to));
+    }
+
+    @Test
+    void compactionLagsTheWriteCutoffsByOneDay() {
+        rollups.compact();
+
+        verify(repository).compact(RollupTier.HOUR, RollupTier.DAY, LocalDateTime.of(2030, 6, 7, 0, 0));
+        verify(repository).compact(RollupTier.DAY, RollupTier.MONTH, LocalDateTime.of(2029, 12, 1, 0, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileOverwritesTheRecentHoursWithCountsAndMinutesFromTheAppointments() {
+        LocalDateTime from = LocalDateTime.of(2030, 6, 8, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 6, 15, 13, 0);
+        LocalDateTime eight = LocalDateTime.of(2030, 6, 15, 8, 0);
+        // una scadenza della riconciliazione periodica: nessun evento, ma la prenotazione e EXPIRED
+        AppointmentRollup counts = row(RollupTier.HOUR, eight, VehicleSpotCategory.STANDARD, 2);
+        counts.setValid(1);
+        counts.setExpired(1);
+        AppointmentRollup minutes = row(RollupTier.HOUR, eight, VehicleSpotCategory.STANDARD, 0);
+        minutes.setOccupiedMinutes(90);
+        AppointmentRollup onlyMinutes = row(RollupTier.HOUR, eight.plusHours(1), VehicleSpotCategory.STANDARD, 0);
+        onlyMinutes.setOccupiedMinutes(60);
+        when(appointmentRepository.countByParkingLotCategoryAndHour(from, to)).thenReturn(List.of(counts));
+        when(appointmentRepository.sumOccupiedMinutesByHour(from, to)).thenReturn(List.of(minutes, onlyMinutes));
+
+        rollups.reconcile();
+
+        ArgumentCaptor<Collection<AppointmentRollup>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).replaceAll(eq(RollupTier.HOUR), eq(from), eq(to), rows.capture(), eq(NOW));
+        Map<String, AppointmentRollup> byId = byId(rows.getValue());
+        assertEquals(2, byId.size());
+        AppointmentRollup first = byId.get(id(RollupTier.HOUR, eight));
+        assertEquals(2, first.getCreated());
+        assertEquals(1, first.getValid());
+        assertEquals(1, first.getExpired());
+        assertEquals(90, first.getOccupiedMinutes());
+        assertEquals(60, byId.get(id(RollupTier.HOUR, eight.plusHours(1))).getOccupiedMinutes());
+    }
+
+    private static AppointmentEvent.Snapshot snapshot(String id, LocalDateTime start, AppointmentState state) {
+        return new AppointmentEvent.Snapshot(id, "A", "spot-" + id, VehicleSpotCategory.STANDARD,
+                start, start.plusHours(2), state, null);
+    }
+
+    private static AppointmentRollup row(RollupTier tier, LocalDateTime bucket, VehicleSpotCategory category, long created) {
+        return AppointmentRollup.builder().id(AppointmentRollup.idOf(tier, "A", category, bucket))
+                .tier(tier).parkingLotName("A").vehicleSpotCategory(category).bucket(bucket).created(created).build();
+    }
+
+    private static String id(RollupTier tier, LocalDateTime bucket) {
+        return AppointmentRollup.idOf(tier, "A", VehicleSpotCategory.STANDARD, bucket);
+    }
+
+    private static Map<String, AppointmentRollup> byId(Collection<AppointmentRollup> increments) {
+        return increments.stream().collect(Collectors.toMap(AppointmentRollup::getId, Function.identity()));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.CancellationWindow;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.pojo.LotCategoryBucketCount;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CancellationCountersTest {
+
+    private static final Instant START = Instant.parse("2030-01-01T12:00:00Z");
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final MutableClock clock = new MutableClock();
+    private final CancellationCounters counters = new CancellationCounters(appointmentRepository, mock(DomainEventBus.class), clock);
+
+    @Test
+    void transitionsLeaveEachWindowWhenTheyGetOlderThanIt() {
+        AppointmentEvent.Snapshot centro = snapshot("Centro", VehicleSpotCategory.STANDARD, AppointmentState.VALID);
+        AppointmentEvent.Snapshot nord = snapshot("Nord", VehicleSpotCategory.VIP, AppointmentState.VALID);
+        counters.apply(List.of(
+                event(AppointmentEvent.Type.CREATED, centro, null),
+                event(AppointmentEvent.Type.CREATED, centro, null),
+                event(AppointmentEvent.Type.CREATED, nord, null),
+                event(AppointmentEvent.Type.CANCELED, canceled(centro), centro),
+                event(AppointmentEvent.Type.CANCELED, canceled(nord), null),
+                // gia cancellata: non va contata di nuovo
+                event(AppointmentEvent.Type.UPDATED, canceled(nord), canceled(nord))));
+
+        assertEquals(new CancellationCounters.Counts(3, 2), counters.count(null, null, CancellationWindow.LAST_HOUR));
+        assertEquals(new CancellationCounters.Counts(2, 1), counters.count("centro", null, CancellationWindow.LAST_DAY));
+        assertEquals(new CancellationCounters.Counts(1, 1), counters.count(null, VehicleSpotCategory.VIP, CancellationWindow.LAST_30_DAYS));
+
+        clock.advance(Duration.ofMinutes(61));
+        counters.apply(List.of(event(AppointmentEvent.Type.UPDATED, canceled(centro), centro)));
+        assertEquals(new CancellationCounters.Counts(0, 1), counters.count(null, null, CancellationWindow.LAST_HOUR));
+        assertEquals(new CancellationCounters.Counts(3, 3), counters.count(null, null, CancellationWindow.LAST_DAY));
+
+        clock.advance(Duration.ofDays(2));
+        assertEquals(new CancellationCounters.Counts(0, 0), counters.count(null, null, CancellationWindow.LAST_DAY));
+        assertEquals(new CancellationCounters.Counts(3, 3), counters.count(null, null, CancellationWindow.LAST_30_DAYS));
+        clock.advance(Duration.ofDays(30));
+        assertEquals(Map.of(), counters.countByParkingLotAndCategory(CancellationWindow.LAST_30_DAYS));
+    }
+
+    @Test
+    void reconcileReplacesTheCountersWithTheIndexedAggregations() {
+        counters.apply(List.of(event(AppointmentEvent.Type.CREATED,
+                snapshot("Centro", VehicleSpotCategory.STANDARD, AppointmentState.VALID), null)));
+        LocalDateTime now = LocalDateTime.ofInstant(START, ZoneOffset.UTC);
+        when(appointmentRepository.countCreatedSince(now.minusMinutes(59), ChronoUnit.MINUTES)).thenReturn(List.of(
+                new LotCategoryBucketCount("Centro", VehicleSpotCategory.STANDARD, now.minusMinutes(10), 4)));
+        when(appointmentRepository.countCreatedSince(now.minusHours(719), ChronoUnit.HOURS)).thenReturn(List.of(
+                new LotCategoryBucketCount("Centro", VehicleSpotCategory.STANDARD, now.minusHours(1), 4),
+                new LotCategoryBucketCount("Centro", VehicleSpotCategory.STANDARD, now.minusDays(10), 6)));
+        when(appointmentRepository.countCanceledSince(now.minusHours(719), ChronoUnit.HOURS)).thenReturn(List.of(
+                new LotCategoryBucketCount("Centro", VehicleSpotCategory.STANDARD, now.minusDays(10), 3)));
+
+        counters.reconcile();
+
+        assertEquals(new CancellationCounters.Counts(4, 0), counters.count("Centro", null, CancellationWindow.LAST_HOUR));
+        assertEquals(new CancellationCounters.Counts(4, 0), counters.count("Centro", null, CancellationWindow.LAST_DAY));
+        assertEquals(new CancellationCounters.Counts(10, 3), counters.count("Centro", null, CancellationWindow.LAST_30_DAYS));
+        verify(appointmentRepository).countCanceledSince(eq(now.minusMinutes(59)), eq(ChronoUnit.MINUTES));
+        verify(appointmentRepository, never()).findAll();
+        verify(appointmentRepository, never()).countCreatedSince(any(), eq(ChronoUnit.DAYS));
+    }
+
+    @Test
+    void loadKeepsTheEventCountersWhenTheDatabaseIsUnreachable() {
+        counters.apply(List.of(event(AppointmentEvent.Type.CREATED,
+                snapshot("Centro", VehicleSpotCategory.STANDARD, AppointmentState.VALID), null)));
+        when(appointmentRepository.countCreatedSince(any(), any())).thenThrow(new RuntimeException("database down"));
+
+        counters.load();
+
+        assertEquals(new CancellationCounters.Counts(1, 0), counters.count("Centro", null, CancellationWindow.LAST_HOUR));
+    }
+
+    private AppointmentEvent event(AppointmentEvent.Type type, AppointmentEvent.Snapshot appointment,
+                                   AppointmentEvent.Snapshot previous) {
+        return new AppointmentEvent(type, appointment, previous, clock.instant());
+    }
+
+    private static AppointmentEvent.Snapshot snapshot(String parkingLotName, VehicleSpotCategory category, AppointmentState state) {
+        LocalDateTime start = LocalDateTime.of(2030, 2, 1, 8, 0);
+        return new AppointmentEvent.Snapshot("a-" + parkingLotName, parkingLotName, "s", category, start, start.plusHours(1), state, null);
+    }
+
+    private static AppointmentEvent.Snapshot canceled(AppointmentEvent.Snapshot appointment) {
+        return new AppointmentEvent.Snapshot(appointment.id(), appointment.parkingLotName(), appointment.vehicleSpotId(),
+                appointment.vehicleSpotCategory(), appointment.initialDate(), appointment.endingDate(),
+                AppointmentState.CANCELED, appointment.seriesId());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = START;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.VehicleSpot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapacityHeatmapTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2030, 3, 4, 0, 0);
+
+    @Test
+    void countsFreeSpotsPerCategoryAndBucket() {
+        List<VehicleSpot> spots = List.of(
+                spot("s0", VehicleSpotCategory.STANDARD),
+                spot("s1", VehicleSpotCategory.STANDARD),
+                spot("v0", VehicleSpotCategory.VIP));
+        List<Appointment> appointments = List.of(
+                // 01:30-03:00 occupa i bucket 1 e 2, non il 3
+                booking("s0", FROM.plusMinutes(90), FROM.plusHours(3)),
+                // iniziata prima della finestra
+                booking("s1", FROM.minusHours(5), FROM.plusMinutes(10)),
+                booking("v0", FROM.plusHours(3), FROM.plusHours(9)));
+
+        CapacityHeatmap heatmap = CapacityHeatmap.compute(FROM, Duration.ofHours(1), 4, spots, appointments);
+
+        int standard = VehicleSpotCategory.STANDARD.ordinal();
+        int vip = VehicleSpotCategory.VIP.ordinal();
+        assertEquals(2, heatmap.getTotals()[standard]);
+        assertArrayEquals(new int[]{1, 1, 1, 2}, heatmap.getFree()[standard]);
+        assertArrayEquals(new int[]{1, 1, 1, 0}, heatmap.getFree()[vip]);
+        assertArrayEquals(new int[]{0, 0, 0, 0}, heatmap.getFree()[VehicleSpotCategory.ELECTRIC.ordinal()]);
+    }
+
+    @Test
+    void bookingsOfTheSameSpotInOneBucketCountOnce() {
+        List<VehicleSpot> spots = List.of(spot("s0", VehicleSpotCategory.STANDARD), spot("s1", VehicleSpotCategory.STANDARD));
+        List<Appointment> appointments = List.of(
+                booking("s0", FROM.plusMinutes(5), FROM.plusMinutes(20)),
+                booking("s0", FROM.plusMinutes(30), FROM.plusMinutes(50)),
+                booking("s0", FROM.plusMinutes(55), FROM.plusMinutes(70)));
+
+        CapacityHeatmap heatmap = CapacityHeatmap.compute(FROM, Duration.ofHours(1), 3, spots, appointments);
+
+        assertArrayEquals(new int[]{1, 1, 2}, heatmap.getFree()[VehicleSpotCategory.STANDARD.ordinal()]);
+    }
+
+    /**
+     * <p>Una settimana a 15 minuti (672 colonne) su un parcheggio da 2.000 posti con circa 3 prenotazioni
+     * per posto al giorno; confronta con il conteggio diretto su alcuni bucket</p>
+     */
+    @Test
+    void weekAtFifteenMinutesOnTwoThousandSpots() {
+        Random random = new Random(7);
+        VehicleSpotCategory[] categories = VehicleSpotCategory.values();
+        List<VehicleSpot> spots = IntStream.range(0, 2000)
+                .mapToObj(i -> spot("spot-" + i, categories[i % categories.length]))
+                .toList();
+        List<Appointment> appointments = new ArrayList<>();
+        for (VehicleSpot spot : spots) {
+            LocalDateTime cursor = FROM.minusHours(2);
+            while (cursor.isBefore(FROM.plusDays(7))) {
+                LocalDateTime start = cursor.plusMinutes(30 + random.nextInt(240));
+                LocalDateTime end = start.plusMinutes(30 + random.nextInt(480));
+                appointments.add(booking(spot.getId(), start, end));
+                cursor = end;
+            }
+        }
+        int buckets = 7 * 24 * 4;
+
+        // una passata a vuoto per il JIT, poi quella misurata
+        CapacityHeatmap.compute(FROM, Duration.ofMinutes(15), buckets, spots, appointments);
+        long started = System.nanoTime();
+        CapacityHeatmap heatmap = CapacityHeatmap.compute(FROM, Duration.ofMinutes(15), buckets, spots, appointments);
+        long elapsed = System.nanoTime() - started;
+
+        Map<String, List<Appointment>> bySpot = appointments.stream().collect(Collectors.groupingBy(Appointment::getVehicleSpotId));
+        for (int bucket : new int[]{0, 100, 333, buckets - 1}) {
+            LocalDateTime bucketStart = FROM.plusMinutes(15L * bucket);
+            LocalDateTime bucketEnd = bucketStart.plusMinutes(15);
+            for (VehicleSpotCategory category : categories) {
+                long busy = spots.stream()
+                        .filter(spot -> spot.getVehicleSpotCategory() == category)
+                        .filter(spot -> bySpot.get(spot.getId()).stream().anyMatch(appointment ->
+                                appointment.getInitialDate().isBefore(bucketEnd) && appointment.getEndingDate().isAfter(bucketStart)))
+                        .count();
+                assertEquals(500 - busy, heatmap.getFree()[category.ordinal()][bucket]);
+            }
+        }
+        // soglia larga rispetto ai 50 ms richiesti: la macchina di build puo essere lenta
+        assertTrue(elapsed < 500_000_000L, "heatmap calcolata in " + elapsed / 1_000_000 + " ms");
+    }
+
+    private static VehicleSpot spot(String id, VehicleSpotCategory category) {
+        return VehicleSpot.builder().id(id).parkingLotName("fiera").vehicleSpotCategory(category).build();
+    }
+
+    private static Appointment booking(String spotId, LocalDateTime initialDate, LocalDateTime endingDate) {
+        return Appointment.builder().vehicleSpotId(spotId).parkingLotName("fiera")
+                .initialDate(initialDate).endingDate(endingDate).build();
+    }
+}
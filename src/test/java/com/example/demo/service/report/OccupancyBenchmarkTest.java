@@ -0,0 +1,184 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.report.ParkingOccupancyResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.AppointmentRepositoryCustomImpl;
+import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.repository.ParkingOccupancySummaryRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.repository.VehicleSpotRepositoryCustomImpl;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * <p>Occupazione di tutti i parcheggi e di un solo parcheggio con 200 parcheggi e 1M di prenotazioni</p>
+ * <p>Il primo scenario misura la vista in memoria alimentata dagli eventi. Il secondo misura i percorsi sul
+ * database (ricostruzione completa e calcolo di un solo parcheggio) e gira solo indicando un MongoDB di prova
+ * con {@code -Dbenchmark.mongo.uri=mongodb://localhost:27017}: il database {@code occupancy-benchmark} viene
+ * ricreato ad ogni esecuzione.</p>
+ * <p>Fuori dalla build normale: si esegue con {@code mvn test -Pbenchmark -Dtest=OccupancyBenchmarkTest}.</p>
+ */
+@Tag("benchmark")
+class OccupancyBenchmarkTest {
+
+    private static final int LOTS = 200;
+    private static final int SPOTS_PER_LOT = 50;
+    private static final int APPOINTMENTS = 1_000_000;
+    private static final int BATCH = 256;
+    private static final VehicleSpotCategory[] CATEGORIES = VehicleSpotCategory.values();
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    @Test
+    void viewAnswersBothPathsWithoutTouchingAppointments() {
+        ParkingLotRepository parkingLotRepository = mock(ParkingLotRepository.class);
+        when(parkingLotRepository.findAll()).thenReturn(IntStream.range(0, LOTS).mapToObj(OccupancyBenchmarkTest::parkingLot).toList());
+        VehicleSpotRepository vehicleSpotRepository = mock(VehicleSpotRepository.class);
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        OccupancyView view = new OccupancyView(parkingLotRepository, vehicleSpotRepository, appointmentRepository,
+                mock(ParkingOccupancySummaryRepository.class), mock(DomainEventBus.class));
+        view.rebuild();
+
+        long applyStart = System.nanoTime();
+        List<DomainEvent> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            batch.add(new AppointmentEvent(AppointmentEvent.Type.CREATED, snapshot(i), null, Instant.now()));
+            if (batch.size() == BATCH) {
+                view.apply(batch);
+                batch = new ArrayList<>(BATCH);
+            }
+        }
+        view.apply(batch);
+        double applyMillis = (System.nanoTime() - applyStart) / 1e6;
+
+        double allLots = averageMicros(200, view::snapshot);
+        double oneLot = averageMicros(2000, () -> view.find(lotName(LOTS / 2)));
+        // soglie larghe: la macchina di build puo essere lenta
+        assertTrue(applyMillis < 30_000, "eventi applicati in " + applyMillis + " ms");
+        assertTrue(oneLot < allLots, "un parcheggio " + oneLot + " us, tutti i parcheggi " + allLots + " us");
+
+        List<ParkingOccupancyResponseDto> occupancy = view.snapshot();
+        assertEquals(LOTS, occupancy.size());
+        assertEquals(validAppointments(), occupancy.stream().mapToLong(ParkingOccupancyResponseDto::getOccupiedSlots).sum());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+    void databasePathsScaleWithTheirOwnData() {
+        try (MongoClient client = MongoClients.create(System.getProperty("benchmark.mongo.uri"))) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, "occupancy-benchmark");
+            mongoTemplate.getDb().drop();
+            IndexResolver indexResolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+            indexResolver.resolveIndexFor(Appointment.class).forEach(mongoTemplate.indexOps(Appointment.class)::ensureIndex);
+            indexResolver.resolveIndexFor(VehicleSpot.class).forEach(mongoTemplate.indexOps(VehicleSpot.class)::ensureIndex);
+            seed(mongoTemplate);
+
+            AppointmentRepositoryCustomImpl appointmentCustom = new AppointmentRepositoryCustomImpl();
+            ReflectionTestUtils.setField(appointmentCustom, "mongoTemplate", mongoTemplate);
+            VehicleSpotRepositoryCustomImpl vehicleSpotCustom = new VehicleSpotRepositoryCustomImpl();
+            ReflectionTestUtils.setField(vehicleSpotCustom, "mongoTemplate", mongoTemplate);
+            MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+            OccupancyView view = new OccupancyView(
+                    factory.getRepository(ParkingLotRepository.class),
+                    factory.getRepository(VehicleSpotRepository.class, RepositoryComposition.RepositoryFragments.just(vehicleSpotCustom)),
+                    factory.getRepository(AppointmentRepository.class, RepositoryComposition.RepositoryFragments.just(appointmentCustom)),
+                    mock(ParkingOccupancySummaryRepository.class), mock(DomainEventBus.class));
+
+            double allLots = averageMicros(5, () -> {
+                view.rebuild();
+                return view.snapshot();
+            });
+            double oneLot = averageMicros(50, () -> view.compute(lotName(LOTS / 2)));
+            assertTrue(oneLot < allLots, "un parcheggio " + oneLot + " us, tutti i parcheggi " + allLots + " us");
+
+            assertEquals(view.find(lotName(LOTS / 2)), view.compute(lotName(LOTS / 2)));
+            assertEquals(validAppointments(), view.snapshot().stream().mapToLong(ParkingOccupancyResponseDto::getOccupiedSlots).sum());
+            mongoTemplate.getDb().drop();
+        }
+    }
+
+    private static void seed(MongoTemplate mongoTemplate) {
+        mongoTemplate.insert(IntStream.range(0, LOTS).mapToObj(OccupancyBenchmarkTest::parkingLot).toList(), ParkingLot.class);
+        mongoTemplate.insert(IntStream.range(0, LOTS * SPOTS_PER_LOT)
+                .mapToObj(i -> VehicleSpot.builder()
+                        .parkingLotId("lot-" + i / SPOTS_PER_LOT)
+                        .parkingLotName(lotName(i / SPOTS_PER_LOT))
+                        .vehicleSpotCategory(CATEGORIES[i % CATEGORIES.length])
+                        .build())
+                .toList(), VehicleSpot.class);
+        for (int start = 0; start < APPOINTMENTS; start += 10_000) {
+            mongoTemplate.insert(IntStream.range(start, Math.min(start + 10_000, APPOINTMENTS))
+                    .mapToObj(i -> {
+                        AppointmentEvent.Snapshot snapshot = snapshot(i);
+                        return Appointment.builder()
+                                .parkingLotName(snapshot.parkingLotName())
+                                .vehicleSpotId(snapshot.vehicleSpotId())
+                                .vehicleSpotCategory(snapshot.vehicleSpotCategory())
+                                .initialDate(snapshot.initialDate())
+                                .endingDate(snapshot.endingDate())
+                                .appointmentState(snapshot.appointmentState())
+                                .build();
+                    })
+                    .toList(), Appointment.class);
+        }
+    }
+
+    /**
+     * Prenotazioni distribuite su tutti i parcheggi; una su tre non e piu valida.
+     */
+    private static AppointmentEvent.Snapshot snapshot(int i) {
+        int spot = i % (LOTS * SPOTS_PER_LOT);
+        LocalDateTime start = BASE.plusHours(i / (LOTS * SPOTS_PER_LOT));
+        return new AppointmentEvent.Snapshot("a" + i, lotName(spot / SPOTS_PER_LOT), "spot-" + spot,
+                CATEGORIES[spot % CATEGORIES.length], start, start.plusMinutes(50),
+                i % 3 == 0 ? AppointmentState.EXPIRED : AppointmentState.VALID, null);
+    }
+
+    private static long validAppointments() {
+        return APPOINTMENTS - (APPOINTMENTS + 2) / 3;
+    }
+
+    private static ParkingLot parkingLot(int i) {
+        return ParkingLot.builder().id("lot-" + i).name(lotName(i)).vehicleSpotNumber((long) SPOTS_PER_LOT).build();
+    }
+
+    private static String lotName(int i) {
+        return "parcheggio-" + i;
+    }
+
+    private static double averageMicros(int runs, Supplier<?> path) {
+        path.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            path.get();
+        }
+        return (System.nanoTime() - start) / 1e3 / runs;
+    }
+}
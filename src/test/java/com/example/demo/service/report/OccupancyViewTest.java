@@ -0,0 +1,159 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.dto.report.ParkingOccupancyResponseDto;
+import com.example.demo.model.entities.Appointment;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.model.entities.ParkingOccupancySummary;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.model.pojo.LotCategoryCount;
+import com.example.demo.repository.AppointmentRepository;
+import com.example.demo.repository.ParkingLotRepository;
+import com.example.demo.repository.ParkingOccupancySummaryRepository;
+import com.example.demo.repository.VehicleSpotRepository;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.ParkingLotEvent;
+import com.example.demo.service.events.VehicleSpotEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupancyViewTest {
+
+    private final ParkingLotRepository parkingLotRepository = mock(ParkingLotRepository.class);
+    private final VehicleSpotRepository vehicleSpotRepository = mock(VehicleSpotRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ParkingOccupancySummaryRepository summaryRepository = mock(ParkingOccupancySummaryRepository.class);
+    private OccupancyView view;
+
+    @BeforeEach
+    void setUp() {
+        when(parkingLotRepository.findAll()).thenReturn(List.of(
+                ParkingLot.builder().id("lot-a").name("A").vehicleSpotNumber(3L).build(),
+                ParkingLot.builder().id("lot-b").name("B").vehicleSpotNumber(1L).build()));
+        when(vehicleSpotRepository.countByParkingLotAndCategory()).thenReturn(List.of(
+                new LotCategoryCount("A", VehicleSpotCategory.STANDARD, 2),
+                new LotCategoryCount("A", VehicleSpotCategory.VIP, 1),
+                new LotCategoryCount("B", VehicleSpotCategory.STANDARD, 1)));
+        when(appointmentRepository.countValidByParkingLotAndCategory()).thenReturn(List.of(
+                new LotCategoryCount("A", VehicleSpotCategory.STANDARD, 1)));
+        view = new OccupancyView(parkingLotRepository, vehicleSpotRepository, appointmentRepository, summaryRepository,
+                mock(DomainEventBus.class));
+        view.rebuild();
+    }
+
+    @Test
+    void rebuildMatchesTheAggregationsAndEventsKeepTheCountersCurrent() {
+        assertOccupancy("A", 1, Map.of(VehicleSpotCategory.STANDARD, 1L));
+
+        Appointment first = appointment("1", "A", VehicleSpotCategory.VIP, AppointmentState.VALID);
+        Appointment second = appointment("2", "A", VehicleSpotCategory.STANDARD, AppointmentState.VALID);
+        view.apply(List.of(
+                AppointmentEvent.of(AppointmentEvent.Type.CREATED, first),
+                AppointmentEvent.of(AppointmentEvent.Type.CREATED, second)));
+        assertOccupancy("A", 3, Map.of(VehicleSpotCategory.STANDARD, 2L, VehicleSpotCategory.VIP, 1L));
+
+        AppointmentEvent.Snapshot beforeMove = AppointmentEvent.Snapshot.of(second);
+        second.setParkingLotName("B");
+        AppointmentEvent.Snapshot beforeCancel = AppointmentEvent.Snapshot.of(first);
+        first.setAppointmentState(AppointmentState.CANCELED);
+        Appointment expired = appointment("0", "A", VehicleSpotCategory.STANDARD, AppointmentState.EXPIRED);
+        view.apply(List.of(
+                AppointmentEvent.changed(AppointmentEvent.Type.UPDATED, beforeMove, second),
+                AppointmentEvent.changed(AppointmentEvent.Type.CANCELED, beforeCancel, first),
+                AppointmentEvent.of(AppointmentEvent.Type.EXPIRED, expired)));
+
+        assertOccupancy("A", 0, Map.of());
+        assertOccupancy("B", 1, Map.of(VehicleSpotCategory.STANDARD, 1L));
+    }
+
+    @Test
+    void spotAndParkingLotEventsChangeCategoriesAndLots() {
+        VehicleSpot spot = VehicleSpot.builder().id("s").parkingLotName("A").vehicleSpotCategory(VehicleSpotCategory.VIP).build();
+        spot.setParkingLotName("B");
+        view.apply(List.of(
+                VehicleSpotEvent.changed(VehicleSpotEvent.Type.MOVED, "A", VehicleSpotCategory.VIP, spot),
+                ParkingLotEvent.of(ParkingLotEvent.Type.DELETED, ParkingLot.builder().id("lot-a").name("A").build()),
+                ParkingLotEvent.of(ParkingLotEvent.Type.CREATED, ParkingLot.builder().id("lot-c").name("C").vehicleSpotNumber(5L).build())));
+
+        List<ParkingOccupancyResponseDto> occupancy = view.snapshot();
+        assertEquals(List.of("B", "C"), occupancy.stream().map(ParkingOccupancyResponseDto::getParkingLotName).toList());
+        assertEquals(1L, occupancy.get(0).getCategoryBreakdown().get(VehicleSpotCategory.VIP).get("total"));
+        assertEquals(5, view.find("c").orElseThrow().getAvailableSlots());
+        assertTrue(view.find("A").isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void persistWritesOnlyChangedLotsAndDeletesRemovedOnes() {
+        view.persist();
+        verify(summaryRepository).saveAll(anyList());
+
+        view.apply(List.of(
+                AppointmentEvent.of(AppointmentEvent.Type.CREATED, appointment("1", "B", VehicleSpotCategory.STANDARD, AppointmentState.VALID)),
+                ParkingLotEvent.of(ParkingLotEvent.Type.DELETED, ParkingLot.builder().id("lot-a").name("A").build())));
+        view.persist();
+
+        ArgumentCaptor<List<ParkingOccupancySummary>> saved = ArgumentCaptor.forClass(List.class);
+        verify(summaryRepository, times(2)).saveAll(saved.capture());
+        assertEquals(List.of("B"), saved.getValue().stream().map(ParkingOccupancySummary::getParkingLotName).toList());
+        assertEquals(1, saved.getValue().get(0).getOccupiedSlots());
+        verify(summaryRepository).deleteAllById(List.of("A"));
+        verify(appointmentRepository, never()).findAll();
+        verify(vehicleSpotRepository, never()).findAll();
+    }
+
+    @Test
+    void computeReadsOnlyTheRequestedLot() {
+        when(parkingLotRepository.findByName("a")).thenReturn(Optional.empty());
+        when(parkingLotRepository.findByNameIgnoreCase("a")).thenReturn(Optional.of(
+                ParkingLot.builder().id("lot-a").name("A").vehicleSpotNumber(3L).build()));
+        when(vehicleSpotRepository.countByCategory("A")).thenReturn(List.of(
+                new LotCategoryCount("A", VehicleSpotCategory.STANDARD, 2)));
+        when(appointmentRepository.countValidByCategory("A")).thenReturn(List.of(
+                new LotCategoryCount("A", VehicleSpotCategory.STANDARD, 2)));
+
+        ParkingOccupancyResponseDto dto = view.compute("a").orElseThrow();
+
+        assertEquals("lot-a", dto.getParkingLotId());
+        assertEquals(1, dto.getAvailableSlots());
+        assertEquals(Map.of("total", 2L, "occupied", 2L, "available", 0L),
+                dto.getCategoryBreakdown().get(VehicleSpotCategory.STANDARD));
+        verify(appointmentRepository, never()).countValidByCategory("B");
+    }
+
+    private void assertOccupancy(String parkingLotName, long occupied, Map<VehicleSpotCategory, Long> occupiedByCategory) {
+        ParkingOccupancyResponseDto dto = view.find(parkingLotName).orElseThrow();
+        assertEquals(occupied, dto.getOccupiedSlots());
+        dto.getCategoryBreakdown().forEach((category, counts) ->
+                assertEquals(occupiedByCategory.getOrDefault(category, 0L), counts.get("occupied"), category.name()));
+    }
+
+    private static Appointment appointment(String id, String parkingLotName, VehicleSpotCategory category, AppointmentState state) {
+        return Appointment.builder()
+                .id(id)
+                .parkingLotName(parkingLotName)
+                .vehicleSpotId("spot-" + id)
+                .vehicleSpotCategory(category)
+                .appointmentState(state)
+                .initialDate(LocalDateTime.of(2030, 1, 1, 8, 0))
+                .endingDate(LocalDateTime.of(2030, 1, 1, 9, 0))
+                .build();
+    }
+}
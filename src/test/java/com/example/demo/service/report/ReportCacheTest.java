@@ -0,0 +1,127 @@
+package com.example.demo.service.report;
+
+import com.example.demo.enumerators.AppointmentState;
+import com.example.demo.enumerators.VehicleSpotCategory;
+import com.example.demo.model.entities.ParkingLot;
+import com.example.demo.model.entities.VehicleSpot;
+import com.example.demo.service.events.AppointmentEvent;
+import com.example.demo.service.events.DomainEventBus;
+import com.example.demo.service.events.ParkingLotEvent;
+import com.example.demo.service.events.VehicleSpotEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ReportCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final ReportCache cache = new ReportCache(mock(DomainEventBus.class), 2, Duration.ofSeconds(30), clock);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void entriesAreReusedUntilTheyExpireOrAreEvicted() {
+        assertEquals(1, load("history", "Centro"));
+        assertEquals(1, load("history", "centro"));
+        clock.advance(Duration.ofSeconds(31));
+        assertEquals(2, load("history", "Centro"));
+
+        load("history", "Nord");
+        load("history", "Centro");
+        load("history", "Sud");
+        // Centro e stato letto dopo Nord: esce Nord, il meno recente
+        assertEquals(2, load("history", "Centro"));
+        assertEquals(5, load("history", "Nord"));
+
+        ReportCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(5, stats.misses());
+        assertEquals(1, stats.expirations());
+        assertEquals(2, stats.evictions());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    void changesInvalidateOnlyTheirLotsAndTheCrossLotReports() {
+        ReportCache cache = new ReportCache(mock(DomainEventBus.class), 10, Duration.ofSeconds(30), clock);
+        cache.get(ReportCache.key("history", "Centro"), loads::incrementAndGet);
+        cache.get(ReportCache.key("history", "Nord"), loads::incrementAndGet);
+        cache.get(ReportCache.key("history", "Sud"), loads::incrementAndGet);
+        cache.get(ReportCache.key("cancellation-rate", null), loads::incrementAndGet);
+
+        VehicleSpot spot = VehicleSpot.builder().id("s").parkingLotName("Nord").vehicleSpotCategory(VehicleSpotCategory.VIP).build();
+        cache.apply(List.of(
+                new AppointmentEvent(AppointmentEvent.Type.CREATED, new AppointmentEvent.Snapshot("a", "CENTRO", "s",
+                        VehicleSpotCategory.VIP, LocalDateTime.now(), LocalDateTime.now().plusHours(1), AppointmentState.VALID, null),
+                        null, Instant.now()),
+                VehicleSpotEvent.changed(VehicleSpotEvent.Type.MOVED, "Centro", VehicleSpotCategory.VIP, spot)));
+
+        assertEquals(3, cache.stats().invalidations());
+        assertEquals(1, cache.stats().size());
+        assertEquals(3, (int) cache.get(ReportCache.key("history", "Sud"), loads::incrementAndGet));
+
+        cache.get(ReportCache.key("history", "Est"), loads::incrementAndGet);
+        cache.apply(List.of(ParkingLotEvent.of(ParkingLotEvent.Type.UPDATED, ParkingLot.builder().id("x").name("EST").build())));
+        assertEquals(1, cache.stats().size());
+        assertEquals(3, (int) cache.get(ReportCache.key("history", "Sud"), loads::incrementAndGet));
+    }
+
+    @Test
+    void resultsComputedDuringAnInvalidationOfTheirLotAreNotStored() {
+        cache.get(ReportCache.key("history", "Centro"), () -> {
+            cache.invalidate(Set.of("Nord"));
+            return loads.incrementAndGet();
+        });
+        assertEquals(1, cache.stats().size());
+        assertEquals(1, load("history", "Centro"));
+
+        cache.get(ReportCache.key("history", "Sud"), () -> {
+            cache.invalidate(Set.of("SUD"));
+            return loads.incrementAndGet();
+        });
+        cache.get(ReportCache.key("cancellation-rate", null), () -> {
+            cache.invalidate(Set.of("Nord"));
+            return loads.incrementAndGet();
+        });
+        // resta solo Centro
+        assertEquals(1, cache.stats().size());
+        assertEquals(4, load("history", "Sud"));
+    }
+
+    private int load(String report, String parkingLotName) {
+        return cache.get(ReportCache.key(report, parkingLotName), loads::incrementAndGet);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2030-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.service.scheduling;
+
+import com.example.demo.repository.SchedulerLeaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SchedulerLeaseManagerTest {
+
+    private final SchedulerLeaseRepository repository = Mockito.mock(SchedulerLeaseRepository.class);
+    // heartbeat lungo: i rinnovi vengono chiamati dal test
+    private final SchedulerLeaseManager manager = new SchedulerLeaseManager(repository, "node-a",
+            Duration.ofMillis(200), Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void leadershipFollowsTheLeaseOnTheDatabase() {
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenReturn(false);
+        assertFalse(manager.isLeader("job"));
+
+        // l'altra istanza si e fermata e il lease e scaduto
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenReturn(true);
+        manager.renewAll();
+        assertTrue(manager.isLeader("job"));
+
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenReturn(false);
+        manager.renewAll();
+        assertFalse(manager.isLeader("job"));
+        assertEquals(1, manager.stats().get(0).acquisitions());
+    }
+
+    @Test
+    void withoutDatabaseTheLeaseIsKeptOnlyUntilItExpires() throws InterruptedException {
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenReturn(true);
+        assertTrue(manager.isLeader("job"));
+
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenThrow(new RuntimeException("timeout"));
+        manager.renewAll();
+        assertTrue(manager.isLeader("job"));
+
+        Thread.sleep(250);
+        assertFalse(manager.isLeader("job"));
+    }
+
+    @Test
+    void shutdownReleasesHeldLeasesAndStatsSummarizeRuns() {
+        when(repository.tryAcquire(eq("job"), eq("node-a"), any())).thenReturn(true);
+        assertTrue(manager.isLeader("job"));
+        manager.recordRun("job", Duration.ofMillis(30).toNanos());
+        manager.recordRun("job", Duration.ofMillis(10).toNanos());
+        manager.recordSkipped("other");
+
+        List<SchedulerLeaseManager.JobStats> stats = manager.stats();
+        assertEquals(List.of("job", "other"), stats.stream().map(SchedulerLeaseManager.JobStats::jobName).toList());
+        assertEquals(2, stats.get(0).runs());
+        assertEquals(30, stats.get(0).maxDurationMillis());
+        assertEquals(10, stats.get(0).lastDurationMillis());
+        assertEquals(1, stats.get(1).skipped());
+
+        manager.shutdown();
+        verify(repository).release("job", "node-a");
+    }
+}